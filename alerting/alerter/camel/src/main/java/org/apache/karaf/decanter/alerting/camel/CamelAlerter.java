@@ -27,10 +27,13 @@ import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 
 @Component(
     name = "org.apache.karaf.decanter.alerting.camel",
@@ -38,9 +41,15 @@ import java.util.Map;
 )
 public class CamelAlerter implements EventHandler {
 
+    private final static Logger LOGGER = LoggerFactory.getLogger(CamelAlerter.class);
+
     private CamelContext camelContext;
+    private ProducerTemplate producerTemplate;
     private String alertDestinationUri;
 
+    private boolean async;
+    private Semaphore inflight;
+
     @SuppressWarnings("unchecked")
     @Activate
     public void activate(ComponentContext context) throws ConfigurationException {
@@ -49,7 +58,12 @@ public class CamelAlerter implements EventHandler {
         if (alertDestinationUri == null) {
             throw new ConfigurationException("alert.destination.uri", "alert.destination.uri property is not defined");
         }
+        this.async = (config.get("async") != null) ? Boolean.parseBoolean(config.get("async").toString()) : false;
+        int maxInflight = (config.get("async.max.inflight") != null) ? Integer.parseInt(config.get("async.max.inflight").toString()) : 1000;
+        this.inflight = new Semaphore(maxInflight);
         this.camelContext = new DefaultCamelContext();
+        this.camelContext.start();
+        this.producerTemplate = camelContext.createProducerTemplate();
     }
 
     @Override
@@ -58,16 +72,43 @@ public class CamelAlerter implements EventHandler {
         for (String name : event.getPropertyNames()) {
             data.put(name, event.getProperty(name));
         }
-        ProducerTemplate producerTemplate = camelContext.createProducerTemplate();
         Map<String, Object> headers = new HashMap<>();
         headers.put("alertLevel", event.getProperty("alertLevel"));
         headers.put("alertPattern", event.getProperty("alertPattern"));
         headers.put("alertBackToNormal", event.getProperty("alertBackToNormal"));
-        producerTemplate.sendBodyAndHeaders(alertDestinationUri, data, headers);
+        if (!async) {
+            producerTemplate.sendBodyAndHeaders(alertDestinationUri, data, headers);
+            return;
+        }
+        try {
+            inflight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting to send alert on {}", alertDestinationUri);
+            return;
+        }
+        try {
+            producerTemplate.asyncSend(alertDestinationUri, exchange -> {
+                exchange.getIn().setBody(data);
+                exchange.getIn().setHeaders(headers);
+            }).whenComplete((exchange, throwable) -> {
+                inflight.release();
+                if (throwable == null && exchange != null) {
+                    throwable = exchange.getException();
+                }
+                if (throwable != null) {
+                    LOGGER.warn("Can't send alert on {}", alertDestinationUri, throwable);
+                }
+            });
+        } catch (RuntimeException e) {
+            inflight.release();
+            throw e;
+        }
     }
 
     @Deactivate
     public void deactivate() throws Exception {
+        this.producerTemplate.stop();
         this.camelContext.stop();
     }
 }
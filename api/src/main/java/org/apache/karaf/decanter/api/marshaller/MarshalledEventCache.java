@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.api.marshaller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.management.ObjectName;
+
+/**
+ * Cache of the marshalled events, shared by the appenders using the same marshaller.
+ * <p>
+ * The same event is usually sent to several appenders: the first appender marshals the event, the other ones get
+ * the marshalled event from the cache. The cache is keyed by the event identity (events are immutable), with weak
+ * references on the events. It's a fixed number of slots (the recent events): an event replaces the previous one in
+ * the same slot.
+ * The metrics are exposed with the {@code org.apache.karaf.decanter:type=marshaller,name=<data format>} MBean.
+ */
+public final class MarshalledEventCache implements MarshalledEventCacheMBean {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(MarshalledEventCache.class);
+
+    public static final String SIZE_CONFIG = "cache.size";
+    public static final int DEFAULT_SIZE = 1024;
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private ObjectName objectName;
+
+    /**
+     * @param size the number of slots, rounded to a power of two ({@code 0} disables the cache).
+     */
+    public MarshalledEventCache(int size) {
+        int slotCount = (size <= 0) ? 0 : Integer.highestOneBit(Math.min(size, 1 << 20) * 2 - 1);
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+    }
+
+    /**
+     * Get the marshalled event from the cache, or marshal the event.
+     *
+     * @param event the event.
+     * @param marshaller the actual marshalling.
+     * @return the marshalled event.
+     */
+    public <T> String get(T event, Function<T, String> marshaller) {
+        if (mask < 0) {
+            return marshaller.apply(event);
+        }
+        int hash = System.identityHashCode(event) * 0x9E3779B9;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        Entry entry = slots.get(index);
+        if (entry != null && entry.get() == event) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        String value = marshaller.apply(event);
+        slots.set(index, new Entry(event, value));
+        return value;
+    }
+
+    /**
+     * Remove all the marshalled events (for instance when the marshaller configuration changes).
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return (total == 0) ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public int getSize() {
+        return slots.length();
+    }
+
+    /**
+     * Register the cache MBean.
+     *
+     * @param dataFormat the data format of the marshaller.
+     */
+    public synchronized void register(String dataFormat) {
+        unregister();
+        try {
+            ObjectName objectName = new ObjectName("org.apache.karaf.decanter:type=marshaller,name=" + dataFormat);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (Exception e) {
+            LOGGER.debug("Can't register marshaller cache MBean for {}", dataFormat, e);
+        }
+    }
+
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            LOGGER.debug("Can't unregister marshaller cache MBean {}", objectName, e);
+        }
+        objectName = null;
+    }
+
+    private static final class Entry extends WeakReference<Object> {
+
+        final String value;
+
+        Entry(Object event, String value) {
+            super(event);
+            this.value = value;
+        }
+
+    }
+
+}
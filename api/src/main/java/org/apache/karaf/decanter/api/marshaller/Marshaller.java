@@ -16,11 +16,66 @@
  */
 package org.apache.karaf.decanter.api.marshaller;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 
 public interface Marshaller {
     public static final String SERVICE_KEY_DATAFORMAT = "dataFormat";
 
     void marshal(Object obj, OutputStream out);
     String marshal(Object obj);
+
+    /**
+     * Marshal the event as bytes, for the transports with binary payloads (Kafka records, JMS bytes messages, MQTT
+     * messages). By default, the UTF-8 encoding of {@link #marshal(Object)}.
+     */
+    default byte[] marshalBytes(Object obj) {
+        return marshal(obj).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return true for a binary format: {@link #marshalBytes(Object)} returns the binary document, and
+     * {@link #marshal(Object)} a text encoding of it (default false).
+     */
+    default boolean isBinary() {
+        return false;
+    }
+
+    /**
+     * Header of the marshalled events, written once by the appenders at the beginning of an output (for instance
+     * when creating a file), or {@code null} when the format doesn't have a header (default).
+     */
+    default String header() {
+        return null;
+    }
+
+    /**
+     * Marshal a batch of events on the output stream (not closed). By default, the marshalled events are separated
+     * by a new line.
+     */
+    default void marshalBatch(Collection<?> objs, OutputStream out) {
+        try {
+            for (Object obj : objs) {
+                out.write(marshal(obj).getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Marshal a batch of events. By default, the marshalled events are separated by a new line.
+     */
+    default String marshalBatch(Collection<?> objs) {
+        StringBuilder builder = new StringBuilder();
+        for (Object obj : objs) {
+            builder.append(marshal(obj)).append('\n');
+        }
+        return builder.toString();
+    }
 }
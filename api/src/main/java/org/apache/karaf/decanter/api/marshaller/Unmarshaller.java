@@ -16,9 +16,53 @@
  */
 package org.apache.karaf.decanter.api.marshaller;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 public interface Unmarshaller {
     Map<String, Object> unmarshal(InputStream in);
+
+    /**
+     * Unmarshal the documents of the input stream, one at a time. By default, each (not empty) line of the input
+     * stream is a document.
+     */
+    default Iterator<Map<String, Object>> unmarshalAll(InputStream in) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return new Iterator<Map<String, Object>>() {
+            private String line;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (line == null || line.isEmpty()) {
+                        line = reader.readLine();
+                        if (line == null) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String document = line;
+                line = null;
+                return unmarshal(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+            }
+        };
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.api.parser;
+
+/**
+ * Infer the type of a parsed value, scanning the characters once, without throwing exception.
+ * <p>
+ * Most of the parsed values are text: the values starting with another character than a digit, a sign, a dot or
+ * the first letter of a boolean are returned as string without further scan.
+ */
+public final class TypeInference {
+
+    private TypeInference() {
+    }
+
+    /**
+     * Infer the type of the value.
+     *
+     * @param value the parsed value.
+     * @return the value as {@link Integer}, {@link Long} (if it doesn't fit in an integer), {@link Double},
+     * {@link Boolean} or the value itself if it's not a number or a boolean.
+     */
+    public static Object infer(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        char first = value.charAt(0);
+        if ((first >= '0' && first <= '9') || first == '-' || first == '+' || first == '.') {
+            Object number = number(value, true);
+            return (number != null) ? number : value;
+        }
+        if (first == 't' || first == 'T' || first == 'f' || first == 'F') {
+            Boolean bool = parseBoolean(value);
+            return (bool != null) ? bool : value;
+        }
+        return value;
+    }
+
+    /**
+     * @return the value as {@link Integer} or {@link Long} (if it doesn't fit in an integer), or {@code null} if the value is not a decimal integer.
+     */
+    public static Number parseInteger(String value) {
+        return (value != null) ? (Number) number(value, false) : null;
+    }
+
+    /**
+     * @return the value as {@link Double}, or {@code null} if the value is not a decimal number.
+     */
+    public static Double parseDouble(String value) {
+        if (value == null) {
+            return null;
+        }
+        Object number = number(value, true);
+        return (number != null) ? ((Number) number).doubleValue() : null;
+    }
+
+    /**
+     * @return the value as {@link Boolean} (ignoring case), or {@code null} if the value is not {@code true} or {@code false}.
+     */
+    public static Boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * Scan an optional sign, digits, then (if decimal is allowed) an optional fraction and exponent.
+     * The integer part is accumulated negatively, as {@link Long#parseLong(String)}, to handle {@link Long#MIN_VALUE}.
+     * An integer not fitting in a long is not a number (to not lose precision on identifiers).
+     */
+    private static Object number(String value, boolean decimal) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = (value.charAt(0) == '-');
+            i++;
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = limit / 10;
+        long result = 0;
+        boolean overflow = false;
+        int digits = 0;
+        char c = 0;
+        for (; i < length; i++) {
+            c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            int digit = c - '0';
+            if (result < multmin || result * 10 < limit + digit) {
+                overflow = true;
+            } else {
+                result = result * 10 - digit;
+            }
+            digits++;
+        }
+        if (i == length) {
+            if (digits == 0 || overflow) {
+                return null;
+            }
+            result = negative ? result : -result;
+            if (result >= Integer.MIN_VALUE && result <= Integer.MAX_VALUE) {
+                return (int) result;
+            }
+            return result;
+        }
+        if (!decimal) {
+            return null;
+        }
+        if (c == '.') {
+            for (i++; i < length; i++) {
+                c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        if (i < length && (c == 'e' || c == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == exponent) {
+                return null;
+            }
+        }
+        // the value is validated, parsing can't fail
+        return (i == length) ? Double.parseDouble(value) : null;
+    }
+
+}
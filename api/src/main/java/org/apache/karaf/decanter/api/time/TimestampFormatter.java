@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.api.time;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Thread safe timestamp formatter, using a {@link SimpleDateFormat} pattern.
+ * <p>
+ * The formatted text around the milliseconds ({@code SSS}) is cached for the current second, so formatting a
+ * timestamp in the same second as the previous one only appends the milliseconds.
+ */
+public final class TimestampFormatter {
+
+    private final SimpleDateFormat prefixFormat;
+    private final SimpleDateFormat suffixFormat;
+    private final boolean millis;
+    private final boolean cached;
+
+    private volatile Second cache = new Second(Long.MIN_VALUE, null, null);
+
+    /**
+     * @param pattern the {@link SimpleDateFormat} pattern.
+     * @param timeZone the time zone used to format the timestamps.
+     */
+    public TimestampFormatter(String pattern, TimeZone timeZone) {
+        int index = millisIndex(pattern);
+        this.millis = index >= 0;
+        this.cached = index != -2;
+        this.prefixFormat = new SimpleDateFormat(millis ? pattern.substring(0, index) : pattern);
+        this.prefixFormat.setTimeZone(timeZone);
+        this.suffixFormat = millis ? new SimpleDateFormat(pattern.substring(index + 3)) : null;
+        if (suffixFormat != null) {
+            suffixFormat.setTimeZone(timeZone);
+        }
+    }
+
+    /**
+     * Format the given timestamp.
+     *
+     * @param timestamp the timestamp (in ms since epoch).
+     * @return the formatted timestamp.
+     */
+    public String format(long timestamp) {
+        if (!cached) {
+            synchronized (prefixFormat) {
+                return prefixFormat.format(new Date(timestamp));
+            }
+        }
+        long second = Math.floorDiv(timestamp, 1000L);
+        Second current = cache;
+        if (current.second != second) {
+            current = formatSecond(second);
+            cache = current;
+        }
+        if (!millis) {
+            return current.prefix;
+        }
+        int ms = (int) Math.floorMod(timestamp, 1000L);
+        char[] chars = new char[current.prefix.length() + 3 + current.suffix.length()];
+        current.prefix.getChars(0, current.prefix.length(), chars, 0);
+        int position = current.prefix.length();
+        chars[position++] = (char) ('0' + ms / 100);
+        chars[position++] = (char) ('0' + (ms / 10) % 10);
+        chars[position++] = (char) ('0' + ms % 10);
+        current.suffix.getChars(0, current.suffix.length(), chars, position);
+        return new String(chars);
+    }
+
+    public String format(Date date) {
+        return format(date.getTime());
+    }
+
+    private Second formatSecond(long second) {
+        Date date = new Date(second * 1000L);
+        String prefix;
+        synchronized (prefixFormat) {
+            prefix = prefixFormat.format(date);
+        }
+        String suffix = null;
+        if (suffixFormat != null) {
+            synchronized (suffixFormat) {
+                suffix = suffixFormat.format(date);
+            }
+        }
+        return new Second(second, prefix, suffix);
+    }
+
+    /**
+     * Look for the milliseconds ({@code SSS}) outside of quoted text.
+     */
+    private static int millisIndex(String pattern) {
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == 'S') {
+                if (pattern.startsWith("SSS", i) && (i + 3 == pattern.length() || pattern.charAt(i + 3) != 'S')) {
+                    return i;
+                }
+                // other milliseconds patterns are not cached
+                return -2;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Second {
+
+        private final long second;
+        private final String prefix;
+        private final String suffix;
+
+        Second(long second, String prefix, String suffix) {
+            this.second = second;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+    }
+
+}
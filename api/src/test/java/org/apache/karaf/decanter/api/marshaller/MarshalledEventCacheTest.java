@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.api.marshaller;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.ObjectName;
+
+public class MarshalledEventCacheTest {
+
+    @Test
+    public void cache() {
+        MarshalledEventCache cache = new MarshalledEventCache(16);
+        AtomicInteger marshalled = new AtomicInteger();
+        Event event = new Event("decanter/collect/test", Collections.singletonMap("id", 1));
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("marshalled", cache.get(event, e -> {
+                marshalled.incrementAndGet();
+                return "marshalled";
+            }));
+        }
+        Assert.assertEquals(1, marshalled.get());
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(2.0 / 3, cache.getHitRatio(), 0.001);
+
+        // an equal event is not the same event
+        Event other = new Event("decanter/collect/test", Collections.singletonMap("id", 1));
+        Assert.assertEquals("other", cache.get(other, e -> "other"));
+        Assert.assertEquals(2, cache.getMisses());
+
+        cache.clear();
+        Assert.assertEquals("cleared", cache.get(other, e -> "cleared"));
+    }
+
+    @Test
+    public void disabled() {
+        MarshalledEventCache cache = new MarshalledEventCache(0);
+        Event event = new Event("decanter/collect/test", Collections.singletonMap("id", 1));
+        Assert.assertEquals("first", cache.get(event, e -> "first"));
+        Assert.assertEquals("second", cache.get(event, e -> "second"));
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void size() {
+        Assert.assertEquals(1, new MarshalledEventCache(1).getSize());
+        Assert.assertEquals(1024, new MarshalledEventCache(1000).getSize());
+        Assert.assertEquals(1024, new MarshalledEventCache(1024).getSize());
+    }
+
+    @Test
+    public void mbean() throws Exception {
+        MarshalledEventCache cache = new MarshalledEventCache(16);
+        cache.register("test");
+        ObjectName objectName = new ObjectName("org.apache.karaf.decanter:type=marshaller,name=test");
+        Assert.assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+        Assert.assertEquals(16, ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "Size"));
+        cache.unregister();
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+
+}
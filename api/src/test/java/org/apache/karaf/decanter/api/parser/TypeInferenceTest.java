@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.api.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TypeInferenceTest {
+
+    @Test
+    public void integers() {
+        Assert.assertEquals(0, TypeInference.infer("0"));
+        Assert.assertEquals(7, TypeInference.infer("007"));
+        Assert.assertEquals(-42, TypeInference.infer("-42"));
+        Assert.assertEquals(42, TypeInference.infer("+42"));
+        Assert.assertEquals(Integer.MAX_VALUE, TypeInference.infer(String.valueOf(Integer.MAX_VALUE)));
+        Assert.assertEquals(Integer.MIN_VALUE, TypeInference.infer(String.valueOf(Integer.MIN_VALUE)));
+        Assert.assertEquals(Integer.MAX_VALUE + 1L, TypeInference.infer(String.valueOf(Integer.MAX_VALUE + 1L)));
+        Assert.assertEquals(Long.MAX_VALUE, TypeInference.infer(String.valueOf(Long.MAX_VALUE)));
+        Assert.assertEquals(Long.MIN_VALUE, TypeInference.infer(String.valueOf(Long.MIN_VALUE)));
+        // doesn't fit in a long
+        Assert.assertEquals("9223372036854775808", TypeInference.infer("9223372036854775808"));
+        Assert.assertNull(TypeInference.parseInteger("1.5"));
+        Assert.assertEquals(12L, TypeInference.parseInteger("12").longValue());
+    }
+
+    @Test
+    public void decimals() {
+        Assert.assertEquals(1.5, TypeInference.infer("1.5"));
+        Assert.assertEquals(-0.25, TypeInference.infer("-.25"));
+        Assert.assertEquals(1.0e-3, TypeInference.infer("1E-3"));
+        Assert.assertEquals(5000.0, TypeInference.infer("5.e3"));
+        Assert.assertEquals(Double.valueOf(12.0), TypeInference.parseDouble("12"));
+        Assert.assertNull(TypeInference.parseDouble("1e"));
+    }
+
+    @Test
+    public void booleans() {
+        Assert.assertEquals(Boolean.TRUE, TypeInference.infer("true"));
+        Assert.assertEquals(Boolean.FALSE, TypeInference.infer("FALSE"));
+        Assert.assertEquals("truest", TypeInference.infer("truest"));
+    }
+
+    @Test
+    public void strings() {
+        Assert.assertNull(TypeInference.infer(null));
+        Assert.assertEquals("", TypeInference.infer(""));
+        for (String value : new String[]{ "-", "+", ".", "-.", "12a", "1.2.3", "127.0.0.1", "1e", "1e+", "0x1F", "NaN", "Infinity", "2018-09-07", "INFO", " 12" }) {
+            Assert.assertEquals(value, TypeInference.infer(value));
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.api.time;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TimestampFormatterTest {
+
+    private static final String[] PATTERNS = {
+            "yyyy-MM-dd'T'HH:mm:ss,SSSX",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSX",
+            "yyyy-MM-dd'T'HH:mm:ss,SSS'Z'",
+            "yyyy.MM.dd",
+            "HH:mm:ss.S",
+            "'SSS' ss.SSS"
+    };
+
+    private static final String[] TIME_ZONES = { "UTC", "Europe/Paris", "Asia/Kolkata", "America/New_York" };
+
+    @Test
+    public void sameAsSimpleDateFormat() {
+        Random random = new Random(42);
+        for (String pattern : PATTERNS) {
+            for (String timeZone : TIME_ZONES) {
+                TimestampFormatter formatter = new TimestampFormatter(pattern, TimeZone.getTimeZone(timeZone));
+                SimpleDateFormat simpleDateFormat = new SimpleDateFormat(pattern);
+                simpleDateFormat.setTimeZone(TimeZone.getTimeZone(timeZone));
+                long timestamp = 1454428780634L;
+                for (int i = 0; i < 1000; i++) {
+                    // mostly in the same second, sometimes far away (including before 1970)
+                    timestamp += (i % 100 == 0) ? random.nextInt() * 1000L : random.nextInt(300);
+                    Assert.assertEquals(pattern + " " + timeZone + " " + timestamp,
+                            simpleDateFormat.format(new Date(timestamp)), formatter.format(timestamp));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void daylightSavingTime() {
+        TimestampFormatter formatter = new TimestampFormatter("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", TimeZone.getTimeZone("Europe/Paris"));
+        // 2021-03-28T01:59:59.999Z, then 2021-03-28T02:00:00.000Z
+        Assert.assertEquals("2021-03-28T01:59:59.999+01:00", formatter.format(1616893199999L));
+        Assert.assertEquals("2021-03-28T03:00:00.000+02:00", formatter.format(1616893200000L));
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        TimestampFormatter formatter = new TimestampFormatter("yyyy-MM-dd'T'HH:mm:ss,SSSX", TimeZone.getTimeZone("UTC"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                long start = 1454428780634L + t * 3600000L;
+                futures.add(executor.submit(() -> {
+                    SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss,SSSX");
+                    simpleDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    for (long timestamp = start; timestamp < start + 20000; timestamp += 7) {
+                        Assert.assertEquals(simpleDateFormat.format(new Date(timestamp)), formatter.format(timestamp));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
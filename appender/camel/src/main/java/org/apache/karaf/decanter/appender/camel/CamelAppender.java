@@ -23,22 +23,32 @@ import org.apache.camel.core.osgi.OsgiDataFormatResolver;
 import org.apache.camel.core.osgi.OsgiDefaultCamelContext;
 import org.apache.camel.core.osgi.OsgiLanguageResolver;
 import org.apache.camel.impl.DefaultCamelContext;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.FrameworkUtil;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Component(
     name = "org.apache.karaf.decanter.appender.camel",
@@ -48,9 +58,30 @@ import java.util.HashMap;
 public class CamelAppender implements EventHandler {
 
     public static final String DESTINATION_URI_KEY = "destination.uri";
+    public static final String ASYNC_KEY = "async";
+    public static final String ASYNC_MAX_INFLIGHT_KEY = "async.max.inflight";
+    public static final String BATCH_SIZE_KEY = "batch.size";
+    public static final String BATCH_PERIOD_KEY = "batch.period";
+    public static final String SHUTDOWN_TIMEOUT_KEY = "shutdown.timeout";
+
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
 
     private CamelContext camelContext;
+    private ProducerTemplate producerTemplate;
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
+    private String destinationUri;
+
+    private boolean async;
+    private int maxInflight;
+    private Semaphore inflight;
+    private long shutdownTimeout;
+
+    private int batchSize;
+    private List<Map<String, Object>> batch;
+    private ScheduledExecutorService batchExecutor;
 
     private final static Logger LOGGER = LoggerFactory.getLogger(CamelAppender.class);
 
@@ -61,10 +92,20 @@ public class CamelAppender implements EventHandler {
     
     public void open(Dictionary<String, Object> config, BundleContext bundleContext) throws ConfigurationException {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         if (config.get(DESTINATION_URI_KEY) == null) {
             throw new ConfigurationException(DESTINATION_URI_KEY, DESTINATION_URI_KEY + " is not defined");
         }
-        LOGGER.debug("Creating CamelContext, and use the {} URI", config.get(DESTINATION_URI_KEY));
+        this.destinationUri = (String) config.get(DESTINATION_URI_KEY);
+        this.async = (config.get(ASYNC_KEY) != null) ? Boolean.parseBoolean(config.get(ASYNC_KEY).toString()) : false;
+        this.maxInflight = (config.get(ASYNC_MAX_INFLIGHT_KEY) != null) ? Integer.parseInt(config.get(ASYNC_MAX_INFLIGHT_KEY).toString()) : 1000;
+        this.inflight = new Semaphore(maxInflight);
+        this.shutdownTimeout = (config.get(SHUTDOWN_TIMEOUT_KEY) != null) ? Long.parseLong(config.get(SHUTDOWN_TIMEOUT_KEY).toString()) : 5000L;
+        this.batchSize = (config.get(BATCH_SIZE_KEY) != null) ? Integer.parseInt(config.get(BATCH_SIZE_KEY).toString()) : 0;
+        long batchPeriod = (config.get(BATCH_PERIOD_KEY) != null) ? Long.parseLong(config.get(BATCH_PERIOD_KEY).toString()) : 0L;
+
+        LOGGER.debug("Creating CamelContext, and use the {} URI", destinationUri);
         if (bundleContext == null) {
             this.camelContext = new DefaultCamelContext();
         } else {
@@ -76,24 +117,113 @@ public class CamelAppender implements EventHandler {
             this.camelContext = osgiCamelContext;
         }
         this.camelContext.start();
+        LOGGER.debug("Creating producer template");
+        this.producerTemplate = camelContext.createProducerTemplate();
+
+        if (batchSize > 0 || batchPeriod > 0) {
+            this.batch = new ArrayList<>();
+            if (batchPeriod > 0) {
+                batchExecutor = Executors.newSingleThreadScheduledExecutor();
+                batchExecutor.scheduleAtFixedRate(() -> {
+                    // an exception would cancel the next flushes
+                    try {
+                        flush();
+                    } catch (Exception e) {
+                        LOGGER.warn("Can't send event data on {}", destinationUri, e);
+                    }
+                }, batchPeriod, batchPeriod, TimeUnit.MILLISECONDS);
+            }
+        }
     }
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             HashMap<String, Object> data = new HashMap<>();
             for (String name : event.getPropertyNames()) {
                 data.put(name, event.getProperty(name));
             }
-            LOGGER.debug("Creating producer template");
-            ProducerTemplate producerTemplate = camelContext.createProducerTemplate();
-            LOGGER.debug("Sending event data on {}", config.get(DESTINATION_URI_KEY));
-            producerTemplate.sendBody((String) config.get(DESTINATION_URI_KEY), data);
+            if (batch != null) {
+                List<Map<String, Object>> full = null;
+                synchronized (this) {
+                    batch.add(data);
+                    if (batchSize > 0 && batch.size() >= batchSize) {
+                        full = batch;
+                        batch = new ArrayList<>();
+                    }
+                }
+                if (full != null) {
+                    send(full);
+                }
+            } else {
+                send(data);
+            }
         }
     }
 
+    /**
+     * Send the pending batch (if any) to the destination endpoint.
+     */
+    public void flush() {
+        List<Map<String, Object>> pending;
+        synchronized (this) {
+            if (batch == null || batch.isEmpty()) {
+                return;
+            }
+            pending = batch;
+            batch = new ArrayList<>();
+        }
+        send(pending);
+    }
+
+    private void send(Object body) {
+        LOGGER.debug("Sending event data on {}", destinationUri);
+        if (!async) {
+            producerTemplate.sendBody(destinationUri, body);
+            return;
+        }
+        try {
+            inflight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting to send event data on {}", destinationUri);
+            return;
+        }
+        try {
+            producerTemplate.asyncSendBody(destinationUri, body).whenComplete((result, throwable) -> {
+                inflight.release();
+                if (throwable != null) {
+                    LOGGER.warn("Can't send event data on {}", destinationUri, throwable);
+                }
+            });
+        } catch (RuntimeException e) {
+            inflight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Send the pending batch and wait (up to {@code shutdown.timeout} ms) for the asynchronous exchanges in flight
+     * before stopping the Camel context.
+     */
     @Deactivate
     public void deactivate() throws Exception {
-        this.camelContext.stop();
+        long deadline = System.currentTimeMillis() + shutdownTimeout;
+        if (batchExecutor != null) {
+            // a running flush is not interrupted
+            batchExecutor.shutdown();
+            if (!batchExecutor.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Batch flush on {} not completed before shutdown", destinationUri);
+            }
+        }
+        try {
+            flush();
+        } finally {
+            if (async && !inflight.tryAcquire(maxInflight, Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("{} exchanges in flight on {} not completed before shutdown", maxInflight - inflight.availablePermits(), destinationUri);
+            }
+            this.producerTemplate.stop();
+            this.camelContext.stop();
+        }
     }
 }
@@ -21,6 +21,7 @@ import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.impl.DefaultCamelContext;
 import org.apache.karaf.decanter.appender.utils.EventFilter;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.osgi.service.event.Event;
@@ -28,7 +29,9 @@ import org.osgi.service.event.EventConstants;
 
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CamelAppenderTest {
 
@@ -36,6 +39,7 @@ public class CamelAppenderTest {
     private static final long TIMESTAMP = 1454428780634L;
 
     private DefaultCamelContext camelContext;
+    private final AtomicInteger failures = new AtomicInteger();
 
     @Before
     public void setup() throws Exception {
@@ -47,6 +51,18 @@ public class CamelAppenderTest {
                         .id("decanter-test")
                         .log("Received ${body}")
                         .to("mock:assert");
+                from("direct-vm:decanter-failing")
+                        .id("decanter-test-failing")
+                        .process(exchange -> {
+                            if (failures.getAndDecrement() > 0) {
+                                throw new IllegalStateException("Backend is not available");
+                            }
+                        })
+                        .to("mock:assert");
+                from("direct-vm:decanter-slow")
+                        .id("decanter-test-slow")
+                        .delay(200)
+                        .to("mock:assert");
             }
         });
         camelContext.start();
@@ -118,4 +134,132 @@ public class CamelAppenderTest {
         mock.assertIsSatisfied();
     }
 
+    @Test
+    public void testAsync() throws Exception {
+        CamelAppender appender = new CamelAppender();
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(CamelAppender.DESTINATION_URI_KEY, "direct-vm:decanter");
+        config.put(CamelAppender.ASYNC_KEY, "true");
+        config.put(CamelAppender.ASYNC_MAX_INFLIGHT_KEY, "2");
+        appender.open(config, null);
+
+        MockEndpoint mock = (MockEndpoint) camelContext.getEndpoint("mock:assert");
+        mock.expectedMessageCount(10);
+
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put(EventConstants.TIMESTAMP, TIMESTAMP);
+            data.put("index", i);
+            appender.handleEvent(new Event(TOPIC, data));
+        }
+
+        mock.assertIsSatisfied();
+        appender.deactivate();
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        CamelAppender appender = new CamelAppender();
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(CamelAppender.DESTINATION_URI_KEY, "direct-vm:decanter");
+        config.put(CamelAppender.BATCH_SIZE_KEY, "2");
+        appender.open(config, null);
+
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put(EventConstants.TIMESTAMP, TIMESTAMP);
+            data.put("index", i);
+            appender.handleEvent(new Event(TOPIC, data));
+        }
+
+        MockEndpoint mock = (MockEndpoint) camelContext.getEndpoint("mock:assert");
+        mock.expectedMessageCount(1);
+        mock.assertIsSatisfied();
+        List<Map<String, Object>> body = mock.getExchanges().get(0).getIn().getBody(List.class);
+        Assert.assertEquals(2, body.size());
+        Assert.assertEquals(0, body.get(0).get("index"));
+        Assert.assertEquals(1, body.get(1).get("index"));
+
+        // the remaining event is flushed when the appender is deactivated
+        mock.reset();
+        mock.expectedMessageCount(1);
+        appender.deactivate();
+        mock.assertIsSatisfied();
+        body = mock.getExchanges().get(0).getIn().getBody(List.class);
+        Assert.assertEquals(1, body.size());
+        Assert.assertEquals(2, body.get(0).get("index"));
+    }
+
+    @Test
+    public void testBatchPeriod() throws Exception {
+        CamelAppender appender = new CamelAppender();
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(CamelAppender.DESTINATION_URI_KEY, "direct-vm:decanter");
+        config.put(CamelAppender.BATCH_SIZE_KEY, "100");
+        config.put(CamelAppender.BATCH_PERIOD_KEY, "100");
+        appender.open(config, null);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put(EventConstants.TIMESTAMP, TIMESTAMP);
+        data.put("testKey", "testValue");
+        appender.handleEvent(new Event(TOPIC, data));
+
+        MockEndpoint mock = (MockEndpoint) camelContext.getEndpoint("mock:assert");
+        mock.expectedMessageCount(1);
+        mock.assertIsSatisfied();
+        List<Map<String, Object>> body = mock.getExchanges().get(0).getIn().getBody(List.class);
+        Assert.assertEquals(1, body.size());
+        Assert.assertEquals("testValue", body.get(0).get("testKey"));
+        appender.deactivate();
+    }
+
+    @Test
+    public void testBatchPeriodAfterFailure() throws Exception {
+        failures.set(1);
+        CamelAppender appender = new CamelAppender();
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(CamelAppender.DESTINATION_URI_KEY, "direct-vm:decanter-failing");
+        config.put(CamelAppender.BATCH_PERIOD_KEY, "100");
+        appender.open(config, null);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put(EventConstants.TIMESTAMP, TIMESTAMP);
+        data.put("index", 0);
+        appender.handleEvent(new Event(TOPIC, data));
+        while (failures.get() > 0) {
+            Thread.sleep(10);
+        }
+
+        // the batches are still sent after a failed send
+        data.put("index", 1);
+        appender.handleEvent(new Event(TOPIC, data));
+        MockEndpoint mock = (MockEndpoint) camelContext.getEndpoint("mock:assert");
+        mock.expectedMessageCount(1);
+        mock.assertIsSatisfied();
+        List<Map<String, Object>> body = mock.getExchanges().get(0).getIn().getBody(List.class);
+        Assert.assertEquals(1, body.size());
+        Assert.assertEquals(1, body.get(0).get("index"));
+        appender.deactivate();
+    }
+
+    @Test
+    public void testAsyncDeactivate() throws Exception {
+        CamelAppender appender = new CamelAppender();
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(CamelAppender.DESTINATION_URI_KEY, "direct-vm:decanter-slow");
+        config.put(CamelAppender.ASYNC_KEY, "true");
+        appender.open(config, null);
+
+        for (int i = 0; i < 5; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put(EventConstants.TIMESTAMP, TIMESTAMP);
+            data.put("index", i);
+            appender.handleEvent(new Event(TOPIC, data));
+        }
+        // the exchanges in flight are completed before the appender stops
+        appender.deactivate();
+        MockEndpoint mock = (MockEndpoint) camelContext.getEndpoint("mock:assert");
+        Assert.assertEquals(5, mock.getReceivedCounter());
+    }
+
 }
@@ -29,13 +29,16 @@ import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.List;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -64,10 +67,15 @@ public class CassandraAppender implements EventHandler {
     private final static Logger LOGGER = LoggerFactory.getLogger(CassandraAppender.class);
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
 
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private final static String createTableTemplate = "CREATE TABLE IF NOT EXISTS %s (timeStamp timestamp PRIMARY KEY, content Text);";
 
     private CqlSession session;
@@ -88,6 +96,8 @@ public class CassandraAppender implements EventHandler {
 
     void activate(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         String host = getValue(config, CASSANDRA_HOST_PROPERTY, CASSANDRA_HOST_DEFAULT);
         Integer port = Integer.parseInt(getValue(config, CASSANDRA_PORT_PROPERTY, CASSANDRA_PORT_DEFAULT));
         this.keyspace = getValue(config, KEYSPACE_PROPERTY, KEYSPACE_DEFAULT);
@@ -178,7 +188,7 @@ public class CassandraAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             LOGGER.trace("Looking for the Cassandra datasource");
             try {
                 Long timestamp = (Long) event.getProperty("timestamp");
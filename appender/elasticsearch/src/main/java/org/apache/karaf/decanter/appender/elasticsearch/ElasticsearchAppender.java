@@ -27,20 +27,24 @@ import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.nio.entity.NStringEntity;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.api.time.TimestampFormatter;
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.DeliveryPolicy;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.*;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URL;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 @Component(
@@ -66,12 +70,18 @@ public class ElasticsearchAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private RestClient client;
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private DeliveryPolicy deliveryPolicy;
+    private EventLimiter eventLimiter;
+    private AsyncEventHandler eventQueue;
 
-    private final SimpleDateFormat tsFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss,SSS'Z'");
-    private final SimpleDateFormat indexDateFormat = new SimpleDateFormat("yyyy.MM.dd");
+    private final TimestampFormatter indexDateFormat = new TimestampFormatter("yyyy.MM.dd", TimeZone.getTimeZone("UTC"));
 
     private final static Logger LOGGER = LoggerFactory.getLogger(ElasticsearchAppender.class);
 
@@ -83,6 +93,9 @@ public class ElasticsearchAppender implements EventHandler {
     
     public void open(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.deliveryPolicy = new DeliveryPolicy(config, dispatcher);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
 
         String addressesString = getValue(config, ADDRESSES_PROPERTY, ADDRESSES_DEFAULT);
         String username = getValue(config, USERNAME_PROPERTY, USERNAME_DEFAULT);
@@ -125,10 +138,7 @@ public class ElasticsearchAppender implements EventHandler {
         }
 
         client = restClientBuilder.build();
-
-        TimeZone tz = TimeZone.getTimeZone( "UTC" );
-        tsFormat.setTimeZone(tz);
-        indexDateFormat.setTimeZone(tz);
+        this.eventQueue = new AsyncEventHandler(config, this::append);
     }
     
     private String getValue(Dictionary<String, Object> config, String key, String defaultValue) {
@@ -138,6 +148,7 @@ public class ElasticsearchAppender implements EventHandler {
 
     @Deactivate
     public void close() {
+        eventQueue.close();
         try {
             client.close();
         } catch (Exception e) {
@@ -147,17 +158,21 @@ public class ElasticsearchAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
-            try {
-                send(event);
-            } catch (Exception e) {
-                LOGGER.warn("Can't append into Elasticsearch", e);
-            }
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
+            eventQueue.handleEvent(event);
+        }
+    }
+
+    private void append(Event event) {
+        try {
+            deliveryPolicy.deliver(event, () -> send(event));
+        } catch (Exception e) {
+            LOGGER.warn("Can't append into Elasticsearch", e);
         }
     }
 
     private void send(Event event) throws Exception {
-        String indexName = getIndexName(getValue(config, INDEX_PREFIX_PROPERTY, INDEX_PREFIX_DEFAULT), getDate(event));
+        String indexName = getIndexName(getValue(config, INDEX_PREFIX_PROPERTY, INDEX_PREFIX_DEFAULT), getTimestamp(event));
         String jsonSt = marshaller.marshal(event);
 
         String endpoint;
@@ -172,16 +187,15 @@ public class ElasticsearchAppender implements EventHandler {
         client.performRequest(request);
     }
 
-    private Date getDate(Event event) {
+    private long getTimestamp(Event event) {
         Long ts = (Long)event.getProperty("timestamp");
-        Date date = ts != null ? new Date(ts) : new Date();
-        return date;
+        return ts != null ? ts : System.currentTimeMillis();
     }
 
-    private String getIndexName(String prefix, Date date) {
+    private String getIndexName(String prefix, long timestamp) {
         boolean indexTimestamped = Boolean.parseBoolean(getValue(config, INDEX_EVENT_TIMESTAMPED_PROPERTY, INDEX_EVENT_TIMESTAMPED_DEFAULT));
         if (indexTimestamped) {
-            return prefix + "-" + indexDateFormat.format(date);
+            return prefix + "-" + indexDateFormat.format(timestamp);
         } else {
             return prefix;
         }
@@ -17,18 +17,27 @@
 package org.apache.karaf.decanter.appender.file;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.DeliveryPolicy;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
+import org.apache.karaf.decanter.appender.utils.RollingParquetWriter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.util.Dictionary;
 
@@ -41,13 +50,24 @@ public class FileAppender implements EventHandler {
 
     public static final String FILENAME_PROPERTY = "filename";
     public static final String APPEND_PROPERTY = "append";
+    public static final String FORMAT_PROPERTY = "format";
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(FileAppender.class);
 
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private BufferedWriter writer;
+    private RollingParquetWriter parquetWriter;
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private DeliveryPolicy deliveryPolicy;
+    private EventLimiter eventLimiter;
+    private AsyncEventHandler eventQueue;
 
     @Activate
     public void activate(ComponentContext componentContext) throws Exception {
@@ -57,32 +77,68 @@ public class FileAppender implements EventHandler {
 
     public void open(Dictionary<String, Object> config) throws Exception {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.deliveryPolicy = new DeliveryPolicy(config, dispatcher);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
 
         String filename = (config.get(FILENAME_PROPERTY) != null) ? (String) config.get(FILENAME_PROPERTY) : System.getProperty("karaf.data") + File.separator + "decanter" + File.separator + "appender.csv";
         boolean append = (config.get(APPEND_PROPERTY) != null) ? Boolean.parseBoolean((String) config.get(APPEND_PROPERTY)) : true;
 
         File file = new File(filename);
         file.getParentFile().mkdirs();
-        file.createNewFile();
-        this.writer = new BufferedWriter(new FileWriter(file, append));
+        if ("parquet".equalsIgnoreCase((String) config.get(FORMAT_PROPERTY))) {
+            // rolling files in the filename directory, named with the filename base name
+            File directory = file.getAbsoluteFile().getParentFile();
+            String prefix = file.getName().contains(".") ? file.getName().substring(0, file.getName().lastIndexOf('.')) : file.getName();
+            this.parquetWriter = new RollingParquetWriter(config, prefix, name -> new FileOutputStream(new File(directory, name)));
+        } else {
+            file.createNewFile();
+            // the header starts a new (or truncated) file
+            boolean start = !append || file.length() == 0;
+            this.writer = new BufferedWriter(new FileWriter(file, append));
+            String header = marshaller.header();
+            if (start && header != null) {
+                writer.write(header);
+                writer.newLine();
+                writer.flush();
+            }
+        }
+        // a single worker thread, the lines (or rows) are written in order
+        this.eventQueue = new AsyncEventHandler(config, this::append, true);
     }
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
-            try {
-                String marshalled = marshaller.marshal(event);
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
+            eventQueue.handleEvent(event);
+        }
+    }
+
+    private void append(Event event) {
+        try {
+            if (parquetWriter != null) {
+                // not retried by the delivery policy: the event is buffered once, the rows are kept until written
+                parquetWriter.write(event);
+                return;
+            }
+            String marshalled = marshaller.marshal(event);
+            deliveryPolicy.deliver(event, () -> {
                 writer.write(marshalled);
                 writer.newLine();
                 writer.flush();
-            } catch (Exception e) {
-                // nothing to do
-            }
+            });
+        } catch (Exception e) {
+            LOGGER.warn("Can't write event into the file", e);
         }
     }
 
     @Deactivate
     public void deactivate() throws Exception {
+        eventQueue.close();
+        if (parquetWriter != null) {
+            parquetWriter.close();
+            return;
+        }
         this.writer.flush();
         this.writer.close();
     }
@@ -16,15 +16,25 @@
  */
 package org.apache.karaf.decanter.appender.file;
 
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
 import org.apache.karaf.decanter.appender.utils.EventFilter;
 import org.apache.karaf.decanter.marshaller.csv.CsvMarshaller;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.osgi.service.event.Event;
 
+import javax.management.ObjectName;
+
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -32,12 +42,16 @@ import java.util.Map;
 
 public class TestFileAppender {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void test() throws Exception {
         FileAppender fileAppender = new FileAppender();
         fileAppender.marshaller = new CsvMarshaller();
         Dictionary<String, Object> config = new Hashtable<>();
-        config.put(FileAppender.FILENAME_PROPERTY, "target/test-classes/decanter");
+        File file = new File(folder.getRoot(), "decanter");
+        config.put(FileAppender.FILENAME_PROPERTY, file.getPath());
         fileAppender.open(config);
 
         Map<String, String> data = new HashMap<>();
@@ -48,7 +62,6 @@ public class TestFileAppender {
         fileAppender.handleEvent(new Event("testTopic", data));
         fileAppender.deactivate();
 
-        File file = new File("target/test-classes/decanter");
         int lineCount = 0;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
@@ -60,12 +73,66 @@ public class TestFileAppender {
         Assert.assertEquals(3, lineCount);
     }
 
+    @Test
+    public void testCsvHeader() throws Exception {
+        CsvMarshaller marshaller = new CsvMarshaller();
+        Dictionary<String, Object> marshallerConfig = new Hashtable<>();
+        marshallerConfig.put("columns", "a,c");
+        marshaller.activate(marshallerConfig);
+        File file = new File(folder.getRoot(), "decanter.csv");
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(FileAppender.FILENAME_PROPERTY, file.getPath());
+
+        Map<String, String> data = new HashMap<>();
+        data.put("a", "b");
+        data.put("c", "d");
+        // the header is written once, when the file is created
+        for (int i = 0; i < 2; i++) {
+            FileAppender fileAppender = new FileAppender();
+            fileAppender.marshaller = marshaller;
+            fileAppender.open(config);
+            fileAppender.handleEvent(new Event("testTopic", data));
+            fileAppender.deactivate();
+        }
+        Assert.assertEquals(Arrays.asList("a,c", "b,d", "b,d"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+
+        // and again when the file is truncated
+        config.put(FileAppender.APPEND_PROPERTY, "false");
+        FileAppender fileAppender = new FileAppender();
+        fileAppender.marshaller = marshaller;
+        fileAppender.open(config);
+        fileAppender.handleEvent(new Event("testTopic", data));
+        fileAppender.deactivate();
+        Assert.assertEquals(Arrays.asList("a,c", "b,d"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testOpenFailure() throws Exception {
+        File parent = folder.newFile("parent");
+        FileAppender fileAppender = new FileAppender();
+        fileAppender.marshaller = new CsvMarshaller();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(FileAppender.FILENAME_PROPERTY, new File(parent, "decanter").getPath());
+        config.put(AsyncEventHandler.QUEUE_SIZE_CONFIG, "10");
+        config.put("service.pid", "org.apache.karaf.decanter.appender.file.failure");
+        try {
+            fileAppender.open(config);
+            Assert.fail("The file can't be created");
+        } catch (IOException e) {
+            // expected
+        }
+        // the queue is not started when the file can't be opened
+        ObjectName objectName = new ObjectName("org.apache.karaf.decanter:type=appender,name=org.apache.karaf.decanter.appender.file.failure");
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+
     @Test
     public void testWithFilter() throws Exception {
         FileAppender fileAppender = new FileAppender();
         fileAppender.marshaller = new CsvMarshaller();
         Dictionary<String, Object> config = new Hashtable<>();
-        config.put(FileAppender.FILENAME_PROPERTY, "target/test-classes/filtered");
+        File file = new File(folder.getRoot(), "filtered");
+        config.put(FileAppender.FILENAME_PROPERTY, file.getPath());
         config.put(EventFilter.PROPERTY_NAME_EXCLUDE_CONFIG, ".*refused.*");
         config.put(EventFilter.PROPERTY_VALUE_EXCLUDE_CONFIG, ".*refused.*");
         fileAppender.open(config);
@@ -82,7 +149,6 @@ public class TestFileAppender {
         data.put("a", "b");
         fileAppender.handleEvent(new Event("testTopic", data));
 
-        File file = new File("target/test-classes/filtered");
         int lineCount = 0;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
             String line;
@@ -94,4 +160,29 @@ public class TestFileAppender {
         Assert.assertEquals(1, lineCount);
     }
 
+    @Test
+    public void testParquet() throws Exception {
+        File directory = folder.newFolder("parquet");
+        FileAppender fileAppender = new FileAppender();
+        fileAppender.marshaller = new CsvMarshaller();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(FileAppender.FILENAME_PROPERTY, new File(directory, "decanter.parquet").getPath());
+        config.put(FileAppender.FORMAT_PROPERTY, "parquet");
+        fileAppender.open(config);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("a", "b");
+        data.put("timestamp", System.currentTimeMillis());
+        fileAppender.handleEvent(new Event("testTopic", data));
+        fileAppender.handleEvent(new Event("testTopic", data));
+        fileAppender.deactivate();
+
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("decanter-") && name.endsWith(".parquet"));
+        Assert.assertNotNull(files);
+        Assert.assertEquals(1, files.length);
+        byte[] content = Files.readAllBytes(files[0].toPath());
+        Assert.assertEquals("PAR1", new String(content, 0, 4, StandardCharsets.US_ASCII));
+        Assert.assertEquals("PAR1", new String(content, content.length - 4, 4, StandardCharsets.US_ASCII));
+    }
+
 }
@@ -21,13 +21,18 @@ import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
+import org.apache.karaf.decanter.appender.utils.RollingParquetWriter;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -45,7 +50,10 @@ public class HdfsAppender implements EventHandler {
     private final static Logger LOGGER = LoggerFactory.getLogger(HdfsAppender.class);
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
     private Configuration configuration;
+    private RollingParquetWriter parquetWriter;
 
     @Activate
     public void activate(ComponentContext componentContext) {
@@ -54,16 +62,39 @@ public class HdfsAppender implements EventHandler {
 
     public void activate(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         configuration = new Configuration();
         if (config.get("hdfs.configuration") != null) {
             configuration.addResource((String) config.get("hdfs.configuration"));
         }
+        if ("parquet".equalsIgnoreCase((String) config.get("format"))) {
+            if (config.get("hdfs.path") == null) {
+                throw new IllegalArgumentException("hdfs.path is not set");
+            }
+            // hdfs.path is the directory of the rolling files
+            Path directory = new Path((String) config.get("hdfs.path"));
+            parquetWriter = new RollingParquetWriter(config, "decanter", name -> FileSystem.get(configuration).create(new Path(directory, name), false));
+        }
+    }
+
+    @Deactivate
+    public void deactivate() throws Exception {
+        if (parquetWriter != null) {
+            parquetWriter.close();
+        }
     }
 
     @Override
     public void handleEvent(Event event) {
         try {
-            if (EventFilter.match(event, config)) {
+            if (parquetWriter != null) {
+                if (eventFilter.match(event) && eventLimiter.accept(event)) {
+                    parquetWriter.write(event);
+                }
+                return;
+            }
+            if (eventFilter.match(event) && eventLimiter.accept(event)) {
                 FileSystem fileSystem = FileSystem.get(configuration);
                 if (config.get("hdfs.path") == null) {
                     throw new IllegalArgumentException("hdfs.path is not set");
@@ -99,4 +130,7 @@ public class HdfsAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
 }
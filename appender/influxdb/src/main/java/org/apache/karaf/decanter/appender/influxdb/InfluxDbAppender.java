@@ -16,7 +16,8 @@
  */
 package org.apache.karaf.decanter.appender.influxdb;
 
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.influxdb.BatchOptions;
 import org.influxdb.InfluxDB;
 import org.influxdb.InfluxDBFactory;
@@ -25,7 +26,10 @@ import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 
@@ -43,7 +47,12 @@ import java.util.concurrent.TimeUnit;
 
 public class InfluxDbAppender implements EventHandler {
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
 
     private Map<String, String> globalTags = new HashMap<>();
 
@@ -56,6 +65,8 @@ public class InfluxDbAppender implements EventHandler {
 
     public void activate(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         if (config.get("url") == null) {
             throw new IllegalArgumentException("url property is mandatory");
         }
@@ -116,7 +127,7 @@ public class InfluxDbAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             String type = "decanter";
             if (event.getProperty("type") != null) {
                 type = (String) event.getProperty("type");
@@ -25,12 +25,18 @@ import java.util.Dictionary;
 import javax.sql.DataSource;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.DeliveryPolicy;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -52,6 +58,9 @@ public class JdbcAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     @Reference
     public DataSource dataSource;
 
@@ -68,6 +77,10 @@ public class JdbcAppender implements EventHandler {
             "INSERT INTO TABLENAME(timestamp, content) VALUES(?,?)";
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private DeliveryPolicy deliveryPolicy;
+    private EventLimiter eventLimiter;
+    private AsyncEventHandler eventQueue;
     
     @SuppressWarnings("unchecked")
     @Activate
@@ -77,11 +90,15 @@ public class JdbcAppender implements EventHandler {
     
     public void open(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.deliveryPolicy = new DeliveryPolicy(config, dispatcher);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         try (Connection connection = dataSource.getConnection()) {
             createTable(connection);
         } catch (Exception e) {
             LOGGER.debug("Error creating table " + getValue(config, TABLE_NAME_PROPERTY, TABLE_NAME_DEFAULT), e);
         } 
+        this.eventQueue = new AsyncEventHandler(config, this::append);
     }
     
     private String getValue(Dictionary<String, Object> config, String key, String defaultValue) {
@@ -89,24 +106,39 @@ public class JdbcAppender implements EventHandler {
         return (value != null) ? value :  defaultValue;
     }
 
+    @Deactivate
+    public void deactivate() {
+        eventQueue.close();
+    }
+
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
-            try (Connection connection = dataSource.getConnection()) {
-                String jsonSt = marshaller.marshal(event);
-                String insertQuery = insertQueryTemplate.replaceAll("TABLENAME", getValue(config, TABLE_NAME_PROPERTY, TABLE_NAME_DEFAULT));
-                Long timestamp = (Long) event.getProperty(EventConstants.TIMESTAMP);
-                if (timestamp == null) {
-                    timestamp = System.currentTimeMillis();
-                }
-                try (PreparedStatement insertStatement = connection.prepareStatement(insertQuery)) {
-                    insertStatement.setLong(1, timestamp);
-                    insertStatement.setString(2, jsonSt);
-                    insertStatement.executeUpdate();
-                    LOGGER.trace("Data inserted into {} table", getValue(config, TABLE_NAME_PROPERTY, TABLE_NAME_DEFAULT));
-                }
-            } catch (Exception e) {
-                LOGGER.error("Can't store in the database", e);
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
+            eventQueue.handleEvent(event);
+        }
+    }
+
+    private void append(Event event) {
+        try {
+            deliveryPolicy.deliver(event, () -> send(event));
+        } catch (Exception e) {
+            LOGGER.error("Can't store in the database", e);
+        }
+    }
+
+    private void send(Event event) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            String jsonSt = marshaller.marshal(event);
+            String insertQuery = insertQueryTemplate.replaceAll("TABLENAME", getValue(config, TABLE_NAME_PROPERTY, TABLE_NAME_DEFAULT));
+            Long timestamp = (Long) event.getProperty(EventConstants.TIMESTAMP);
+            if (timestamp == null) {
+                timestamp = System.currentTimeMillis();
+            }
+            try (PreparedStatement insertStatement = connection.prepareStatement(insertQuery)) {
+                insertStatement.setLong(1, timestamp);
+                insertStatement.setString(2, jsonSt);
+                insertStatement.executeUpdate();
+                LOGGER.trace("Data inserted into {} table", getValue(config, TABLE_NAME_PROPERTY, TABLE_NAME_DEFAULT));
             }
         }
     }
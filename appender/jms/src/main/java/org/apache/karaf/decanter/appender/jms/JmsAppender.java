@@ -22,12 +22,18 @@ import java.util.Map;
 import javax.jms.*;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.DeliveryPolicy;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -58,9 +64,16 @@ public class JmsAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private final static Logger LOGGER = LoggerFactory.getLogger(JmsAppender.class);
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private DeliveryPolicy deliveryPolicy;
+    private EventLimiter eventLimiter;
+    private AsyncEventHandler eventQueue;
 
 
     @SuppressWarnings("unchecked")
@@ -71,41 +84,67 @@ public class JmsAppender implements EventHandler {
     
     void activate(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.deliveryPolicy = new DeliveryPolicy(config, dispatcher);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         LOGGER.info("Decanter JMS Appender started sending to {} {}", getValue(config, DESTINATION_TYPE_PROPERTY, DESTINATION_TYPE_DEFAULT), getValue(config, DESTINATION_NAME_PROPERTY, DESTINATION_NAME_DEFAULT));
+        this.eventQueue = new AsyncEventHandler(config, this::append);
     }
 
     private String getValue(Dictionary<String, Object> properties, String key, String defaultValue) {
         return (properties.get(key) != null) ? (String) properties.get(key) : defaultValue;
     }
 
+    @Deactivate
+    public void deactivate() {
+        eventQueue.close();
+    }
+
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
-            Connection connection = null;
-            Session session = null;
-            try {
-                connection = createConnection();
-                session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-                Destination destination = createDestination(session);
-                MessageProducer producer = session.createProducer(destination);
-                if (getValue(config, MESSAGE_TYPE_PROPERTY, MESSAGE_TYPE_DEFAULT).equalsIgnoreCase("text")) {
-                    TextMessage message = session.createTextMessage(marshaller.marshal(event));
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
+            eventQueue.handleEvent(event);
+        }
+    }
+
+    private void append(Event event) {
+        try {
+            deliveryPolicy.deliver(event, () -> send(event));
+        } catch (Exception e) {
+            LOGGER.warn("Can't send to JMS broker", e);
+        }
+    }
+
+    private void send(Event event) throws Exception {
+        Connection connection = null;
+        Session session = null;
+        try {
+            connection = createConnection();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Destination destination = createDestination(session);
+            MessageProducer producer = session.createProducer(destination);
+            if (getValue(config, MESSAGE_TYPE_PROPERTY, MESSAGE_TYPE_DEFAULT).equalsIgnoreCase("text")) {
+                if (marshaller.isBinary()) {
+                    // binary document in a bytes message, without the Base64 encoding of a text message
+                    BytesMessage message = session.createBytesMessage();
+                    message.writeBytes(marshaller.marshalBytes(event));
                     producer.send(message);
                 } else {
-                    MapMessage message = session.createMapMessage();
-                    for (String name : event.getPropertyNames()) {
-                        Object value = event.getProperty(name);
-                        setProperty(message, name, value);
-                    }
+                    TextMessage message = session.createTextMessage(marshaller.marshal(event));
                     producer.send(message);
                 }
-                producer.close();
-            } catch (Exception e) {
-                LOGGER.warn("Can't send to JMS broker", e);
-            } finally {
-                safeClose(session);
-                safeClose(connection);
+            } else {
+                MapMessage message = session.createMapMessage();
+                for (String name : event.getPropertyNames()) {
+                    Object value = event.getProperty(name);
+                    setProperty(message, name, value);
+                }
+                producer.send(message);
             }
+            producer.close();
+        } finally {
+            safeClose(session);
+            safeClose(connection);
         }
     }
 
@@ -16,11 +16,13 @@
  */
 package org.apache.karaf.decanter.appender.jms;
 
+import java.io.OutputStream;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.JMSException;
 import javax.jms.MapMessage;
@@ -28,6 +30,7 @@ import javax.jms.MessageConsumer;
 import javax.jms.Session;
 
 import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
 import org.apache.karaf.decanter.appender.utils.EventFilter;
 import org.junit.Assert;
 import org.junit.Test;
@@ -119,4 +122,54 @@ public class JmsAppenderTest {
         Assert.assertTrue(map instanceof Map);
     }
 
+    @Test
+    public void testBinary() throws JMSException {
+        ActiveMQConnectionFactory cf = new ActiveMQConnectionFactory("vm://localhost?broker.persistent=false");
+        JmsAppender appender = new JmsAppender();
+        appender.connectionFactory = cf;
+        appender.marshaller = new Marshaller() {
+            @Override
+            public void marshal(Object obj, OutputStream out) {
+            }
+
+            @Override
+            public String marshal(Object obj) {
+                return "AQID/w==";
+            }
+
+            @Override
+            public byte[] marshalBytes(Object obj) {
+                return new byte[]{ 1, 2, 3, (byte) 0xFF };
+            }
+
+            @Override
+            public boolean isBinary() {
+                return true;
+            }
+        };
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("destination.name", "binary");
+        appender.activate(config);
+
+        Connection con = cf.createConnection();
+        con.start();
+        Session sess = con.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+        MessageConsumer consumer = sess.createConsumer(sess.createQueue("binary"));
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("string", "test");
+        appender.handleEvent(new Event("decanter/collect", data));
+
+        // the binary document is sent in a bytes message, not Base64 encoded
+        BytesMessage message = (BytesMessage) consumer.receive(1000);
+        byte[] bytes = new byte[(int) message.getBodyLength()];
+        message.readBytes(bytes);
+        consumer.close();
+        sess.close();
+        con.close();
+
+        Assert.assertArrayEquals(new byte[]{ 1, 2, 3, (byte) 0xFF }, bytes);
+    }
+
 }
@@ -41,7 +41,7 @@ public class ConfigMapper {
         process("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
         process("request.timeout.ms", "5000");
         process("max.request.size", "2097152");
-        process("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        process("value.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
         process("security.protocol");
         process("ssl.truststore.location");
         process("ssl.truststore.password");
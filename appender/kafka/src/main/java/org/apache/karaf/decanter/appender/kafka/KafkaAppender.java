@@ -23,15 +23,21 @@ import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.DeliveryPolicy;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -48,12 +54,20 @@ public class KafkaAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private final static Logger LOGGER = LoggerFactory.getLogger(KafkaAppender.class);
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private DeliveryPolicy deliveryPolicy;
+    private EventLimiter eventLimiter;
+    private AsyncEventHandler eventQueue;
     private Properties properties;
     private String topic;
-    private KafkaProducer<String, String> producer;
+    private boolean bytes;
+    private KafkaProducer<String, Object> producer;
 
     @Activate
     @SuppressWarnings("unchecked")
@@ -63,9 +77,14 @@ public class KafkaAppender implements EventHandler {
 
     public void activate(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.deliveryPolicy = new DeliveryPolicy(config, dispatcher);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         this.properties = ConfigMapper.map(config);
         this.topic = properties.getProperty("topic");
         properties.remove("topic");
+        // the marshalled bytes with the byte array serializer (binary documents without Base64 encoding)
+        this.bytes = ByteArraySerializer.class.getName().equals(properties.getProperty("value.serializer"));
 
         // workaround for KAFKA-3218
         ClassLoader originClassLoader = Thread.currentThread().getContextClassLoader();
@@ -75,14 +94,21 @@ public class KafkaAppender implements EventHandler {
         } finally {
             Thread.currentThread().setContextClassLoader(originClassLoader);
         }
+        this.eventQueue = new AsyncEventHandler(config, this::append);
     }
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
-            try {
-                String type = (String) event.getProperty("type");
-                String data = marshaller.marshal(event);
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
+            eventQueue.handleEvent(event);
+        }
+    }
+
+    private void append(Event event) {
+        try {
+            String type = (String) event.getProperty("type");
+            Object data = bytes ? marshaller.marshalBytes(event) : marshaller.marshal(event);
+            deliveryPolicy.deliver(event, () -> {
                 producer.send(new ProducerRecord<>(topic, type, data), new Callback() {
                     @Override
                     public void onCompletion(RecordMetadata recordMetadata, Exception e) {
@@ -92,14 +118,15 @@ public class KafkaAppender implements EventHandler {
                     }
                 }).get();
                 producer.flush();
-            } catch (Exception e) {
-                LOGGER.warn("Error sending event to kafka", e);
-            }
+            });
+        } catch (Exception e) {
+            LOGGER.warn("Error sending event to kafka", e);
         }
     }
     
     @Deactivate
     public void close() {
+        eventQueue.close();
         producer.close();
     }
 
@@ -17,13 +17,15 @@
 package org.apache.karaf.decanter.appender.log;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -48,16 +50,23 @@ public class LogAppender implements EventHandler {
     @Reference(cardinality = ReferenceCardinality.OPTIONAL)
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
 
     @Activate
     public void activate(ComponentContext componentContext) {
         this.config = componentContext.getProperties();
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
     }
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             if (marshaller != null) {
                 LOGGER.info(marshaller.marshal(event));
             } else {
@@ -17,13 +17,15 @@
 package org.apache.karaf.decanter.appender.loki;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -49,11 +51,16 @@ public class LokiAppender implements EventHandler {
     @Reference(cardinality = ReferenceCardinality.OPTIONAL)
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private String url;
     private String tenant = null;
     private String username = null;
     private String password = null;
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
 
     @Activate
     public void activate(ComponentContext componentContext) {
@@ -62,6 +69,8 @@ public class LokiAppender implements EventHandler {
 
     public void activate(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         url = (config.get("loki.url") != null) ? (String) config.get("loki.url") : "http://localhost:3100/loki/api/v1/push";
         tenant = (config.get("loki.tenant") != null) ? (String) config.get("loki.tenant") : null;
         username = (config.get("loki.username") != null) ? (String) config.get("loki.username") : null;
@@ -70,7 +79,7 @@ public class LokiAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             String log;
             if (marshaller != null) {
                 log = marshaller.marshal(event);
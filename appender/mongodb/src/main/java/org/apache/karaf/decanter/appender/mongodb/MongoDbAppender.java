@@ -21,11 +21,13 @@ import com.mongodb.MongoClientURI;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.bson.Document;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.*;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -52,6 +54,9 @@ public class MongoDbAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private final static Logger LOGGER = LoggerFactory.getLogger(MongoDbAppender.class);
 
     private MongoClient mongoClient;
@@ -59,10 +64,14 @@ public class MongoDbAppender implements EventHandler {
     private MongoCollection mongoCollection;
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
 
     @Activate
     public void activate(ComponentContext componentContext) {
         config = componentContext.getProperties();
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
 
         String uri = getValue(config, URI_PROPERTY, URI_DEFAULT);
         String database = getValue(config, DATABASE_PROPERTY, DATABASE_DEFAULT);
@@ -80,7 +89,7 @@ public class MongoDbAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             try {
                 String data = marshaller.marshal(event);
                 mongoCollection.insertOne(Document.parse(data));
@@ -16,11 +16,13 @@
  */
 package org.apache.karaf.decanter.appender.mqtt;
 
-import java.nio.charset.StandardCharsets;
 import java.util.Dictionary;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.DeliveryPolicy;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
@@ -31,7 +33,9 @@ import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -55,11 +59,19 @@ public class MqttAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private final static Logger LOGGER = LoggerFactory.getLogger(MqttAppender.class);
 
     private MqttClient client;
+    private MqttConnectOptions options;
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private DeliveryPolicy deliveryPolicy;
+    private EventLimiter eventLimiter;
+    private AsyncEventHandler eventQueue;
 
     @Activate
     public void activate(ComponentContext componentContext) throws Exception {
@@ -68,11 +80,14 @@ public class MqttAppender implements EventHandler {
 
     public void activate(Dictionary<String, Object> config) throws Exception {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.deliveryPolicy = new DeliveryPolicy(config, dispatcher);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         client = new MqttClient(
                 getValue(config, SERVER_PROPERTY, SERVER_DEFAULT),
                 getValue(config, CLIENT_ID_PROPERTY, CLIENT_ID_DEFAULT),
                 new MemoryPersistence());
-        MqttConnectOptions options = new MqttConnectOptions();
+        options = new MqttConnectOptions();
         options.setCleanSession(true);
         String username = getValue(config, "username", null);
         String password = getValue(config, "password", null);
@@ -83,6 +98,7 @@ public class MqttAppender implements EventHandler {
             options.setPassword(password.toCharArray());
         }
         client.connect(options);
+        this.eventQueue = new AsyncEventHandler(config, this::append);
     }
 
     private String getValue(Dictionary<String, Object> config, String key, String defaultValue) {
@@ -91,28 +107,36 @@ public class MqttAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
+            eventQueue.handleEvent(event);
+        }
+    }
+
+    private void append(Event event) {
+        try {
+            MqttMessage message = new MqttMessage();
+            message.setPayload(marshaller.marshalBytes(event));
+            deliveryPolicy.deliver(event, () -> {
+                if (!client.isConnected()) {
+                    client.connect(options);
+                }
+                client.publish(getValue(config, TOPIC_PROPERTY, TOPIC_DEFAULT), message);
+            });
+        } catch (Exception e) {
+            LOGGER.warn("Error sending to MQTT server " + client.getServerURI(), e);
             try {
-                MqttMessage message = new MqttMessage();
-                String jsonSt = marshaller.marshal(event);
-                message.setPayload(jsonSt.getBytes(StandardCharsets.UTF_8));
-                client.publish(
-                        getValue(config, TOPIC_PROPERTY, TOPIC_DEFAULT),
-                        message);
-            } catch (Exception e) {
-                LOGGER.warn("Error sending to MQTT server " + client.getServerURI(), e);
-                try {
+                if (client.isConnected()) {
                     client.disconnect();
-                    client.connect();
-                } catch (MqttException e1) {
-                    e1.printStackTrace();
                 }
+            } catch (MqttException e1) {
+                LOGGER.debug("Can't disconnect from MQTT server " + client.getServerURI(), e1);
             }
         }
     }
 
     @Deactivate
     public void deactivate() throws MqttException {
+        eventQueue.close();
         client.disconnect();
         client.close();
     }
@@ -16,12 +16,16 @@
  */
 package org.apache.karaf.decanter.appender.redis;
 
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.redisson.Redisson;
@@ -57,11 +61,18 @@ public class RedisAppender implements EventHandler {
 
     private RedissonClient redissonClient;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
 
     @Activate
     public void activate(ComponentContext componentContext) {
         config = componentContext.getProperties();
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
 
         String address = getValue(config, ADDRESS_PROPERTY, ADDRESS_DEFAULT);
         String mode = getValue(config, MODE_PROPERTY, MODE_DEFAULT);
@@ -91,7 +102,7 @@ public class RedisAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             Map<String, Object> redisMap = redissonClient.getMap(getValue(config, MAP_PROPERTY, MAP_DEFAULT));
             for (String name : event.getPropertyNames()) {
                 redisMap.put(name, event.getProperty(name));
@@ -28,14 +28,19 @@ import java.util.Dictionary;
 import java.util.Enumeration;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.DeliveryPolicy;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.ConfigurationPolicy;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -54,11 +59,18 @@ public class RestAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private final static Logger LOGGER = LoggerFactory.getLogger(RestAppender.class);
 
     private URI uri;
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private DeliveryPolicy deliveryPolicy;
+    private EventLimiter eventLimiter;
+    private AsyncEventHandler eventQueue;
 
     @Activate
     @SuppressWarnings("unchecked")
@@ -69,7 +81,11 @@ public class RestAppender implements EventHandler {
 
     void activate(Dictionary<String, Object> config) throws URISyntaxException {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.deliveryPolicy = new DeliveryPolicy(config, dispatcher);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         uri = new URI(getMandatoryValue(config, URI_PROPERTY));
+        this.eventQueue = new AsyncEventHandler(config, this::append);
     }
 
     private String getMandatoryValue(Dictionary<String, Object> config, String key) {
@@ -83,54 +99,63 @@ public class RestAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
-            try {
-                HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
-                connection.setDoOutput(true);
-                connection.setInstanceFollowRedirects(false);
-                String user = config.get("user") != null ? (String) config.get("user") : null;
-                String password = config.get("password") != null ? (String) config.get("password") : null;
-                if (user != null) {
-                    String authentication = user + ":" + password;
-                    byte[] encodedAuthentication = Base64.getEncoder().encode(authentication.getBytes(StandardCharsets.UTF_8));
-                    String authenticationHeader = "Basic " + new String(encodedAuthentication);
-                    connection.setRequestProperty("Authorization", authenticationHeader);
-                }
-                String requestMethod = config.get("request.method") != null ? (String) config.get("request.method") : "POST";
-                connection.setRequestMethod(requestMethod);
-                String contentType = config.get("content.type") != null ? (String) config.get("content.type") : "application/json";
-                connection.setRequestProperty("Content-Type",  contentType);
-                String charset = config.get("charset") != null ? (String) config.get("charset") : "utf-8";
-                connection.setRequestProperty("charset", charset);
-                Enumeration<String> keys = config.keys();
-                while (keys.hasMoreElements()) {
-                    String key = keys.nextElement();
-                    if (key.startsWith("header.")) {
-                        connection.setRequestProperty(key.substring("header.".length()), (String) config.get(key));
-                    }
-                }
-                String payloadHeader = config.get("payload.header") != null ? (String) config.get("payload.header") : null;
-                if (payloadHeader != null) {
-                    try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-                        marshaller.marshal(event, out);
-                        connection.setRequestProperty(payloadHeader, out.toString());
-                    }
-                } else {
-                    try (OutputStream out = connection.getOutputStream()) {
-                        marshaller.marshal(event, out);
-                    }
-                }
-                InputStream is = connection.getInputStream();
-                is.read();
-                is.close();
-            } catch (Exception e) {
-                LOGGER.warn("Error sending event to rest service", e);
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
+            eventQueue.handleEvent(event);
+        }
+    }
+
+    private void append(Event event) {
+        try {
+            deliveryPolicy.deliver(event, () -> send(event));
+        } catch (Exception e) {
+            LOGGER.warn("Error sending event to rest service", e);
+        }
+    }
+
+    private void send(Event event) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setDoOutput(true);
+        connection.setInstanceFollowRedirects(false);
+        String user = config.get("user") != null ? (String) config.get("user") : null;
+        String password = config.get("password") != null ? (String) config.get("password") : null;
+        if (user != null) {
+            String authentication = user + ":" + password;
+            byte[] encodedAuthentication = Base64.getEncoder().encode(authentication.getBytes(StandardCharsets.UTF_8));
+            String authenticationHeader = "Basic " + new String(encodedAuthentication);
+            connection.setRequestProperty("Authorization", authenticationHeader);
+        }
+        String requestMethod = config.get("request.method") != null ? (String) config.get("request.method") : "POST";
+        connection.setRequestMethod(requestMethod);
+        String contentType = config.get("content.type") != null ? (String) config.get("content.type") : "application/json";
+        connection.setRequestProperty("Content-Type",  contentType);
+        String charset = config.get("charset") != null ? (String) config.get("charset") : "utf-8";
+        connection.setRequestProperty("charset", charset);
+        Enumeration<String> keys = config.keys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            if (key.startsWith("header.")) {
+                connection.setRequestProperty(key.substring("header.".length()), (String) config.get(key));
+            }
+        }
+        String payloadHeader = config.get("payload.header") != null ? (String) config.get("payload.header") : null;
+        if (payloadHeader != null) {
+            try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+                marshaller.marshal(event, out);
+                connection.setRequestProperty(payloadHeader, out.toString());
+            }
+        } else {
+            try (OutputStream out = connection.getOutputStream()) {
+                marshaller.marshal(event, out);
             }
         }
+        InputStream is = connection.getInputStream();
+        is.read();
+        is.close();
     }
     
     @Deactivate
     public void close() {
+        eventQueue.close();
     }
 
 }
@@ -21,10 +21,13 @@ import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.apache.karaf.decanter.appender.utils.RollingParquetWriter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventConstants;
@@ -32,6 +35,9 @@ import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.Dictionary;
 import java.util.UUID;
 
@@ -48,6 +54,7 @@ public class S3Appender implements EventHandler {
     private String accessKeyId;
     private String secretKeyId;
     private String bucket;
+    private RollingParquetWriter parquetWriter;
 
     @Activate
     public void activate(ComponentContext componentContext) {
@@ -68,17 +75,63 @@ public class S3Appender implements EventHandler {
         }
         bucket = (String) config.get("bucket");
         regions = (config.get("region") != null) ? Regions.fromName((String) config.get("region")) : Regions.DEFAULT_REGION;
+        if ("parquet".equalsIgnoreCase((String) config.get("format"))) {
+            parquetWriter = new RollingParquetWriter(config, "decanter", ParquetObject::new);
+        }
+    }
+
+    @Deactivate
+    public void deactivate() throws Exception {
+        if (parquetWriter != null) {
+            parquetWriter.close();
+        }
     }
 
     @Override
     public void handleEvent(Event event) {
+        if (parquetWriter != null) {
+            try {
+                parquetWriter.write(event);
+            } catch (Exception e) {
+                LOGGER.warn("Can't write Parquet file on S3", e);
+            }
+            return;
+        }
+        String key = "decanter-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString();
+        client().putObject(bucket, key, marshaller.marshal(event));
+    }
+
+    private AmazonS3 client() {
         BasicAWSCredentials awsCreds = new BasicAWSCredentials(accessKeyId, secretKeyId);
-        AmazonS3 s3 = AmazonS3ClientBuilder.standard()
+        return AmazonS3ClientBuilder.standard()
                 .withRegion(regions)
                 .withCredentials(new AWSStaticCredentialsProvider(awsCreds))
                 .build();
-        String key = "decanter-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString();
-        s3.putObject(bucket, key, marshaller.marshal(event));
+    }
+
+    /**
+     * Parquet file, uploaded as a S3 object when it's closed.
+     */
+    private class ParquetObject extends ByteArrayOutputStream {
+
+        private final String key;
+
+        ParquetObject(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void close() throws IOException {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(size());
+            metadata.setContentType("application/vnd.apache.parquet");
+            try {
+                client().putObject(bucket, key, new ByteArrayInputStream(buf, 0, count), metadata);
+            } catch (Exception e) {
+                throw new IOException("Can't upload " + key, e);
+            }
+        }
+
     }
 
     @Reference
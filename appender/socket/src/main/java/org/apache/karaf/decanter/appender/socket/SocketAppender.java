@@ -17,15 +17,20 @@
 package org.apache.karaf.decanter.appender.socket;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.AsyncEventHandler;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.DeliveryPolicy;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.*;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.util.Dictionary;
@@ -49,9 +54,16 @@ public class SocketAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     private final static Logger LOGGER = LoggerFactory.getLogger(SocketAppender.class);
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private DeliveryPolicy deliveryPolicy;
+    private EventLimiter eventLimiter;
+    private AsyncEventHandler eventQueue;
 
     private Socket socket;
     private PrintWriter writer;
@@ -63,6 +75,9 @@ public class SocketAppender implements EventHandler {
 
     public void activate(Dictionary<String, Object> config) throws Exception {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.deliveryPolicy = new DeliveryPolicy(config, dispatcher);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         boolean connected = Boolean.parseBoolean(getValue(config, CONNECTED_PROPERTY, CONNECTED_DEFAULT));
         if (connected) {
             try {
@@ -72,10 +87,14 @@ public class SocketAppender implements EventHandler {
                 throw e;
             }
         }
+        this.eventQueue = new AsyncEventHandler(config, this::append, true);
     }
 
     @Deactivate
     public void deactivate() {
+        if (eventQueue != null) {
+            eventQueue.close();
+        }
         closeConnection();
     }
 
@@ -101,29 +120,40 @@ public class SocketAppender implements EventHandler {
                 // nothing to do
             }
         }
+        writer = null;
+        socket = null;
     }
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
-            String data = marshaller.marshal(event);
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
+            eventQueue.handleEvent(event);
+        }
+    }
 
-            boolean connected = Boolean.parseBoolean(getValue(config, CONNECTED_PROPERTY, CONNECTED_DEFAULT));
+    private void append(Event event) {
+        String data = marshaller.marshal(event);
 
-            try {
+        boolean connected = Boolean.parseBoolean(getValue(config, CONNECTED_PROPERTY, CONNECTED_DEFAULT));
 
-                if (!connected && socket == null) {
+        try {
+            deliveryPolicy.deliver(event, () -> {
+                if (socket == null) {
                     initConnection();
                 }
 
                 writer.println(data);
+                if (writer.checkError()) {
+                    closeConnection();
+                    throw new IOException("Can't write on the socket");
+                }
 
                 if (!connected) {
                     closeConnection();
                 }
-            } catch (Exception e) {
-                LOGGER.warn("Error sending data on the socket", e);
-            }
+            });
+        } catch (Exception e) {
+            LOGGER.warn("Error sending data on the socket", e);
         }
     }
 
@@ -23,12 +23,15 @@ import java.sql.Statement;
 import java.util.Dictionary;
 import javax.sql.DataSource;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -48,6 +51,9 @@ public class TimescaleDbAppender implements EventHandler {
     @Reference
     public Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    public EventAdmin dispatcher;
+
     @Reference
     public DataSource dataSource;
 
@@ -64,6 +70,8 @@ public class TimescaleDbAppender implements EventHandler {
             "INSERT INTO TABLENAME(timestamp, content) VALUES(?,?)";
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
 
     @SuppressWarnings("unchecked")
     @Activate
@@ -73,6 +81,8 @@ public class TimescaleDbAppender implements EventHandler {
     
     public void open(Dictionary<String, Object> config) {
         this.config = config;
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         String tableName = getValue(config, TABLE_NAME_PROPERTY, TABLE_NAME_DEFAULT);
         try (Connection connection = dataSource.getConnection()) {
             createStructure(connection);
@@ -88,7 +98,7 @@ public class TimescaleDbAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             try (Connection connection = dataSource.getConnection()) {
                 String tableName = getValue(config, TABLE_NAME_PROPERTY, TABLE_NAME_DEFAULT);
                 String jsonSt = marshaller.marshal(event);
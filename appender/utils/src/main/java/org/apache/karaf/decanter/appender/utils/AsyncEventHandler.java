@@ -0,0 +1,314 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.osgi.framework.Constants;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decouple an appender from the EventAdmin delivery threads.
+ * <p>
+ * When {@code queue.size} is defined, the events are added to a bounded queue, and handled by the appender in
+ * {@code queue.threads} dedicated threads. So, a slow backend doesn't delay the other EventAdmin handlers.
+ * When the queue is full, {@code queue.policy} defines if the caller is blocked until there's room in the queue
+ * ({@code block}, default), or if the new event ({@code drop-newest}) or the oldest queued event ({@code drop-oldest})
+ * is dropped. The queue metrics are exposed with the {@code org.apache.karaf.decanter:type=appender,name=<pid>} MBean.
+ * <p>
+ * Without {@code queue.size}, the events are directly handled by the appender in the caller thread.
+ * <p>
+ * The worker threads are started and the MBean registered by the constructor: the appenders create the handler last,
+ * once their backend is open, so a failed activation doesn't leave them behind. With several worker threads, the
+ * events are handled concurrently and out of order: the appenders writing a single ordered stream (as a file) use
+ * one worker thread.
+ */
+public class AsyncEventHandler implements EventHandler, Closeable, AsyncEventHandlerMBean {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(AsyncEventHandler.class);
+
+    public static final String QUEUE_SIZE_CONFIG = "queue.size";
+    public static final String QUEUE_THREADS_CONFIG = "queue.threads";
+    public static final String QUEUE_POLICY_CONFIG = "queue.policy";
+    public static final String QUEUE_SHUTDOWN_TIMEOUT_CONFIG = "queue.shutdown.timeout";
+
+    public enum Policy {
+        BLOCK, DROP_NEWEST, DROP_OLDEST;
+
+        static Policy parse(String value) {
+            return Policy.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final EventHandler delegate;
+    private final String name;
+    private final int capacity;
+    private final Policy policy;
+    private final long shutdownTimeout;
+    private final BlockingQueue<QueuedEvent> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    private ObjectName objectName;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder queueLatency = new LongAdder();
+    private final AtomicLong maxQueueLatency = new AtomicLong();
+    private final LongAdder processingTime = new LongAdder();
+
+    /**
+     * Create the handler and start the worker threads (if the queue is enabled in the configuration).
+     *
+     * @param config the appender configuration.
+     * @param delegate the actual appender event handling.
+     */
+    public AsyncEventHandler(Dictionary<String, Object> config, EventHandler delegate) {
+        this(config, delegate, false);
+    }
+
+    /**
+     * Create the handler and start the worker threads (if the queue is enabled in the configuration).
+     *
+     * @param config the appender configuration.
+     * @param delegate the actual appender event handling.
+     * @param ordered true to handle the events in order, in a single worker thread whatever {@code queue.threads}.
+     */
+    public AsyncEventHandler(Dictionary<String, Object> config, EventHandler delegate, boolean ordered) {
+        this.delegate = delegate;
+        this.capacity = (config != null && config.get(QUEUE_SIZE_CONFIG) != null) ? Integer.parseInt(config.get(QUEUE_SIZE_CONFIG).toString()) : 0;
+        int threads = (config != null && config.get(QUEUE_THREADS_CONFIG) != null) ? Integer.parseInt(config.get(QUEUE_THREADS_CONFIG).toString()) : 1;
+        this.policy = (config != null && config.get(QUEUE_POLICY_CONFIG) != null) ? Policy.parse(config.get(QUEUE_POLICY_CONFIG).toString()) : Policy.BLOCK;
+        this.shutdownTimeout = (config != null && config.get(QUEUE_SHUTDOWN_TIMEOUT_CONFIG) != null) ? Long.parseLong(config.get(QUEUE_SHUTDOWN_TIMEOUT_CONFIG).toString()) : 5000L;
+        this.name = (config != null && config.get(Constants.SERVICE_PID) != null) ? config.get(Constants.SERVICE_PID).toString() : delegate.getClass().getSimpleName();
+        if (capacity <= 0) {
+            this.queue = null;
+            return;
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        if (ordered && threads > 1) {
+            LOGGER.warn("{} handles the events in order, {} ignored", name, QUEUE_THREADS_CONFIG);
+            threads = 1;
+        }
+        this.running = true;
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            Thread worker = new Thread(this::work, "decanter-" + name + "-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        register();
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+        if (queue == null) {
+            delegate.handleEvent(event);
+            return;
+        }
+        if (!running) {
+            // closed, the event would never be handled
+            dropped.increment();
+            return;
+        }
+        QueuedEvent queued = new QueuedEvent(event);
+        switch (policy) {
+            case DROP_NEWEST:
+                if (!queue.offer(queued)) {
+                    dropped.increment();
+                    return;
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(queued)) {
+                    if (!running) {
+                        dropped.increment();
+                        return;
+                    }
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                    }
+                }
+                break;
+            default:
+                try {
+                    while (!queue.offer(queued, 100, TimeUnit.MILLISECONDS)) {
+                        if (!running) {
+                            dropped.increment();
+                            return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                    return;
+                }
+        }
+        if (!running && queue.remove(queued)) {
+            // closed while the event was queued, after the workers stopped
+            dropped.increment();
+            return;
+        }
+        enqueued.increment();
+    }
+
+    private void work() {
+        while (running || !queue.isEmpty()) {
+            QueuedEvent queued;
+            try {
+                queued = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (queued == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            long latency = start - queued.timestamp;
+            queueLatency.add(latency);
+            maxQueueLatency.accumulateAndGet(latency, Math::max);
+            try {
+                delegate.handleEvent(queued.event);
+            } catch (Exception e) {
+                LOGGER.warn("Can't handle event {}", queued.event.getTopic(), e);
+            }
+            processingTime.add(System.nanoTime() - start);
+            processed.increment();
+        }
+    }
+
+    /**
+     * Stop the worker threads, waiting (up to {@code queue.shutdown.timeout} ms) for the queued events to be handled.
+     */
+    @Override
+    public void close() {
+        if (queue == null) {
+            return;
+        }
+        running = false;
+        long deadline = System.currentTimeMillis() + shutdownTimeout;
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        int remaining = queue.size();
+        if (remaining > 0) {
+            LOGGER.warn("{} events not handled by {} before shutdown", remaining, name);
+            dropped.add(remaining);
+            queue.clear();
+        }
+        unregister();
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("org.apache.karaf.decanter:type=appender,name=" + name);
+            server.registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (Exception e) {
+            LOGGER.debug("Can't register queue MBean for {}", name, e);
+        }
+    }
+
+    private void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            LOGGER.debug("Can't unregister queue MBean for {}", name, e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return (queue != null) ? queue.size() : 0;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    @Override
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    @Override
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public double getMeanQueueLatency() {
+        long count = processed.sum();
+        return (count > 0) ? queueLatency.sum() / (count * 1e6) : 0.0;
+    }
+
+    @Override
+    public double getMaxQueueLatency() {
+        return maxQueueLatency.get() / 1e6;
+    }
+
+    @Override
+    public double getMeanProcessingTime() {
+        long count = processed.sum();
+        return (count > 0) ? processingTime.sum() / (count * 1e6) : 0.0;
+    }
+
+    private static class QueuedEvent {
+
+        private final Event event;
+        private final long timestamp = System.nanoTime();
+
+        QueuedEvent(Event event) {
+            this.event = event;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+/**
+ * Metrics of an {@link AsyncEventHandler}, exposed as a MBean.
+ */
+public interface AsyncEventHandlerMBean {
+
+    /**
+     * @return the number of events waiting in the queue.
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the capacity of the queue.
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return the number of events added to the queue.
+     */
+    long getEnqueued();
+
+    /**
+     * @return the number of events handled by the appender.
+     */
+    long getProcessed();
+
+    /**
+     * @return the number of events dropped because the queue was full.
+     */
+    long getDropped();
+
+    /**
+     * @return the mean time (in ms) spent by the events in the queue.
+     */
+    double getMeanQueueLatency();
+
+    /**
+     * @return the max time (in ms) spent by an event in the queue.
+     */
+    double getMaxQueueLatency();
+
+    /**
+     * @return the mean time (in ms) to handle an event by the appender.
+     */
+    double getMeanProcessingTime();
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.osgi.service.event.Event;
+
+import java.util.Dictionary;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled form of {@link EventFilter}.
+ * <p>
+ * The {@code event.property.*} filters are read and compiled once (typically when the appender is activated),
+ * and then evaluated on each event with the same semantic as {@link EventFilter#match(Event, Dictionary)}.
+ * Filters without regex metacharacters (or simple {@code prefix.*}, {@code .*suffix}, {@code .*infix.*} forms)
+ * are evaluated without regex.
+ */
+public final class CompiledEventFilter {
+
+    private static final CompiledEventFilter ACCEPT_ALL = new CompiledEventFilter(null, null, null, null);
+
+    private final Rule nameExclude;
+    private final Rule nameInclude;
+    private final Rule valueExclude;
+    private final Rule valueInclude;
+    private final boolean acceptAll;
+    private final boolean checkValues;
+
+    private CompiledEventFilter(Rule nameExclude, Rule nameInclude, Rule valueExclude, Rule valueInclude) {
+        this.nameExclude = nameExclude;
+        this.nameInclude = nameInclude;
+        this.valueExclude = valueExclude;
+        this.valueInclude = valueInclude;
+        this.checkValues = valueExclude != null || valueInclude != null;
+        this.acceptAll = nameExclude == null && nameInclude == null && !checkValues;
+    }
+
+    /**
+     * Compile the event filter defined in the given configuration.
+     *
+     * @param config the appender configuration (can be {@code null}).
+     * @return the compiled event filter.
+     */
+    public static CompiledEventFilter compile(Dictionary<String, Object> config) {
+        if (config == null) {
+            return ACCEPT_ALL;
+        }
+        return new CompiledEventFilter(
+                rule(config.get(EventFilter.PROPERTY_NAME_EXCLUDE_CONFIG)),
+                rule(config.get(EventFilter.PROPERTY_NAME_INCLUDE_CONFIG)),
+                rule(config.get(EventFilter.PROPERTY_VALUE_EXCLUDE_CONFIG)),
+                rule(config.get(EventFilter.PROPERTY_VALUE_INCLUDE_CONFIG)));
+    }
+
+    public boolean match(Event event) {
+        if (acceptAll) {
+            return true;
+        }
+        for (String name : event.getPropertyNames()) {
+            if (nameExclude != null && nameExclude.matches(name)) {
+                return false;
+            }
+            if (nameInclude != null && nameInclude.matches(name)) {
+                return true;
+            }
+            if (checkValues) {
+                Object value = event.getProperty(name);
+                if (value instanceof String) {
+                    if (valueExclude != null && valueExclude.matches((String) value)) {
+                        return false;
+                    }
+                    if (valueInclude != null && valueInclude.matches((String) value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    static Rule rule(Object regex) {
+        if (regex == null) {
+            return null;
+        }
+        String expression = regex.toString();
+        if (isLiteral(expression)) {
+            return new LiteralRule(expression);
+        }
+        if (expression.length() >= 2 && expression.endsWith(".*")) {
+            String head = expression.substring(0, expression.length() - 2);
+            if (isLiteral(head)) {
+                return new PrefixRule(head);
+            }
+            if (head.startsWith(".*") && isLiteral(head.substring(2)) && noLineTerminator(head, 2, head.length())) {
+                return new InfixRule(head.substring(2));
+            }
+        }
+        if (expression.startsWith(".*") && isLiteral(expression.substring(2))) {
+            return new SuffixRule(expression.substring(2));
+        }
+        return new RegexRule(Pattern.compile(expression));
+    }
+
+    private static boolean isLiteral(String expression) {
+        for (int i = 0; i < expression.length(); i++) {
+            switch (expression.charAt(i)) {
+                case '\\':
+                case '^':
+                case '$':
+                case '.':
+                case '|':
+                case '?':
+                case '*':
+                case '+':
+                case '(':
+                case ')':
+                case '[':
+                case ']':
+                case '{':
+                case '}':
+                    return false;
+                default:
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that the given range doesn't contain any line terminator, as {@code .} doesn't match them.
+     */
+    private static boolean noLineTerminator(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            switch (value.charAt(i)) {
+                case '\n':
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    return false;
+                default:
+            }
+        }
+        return true;
+    }
+
+    static abstract class Rule {
+
+        abstract boolean matches(String value);
+
+    }
+
+    static final class LiteralRule extends Rule {
+
+        private final String literal;
+
+        LiteralRule(String literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        boolean matches(String value) {
+            return literal.equals(value);
+        }
+
+    }
+
+    static final class PrefixRule extends Rule {
+
+        private final String prefix;
+
+        PrefixRule(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean matches(String value) {
+            return value.startsWith(prefix) && noLineTerminator(value, prefix.length(), value.length());
+        }
+
+    }
+
+    static final class SuffixRule extends Rule {
+
+        private final String suffix;
+
+        SuffixRule(String suffix) {
+            this.suffix = suffix;
+        }
+
+        @Override
+        boolean matches(String value) {
+            return value.endsWith(suffix) && noLineTerminator(value, 0, value.length() - suffix.length());
+        }
+
+    }
+
+    static final class InfixRule extends Rule {
+
+        private final String infix;
+
+        InfixRule(String infix) {
+            this.infix = infix;
+        }
+
+        @Override
+        boolean matches(String value) {
+            return value.contains(infix) && noLineTerminator(value, 0, value.length());
+        }
+
+    }
+
+    static final class RegexRule extends Rule {
+
+        private final ThreadLocal<Matcher> matcher;
+
+        RegexRule(Pattern pattern) {
+            this.matcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        }
+
+        @Override
+        boolean matches(String value) {
+            return matcher.get().reset(value).matches();
+        }
+
+    }
+
+}
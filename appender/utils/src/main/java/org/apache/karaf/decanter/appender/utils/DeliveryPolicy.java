@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivery policy shared by the appenders: retries with jittered exponential backoff, circuit breaker and
+ * dead letter topic.
+ * <p>
+ * When the circuit breaker is open (after {@code delivery.circuit.breaker.failures} consecutive failures),
+ * the events are not sent to the backend during {@code delivery.circuit.breaker.open.duration} ms, then a single
+ * delivery is tried to check if the backend is back. The events not delivered are posted on the
+ * {@code delivery.dead.letter.topic} EventAdmin topic (if defined).
+ */
+public class DeliveryPolicy {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(DeliveryPolicy.class);
+
+    public static final String RETRY_MAX_CONFIG = "delivery.retry.max";
+    public static final String RETRY_BACKOFF_CONFIG = "delivery.retry.backoff";
+    public static final String RETRY_BACKOFF_MAX_CONFIG = "delivery.retry.backoff.max";
+    public static final String RETRY_BACKOFF_MULTIPLIER_CONFIG = "delivery.retry.backoff.multiplier";
+    public static final String RETRY_JITTER_CONFIG = "delivery.retry.jitter";
+    public static final String CIRCUIT_BREAKER_FAILURES_CONFIG = "delivery.circuit.breaker.failures";
+    public static final String CIRCUIT_BREAKER_OPEN_DURATION_CONFIG = "delivery.circuit.breaker.open.duration";
+    public static final String DEAD_LETTER_TOPIC_CONFIG = "delivery.dead.letter.topic";
+
+    public static final String DEAD_LETTER_TOPIC_PROPERTY = "deadLetterTopic";
+    public static final String DEAD_LETTER_CAUSE_PROPERTY = "deadLetterCause";
+
+    /**
+     * Send the event to the backend, throwing an exception if it fails.
+     */
+    public interface Delivery {
+
+        void deliver() throws Exception;
+
+    }
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int maxRetries;
+    private final long backoff;
+    private final long maxBackoff;
+    private final double multiplier;
+    private final double jitter;
+    private final int failureThreshold;
+    private final long openDuration;
+    private final String deadLetterTopic;
+    private final EventAdmin dispatcher;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile long openedAt;
+
+    public DeliveryPolicy(Dictionary<String, Object> config, EventAdmin dispatcher) {
+        this.maxRetries = getInt(config, RETRY_MAX_CONFIG, 0);
+        this.backoff = getLong(config, RETRY_BACKOFF_CONFIG, 100L);
+        this.maxBackoff = getLong(config, RETRY_BACKOFF_MAX_CONFIG, 10000L);
+        this.multiplier = getDouble(config, RETRY_BACKOFF_MULTIPLIER_CONFIG, 2.0);
+        this.jitter = Math.min(1.0, Math.max(0.0, getDouble(config, RETRY_JITTER_CONFIG, 0.5)));
+        this.failureThreshold = getInt(config, CIRCUIT_BREAKER_FAILURES_CONFIG, 0);
+        this.openDuration = getLong(config, CIRCUIT_BREAKER_OPEN_DURATION_CONFIG, 30000L);
+        this.deadLetterTopic = (config != null && config.get(DEAD_LETTER_TOPIC_CONFIG) != null) ? config.get(DEAD_LETTER_TOPIC_CONFIG).toString() : null;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Deliver the event using the policy.
+     *
+     * @param event the event to deliver.
+     * @param delivery the actual delivery to the backend.
+     * @return {@code true} if the event has been delivered, {@code false} if the event has been rejected because the circuit breaker is open.
+     * @throws Exception the last delivery failure, when all retries are exhausted.
+     */
+    public boolean deliver(Event event, Delivery delivery) throws Exception {
+        if (!allow()) {
+            LOGGER.debug("Circuit breaker is open, event {} is rejected", event.getTopic());
+            deadLetter(event, "Circuit breaker is open");
+            return false;
+        }
+        int attempt = 0;
+        while (true) {
+            try {
+                delivery.deliver();
+                success();
+                return true;
+            } catch (Exception e) {
+                failure();
+                if (attempt >= maxRetries || state.get() != State.CLOSED) {
+                    deadLetter(event, e.toString());
+                    throw e;
+                }
+                LOGGER.debug("Delivery of event {} failed (attempt {}), retrying", event.getTopic(), attempt + 1, e);
+                try {
+                    Thread.sleep(backoff(attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    deadLetter(event, e.toString());
+                    throw e;
+                }
+                attempt++;
+            }
+        }
+    }
+
+    long backoff(int attempt) {
+        double delay = Math.min(maxBackoff, backoff * Math.pow(multiplier, attempt));
+        return (long) (delay * (1.0 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    private boolean allow() {
+        if (failureThreshold <= 0) {
+            return true;
+        }
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        // only one delivery is tried when the open duration is elapsed
+        return current == State.OPEN
+                && System.currentTimeMillis() - openedAt >= openDuration
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void success() {
+        failures.set(0);
+        if (state.get() != State.CLOSED) {
+            LOGGER.info("Backend is available again, closing the circuit breaker");
+            state.set(State.CLOSED);
+        }
+    }
+
+    private void failure() {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        if (failures.incrementAndGet() >= failureThreshold || state.get() == State.HALF_OPEN) {
+            openedAt = System.currentTimeMillis();
+            if (state.getAndSet(State.OPEN) == State.CLOSED) {
+                LOGGER.warn("Backend is not available ({} consecutive failures), opening the circuit breaker for {} ms", failures.get(), openDuration);
+            }
+        }
+    }
+
+    private void deadLetter(Event event, String cause) {
+        if (deadLetterTopic == null || dispatcher == null) {
+            return;
+        }
+        Map<String, Object> data = new HashMap<>();
+        for (String name : event.getPropertyNames()) {
+            data.put(name, event.getProperty(name));
+        }
+        data.put(DEAD_LETTER_TOPIC_PROPERTY, event.getTopic());
+        data.put(DEAD_LETTER_CAUSE_PROPERTY, cause);
+        dispatcher.postEvent(new Event(deadLetterTopic, data));
+    }
+
+    private static int getInt(Dictionary<String, Object> config, String key, int defaultValue) {
+        return (config != null && config.get(key) != null) ? Integer.parseInt(config.get(key).toString()) : defaultValue;
+    }
+
+    private static long getLong(Dictionary<String, Object> config, String key, long defaultValue) {
+        return (config != null && config.get(key) != null) ? Long.parseLong(config.get(key).toString()) : defaultValue;
+    }
+
+    private static double getDouble(Dictionary<String, Object> config, String key, double defaultValue) {
+        return (config != null && config.get(key) != null) ? Double.parseDouble(config.get(key).toString()) : defaultValue;
+    }
+
+}
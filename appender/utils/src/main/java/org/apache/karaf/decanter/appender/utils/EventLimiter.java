@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load shedding for appenders, applied after the {@link CompiledEventFilter}.
+ * <p>
+ * The events are limited using a token bucket per key ({@code limit.key}: the event topic by default, or the value
+ * of an event property), and/or sampled ({@code sampling.rate}). The sampling is random, or deterministic when
+ * {@code sampling.key} is defined: all events with the same {@code sampling.key} property value are kept or dropped.
+ * If {@code limit.summary.topic} is defined, a summary event with the number of dropped events per key is posted
+ * every {@code limit.summary.period} seconds (if events have been dropped).
+ */
+public class EventLimiter {
+
+    public static final String RATE_CONFIG = "limit.rate";
+    public static final String BURST_CONFIG = "limit.burst";
+    public static final String KEY_CONFIG = "limit.key";
+    public static final String MAX_KEYS_CONFIG = "limit.max.keys";
+    public static final String SAMPLING_RATE_CONFIG = "sampling.rate";
+    public static final String SAMPLING_KEY_CONFIG = "sampling.key";
+    public static final String SUMMARY_TOPIC_CONFIG = "limit.summary.topic";
+    public static final String SUMMARY_PERIOD_CONFIG = "limit.summary.period";
+
+    public static final String TOPIC_KEY = "topic";
+    public static final String OTHER_KEY = "other";
+
+    private final double rate;
+    private final double burst;
+    private final String key;
+    private final int maxKeys;
+    private final double samplingRate;
+    private final String samplingKey;
+    private final String summaryTopic;
+    private final long summaryPeriod;
+    private final EventAdmin dispatcher;
+    private final boolean acceptAll;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> dropped = new ConcurrentHashMap<>();
+    private final AtomicLong nextSummary;
+
+    public EventLimiter(Dictionary<String, Object> config, EventAdmin dispatcher) {
+        this.rate = getDouble(config, RATE_CONFIG, 0.0);
+        this.burst = getDouble(config, BURST_CONFIG, Math.max(1.0, rate));
+        this.key = getString(config, KEY_CONFIG, TOPIC_KEY);
+        this.maxKeys = (int) getDouble(config, MAX_KEYS_CONFIG, 10000);
+        this.samplingRate = getDouble(config, SAMPLING_RATE_CONFIG, 1.0);
+        this.samplingKey = getString(config, SAMPLING_KEY_CONFIG, null);
+        this.summaryTopic = getString(config, SUMMARY_TOPIC_CONFIG, null);
+        this.summaryPeriod = TimeUnit.SECONDS.toMillis((long) getDouble(config, SUMMARY_PERIOD_CONFIG, 60));
+        this.dispatcher = dispatcher;
+        this.acceptAll = rate <= 0 && samplingRate >= 1.0;
+        this.nextSummary = new AtomicLong(System.currentTimeMillis() + summaryPeriod);
+    }
+
+    /**
+     * @return {@code true} if the event has to be sent to the backend, {@code false} if the event is dropped.
+     */
+    public boolean accept(Event event) {
+        if (acceptAll) {
+            return true;
+        }
+        summary();
+        String eventKey = key(event);
+        if (samplingRate < 1.0 && !sample(event)) {
+            drop(eventKey);
+            return false;
+        }
+        if (rate > 0) {
+            TokenBucket bucket = buckets.get(eventKey);
+            if (bucket == null) {
+                if (buckets.size() >= maxKeys) {
+                    eventKey = OTHER_KEY;
+                }
+                bucket = buckets.computeIfAbsent(eventKey, k -> new TokenBucket(rate, burst));
+            }
+            if (!bucket.tryAcquire()) {
+                drop(eventKey);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String key(Event event) {
+        if (TOPIC_KEY.equals(key)) {
+            return event.getTopic();
+        }
+        Object value = event.getProperty(key);
+        return (value != null) ? value.toString() : "";
+    }
+
+    private boolean sample(Event event) {
+        if (samplingKey != null) {
+            Object value = event.getProperty(samplingKey);
+            if (value != null) {
+                // spread the hash code, then keep the 31 bits as a [0, 1) value
+                int hash = value.hashCode() * 0x9E3779B9;
+                hash ^= (hash >>> 16);
+                return (hash & 0x7FFFFFFF) < samplingRate * 0x80000000L;
+            }
+        }
+        return ThreadLocalRandom.current().nextDouble() < samplingRate;
+    }
+
+    private void drop(String eventKey) {
+        LongAdder counter = dropped.get(eventKey);
+        if (counter == null) {
+            if (dropped.size() >= maxKeys) {
+                eventKey = OTHER_KEY;
+            }
+            counter = dropped.computeIfAbsent(eventKey, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private void summary() {
+        if (summaryTopic == null || dispatcher == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long next = nextSummary.get();
+        if (now < next || !nextSummary.compareAndSet(next, now + summaryPeriod)) {
+            return;
+        }
+        Map<String, Long> droppedByKey = new HashMap<>();
+        long total = 0;
+        for (Map.Entry<String, LongAdder> entry : dropped.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                droppedByKey.put(entry.getKey(), count);
+                total += count;
+            }
+        }
+        if (total > 0) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("type", "limiter");
+            data.put("dropped", total);
+            data.put("droppedByKey", droppedByKey);
+            dispatcher.postEvent(new Event(summaryTopic, data));
+        }
+    }
+
+    private static String getString(Dictionary<String, Object> config, String key, String defaultValue) {
+        return (config != null && config.get(key) != null) ? config.get(key).toString() : defaultValue;
+    }
+
+    private static double getDouble(Dictionary<String, Object> config, String key, double defaultValue) {
+        return (config != null && config.get(key) != null) ? Double.parseDouble(config.get(key).toString()) : defaultValue;
+    }
+
+    static class TokenBucket {
+
+        private final double rate;
+        private final double capacity;
+        private double tokens;
+        private long last;
+
+        TokenBucket(double rate, double capacity) {
+            this.rate = rate;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.last = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - last) * rate / TimeUnit.SECONDS.toNanos(1));
+            last = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Durable store-and-forward buffer for appenders.
+ * <p>
+ * Records (typically marshalled events) are appended to memory-mapped segment files. Each record is stored with
+ * its length and CRC32 checksum (the length is stored plus one, as a zero marks the end of the records: an empty
+ * record is valid). A replay cursor is committed (in the {@code cursor} file) only once a record has been
+ * successfully sent to the backend, and a segment is deleted as soon as it's fully committed.
+ * The journal is bounded: {@link #append(byte[])} returns {@code false} when the max size is reached.
+ * <p>
+ * The delivery is "at least once": a record sent but not yet committed when the process stops is sent again.
+ * <p>
+ * The writes are not forced to the storage device one by one: an appended record (or a committed cursor) survives a
+ * crash of the process, but survives a crash of the operating system (or a power loss) only once {@link #flush()} has
+ * been called (or once its segment is full). The segments are unmapped when they are deleted and when the journal is
+ * closed, so the files can be deleted on every platform; the journal can't be used once closed.
+ */
+public class Journal implements Closeable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(Journal.class);
+
+    public static final String SEGMENT_SUFFIX = ".journal";
+    public static final String CURSOR_FILE = "cursor";
+
+    private static final int HEADER_SIZE = 8;
+    private static final int CURSOR_SIZE = 12;
+
+    /**
+     * Send a record to the backend, throwing an exception if the record is not delivered.
+     */
+    public interface Sender {
+
+        void send(byte[] record) throws Exception;
+
+    }
+
+    private final File directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment writeSegment;
+
+    private final RandomAccessFile cursorFile;
+    private final MappedByteBuffer cursor;
+    private long commitSegment;
+    private int commitPosition;
+    private long readSegment;
+    private int readPosition;
+
+    private final Object forwardLock = new Object();
+    private boolean closed;
+
+    /**
+     * Open (or create) a journal in the given directory.
+     *
+     * @param directory the journal directory.
+     * @param segmentSize the size (in bytes) of each segment file.
+     * @param maxSize the max size (in bytes) of the journal on disk.
+     */
+    public Journal(File directory, int segmentSize, long maxSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxSize / segmentSize));
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can't create journal directory " + directory);
+        }
+
+        cursorFile = new RandomAccessFile(new File(directory, CURSOR_FILE), "rw");
+        cursor = cursorFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CURSOR_SIZE);
+        commitSegment = cursor.getLong(0);
+        commitPosition = cursor.getInt(8);
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                long id = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+                if (id < commitSegment) {
+                    // fully committed segment, not deleted before stop
+                    if (!file.delete()) {
+                        LOGGER.warn("Can't delete journal segment {}", file);
+                    }
+                } else {
+                    segments.put(id, new Segment(id, file));
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            writeSegment = new Segment(commitSegment, segmentFile(commitSegment));
+            segments.put(writeSegment.id, writeSegment);
+            commitPosition = 0;
+        } else {
+            if (segments.firstKey() > commitSegment) {
+                commitSegment = segments.firstKey();
+                commitPosition = 0;
+            }
+            writeSegment = segments.lastEntry().getValue();
+        }
+        writeSegment.recover();
+        readSegment = commitSegment;
+        readPosition = commitPosition;
+    }
+
+    private File segmentFile(long id) {
+        return new File(directory, String.format("%020d%s", id, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Append a record to the journal.
+     *
+     * @param record the record to append.
+     * @return {@code true} if the record has been appended, {@code false} if the journal is full.
+     */
+    public synchronized boolean append(byte[] record) throws IOException {
+        checkOpen();
+        if (record.length + HEADER_SIZE > segmentSize) {
+            throw new IllegalArgumentException("Record size (" + record.length + ") exceeds the segment size (" + segmentSize + ")");
+        }
+        if (writeSegment.position + HEADER_SIZE + record.length > segmentSize) {
+            if (segments.size() >= maxSegments) {
+                return false;
+            }
+            // the full segment is not written anymore
+            writeSegment.buffer.force();
+            long id = writeSegment.id + 1;
+            writeSegment = new Segment(id, segmentFile(id));
+            segments.put(id, writeSegment);
+        }
+        writeSegment.write(record);
+        return true;
+    }
+
+    /**
+     * Send all pending records (from the replay cursor) using the given sender.
+     * The cursor is committed after each record successfully sent.
+     * If the sender fails, the cursor goes back to the last committed record and the exception is thrown.
+     *
+     * @return the number of records sent.
+     */
+    public int forward(Sender sender) throws Exception {
+        synchronized (forwardLock) {
+            int count = 0;
+            byte[] record;
+            while ((record = next()) != null) {
+                try {
+                    sender.send(record);
+                } catch (Exception e) {
+                    rollback();
+                    throw e;
+                }
+                commit();
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Read the next record from the replay cursor.
+     *
+     * @return the next record, or {@code null} if there's no pending record.
+     */
+    public synchronized byte[] next() throws IOException {
+        checkOpen();
+        while (true) {
+            Segment segment = segments.get(readSegment);
+            if (segment == null) {
+                return null;
+            }
+            byte[] record = null;
+            if (segment == writeSegment) {
+                if (readPosition < writeSegment.position) {
+                    record = segment.read(readPosition);
+                }
+                if (record == null) {
+                    return null;
+                }
+            } else {
+                record = segment.read(readPosition);
+                if (record == null) {
+                    // end of the segment
+                    Long nextSegment = segments.higherKey(readSegment);
+                    if (nextSegment == null) {
+                        return null;
+                    }
+                    readSegment = nextSegment;
+                    readPosition = 0;
+                    continue;
+                }
+            }
+            readPosition += HEADER_SIZE + record.length;
+            return record;
+        }
+    }
+
+    /**
+     * Commit the replay cursor: the records read are considered as sent, and the fully sent segments are deleted.
+     */
+    public synchronized void commit() {
+        checkOpen();
+        commitSegment = readSegment;
+        commitPosition = readPosition;
+        cursor.putLong(0, commitSegment);
+        cursor.putInt(8, commitPosition);
+        Map.Entry<Long, Segment> first;
+        while ((first = segments.firstEntry()) != null && first.getKey() < commitSegment) {
+            segments.remove(first.getKey());
+            first.getValue().delete();
+        }
+    }
+
+    /**
+     * Move the replay cursor back to the last committed record.
+     */
+    public synchronized void rollback() {
+        readSegment = commitSegment;
+        readPosition = commitPosition;
+    }
+
+    /**
+     * @return {@code true} if there's no pending (not committed) record.
+     */
+    public synchronized boolean isEmpty() throws IOException {
+        long currentSegment = readSegment;
+        int currentPosition = readPosition;
+        rollback();
+        try {
+            return next() == null;
+        } finally {
+            readSegment = currentSegment;
+            readPosition = currentPosition;
+        }
+    }
+
+    /**
+     * Force the journal content (the appended records and the committed cursor) to the storage device.
+     */
+    public synchronized void flush() {
+        checkOpen();
+        writeSegment.buffer.force();
+        cursor.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        unmap(cursor);
+        cursorFile.close();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal " + directory + " is closed");
+        }
+    }
+
+    /**
+     * Unmap a buffer without waiting for its garbage collection (a mapped file can't be deleted on Windows). The
+     * buffer must not be used anymore.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                // Java 9+
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                Method cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    bufferCleaner.getClass().getMethod("clean").invoke(bufferCleaner);
+                }
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (Exception e) {
+            LOGGER.debug("Can't unmap journal buffer, it will be unmapped when garbage collected", e);
+        }
+    }
+
+    private class Segment {
+
+        private final long id;
+        private final File file;
+        private final RandomAccessFile randomAccessFile;
+        private final MappedByteBuffer buffer;
+        private final CRC32 crc = new CRC32();
+        private int position;
+
+        Segment(long id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+
+        /**
+         * Look for the write position, after the last valid record.
+         */
+        void recover() {
+            position = 0;
+            byte[] record;
+            while ((record = read(position)) != null) {
+                position += HEADER_SIZE + record.length;
+            }
+            terminate(position);
+        }
+
+        void write(byte[] record) {
+            int start = position;
+            int end = start + HEADER_SIZE + record.length;
+            // the record is "visible" only once the length is written
+            terminate(end);
+            buffer.position(start + HEADER_SIZE);
+            buffer.put(record);
+            crc.reset();
+            crc.update(record, 0, record.length);
+            buffer.putInt(start + 4, (int) crc.getValue());
+            buffer.putInt(start, record.length + 1);
+            position = end;
+        }
+
+        byte[] read(int offset) {
+            if (offset + HEADER_SIZE > segmentSize) {
+                return null;
+            }
+            int length = buffer.getInt(offset) - 1;
+            if (length < 0 || length > segmentSize - HEADER_SIZE - offset) {
+                return null;
+            }
+            byte[] record = new byte[length];
+            buffer.position(offset + HEADER_SIZE);
+            buffer.get(record);
+            crc.reset();
+            crc.update(record, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                LOGGER.warn("Corrupted record in journal segment {} at position {}", file, offset);
+                return null;
+            }
+            return record;
+        }
+
+        private void terminate(int offset) {
+            if (offset + 4 <= segmentSize) {
+                buffer.putInt(offset, 0);
+            }
+        }
+
+        void close() throws IOException {
+            unmap(buffer);
+            randomAccessFile.close();
+        }
+
+        void delete() {
+            try {
+                close();
+            } catch (IOException e) {
+                LOGGER.debug("Can't close journal segment {}", file, e);
+            }
+            if (!file.delete()) {
+                LOGGER.warn("Can't delete journal segment {}", file);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,612 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Parquet file writer, for a flat schema of optional columns.
+ * <p>
+ * The rows are written by row groups. The values use the {@code PLAIN} encoding and the definition levels the
+ * {@code RLE} encoding, in data pages of about 1MB, compressed with the configured codec. The footer (file metadata,
+ * with the min/max statistics of the numeric columns) is written when the writer is closed.
+ */
+public class ParquetWriter implements Closeable {
+
+    private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final int PAGE_SIZE = 1024 * 1024;
+
+    /**
+     * The application writing the file, in the {@code <application> version <version> (build <hash>)} format parsed
+     * by the Parquet readers (the statistics are ignored when the format is not recognized).
+     */
+    static final String CREATED_BY = createdBy();
+
+    // Parquet thrift enums
+    private static final int DATA_PAGE = 0;
+    private static final int PLAIN = 0;
+    private static final int RLE = 3;
+    private static final int OPTIONAL = 1;
+
+    public enum Codec {
+        UNCOMPRESSED(0), SNAPPY(1), GZIP(2);
+
+        final int id;
+
+        Codec(int id) {
+            this.id = id;
+        }
+    }
+
+    public enum ColumnType {
+        BOOLEAN(0, -1), LONG(2, -1), TIMESTAMP(2, 9), DOUBLE(5, -1), STRING(6, 0), BINARY(6, -1);
+
+        final int physicalType;
+        final int convertedType;
+
+        ColumnType(int physicalType, int convertedType) {
+            this.physicalType = physicalType;
+            this.convertedType = convertedType;
+        }
+    }
+
+    public static class Column {
+
+        final String name;
+        final ColumnType type;
+
+        public Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+
+    }
+
+    private final OutputStream out;
+    private final List<Column> columns;
+    private final Codec codec;
+    private final List<byte[]> rowGroups = new ArrayList<>();
+    private long position;
+    private long rows;
+
+    public ParquetWriter(OutputStream out, List<Column> columns, Codec codec) throws IOException {
+        this.out = out;
+        this.columns = new ArrayList<>(columns);
+        this.codec = codec;
+        write(MAGIC, 0, MAGIC.length);
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of bytes written.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Write a row group. The values have to match the column types: {@link Boolean} for {@code BOOLEAN},
+     * {@link Number} for {@code LONG}, {@code TIMESTAMP} and {@code DOUBLE}, {@code byte[]} for {@code BINARY},
+     * any value for {@code STRING}.
+     */
+    public void writeRowGroup(List<? extends Map<String, ?>> rowGroup) throws IOException {
+        if (rowGroup.isEmpty()) {
+            return;
+        }
+        Thrift metadata = new Thrift();
+        metadata.beginList(1, Thrift.STRUCT, columns.size());
+        long totalSize = 0;
+        for (Column column : columns) {
+            totalSize += writeColumnChunk(column, rowGroup, metadata);
+        }
+        metadata.i64(2, totalSize);
+        metadata.i64(3, rowGroup.size());
+        metadata.stop();
+        rowGroups.add(metadata.toByteArray());
+        rows += rowGroup.size();
+    }
+
+    private long writeColumnChunk(Column column, List<? extends Map<String, ?>> rowGroup, Thrift metadata) throws IOException {
+        long offset = position;
+        long uncompressedSize = 0;
+        Statistics statistics = new Statistics(column.type);
+        Page page = new Page();
+        for (Map<String, ?> row : rowGroup) {
+            Object value = row.get(column.name);
+            page.level(value != null);
+            if (value != null) {
+                writeValue(column.type, value, page);
+                statistics.add(value);
+            } else {
+                statistics.nulls++;
+            }
+            if (page.values.size() >= PAGE_SIZE) {
+                uncompressedSize += writePage(page);
+                page = new Page();
+            }
+        }
+        if (page.rows > 0) {
+            uncompressedSize += writePage(page);
+        }
+
+        metadata.beginStruct();
+        metadata.i64(2, offset);
+        metadata.beginStruct(3);
+        metadata.i32(1, column.type.physicalType);
+        metadata.beginList(2, Thrift.I32, 2);
+        metadata.listI32(PLAIN);
+        metadata.listI32(RLE);
+        metadata.beginList(3, Thrift.BINARY, 1);
+        metadata.listString(column.name);
+        metadata.i32(4, codec.id);
+        metadata.i64(5, rowGroup.size());
+        metadata.i64(6, uncompressedSize);
+        metadata.i64(7, position - offset);
+        metadata.i64(9, offset);
+        statistics.write(metadata, 12);
+        metadata.endStruct();
+        metadata.endStruct();
+        return uncompressedSize;
+    }
+
+    private void writeValue(ColumnType type, Object value, Page page) {
+        Buffer values = page.values;
+        switch (type) {
+            case BOOLEAN:
+                // bit packed, least significant bit first
+                if ((Boolean) value) {
+                    page.bits |= 1 << page.bitCount;
+                }
+                if (++page.bitCount == 8) {
+                    values.write(page.bits);
+                    page.bits = 0;
+                    page.bitCount = 0;
+                }
+                break;
+            case LONG:
+            case TIMESTAMP:
+                values.writeLongLE(((Number) value).longValue());
+                break;
+            case DOUBLE:
+                values.writeLongLE(Double.doubleToLongBits(((Number) value).doubleValue()));
+                break;
+            case BINARY:
+                byte[] bytes = (byte[]) value;
+                values.writeIntLE(bytes.length);
+                values.write(bytes, 0, bytes.length);
+                break;
+            default:
+                byte[] string = toString(value).getBytes(StandardCharsets.UTF_8);
+                values.writeIntLE(string.length);
+                values.write(string, 0, string.length);
+        }
+    }
+
+    private static String toString(Object value) {
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        } else if (value instanceof Object[]) {
+            return Arrays.deepToString((Object[]) value);
+        } else if (value instanceof long[]) {
+            return Arrays.toString((long[]) value);
+        } else if (value instanceof int[]) {
+            return Arrays.toString((int[]) value);
+        } else if (value instanceof double[]) {
+            return Arrays.toString((double[]) value);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Write a data page: definition levels (length prefixed RLE runs) then the values.
+     *
+     * @return the uncompressed size of the page, including the header.
+     */
+    private long writePage(Page page) throws IOException {
+        page.finish();
+        Buffer data = new Buffer();
+        data.writeIntLE(page.levels.size());
+        data.write(page.levels.array(), 0, page.levels.size());
+        data.write(page.values.array(), 0, page.values.size());
+
+        byte[] compressed = compress(data.array(), data.size());
+        Thrift header = new Thrift();
+        header.i32(1, DATA_PAGE);
+        header.i32(2, data.size());
+        header.i32(3, compressed.length);
+        header.beginStruct(5);
+        header.i32(1, page.rows);
+        header.i32(2, PLAIN);
+        header.i32(3, RLE);
+        header.i32(4, RLE);
+        header.endStruct();
+        header.stop();
+        byte[] headerBytes = header.toByteArray();
+        write(headerBytes, 0, headerBytes.length);
+        write(compressed, 0, compressed.length);
+        return headerBytes.length + data.size();
+    }
+
+    private byte[] compress(byte[] data, int length) throws IOException {
+        switch (codec) {
+            case SNAPPY:
+                return Snappy.compress(data, 0, length);
+            case GZIP:
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(length / 2 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                    gzip.write(data, 0, length);
+                }
+                return buffer.toByteArray();
+            default:
+                return Arrays.copyOf(data, length);
+        }
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        position += length;
+    }
+
+    /**
+     * Write the footer and close the output stream.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            Thrift footer = new Thrift();
+            footer.i32(1, 1);
+            footer.beginList(2, Thrift.STRUCT, columns.size() + 1);
+            footer.beginStruct();
+            footer.string(4, "schema");
+            footer.i32(5, columns.size());
+            footer.endStruct();
+            for (Column column : columns) {
+                footer.beginStruct();
+                footer.i32(1, column.type.physicalType);
+                footer.i32(3, OPTIONAL);
+                footer.string(4, column.name);
+                if (column.type.convertedType >= 0) {
+                    footer.i32(6, column.type.convertedType);
+                }
+                footer.endStruct();
+            }
+            footer.i64(3, rows);
+            footer.beginList(4, Thrift.STRUCT, rowGroups.size());
+            for (byte[] rowGroup : rowGroups) {
+                footer.raw(rowGroup);
+            }
+            footer.string(6, CREATED_BY);
+            // type defined order (signed for the numeric columns) for the statistics of all columns
+            footer.beginList(7, Thrift.STRUCT, columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                footer.beginStruct();
+                footer.beginStruct(1);
+                footer.endStruct();
+                footer.endStruct();
+            }
+            footer.stop();
+            byte[] bytes = footer.toByteArray();
+            write(bytes, 0, bytes.length);
+            Buffer length = new Buffer();
+            length.writeIntLE(bytes.length);
+            write(length.array(), 0, 4);
+            write(MAGIC, 0, MAGIC.length);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String createdBy() {
+        Properties properties = new Properties();
+        try (InputStream in = ParquetWriter.class.getResourceAsStream("version.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            // use the default values
+        }
+        return "decanter version " + properties.getProperty("version", "unknown") + " (build " + properties.getProperty("build", "unknown") + ")";
+    }
+
+    /**
+     * Data page being written: definition levels as RLE runs (bit width 1) and plain encoded values.
+     */
+    private static class Page {
+
+        final Buffer levels = new Buffer();
+        final Buffer values = new Buffer();
+        int rows;
+        int bits;
+        int bitCount;
+        boolean runLevel;
+        int runLength;
+
+        void level(boolean defined) {
+            if (runLength > 0 && defined != runLevel) {
+                flushRun();
+            }
+            runLevel = defined;
+            runLength++;
+            rows++;
+        }
+
+        void finish() {
+            flushRun();
+            if (bitCount > 0) {
+                values.write(bits);
+                bits = 0;
+                bitCount = 0;
+            }
+        }
+
+        private void flushRun() {
+            if (runLength > 0) {
+                levels.writeVarInt((long) runLength << 1);
+                levels.write(runLevel ? 1 : 0);
+                runLength = 0;
+            }
+        }
+
+    }
+
+    /**
+     * Min/max statistics of the numeric columns.
+     */
+    private static class Statistics {
+
+        final ColumnType type;
+        long nulls;
+        long minLong = Long.MAX_VALUE;
+        long maxLong = Long.MIN_VALUE;
+        double minDouble = Double.POSITIVE_INFINITY;
+        double maxDouble = Double.NEGATIVE_INFINITY;
+        boolean nan;
+        boolean empty = true;
+
+        Statistics(ColumnType type) {
+            this.type = type;
+        }
+
+        void add(Object value) {
+            empty = false;
+            if (type == ColumnType.LONG || type == ColumnType.TIMESTAMP) {
+                long l = ((Number) value).longValue();
+                minLong = Math.min(minLong, l);
+                maxLong = Math.max(maxLong, l);
+            } else if (type == ColumnType.DOUBLE) {
+                double d = ((Number) value).doubleValue();
+                if (Double.isNaN(d)) {
+                    nan = true;
+                } else {
+                    minDouble = Math.min(minDouble, d);
+                    maxDouble = Math.max(maxDouble, d);
+                }
+            }
+        }
+
+        void write(Thrift thrift, int field) {
+            thrift.beginStruct(field);
+            thrift.i64(3, nulls);
+            if (!empty && (type == ColumnType.LONG || type == ColumnType.TIMESTAMP)) {
+                thrift.binary(5, longBytes(maxLong));
+                thrift.binary(6, longBytes(minLong));
+            } else if (!empty && !nan && type == ColumnType.DOUBLE) {
+                thrift.binary(5, longBytes(Double.doubleToLongBits(maxDouble)));
+                thrift.binary(6, longBytes(Double.doubleToLongBits(minDouble)));
+            }
+            thrift.endStruct();
+        }
+
+        private static byte[] longBytes(long value) {
+            Buffer buffer = new Buffer();
+            buffer.writeLongLE(value);
+            return Arrays.copyOf(buffer.array(), 8);
+        }
+
+    }
+
+    /**
+     * Growable byte buffer with little endian and varint writes.
+     */
+    static class Buffer {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        void write(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] b, int offset, int length) {
+            ensure(length);
+            System.arraycopy(b, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeIntLE(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                bytes[size++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeLongLE(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                bytes[size++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeVarInt(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+
+    }
+
+    /**
+     * Thrift compact protocol writer, for the Parquet metadata structures.
+     */
+    static class Thrift {
+
+        static final int I32 = 5;
+        static final int I64 = 6;
+        static final int BINARY = 8;
+        static final int LIST = 9;
+        static final int STRUCT = 12;
+
+        private final Buffer buffer = new Buffer();
+        private final Deque<Integer> fields = new ArrayDeque<>();
+        private int lastField;
+
+        void i32(int field, int value) {
+            header(field, I32);
+            listI32(value);
+        }
+
+        void i64(int field, long value) {
+            header(field, I64);
+            buffer.writeVarInt((value << 1) ^ (value >> 63));
+        }
+
+        void binary(int field, byte[] value) {
+            header(field, BINARY);
+            buffer.writeVarInt(value.length);
+            buffer.write(value, 0, value.length);
+        }
+
+        void string(int field, String value) {
+            binary(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void beginList(int field, int elementType, int size) {
+            header(field, LIST);
+            if (size < 15) {
+                buffer.write((size << 4) | elementType);
+            } else {
+                buffer.write(0xF0 | elementType);
+                buffer.writeVarInt(size);
+            }
+        }
+
+        void listI32(int value) {
+            buffer.writeVarInt(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        void listString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.writeVarInt(bytes.length);
+            buffer.write(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Begin a struct field.
+         */
+        void beginStruct(int field) {
+            header(field, STRUCT);
+            beginStruct();
+        }
+
+        /**
+         * Begin a struct list element.
+         */
+        void beginStruct() {
+            fields.push(lastField);
+            lastField = 0;
+        }
+
+        void endStruct() {
+            stop();
+            lastField = fields.pop();
+        }
+
+        void stop() {
+            buffer.write(0);
+        }
+
+        /**
+         * Write an already encoded struct list element.
+         */
+        void raw(byte[] struct) {
+            buffer.write(struct, 0, struct.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer.array(), buffer.size());
+        }
+
+        private void header(int field, int type) {
+            int delta = field - lastField;
+            if (delta > 0 && delta <= 15) {
+                buffer.write((delta << 4) | type);
+            } else {
+                buffer.write(type);
+                listI32(field);
+            }
+            lastField = field;
+        }
+
+    }
+
+}
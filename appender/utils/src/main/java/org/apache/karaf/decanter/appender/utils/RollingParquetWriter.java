@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.osgi.service.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parquet output for the appenders writing files ({@code format=parquet}).
+ * <p>
+ * The events are buffered as rows until {@code parquet.row.group.size} bytes, then written as a row group. The
+ * columns are the event properties: the schema of a file is the union of the properties of the events of its first
+ * row group. A file is closed (and a new one created) when it reaches {@code parquet.file.size} bytes, every
+ * {@code parquet.roll.interval} seconds, or when the buffered rows don't match the file schema (the file is rolled
+ * when the row group is written, not for each event: the events of heterogeneous topics are in the same file as long
+ * as the row groups have the same properties).
+ * <p>
+ * The buffered rows are kept until they are written: when a flush fails, the rows are written by the next flush (a
+ * failed row group is not in the file, the file is closed with the row groups already written).
+ */
+public class RollingParquetWriter implements Closeable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(RollingParquetWriter.class);
+
+    public static final String ROW_GROUP_SIZE_CONFIG = "parquet.row.group.size";
+    public static final String FILE_SIZE_CONFIG = "parquet.file.size";
+    public static final String ROLL_INTERVAL_CONFIG = "parquet.roll.interval";
+    public static final String COMPRESSION_CONFIG = "parquet.compression";
+
+    public static final String EXTENSION = ".parquet";
+
+    /**
+     * Create the files in the backend.
+     */
+    public interface Output {
+
+        OutputStream create(String name) throws IOException;
+
+    }
+
+    private final Output output;
+    private final String prefix;
+    private final long rowGroupSize;
+    private final long fileSize;
+    private final long rollInterval;
+    private final ParquetWriter.Codec codec;
+    private final ScheduledExecutorService scheduler;
+
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private long bufferedSize;
+    private final Map<String, ParquetWriter.ColumnType> rowsSchema = new LinkedHashMap<>();
+    private Map<String, ParquetWriter.ColumnType> schema;
+    private ParquetWriter writer;
+    private long openedAt;
+    private long lastName;
+
+    public RollingParquetWriter(Dictionary<String, Object> config, String prefix, Output output) {
+        this.output = output;
+        this.prefix = prefix;
+        this.rowGroupSize = getLong(config, ROW_GROUP_SIZE_CONFIG, 8L * 1024 * 1024);
+        this.fileSize = getLong(config, FILE_SIZE_CONFIG, 128L * 1024 * 1024);
+        this.rollInterval = TimeUnit.SECONDS.toMillis(getLong(config, ROLL_INTERVAL_CONFIG, 3600L));
+        this.codec = ParquetWriter.Codec.valueOf(getString(config, COMPRESSION_CONFIG, "snappy").toUpperCase(Locale.ROOT));
+        if (rollInterval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "decanter-parquet-" + prefix);
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1000L, rollInterval / 10);
+            scheduler.scheduleWithFixedDelay(this::rollIfExpired, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public void write(Event event) throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        for (String name : event.getPropertyNames()) {
+            data.put(name, event.getProperty(name));
+        }
+        write(data);
+    }
+
+    /**
+     * Buffer the event as a row, and write the buffered rows if the row group is full. The event is buffered once,
+     * even if the row group can't be written: it must not be written again.
+     */
+    public synchronized void write(Map<String, Object> event) throws IOException {
+        if (writer == null && rows.isEmpty()) {
+            openedAt = System.currentTimeMillis();
+        }
+        Map<String, Object> row = new HashMap<>();
+        for (Map.Entry<String, Object> entry : event.entrySet()) {
+            ParquetWriter.ColumnType type = type(entry.getKey(), entry.getValue());
+            if (type == null) {
+                continue;
+            }
+            rowsSchema.merge(entry.getKey(), type, RollingParquetWriter::merge);
+            row.put(entry.getKey(), entry.getValue());
+            bufferedSize += size(entry.getValue());
+        }
+        rows.add(row);
+        if (bufferedSize >= rowGroupSize) {
+            flush();
+            if (writer.getPosition() >= fileSize) {
+                closeFile();
+            }
+        }
+    }
+
+    /**
+     * Write the buffered rows as a row group.
+     */
+    public synchronized void flush() throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (writer != null && !matches(rowsSchema, schema)) {
+            // the buffered rows don't match the file schema
+            closeFile();
+            openedAt = System.currentTimeMillis();
+        }
+        if (writer == null) {
+            List<ParquetWriter.Column> columns = new ArrayList<>();
+            for (Map.Entry<String, ParquetWriter.ColumnType> entry : rowsSchema.entrySet()) {
+                columns.add(new ParquetWriter.Column(entry.getKey(), entry.getValue()));
+            }
+            writer = new ParquetWriter(output.create(nextName()), columns, codec);
+            schema = new LinkedHashMap<>(rowsSchema);
+        }
+        List<Map<String, Object>> rowGroup = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            rowGroup.add(convert(row));
+        }
+        try {
+            writer.writeRowGroup(rowGroup);
+        } catch (IOException e) {
+            // the rows are kept for the next file
+            try {
+                closeFile();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+        rows.clear();
+        rowsSchema.clear();
+        bufferedSize = 0;
+    }
+
+    /**
+     * @return {@code true} if the columns of the buffered rows are in the file schema, with a compatible type.
+     */
+    private static boolean matches(Map<String, ParquetWriter.ColumnType> rowsSchema, Map<String, ParquetWriter.ColumnType> schema) {
+        for (Map.Entry<String, ParquetWriter.ColumnType> entry : rowsSchema.entrySet()) {
+            ParquetWriter.ColumnType current = schema.get(entry.getKey());
+            if (current == null || merge(current, entry.getValue()) != current) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, Object> convert(Map<String, Object> row) {
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (schema.get(entry.getKey()) == ParquetWriter.ColumnType.DOUBLE) {
+                entry.setValue(((Number) entry.getValue()).doubleValue());
+            }
+        }
+        return row;
+    }
+
+    private synchronized void rollIfExpired() {
+        if (writer == null && rows.isEmpty() || System.currentTimeMillis() - openedAt < rollInterval) {
+            return;
+        }
+        try {
+            flush();
+            closeFile();
+        } catch (Exception e) {
+            LOGGER.warn("Can't roll the Parquet file", e);
+        }
+    }
+
+    private void closeFile() throws IOException {
+        if (writer != null) {
+            try {
+                writer.close();
+            } finally {
+                // the schema of the next file is the schema of its first row group
+                writer = null;
+                schema = null;
+            }
+        }
+    }
+
+    private String nextName() {
+        long now = Math.max(System.currentTimeMillis(), lastName + 1);
+        lastName = now;
+        return prefix + "-" + now + EXTENSION;
+    }
+
+    /**
+     * Write the buffered rows and close the current file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        try {
+            flush();
+        } finally {
+            closeFile();
+        }
+    }
+
+    static ParquetWriter.ColumnType type(String name, Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Boolean) {
+            return ParquetWriter.ColumnType.BOOLEAN;
+        } else if (value instanceof Long && "timestamp".equals(name)) {
+            return ParquetWriter.ColumnType.TIMESTAMP;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ParquetWriter.ColumnType.LONG;
+        } else if (value instanceof Double || value instanceof Float || value instanceof BigDecimal || value instanceof BigInteger) {
+            return ParquetWriter.ColumnType.DOUBLE;
+        } else if (value instanceof byte[]) {
+            return ParquetWriter.ColumnType.BINARY;
+        }
+        return ParquetWriter.ColumnType.STRING;
+    }
+
+    static ParquetWriter.ColumnType merge(ParquetWriter.ColumnType current, ParquetWriter.ColumnType type) {
+        if (current == type) {
+            return current;
+        }
+        if (isNumber(current) && isNumber(type)) {
+            if (current == ParquetWriter.ColumnType.DOUBLE || type == ParquetWriter.ColumnType.DOUBLE) {
+                return ParquetWriter.ColumnType.DOUBLE;
+            }
+            return ParquetWriter.ColumnType.LONG;
+        }
+        return ParquetWriter.ColumnType.STRING;
+    }
+
+    private static boolean isNumber(ParquetWriter.ColumnType type) {
+        return type == ParquetWriter.ColumnType.LONG || type == ParquetWriter.ColumnType.TIMESTAMP || type == ParquetWriter.ColumnType.DOUBLE;
+    }
+
+    private static long size(Object value) {
+        if (value instanceof String) {
+            return 4 + ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return 4 + ((byte[]) value).length;
+        }
+        return 8;
+    }
+
+    private static String getString(Dictionary<String, Object> config, String key, String defaultValue) {
+        return (config != null && config.get(key) != null) ? config.get(key).toString() : defaultValue;
+    }
+
+    private static long getLong(Dictionary<String, Object> config, String key, long defaultValue) {
+        return (config != null && config.get(key) != null) ? Long.parseLong(config.get(key).toString()) : defaultValue;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import java.util.Arrays;
+
+/**
+ * Snappy compression (raw block format, as used by the Parquet {@code SNAPPY} codec).
+ * <p>
+ * Greedy compressor with a hash table of the last positions of 4 bytes sequences, working on 64KB blocks.
+ */
+final class Snappy {
+
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int HASH_BITS = 14;
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_COPY = 64;
+
+    private Snappy() {
+    }
+
+    static byte[] compress(byte[] input, int offset, int length) {
+        // worst case: literals with their tags
+        byte[] output = new byte[32 + length + length / 6];
+        int out = writeVarInt(output, 0, length);
+        int[] table = new int[1 << HASH_BITS];
+        for (int block = offset; block < offset + length; block += BLOCK_SIZE) {
+            out = compressBlock(input, block, Math.min(BLOCK_SIZE, offset + length - block), output, out, table);
+        }
+        byte[] result = new byte[out];
+        System.arraycopy(output, 0, result, 0, out);
+        return result;
+    }
+
+    private static int compressBlock(byte[] input, int start, int length, byte[] output, int out, int[] table) {
+        int end = start + length;
+        int literal = start;
+        int pos = start;
+        Arrays.fill(table, -1);
+        while (pos + MIN_MATCH <= end) {
+            int hash = hash(input, pos);
+            int candidate = table[hash];
+            table[hash] = pos;
+            if (candidate >= start && input[candidate] == input[pos] && input[candidate + 1] == input[pos + 1]
+                    && input[candidate + 2] == input[pos + 2] && input[candidate + 3] == input[pos + 3]) {
+                int matchLength = MIN_MATCH;
+                while (pos + matchLength < end && input[candidate + matchLength] == input[pos + matchLength]) {
+                    matchLength++;
+                }
+                out = writeLiteral(input, literal, pos - literal, output, out);
+                out = writeCopy(pos - candidate, matchLength, output, out);
+                pos += matchLength;
+                literal = pos;
+            } else {
+                pos++;
+            }
+        }
+        return writeLiteral(input, literal, end - literal, output, out);
+    }
+
+    private static int hash(byte[] input, int pos) {
+        int value = (input[pos] & 0xFF) | (input[pos + 1] & 0xFF) << 8 | (input[pos + 2] & 0xFF) << 16 | (input[pos + 3] & 0xFF) << 24;
+        return (value * 0x1E35A7BD) >>> (32 - HASH_BITS);
+    }
+
+    private static int writeLiteral(byte[] input, int start, int length, byte[] output, int out) {
+        if (length == 0) {
+            return out;
+        }
+        int n = length - 1;
+        if (n < 60) {
+            output[out++] = (byte) (n << 2);
+        } else if (n < (1 << 8)) {
+            output[out++] = (byte) (60 << 2);
+            output[out++] = (byte) n;
+        } else {
+            // blocks are 64KB max
+            output[out++] = (byte) (61 << 2);
+            output[out++] = (byte) n;
+            output[out++] = (byte) (n >>> 8);
+        }
+        System.arraycopy(input, start, output, out, length);
+        return out + length;
+    }
+
+    private static int writeCopy(int offset, int length, byte[] output, int out) {
+        while (length > 0) {
+            // keep at least 4 bytes for the last copy
+            int copy = (length > MAX_COPY && length - MAX_COPY < MIN_MATCH) ? MAX_COPY - MIN_MATCH : Math.min(length, MAX_COPY);
+            if (copy >= 4 && copy <= 11 && offset < 2048) {
+                output[out++] = (byte) (1 | ((copy - 4) << 2) | ((offset >>> 8) << 5));
+                output[out++] = (byte) offset;
+            } else {
+                output[out++] = (byte) (2 | ((copy - 1) << 2));
+                output[out++] = (byte) offset;
+                output[out++] = (byte) (offset >>> 8);
+            }
+            length -= copy;
+        }
+        return out;
+    }
+
+    private static int writeVarInt(byte[] output, int out, int value) {
+        while ((value & ~0x7F) != 0) {
+            output[out++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output[out++] = (byte) value;
+        return out;
+    }
+
+}
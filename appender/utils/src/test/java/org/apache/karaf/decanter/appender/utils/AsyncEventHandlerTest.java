@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+public class AsyncEventHandlerTest {
+
+    @Test
+    public void synchronous() {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        AsyncEventHandler handler = new AsyncEventHandler(new Hashtable<>(), event -> threads.add(Thread.currentThread().getName()));
+        handler.handleEvent(prepareTestEvent(0));
+        handler.close();
+        Assert.assertEquals(Collections.singletonList(Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    public void asynchronous() throws Exception {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(AsyncEventHandler.QUEUE_SIZE_CONFIG, "100");
+        config.put(AsyncEventHandler.QUEUE_THREADS_CONFIG, "2");
+        config.put("service.pid", "org.apache.karaf.decanter.appender.test");
+        List<Event> handled = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        AsyncEventHandler handler = new AsyncEventHandler(config, event -> {
+            threads.add(Thread.currentThread().getName());
+            handled.add(event);
+        });
+        ObjectName objectName = new ObjectName("org.apache.karaf.decanter:type=appender,name=org.apache.karaf.decanter.appender.test");
+        Assert.assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+        for (int i = 0; i < 50; i++) {
+            handler.handleEvent(prepareTestEvent(i));
+        }
+        handler.close();
+        Assert.assertEquals(50, handled.size());
+        Assert.assertFalse(threads.contains(Thread.currentThread().getName()));
+        Assert.assertEquals(50, handler.getEnqueued());
+        Assert.assertEquals(50, handler.getProcessed());
+        Assert.assertEquals(0, handler.getDropped());
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+
+    @Test
+    public void ordered() throws Exception {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(AsyncEventHandler.QUEUE_SIZE_CONFIG, "100");
+        config.put(AsyncEventHandler.QUEUE_THREADS_CONFIG, "4");
+        List<Event> handled = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        AsyncEventHandler handler = new AsyncEventHandler(config, event -> {
+            threads.add(Thread.currentThread().getName());
+            handled.add(event);
+        }, true);
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            events.add(prepareTestEvent(i));
+            handler.handleEvent(events.get(i));
+        }
+        handler.close();
+        // a single worker thread, whatever queue.threads
+        Assert.assertEquals(events, handled);
+        Assert.assertEquals(1, new HashSet<>(threads).size());
+    }
+
+    @Test
+    public void dropNewest() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        AsyncEventHandler handler = new AsyncEventHandler(config("drop-newest"), blockingHandler(blocked, release, handled));
+        handler.handleEvent(prepareTestEvent(0));
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            handler.handleEvent(prepareTestEvent(i));
+        }
+        release.countDown();
+        handler.close();
+        Assert.assertEquals(Arrays.asList(0, 1, 2), handled);
+        Assert.assertEquals(3, handler.getDropped());
+    }
+
+    @Test
+    public void dropOldest() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        AsyncEventHandler handler = new AsyncEventHandler(config("drop-oldest"), blockingHandler(blocked, release, handled));
+        handler.handleEvent(prepareTestEvent(0));
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            handler.handleEvent(prepareTestEvent(i));
+        }
+        release.countDown();
+        handler.close();
+        Assert.assertEquals(Arrays.asList(0, 4, 5), handled);
+        Assert.assertEquals(3, handler.getDropped());
+    }
+
+    @Test
+    public void block() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        AsyncEventHandler handler = new AsyncEventHandler(config("block"), blockingHandler(blocked, release, handled));
+        handler.handleEvent(prepareTestEvent(0));
+        Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        handler.handleEvent(prepareTestEvent(1));
+        handler.handleEvent(prepareTestEvent(2));
+        Thread producer = new Thread(() -> handler.handleEvent(prepareTestEvent(3)));
+        producer.start();
+        producer.join(200);
+        // the queue is full, the producer is blocked
+        Assert.assertTrue(producer.isAlive());
+        release.countDown();
+        producer.join(10000);
+        Assert.assertFalse(producer.isAlive());
+        handler.close();
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3), handled);
+        Assert.assertEquals(0, handler.getDropped());
+        Assert.assertTrue(handler.getMaxQueueLatency() > 0);
+    }
+
+    @Test
+    public void closed() {
+        for (String policy : Arrays.asList("block", "drop-newest", "drop-oldest")) {
+            List<Integer> handled = new CopyOnWriteArrayList<>();
+            AsyncEventHandler handler = new AsyncEventHandler(config(policy), event -> handled.add((Integer) event.getProperty("id")));
+            handler.close();
+            // the queue is not full, but the event would never be handled
+            handler.handleEvent(prepareTestEvent(0));
+            Assert.assertTrue(handled.isEmpty());
+            Assert.assertEquals(policy, 0, handler.getEnqueued());
+            Assert.assertEquals(policy, 1, handler.getDropped());
+        }
+    }
+
+    private Dictionary<String, Object> config(String policy) {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(AsyncEventHandler.QUEUE_SIZE_CONFIG, "2");
+        config.put(AsyncEventHandler.QUEUE_POLICY_CONFIG, policy);
+        return config;
+    }
+
+    private EventHandler blockingHandler(CountDownLatch blocked, CountDownLatch release, List<Integer> handled) {
+        return event -> {
+            blocked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.add((Integer) event.getProperty("id"));
+        };
+    }
+
+    private Event prepareTestEvent(int id) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", id);
+        return new Event("decanter/collect/test", map);
+    }
+
+}
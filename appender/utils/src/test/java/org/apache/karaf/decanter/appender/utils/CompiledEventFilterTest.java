@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+
+public class CompiledEventFilterTest {
+
+    @Test
+    public void noFilter() {
+        Assert.assertTrue(CompiledEventFilter.compile(null).match(prepareTestEvent()));
+        Assert.assertTrue(CompiledEventFilter.compile(new Hashtable<>()).match(prepareTestEvent()));
+    }
+
+    @Test
+    public void propertyNameFilter() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(EventFilter.PROPERTY_NAME_EXCLUDE_CONFIG, "key.*");
+        // exclude
+        Assert.assertFalse(CompiledEventFilter.compile(config).match(prepareTestEvent()));
+        // exclude first
+        config.put(EventFilter.PROPERTY_NAME_INCLUDE_CONFIG, "other");
+        Assert.assertFalse(CompiledEventFilter.compile(config).match(prepareTestEvent()));
+        // include
+        config.remove(EventFilter.PROPERTY_NAME_EXCLUDE_CONFIG);
+        Assert.assertTrue(CompiledEventFilter.compile(config).match(prepareTestEvent()));
+    }
+
+    @Test
+    public void propertyValueFilter() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(EventFilter.PROPERTY_VALUE_EXCLUDE_CONFIG, "value.*");
+        // exclude
+        Assert.assertFalse(CompiledEventFilter.compile(config).match(prepareTestEvent()));
+        // exclude first
+        config.put(EventFilter.PROPERTY_VALUE_INCLUDE_CONFIG, "other");
+        Assert.assertFalse(CompiledEventFilter.compile(config).match(prepareTestEvent()));
+        // include
+        config.remove(EventFilter.PROPERTY_VALUE_EXCLUDE_CONFIG);
+        Assert.assertTrue(CompiledEventFilter.compile(config).match(prepareTestEvent()));
+    }
+
+    @Test
+    public void sameResultAsEventFilter() {
+        String[] expressions = new String[]{ "value1", "value", "value.*", ".*1", ".*alu.*", ".*", "val(ue)?[0-9]+", "line.*", ".*line", ".*line.*" };
+        String[] values = new String[]{ "value1", "value2", "other", "", "a line", "line\nbreak", "multi\nline", "a line break" };
+        for (String expression : expressions) {
+            for (String value : values) {
+                Map<String, Object> map = new HashMap<>();
+                map.put("key", value);
+                Event event = new Event("test", map);
+                Dictionary<String, Object> config = new Hashtable<>();
+                config.put(EventFilter.PROPERTY_VALUE_EXCLUDE_CONFIG, expression);
+                Assert.assertEquals(expression + " / " + value, EventFilter.match(event, config), CompiledEventFilter.compile(config).match(event));
+                Assert.assertEquals(expression + " / " + value, value.matches(expression), CompiledEventFilter.rule(expression).matches(value));
+            }
+        }
+    }
+
+    private Event prepareTestEvent() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("key1", "value1");
+        map.put("key2", "value2");
+        map.put("other", "other");
+        return new Event("test", map);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeliveryPolicyTest {
+
+    @Test
+    public void noPolicy() throws Exception {
+        DeliveryPolicy policy = new DeliveryPolicy(new Hashtable<>(), null);
+        AtomicInteger attempts = new AtomicInteger();
+        Assert.assertTrue(policy.deliver(prepareTestEvent(), attempts::incrementAndGet));
+        try {
+            policy.deliver(prepareTestEvent(), () -> {
+                attempts.incrementAndGet();
+                throw new IOException("backend is down");
+            });
+            Assert.fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void retry() throws Exception {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(DeliveryPolicy.RETRY_MAX_CONFIG, "3");
+        config.put(DeliveryPolicy.RETRY_BACKOFF_CONFIG, "1");
+        DeliveryPolicy policy = new DeliveryPolicy(config, null);
+        AtomicInteger attempts = new AtomicInteger();
+        Assert.assertTrue(policy.deliver(prepareTestEvent(), () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IOException("backend is down");
+            }
+        }));
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void deadLetter() throws Exception {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(DeliveryPolicy.RETRY_MAX_CONFIG, "2");
+        config.put(DeliveryPolicy.RETRY_BACKOFF_CONFIG, "1");
+        config.put(DeliveryPolicy.DEAD_LETTER_TOPIC_CONFIG, "decanter/deadletter/test");
+        DispatcherMock dispatcher = new DispatcherMock();
+        DeliveryPolicy policy = new DeliveryPolicy(config, dispatcher);
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            policy.deliver(prepareTestEvent(), () -> {
+                attempts.incrementAndGet();
+                throw new IOException("backend is down");
+            });
+            Assert.fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(3, attempts.get());
+        Assert.assertEquals(1, dispatcher.postedEvents.size());
+        Event deadLetter = dispatcher.postedEvents.get(0);
+        Assert.assertEquals("decanter/deadletter/test", deadLetter.getTopic());
+        Assert.assertEquals("decanter/collect/test", deadLetter.getProperty(DeliveryPolicy.DEAD_LETTER_TOPIC_PROPERTY));
+        Assert.assertEquals("java.io.IOException: backend is down", deadLetter.getProperty(DeliveryPolicy.DEAD_LETTER_CAUSE_PROPERTY));
+        Assert.assertEquals("value", deadLetter.getProperty("key"));
+    }
+
+    @Test
+    public void circuitBreaker() throws Exception {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(DeliveryPolicy.CIRCUIT_BREAKER_FAILURES_CONFIG, "2");
+        config.put(DeliveryPolicy.CIRCUIT_BREAKER_OPEN_DURATION_CONFIG, "200");
+        DeliveryPolicy policy = new DeliveryPolicy(config, null);
+        AtomicInteger attempts = new AtomicInteger();
+        DeliveryPolicy.Delivery failing = () -> {
+            attempts.incrementAndGet();
+            throw new IOException("backend is down");
+        };
+        for (int i = 0; i < 2; i++) {
+            try {
+                policy.deliver(prepareTestEvent(), failing);
+                Assert.fail("IOException expected");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(DeliveryPolicy.State.OPEN, policy.getState());
+
+        // fast fail while the circuit breaker is open
+        Assert.assertFalse(policy.deliver(prepareTestEvent(), failing));
+        Assert.assertEquals(2, attempts.get());
+
+        // half open, the backend is back
+        Thread.sleep(250);
+        Assert.assertTrue(policy.deliver(prepareTestEvent(), attempts::incrementAndGet));
+        Assert.assertEquals(DeliveryPolicy.State.CLOSED, policy.getState());
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void backoff() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(DeliveryPolicy.RETRY_BACKOFF_CONFIG, "100");
+        config.put(DeliveryPolicy.RETRY_BACKOFF_MAX_CONFIG, "1000");
+        config.put(DeliveryPolicy.RETRY_JITTER_CONFIG, "0.5");
+        DeliveryPolicy policy = new DeliveryPolicy(config, null);
+        for (int i = 0; i < 100; i++) {
+            long first = policy.backoff(0);
+            Assert.assertTrue(first >= 50 && first <= 100);
+            long last = policy.backoff(10);
+            Assert.assertTrue(last >= 500 && last <= 1000);
+        }
+    }
+
+    private Event prepareTestEvent() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("key", "value");
+        return new Event("decanter/collect/test", map);
+    }
+
+    private static class DispatcherMock implements EventAdmin {
+
+        private final List<Event> postedEvents = new ArrayList<>();
+
+        @Override
+        public void postEvent(Event event) {
+            postedEvents.add(event);
+        }
+
+        @Override
+        public void sendEvent(Event event) {
+            postedEvents.add(event);
+        }
+
+    }
+
+}
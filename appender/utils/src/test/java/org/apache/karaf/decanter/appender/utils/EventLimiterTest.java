@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+public class EventLimiterTest {
+
+    @Test
+    public void noLimit() {
+        EventLimiter limiter = new EventLimiter(new Hashtable<>(), null);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(limiter.accept(prepareTestEvent("decanter/collect/test", "host" + i)));
+        }
+    }
+
+    @Test
+    public void rateLimitPerTopic() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(EventLimiter.RATE_CONFIG, "1");
+        config.put(EventLimiter.BURST_CONFIG, "5");
+        EventLimiter limiter = new EventLimiter(config, null);
+        Assert.assertEquals(5, accepted(limiter, "decanter/collect/first", "host", 20));
+        Assert.assertEquals(5, accepted(limiter, "decanter/collect/second", "host", 20));
+    }
+
+    @Test
+    public void rateLimitPerProperty() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(EventLimiter.RATE_CONFIG, "1");
+        config.put(EventLimiter.BURST_CONFIG, "3");
+        config.put(EventLimiter.KEY_CONFIG, "hostName");
+        EventLimiter limiter = new EventLimiter(config, null);
+        Assert.assertEquals(3, accepted(limiter, "decanter/collect/test", "first", 10));
+        Assert.assertEquals(3, accepted(limiter, "decanter/collect/test", "second", 10));
+    }
+
+    @Test
+    public void maxKeys() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(EventLimiter.RATE_CONFIG, "1");
+        config.put(EventLimiter.BURST_CONFIG, "2");
+        config.put(EventLimiter.KEY_CONFIG, "hostName");
+        config.put(EventLimiter.MAX_KEYS_CONFIG, "1");
+        EventLimiter limiter = new EventLimiter(config, null);
+        Assert.assertEquals(2, accepted(limiter, "decanter/collect/test", "first", 10));
+        // all other keys share the same bucket
+        Assert.assertEquals(2, accepted(limiter, "decanter/collect/test", "second", 10));
+        Assert.assertEquals(0, accepted(limiter, "decanter/collect/test", "third", 10));
+    }
+
+    @Test
+    public void randomSampling() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(EventLimiter.SAMPLING_RATE_CONFIG, "0.1");
+        EventLimiter limiter = new EventLimiter(config, null);
+        int accepted = accepted(limiter, "decanter/collect/test", "host", 10000);
+        Assert.assertTrue(accepted > 700 && accepted < 1300);
+    }
+
+    @Test
+    public void deterministicSampling() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(EventLimiter.SAMPLING_RATE_CONFIG, "0.5");
+        config.put(EventLimiter.SAMPLING_KEY_CONFIG, "hostName");
+        EventLimiter limiter = new EventLimiter(config, null);
+        int accepted = 0;
+        for (int i = 0; i < 1000; i++) {
+            boolean first = limiter.accept(prepareTestEvent("decanter/collect/test", "host" + i));
+            // same decision for the same key
+            Assert.assertEquals(first, limiter.accept(prepareTestEvent("decanter/collect/test", "host" + i)));
+            if (first) {
+                accepted++;
+            }
+        }
+        Assert.assertTrue(accepted > 400 && accepted < 600);
+    }
+
+    @Test
+    public void summary() throws Exception {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(EventLimiter.RATE_CONFIG, "1");
+        config.put(EventLimiter.BURST_CONFIG, "1");
+        config.put(EventLimiter.SUMMARY_TOPIC_CONFIG, "decanter/limiter/test");
+        config.put(EventLimiter.SUMMARY_PERIOD_CONFIG, "1");
+        DispatcherMock dispatcher = new DispatcherMock();
+        EventLimiter limiter = new EventLimiter(config, dispatcher);
+        Assert.assertEquals(1, accepted(limiter, "decanter/collect/first", "host", 10));
+        Assert.assertEquals(1, accepted(limiter, "decanter/collect/second", "host", 5));
+        Assert.assertTrue(dispatcher.postedEvents.isEmpty());
+
+        Thread.sleep(1100);
+        limiter.accept(prepareTestEvent("decanter/collect/third", "host"));
+        Assert.assertEquals(1, dispatcher.postedEvents.size());
+        Event summary = dispatcher.postedEvents.get(0);
+        Assert.assertEquals("decanter/limiter/test", summary.getTopic());
+        Assert.assertEquals(13L, summary.getProperty("dropped"));
+        Map<String, Long> droppedByKey = (Map<String, Long>) summary.getProperty("droppedByKey");
+        Assert.assertEquals(9L, (long) droppedByKey.get("decanter/collect/first"));
+        Assert.assertEquals(4L, (long) droppedByKey.get("decanter/collect/second"));
+    }
+
+    private int accepted(EventLimiter limiter, String topic, String hostName, int count) {
+        int accepted = 0;
+        for (int i = 0; i < count; i++) {
+            if (limiter.accept(prepareTestEvent(topic, hostName))) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    private Event prepareTestEvent(String topic, String hostName) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("hostName", hostName);
+        return new Event(topic, map);
+    }
+
+    private static class DispatcherMock implements EventAdmin {
+
+        private final List<Event> postedEvents = new ArrayList<>();
+
+        @Override
+        public void postEvent(Event event) {
+            postedEvents.add(event);
+        }
+
+        @Override
+        public void sendEvent(Event event) {
+            postedEvents.add(event);
+        }
+
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendAndForward() throws Exception {
+        try (Journal journal = new Journal(folder.getRoot(), 1024, 10 * 1024)) {
+            Assert.assertTrue(journal.isEmpty());
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue(journal.append(("event" + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            Assert.assertFalse(journal.isEmpty());
+            List<String> sent = new ArrayList<>();
+            Assert.assertEquals(10, journal.forward(record -> sent.add(new String(record, StandardCharsets.UTF_8))));
+            Assert.assertEquals(10, sent.size());
+            Assert.assertEquals("event0", sent.get(0));
+            Assert.assertEquals("event9", sent.get(9));
+            Assert.assertTrue(journal.isEmpty());
+            Assert.assertEquals(0, journal.forward(record -> Assert.fail()));
+        }
+    }
+
+    @Test
+    public void segmentsAreDeletedOnceDrained() throws Exception {
+        try (Journal journal = new Journal(folder.getRoot(), 128, 1024 * 1024)) {
+            for (int i = 0; i < 100; i++) {
+                Assert.assertTrue(journal.append(new byte[50]));
+            }
+            Assert.assertTrue(segments().length > 1);
+            Assert.assertEquals(100, journal.forward(record -> Assert.assertEquals(50, record.length)));
+            Assert.assertEquals(1, segments().length);
+        }
+    }
+
+    @Test
+    public void bounded() throws Exception {
+        try (Journal journal = new Journal(folder.getRoot(), 128, 256)) {
+            int appended = 0;
+            while (journal.append(new byte[50])) {
+                appended++;
+            }
+            Assert.assertEquals(4, appended);
+            // space is available again once drained
+            journal.forward(record -> { });
+            Assert.assertTrue(journal.append(new byte[50]));
+        }
+    }
+
+    @Test
+    public void failedSendIsReplayed() throws Exception {
+        try (Journal journal = new Journal(folder.getRoot(), 1024, 10 * 1024)) {
+            journal.append("first".getBytes(StandardCharsets.UTF_8));
+            journal.append("second".getBytes(StandardCharsets.UTF_8));
+            List<String> sent = new ArrayList<>();
+            try {
+                journal.forward(record -> {
+                    String value = new String(record, StandardCharsets.UTF_8);
+                    if (value.equals("second")) {
+                        throw new IllegalStateException("backend is down");
+                    }
+                    sent.add(value);
+                });
+                Assert.fail("IllegalStateException expected");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            Assert.assertEquals(1, sent.size());
+            journal.forward(record -> sent.add(new String(record, StandardCharsets.UTF_8)));
+            Assert.assertEquals(2, sent.size());
+            Assert.assertEquals("second", sent.get(1));
+        }
+    }
+
+    @Test
+    public void emptyRecord() throws Exception {
+        try (Journal journal = new Journal(folder.getRoot(), 128, 1024 * 1024)) {
+            journal.append("first".getBytes(StandardCharsets.UTF_8));
+            journal.append(new byte[0]);
+            journal.append("second".getBytes(StandardCharsets.UTF_8));
+            // replay from the write segment
+            List<String> sent = new ArrayList<>();
+            Assert.assertEquals(3, journal.forward(record -> sent.add(new String(record, StandardCharsets.UTF_8))));
+            Assert.assertEquals("first", sent.get(0));
+            Assert.assertEquals("", sent.get(1));
+            Assert.assertEquals("second", sent.get(2));
+
+            journal.append("third".getBytes(StandardCharsets.UTF_8));
+            journal.append(new byte[0]);
+            journal.append("fourth".getBytes(StandardCharsets.UTF_8));
+        }
+        try (Journal journal = new Journal(folder.getRoot(), 128, 1024 * 1024)) {
+            // the write position is recovered after the last record, not at the empty record
+            journal.append("fifth".getBytes(StandardCharsets.UTF_8));
+            // roll to a new segment, the previous segment is replayed up to its end
+            journal.append(new byte[40]);
+            List<String> sent = new ArrayList<>();
+            Assert.assertEquals(5, journal.forward(record -> sent.add(new String(record, StandardCharsets.UTF_8))));
+            Assert.assertEquals("third", sent.get(0));
+            Assert.assertEquals("", sent.get(1));
+            Assert.assertEquals("fourth", sent.get(2));
+            Assert.assertEquals("fifth", sent.get(3));
+            Assert.assertEquals(40, sent.get(4).length());
+        }
+    }
+
+    @Test
+    public void closed() throws Exception {
+        Journal journal = new Journal(folder.getRoot(), 128, 1024 * 1024);
+        for (int i = 0; i < 10; i++) {
+            journal.append(new byte[50]);
+        }
+        journal.close();
+        journal.close();
+        // the segments are unmapped, the files can be deleted
+        for (File segment : segments()) {
+            Assert.assertTrue(segment.delete());
+        }
+        try {
+            journal.append(new byte[50]);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected, the journal is closed
+        }
+    }
+
+    @Test
+    public void reopen() throws Exception {
+        try (Journal journal = new Journal(folder.getRoot(), 128, 1024 * 1024)) {
+            for (int i = 0; i < 20; i++) {
+                journal.append(("event" + i).getBytes(StandardCharsets.UTF_8));
+            }
+            // send the first 5 records
+            for (int i = 0; i < 5; i++) {
+                journal.next();
+            }
+            journal.commit();
+        }
+        try (Journal journal = new Journal(folder.getRoot(), 128, 1024 * 1024)) {
+            journal.append("event20".getBytes(StandardCharsets.UTF_8));
+            List<String> sent = new ArrayList<>();
+            journal.forward(record -> sent.add(new String(record, StandardCharsets.UTF_8)));
+            Assert.assertEquals(16, sent.size());
+            Assert.assertEquals("event5", sent.get(0));
+            Assert.assertEquals("event20", sent.get(15));
+        }
+    }
+
+    @Test
+    public void corruptedRecord() throws Exception {
+        try (Journal journal = new Journal(folder.getRoot(), 1024, 10 * 1024)) {
+            journal.append("first".getBytes(StandardCharsets.UTF_8));
+            journal.append("second".getBytes(StandardCharsets.UTF_8));
+        }
+        // corrupt the second record payload
+        try (RandomAccessFile file = new RandomAccessFile(segments()[0], "rw")) {
+            file.seek(8 + 5 + 8);
+            file.write('S');
+        }
+        try (Journal journal = new Journal(folder.getRoot(), 1024, 10 * 1024)) {
+            journal.append("third".getBytes(StandardCharsets.UTF_8));
+            List<String> sent = new ArrayList<>();
+            journal.forward(record -> sent.add(new String(record, StandardCharsets.UTF_8)));
+            Assert.assertEquals(2, sent.size());
+            Assert.assertEquals("first", sent.get(0));
+            Assert.assertEquals("third", sent.get(1));
+        }
+    }
+
+    private File[] segments() {
+        return folder.getRoot().listFiles((dir, name) -> name.endsWith(Journal.SEGMENT_SUFFIX));
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.VersionParser;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read the files written by {@link ParquetWriter} with parquet-mr.
+ */
+public class ParquetWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<ParquetWriter.Column> COLUMNS = Arrays.asList(
+            new ParquetWriter.Column("timestamp", ParquetWriter.ColumnType.TIMESTAMP),
+            new ParquetWriter.Column("count", ParquetWriter.ColumnType.LONG),
+            new ParquetWriter.Column("ratio", ParquetWriter.ColumnType.DOUBLE),
+            new ParquetWriter.Column("error", ParquetWriter.ColumnType.BOOLEAN),
+            new ParquetWriter.Column("message", ParquetWriter.ColumnType.STRING),
+            new ParquetWriter.Column("payload", ParquetWriter.ColumnType.BINARY),
+            new ParquetWriter.Column("optional", ParquetWriter.ColumnType.STRING));
+
+    @Test
+    public void uncompressed() throws Exception {
+        roundTrip(ParquetWriter.Codec.UNCOMPRESSED);
+    }
+
+    @Test
+    public void snappy() throws Exception {
+        roundTrip(ParquetWriter.Codec.SNAPPY);
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        roundTrip(ParquetWriter.Codec.GZIP);
+    }
+
+    @Test
+    public void pages() throws Exception {
+        // a row group of several data pages
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("count", (long) i);
+            row.put("message", large + i);
+            rows.add(row);
+        }
+        File file = folder.newFile("pages.parquet");
+        try (ParquetWriter writer = new ParquetWriter(new FileOutputStream(file), COLUMNS, ParquetWriter.Codec.SNAPPY)) {
+            writer.writeRowGroup(rows);
+        }
+        List<Group> groups = read(file);
+        Assert.assertEquals(3000, groups.size());
+        for (int i = 0; i < 3000; i++) {
+            Assert.assertEquals(i, groups.get(i).getLong("count", 0));
+            Assert.assertEquals(large + i, groups.get(i).getString("message", 0));
+            Assert.assertEquals(0, groups.get(i).getFieldRepetitionCount("ratio"));
+        }
+    }
+
+    private void roundTrip(ParquetWriter.Codec codec) throws Exception {
+        File file = folder.newFile(codec + ".parquet");
+        try (ParquetWriter writer = new ParquetWriter(new FileOutputStream(file), COLUMNS, codec)) {
+            writer.writeRowGroup(rows(0, 100));
+            writer.writeRowGroup(rows(100, 50));
+        }
+
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(new Path(file.toURI()), new Configuration()))) {
+            ParquetMetadata footer = reader.getFooter();
+            String createdBy = footer.getFileMetaData().getCreatedBy();
+            Assert.assertEquals("decanter", VersionParser.parse(createdBy).application);
+
+            MessageType schema = footer.getFileMetaData().getSchema();
+            Assert.assertEquals(COLUMNS.size(), schema.getFieldCount());
+            for (Type field : schema.getFields()) {
+                Assert.assertEquals(Type.Repetition.OPTIONAL, field.getRepetition());
+            }
+            Assert.assertEquals(PrimitiveType.PrimitiveTypeName.INT64, schema.getType("timestamp").asPrimitiveType().getPrimitiveTypeName());
+            Assert.assertEquals(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS), schema.getType("timestamp").getLogicalTypeAnnotation());
+            Assert.assertEquals(PrimitiveType.PrimitiveTypeName.INT64, schema.getType("count").asPrimitiveType().getPrimitiveTypeName());
+            Assert.assertEquals(PrimitiveType.PrimitiveTypeName.DOUBLE, schema.getType("ratio").asPrimitiveType().getPrimitiveTypeName());
+            Assert.assertEquals(PrimitiveType.PrimitiveTypeName.BOOLEAN, schema.getType("error").asPrimitiveType().getPrimitiveTypeName());
+            Assert.assertEquals(PrimitiveType.PrimitiveTypeName.BINARY, schema.getType("message").asPrimitiveType().getPrimitiveTypeName());
+            Assert.assertEquals(LogicalTypeAnnotation.stringType(), schema.getType("message").getLogicalTypeAnnotation());
+            Assert.assertEquals(PrimitiveType.PrimitiveTypeName.BINARY, schema.getType("payload").asPrimitiveType().getPrimitiveTypeName());
+            Assert.assertNull(schema.getType("payload").getLogicalTypeAnnotation());
+
+            Assert.assertEquals(2, footer.getBlocks().size());
+            BlockMetaData block = footer.getBlocks().get(1);
+            Assert.assertEquals(50, block.getRowCount());
+            Statistics<?> count = column(block, "count").getStatistics();
+            Assert.assertFalse(count.isEmpty());
+            Assert.assertEquals(100L, count.genericGetMin());
+            Assert.assertEquals(149L, count.genericGetMax());
+            Assert.assertEquals(0, count.getNumNulls());
+            Statistics<?> timestamp = column(block, "timestamp").getStatistics();
+            Assert.assertEquals(1600000000100L, timestamp.genericGetMin());
+            Assert.assertEquals(1600000000149L, timestamp.genericGetMax());
+            Statistics<?> ratio = column(block, "ratio").getStatistics();
+            Assert.assertEquals(-50.0, (Double) ratio.genericGetMin(), 0.0);
+            Assert.assertEquals(49.0 / 3.0, (Double) ratio.genericGetMax(), 0.0);
+            Assert.assertEquals(34, column(block, "optional").getStatistics().getNumNulls());
+            Assert.assertEquals(codec.name(), column(block, "count").getCodec().name());
+        }
+
+        List<Group> groups = read(file);
+        Assert.assertEquals(150, groups.size());
+        for (int i = 0; i < 150; i++) {
+            Group group = groups.get(i);
+            Assert.assertEquals(1600000000000L + i, group.getLong("timestamp", 0));
+            Assert.assertEquals(i, group.getLong("count", 0));
+            Assert.assertEquals(ratio(i), group.getDouble("ratio", 0), 0.0);
+            Assert.assertEquals(i % 2 == 0, group.getBoolean("error", 0));
+            Assert.assertEquals("message " + i, group.getString("message", 0));
+            Assert.assertArrayEquals(new byte[]{ (byte) i, 1, 2 }, group.getBinary("payload", 0).getBytes());
+            if (i % 3 == 0) {
+                Assert.assertEquals("set é", group.getString("optional", 0));
+            } else {
+                Assert.assertEquals(0, group.getFieldRepetitionCount("optional"));
+            }
+        }
+    }
+
+    private ColumnChunkMetaData column(BlockMetaData block, String name) {
+        for (ColumnChunkMetaData column : block.getColumns()) {
+            if (column.getPath().toDotString().equals(name)) {
+                return column;
+            }
+        }
+        throw new AssertionError("Column " + name + " not found");
+    }
+
+    private List<Group> read(File file) throws Exception {
+        List<Group> groups = new ArrayList<>();
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), new Path(file.toURI())).withConf(new Configuration()).build()) {
+            Group group;
+            while ((group = reader.read()) != null) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    private List<Map<String, Object>> rows(int start, int count) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = start; i < start + count; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("timestamp", 1600000000000L + i);
+            row.put("count", i);
+            row.put("ratio", ratio(i));
+            row.put("error", i % 2 == 0);
+            row.put("message", "message " + i);
+            row.put("payload", new byte[]{ (byte) i, 1, 2 });
+            if (i % 3 == 0) {
+                row.put("optional", "set é");
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private double ratio(int i) {
+        // negative values in the second row group
+        return (i == 100) ? -50.0 : (i % 50) / 3.0;
+    }
+
+}
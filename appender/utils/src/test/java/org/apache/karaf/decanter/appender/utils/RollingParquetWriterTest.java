@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.Type;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RollingParquetWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void write() throws Exception {
+        Map<String, ByteArrayOutputStream> files = new LinkedHashMap<>();
+        RollingParquetWriter writer = new RollingParquetWriter(config("uncompressed"), "test", output(files));
+        for (int i = 0; i < 100; i++) {
+            writer.write(event(i));
+        }
+        Assert.assertTrue(files.isEmpty());
+        writer.close();
+        Assert.assertEquals(1, files.size());
+        String name = files.keySet().iterator().next();
+        Assert.assertTrue(name.startsWith("test-") && name.endsWith(".parquet"));
+        byte[] file = files.get(name).toByteArray();
+        assertParquet(file);
+        String content = new String(file, StandardCharsets.UTF_8);
+        Assert.assertTrue(content.contains("message 99"));
+        Assert.assertTrue(content.contains("timestamp"));
+    }
+
+    @Test
+    public void compressed() throws Exception {
+        Map<String, ByteArrayOutputStream> files = new LinkedHashMap<>();
+        Map<String, ByteArrayOutputStream> uncompressed = new LinkedHashMap<>();
+        try (RollingParquetWriter writer = new RollingParquetWriter(config("snappy"), "test", output(files));
+             RollingParquetWriter reference = new RollingParquetWriter(config("uncompressed"), "test", output(uncompressed))) {
+            for (int i = 0; i < 10000; i++) {
+                writer.write(event(i));
+                reference.write(event(i));
+            }
+        }
+        byte[] file = files.values().iterator().next().toByteArray();
+        assertParquet(file);
+        Assert.assertTrue(file.length < uncompressed.values().iterator().next().size() / 2);
+    }
+
+    @Test
+    public void rollOnSchemaChange() throws Exception {
+        Map<String, ByteArrayOutputStream> files = new LinkedHashMap<>();
+        Dictionary<String, Object> config = config("gzip");
+        config.put(RollingParquetWriter.ROW_GROUP_SIZE_CONFIG, "1");
+        RollingParquetWriter writer = new RollingParquetWriter(config, "test", output(files));
+        writer.write(event(0));
+        writer.write(event(1));
+        Assert.assertEquals(1, files.size());
+        Map<String, Object> event = event(2);
+        event.put("other", "value");
+        writer.write(event);
+        Assert.assertEquals(2, files.size());
+        writer.close();
+        for (ByteArrayOutputStream file : files.values()) {
+            assertParquet(file.toByteArray());
+        }
+    }
+
+    @Test
+    public void heterogeneousEvents() throws Exception {
+        Map<String, ByteArrayOutputStream> files = new LinkedHashMap<>();
+        Dictionary<String, Object> config = config("snappy");
+        config.put(RollingParquetWriter.ROW_GROUP_SIZE_CONFIG, "500");
+        try (RollingParquetWriter writer = new RollingParquetWriter(config, "test", output(files))) {
+            // the row groups mix the topics, they are written in the same file
+            for (int i = 0; i < 100; i++) {
+                writer.write(topicEvent((i % 2 == 0) ? "jmx" : "log", i));
+            }
+            writer.flush();
+            Assert.assertEquals(1, files.size());
+            for (int i = 0; i < 100; i++) {
+                writer.write(topicEvent("system", i));
+            }
+            writer.flush();
+            for (int i = 0; i < 100; i++) {
+                writer.write(topicEvent("log", i));
+            }
+        }
+        Assert.assertEquals(3, files.size());
+        // the schema of a file doesn't keep the columns of the previous files
+        Iterator<ByteArrayOutputStream> iterator = files.values().iterator();
+        Assert.assertEquals(new HashSet<>(Arrays.asList("timestamp", "type", "heap", "message")), columns(iterator.next()));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("timestamp", "type", "load")), columns(iterator.next()));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("timestamp", "type", "message")), columns(iterator.next()));
+    }
+
+    @Test
+    public void failedFlush() throws Exception {
+        Map<String, ByteArrayOutputStream> files = new LinkedHashMap<>();
+        AtomicInteger created = new AtomicInteger();
+        AtomicBoolean fail = new AtomicBoolean();
+        RollingParquetWriter.Output output = name -> {
+            if (created.incrementAndGet() == 1) {
+                throw new IOException("Can't create the file");
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            files.put(name, out);
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    if (fail.getAndSet(false)) {
+                        throw new IOException("Can't write the file");
+                    }
+                    out.write(bytes, offset, length);
+                }
+            };
+        };
+        Dictionary<String, Object> config = config("uncompressed");
+        config.put(RollingParquetWriter.ROW_GROUP_SIZE_CONFIG, "1");
+        RollingParquetWriter writer = new RollingParquetWriter(config, "test", output);
+        try {
+            writer.write(event(0));
+            Assert.fail("IOException expected");
+        } catch (IOException e) {
+            // expected, the file can't be created
+        }
+        writer.write(event(1));
+        fail.set(true);
+        try {
+            writer.write(event(2));
+            Assert.fail("IOException expected");
+        } catch (IOException e) {
+            // expected, the row group can't be written
+        }
+        writer.write(event(3));
+        writer.close();
+        // each event is written once
+        Assert.assertEquals(2, files.size());
+        Iterator<ByteArrayOutputStream> iterator = files.values().iterator();
+        Assert.assertEquals(2, rowCount(iterator.next()));
+        Assert.assertEquals(2, rowCount(iterator.next()));
+    }
+
+    @Test
+    public void rollOnSize() throws Exception {
+        Map<String, ByteArrayOutputStream> files = new LinkedHashMap<>();
+        Dictionary<String, Object> config = config("snappy");
+        config.put(RollingParquetWriter.ROW_GROUP_SIZE_CONFIG, "1024");
+        config.put(RollingParquetWriter.FILE_SIZE_CONFIG, "4096");
+        try (RollingParquetWriter writer = new RollingParquetWriter(config, "test", output(files))) {
+            for (int i = 0; i < 1000; i++) {
+                writer.write(event(i));
+            }
+        }
+        Assert.assertTrue(files.size() > 1);
+        for (ByteArrayOutputStream file : files.values()) {
+            assertParquet(file.toByteArray());
+        }
+    }
+
+    @Test
+    public void types() {
+        Assert.assertEquals(ParquetWriter.ColumnType.TIMESTAMP, RollingParquetWriter.type("timestamp", 1L));
+        Assert.assertEquals(ParquetWriter.ColumnType.LONG, RollingParquetWriter.type("count", 1));
+        Assert.assertEquals(ParquetWriter.ColumnType.DOUBLE, RollingParquetWriter.merge(ParquetWriter.ColumnType.LONG, ParquetWriter.ColumnType.DOUBLE));
+        Assert.assertEquals(ParquetWriter.ColumnType.LONG, RollingParquetWriter.merge(ParquetWriter.ColumnType.TIMESTAMP, ParquetWriter.ColumnType.LONG));
+        Assert.assertEquals(ParquetWriter.ColumnType.STRING, RollingParquetWriter.merge(ParquetWriter.ColumnType.BOOLEAN, ParquetWriter.ColumnType.LONG));
+    }
+
+    private void assertParquet(byte[] file) {
+        Assert.assertEquals("PAR1", new String(file, 0, 4, StandardCharsets.US_ASCII));
+        Assert.assertEquals("PAR1", new String(file, file.length - 4, 4, StandardCharsets.US_ASCII));
+        int footer = ByteBuffer.wrap(file, file.length - 8, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        Assert.assertTrue(footer > 0 && footer < file.length - 12);
+    }
+
+    private Set<String> columns(ByteArrayOutputStream content) throws Exception {
+        Set<String> columns = new HashSet<>();
+        try (ParquetFileReader reader = reader(content)) {
+            for (Type field : reader.getFooter().getFileMetaData().getSchema().getFields()) {
+                columns.add(field.getName());
+            }
+        }
+        return columns;
+    }
+
+    private long rowCount(ByteArrayOutputStream content) throws Exception {
+        try (ParquetFileReader reader = reader(content)) {
+            return reader.getRecordCount();
+        }
+    }
+
+    private ParquetFileReader reader(ByteArrayOutputStream content) throws Exception {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            content.writeTo(out);
+        }
+        return ParquetFileReader.open(HadoopInputFile.fromPath(new Path(file.toURI()), new Configuration()));
+    }
+
+    private Dictionary<String, Object> config(String compression) {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(RollingParquetWriter.COMPRESSION_CONFIG, compression);
+        config.put(RollingParquetWriter.ROLL_INTERVAL_CONFIG, "0");
+        return config;
+    }
+
+    private RollingParquetWriter.Output output(Map<String, ByteArrayOutputStream> files) {
+        return name -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            files.put(name, out);
+            return out;
+        };
+    }
+
+    private Map<String, Object> event(int i) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("timestamp", 1600000000000L + i);
+        event.put("message", "message " + i);
+        event.put("count", i);
+        event.put("ratio", i / 3.0);
+        event.put("error", i % 2 == 0);
+        if (i % 3 == 0) {
+            event.put("optional", "set");
+        }
+        return event;
+    }
+
+    private Map<String, Object> topicEvent(String type, int i) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("timestamp", 1600000000000L + i);
+        event.put("type", type);
+        if (type.equals("jmx")) {
+            event.put("heap", 1024L * i);
+        } else if (type.equals("system")) {
+            event.put("load", i / 10.0);
+        } else {
+            event.put("message", "message " + i);
+        }
+        return event;
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.appender.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class SnappyTest {
+
+    @Test
+    public void empty() throws Exception {
+        byte[] compressed = Snappy.compress(new byte[0], 0, 0);
+        Assert.assertEquals(0, org.xerial.snappy.Snappy.uncompress(compressed).length);
+    }
+
+    @Test
+    public void repetitive() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            builder.append("{\"type\":\"log\",\"level\":\"INFO\",\"id\":").append(i).append("}\n");
+        }
+        byte[] input = builder.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = Snappy.compress(input, 0, input.length);
+        Assert.assertTrue(compressed.length < input.length / 4);
+        Assert.assertArrayEquals(input, org.xerial.snappy.Snappy.uncompress(compressed));
+    }
+
+    @Test
+    public void random() throws Exception {
+        Random random = new Random(42);
+        byte[] input = new byte[200000];
+        random.nextBytes(input);
+        // some long runs
+        for (int i = 1000; i < 1300; i++) {
+            input[i] = 'a';
+        }
+        byte[] compressed = Snappy.compress(input, 10, input.length - 10);
+        byte[] expected = new byte[input.length - 10];
+        System.arraycopy(input, 10, expected, 0, expected.length);
+        Assert.assertArrayEquals(expected, org.xerial.snappy.Snappy.uncompress(compressed));
+    }
+
+}
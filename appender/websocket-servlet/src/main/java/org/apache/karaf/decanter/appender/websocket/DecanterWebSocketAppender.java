@@ -17,7 +17,8 @@
 package org.apache.karaf.decanter.appender.websocket;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
-import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventLimiter;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
@@ -27,7 +28,9 @@ import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
 import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 import org.osgi.service.http.HttpService;
@@ -59,10 +62,15 @@ public class DecanterWebSocketAppender implements EventHandler {
     @Reference
     private Marshaller marshaller;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL)
+    private EventAdmin dispatcher;
+
     @Reference
     private HttpService httpService;
 
     private Dictionary<String, Object> config;
+    private CompiledEventFilter eventFilter;
+    private EventLimiter eventLimiter;
 
     @OnWebSocketConnect
     public void onOpen(Session session) {
@@ -78,6 +86,8 @@ public class DecanterWebSocketAppender implements EventHandler {
     @Activate
     public void activate(ComponentContext componentContext) throws Exception {
         this.config = componentContext.getProperties();
+        this.eventFilter = CompiledEventFilter.compile(config);
+        this.eventLimiter = new EventLimiter(config, dispatcher);
         String alias = (String) config.get(ALIAS_PROPERTY);
         if (alias == null) {
             alias = ALIAS_DEFAULT;
@@ -96,7 +106,7 @@ public class DecanterWebSocketAppender implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
-        if (EventFilter.match(event, config)) {
+        if (eventFilter.match(event) && eventLimiter.accept(event)) {
             String message = marshaller.marshal(event);
             synchronized (sessions) {
                 for (Session session : sessions) {
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Run the benchmarks with the JMH command line options. By default, the allocation rate is measured ({@code -prof gc})
+ * and the results are written as JSON ({@code -rf json}, in {@code jmh-result.json}), to track them across releases.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>();
+        List<String> options = Arrays.asList(args);
+        if (!options.contains("-prof")) {
+            arguments.add("-prof");
+            arguments.add("gc");
+        }
+        if (!options.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+        }
+        arguments.addAll(options);
+        Main.main(arguments.toArray(new String[0]));
+    }
+
+}
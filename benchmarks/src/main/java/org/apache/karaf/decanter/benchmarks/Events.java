@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks;
+
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Representative events, as sent by the collectors.
+ */
+public final class Events {
+
+    public static final String LOG = "log";
+    public static final String JMX = "jmx";
+    public static final String METRIC = "metric";
+
+    private Events() {
+    }
+
+    /**
+     * @param type the event type: log (with MDC and stack trace), jmx (flat JMX attributes) or metric (numbers).
+     */
+    public static Event event(String type) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(EventConstants.TIMESTAMP, 1454428780634L);
+        map.put("hostName", "localhost");
+        map.put("hostAddress", "127.0.0.1");
+        map.put("karafName", "root");
+        if (LOG.equals(type)) {
+            map.put("type", "log");
+            map.put("loggerName", "org.apache.karaf.decanter.appender.elasticsearch.ElasticsearchAppender");
+            map.put("loggerClass", "org.ops4j.pax.logging.slf4j.Slf4jLogger");
+            map.put("level", "WARN");
+            map.put("threadName", "EventAdminAsyncThread #12");
+            map.put("message", "Can't append into Elasticsearch: \"connection refused\"");
+            Map<String, Object> mdc = new HashMap<>();
+            mdc.put("bundle.id", 42L);
+            mdc.put("bundle.name", "org.apache.karaf.decanter.appender.elasticsearch");
+            mdc.put("bundle.version", "2.9.0");
+            map.put("MDC", mdc);
+            map.put("throwableStacktrace", Arrays.asList(
+                    "java.net.ConnectException: Connection refused",
+                    "at sun.nio.ch.SocketChannelImpl.checkConnect(Native Method)",
+                    "at org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor.processEvent(DefaultConnectingIOReactor.java:174)"));
+            return new Event("decanter/collect/log/org/apache/karaf/decanter/appender/elasticsearch", map);
+        }
+        if (JMX.equals(type)) {
+            map.put("type", "jmx-local");
+            map.put("ObjectName", "java.lang:type=Memory");
+            map.put("HeapMemoryUsage.committed", 514850816L);
+            map.put("HeapMemoryUsage.init", 536870912L);
+            map.put("HeapMemoryUsage.max", 7635730432L);
+            map.put("HeapMemoryUsage.used", 105404096L);
+            map.put("NonHeapMemoryUsage.committed", 77594624L);
+            map.put("NonHeapMemoryUsage.init", 2555904L);
+            map.put("NonHeapMemoryUsage.max", -1L);
+            map.put("NonHeapMemoryUsage.used", 73926856L);
+            map.put("ObjectPendingFinalizationCount", 0);
+            map.put("Verbose", false);
+            return new Event("decanter/collect/jmx/local/java/lang/Memory", map);
+        }
+        map.put("type", "system");
+        map.put("cpu.load", 0.42d);
+        map.put("cpu.count", 8);
+        map.put("load.average", 1.53d);
+        map.put("memory.free", 2147483648L);
+        map.put("memory.total", 17179869184L);
+        map.put("disk.read.bytes", 1073741824L);
+        map.put("disk.write.bytes", 536870912L);
+        map.put("network.in.bytes", 268435456L);
+        map.put("network.out.bytes", 134217728L);
+        map.put("threads", 187);
+        return new Event("decanter/collect/system", map);
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks.appender;
+
+import org.apache.karaf.decanter.appender.utils.CompiledEventFilter;
+import org.apache.karaf.decanter.appender.utils.EventFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.event.Event;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare {@link EventFilter} (regex compiled for each property of each event) with {@link CompiledEventFilter}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventFilterBenchmark {
+
+    /**
+     * The filter configuration: regex, literal/prefix fast path, or no filter at all.
+     */
+    @Param({ "regex", "prefix", "none" })
+    public String filter;
+
+    private Dictionary<String, Object> config;
+    private CompiledEventFilter compiledEventFilter;
+    private Event event;
+
+    @Setup
+    public void setup() {
+        config = new Hashtable<>();
+        if ("regex".equals(filter)) {
+            config.put(EventFilter.PROPERTY_NAME_EXCLUDE_CONFIG, "(password|secret)[0-9]*");
+            config.put(EventFilter.PROPERTY_VALUE_EXCLUDE_CONFIG, ".*[Rr]efused.*");
+        } else if ("prefix".equals(filter)) {
+            config.put(EventFilter.PROPERTY_NAME_EXCLUDE_CONFIG, "password.*");
+            config.put(EventFilter.PROPERTY_VALUE_EXCLUDE_CONFIG, ".*refused.*");
+        }
+        compiledEventFilter = CompiledEventFilter.compile(config);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("type", "jmx-local");
+        data.put("ObjectName", "java.lang:type=Memory");
+        data.put("hostName", "localhost");
+        data.put("hostAddress", "127.0.0.1");
+        data.put("karafName", "root");
+        data.put("HeapMemoryUsage.committed", 514850816L);
+        data.put("HeapMemoryUsage.init", 536870912L);
+        data.put("HeapMemoryUsage.max", 7635730432L);
+        data.put("HeapMemoryUsage.used", 105404096L);
+        data.put("NonHeapMemoryUsage.committed", 77594624L);
+        data.put("NonHeapMemoryUsage.used", 73926856L);
+        data.put("ObjectPendingFinalizationCount", 0);
+        data.put("Verbose", false);
+        data.put("message", "Connection to backend established");
+        data.put("loggerName", "org.apache.karaf.decanter.appender.elasticsearch.ElasticsearchAppender");
+        data.put("threadName", "EventAdminAsyncThread #12");
+        event = new Event("decanter/collect/jmx/local/java/lang/Memory", data);
+    }
+
+    @Benchmark
+    public boolean eventFilter() {
+        return EventFilter.match(event, config);
+    }
+
+    @Benchmark
+    public boolean compiledEventFilter() {
+        return compiledEventFilter.match(event);
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks.appender;
+
+import org.apache.karaf.decanter.appender.utils.Journal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest rate of the {@link Journal} (store-and-forward buffer) while the backend is down
+ * (periodically drained when full), and append/forward rate when the backend is available.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+    @Param({ "256", "2048" })
+    public int recordSize;
+
+    private File directory;
+    private Journal journal;
+    private byte[] record;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("decanter-journal").toFile();
+        journal = new Journal(directory, 64 * 1024 * 1024, 512 * 1024 * 1024);
+        record = new byte[recordSize];
+        Arrays.fill(record, (byte) 'a');
+    }
+
+    @TearDown(Level.Iteration)
+    public void teardown() throws IOException {
+        journal.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public boolean append() throws Exception {
+        if (!journal.append(record)) {
+            // the journal is full, drain it to keep measuring the ingest rate
+            journal.forward(record -> { });
+            return journal.append(record);
+        }
+        return true;
+    }
+
+    @Benchmark
+    public byte[] appendAndForward() throws Exception {
+        journal.append(record);
+        byte[] next = journal.next();
+        journal.commit();
+        return next;
+    }
+
+}
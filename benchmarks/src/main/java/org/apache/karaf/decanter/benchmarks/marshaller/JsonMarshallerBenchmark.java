@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks.marshaller;
+
+import org.apache.karaf.decanter.api.marshaller.MarshalledEventCache;
+import org.apache.karaf.decanter.marshaller.json.JsonMarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the streaming {@link JsonMarshaller} with the JSON object tree marshalling ({@link ObjectBuilderJsonMarshaller}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonMarshallerBenchmark {
+
+    /**
+     * The event: flat JMX event, or log event with nested map and list.
+     */
+    @Param({ "jmx", "nested" })
+    public String event;
+
+    private JsonMarshaller jsonMarshaller;
+    private ObjectBuilderJsonMarshaller objectBuilderJsonMarshaller;
+    private Event data;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        jsonMarshaller = new JsonMarshaller();
+        // without the marshalled event cache, the event is actually marshalled on each invocation
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(MarshalledEventCache.SIZE_CONFIG, "0");
+        jsonMarshaller.activate(config);
+        objectBuilderJsonMarshaller = new ObjectBuilderJsonMarshaller();
+        out = new ByteArrayOutputStream(4096);
+
+        Map<String, Object> map = new HashMap<>();
+        map.put(EventConstants.TIMESTAMP, 1454428780634L);
+        map.put("hostName", "localhost");
+        map.put("hostAddress", "127.0.0.1");
+        map.put("karafName", "root");
+        if ("jmx".equals(event)) {
+            map.put("type", "jmx-local");
+            map.put("ObjectName", "java.lang:type=Memory");
+            map.put("HeapMemoryUsage.committed", 514850816L);
+            map.put("HeapMemoryUsage.init", 536870912L);
+            map.put("HeapMemoryUsage.max", 7635730432L);
+            map.put("HeapMemoryUsage.used", 105404096L);
+            map.put("NonHeapMemoryUsage.committed", 77594624L);
+            map.put("NonHeapMemoryUsage.used", 73926856L);
+            map.put("ObjectPendingFinalizationCount", 0);
+            map.put("SystemLoadAverage", 1.53d);
+            map.put("Verbose", false);
+            data = new Event("decanter/collect/jmx/local/java/lang/Memory", map);
+        } else {
+            map.put("type", "log");
+            map.put("loggerName", "org.apache.karaf.decanter.appender.elasticsearch.ElasticsearchAppender");
+            map.put("level", "WARN");
+            map.put("threadName", "EventAdminAsyncThread #12");
+            map.put("message", "Can't append into Elasticsearch: \"connection refused\"");
+            Map<String, Object> mdc = new HashMap<>();
+            mdc.put("bundle.id", 42L);
+            mdc.put("bundle.name", "org.apache.karaf.decanter.appender.elasticsearch");
+            mdc.put("bundle.version", "2.9.0");
+            map.put("MDC", mdc);
+            map.put("throwableStacktrace", Arrays.asList(
+                    "java.net.ConnectException: Connection refused",
+                    "at sun.nio.ch.SocketChannelImpl.checkConnect(Native Method)",
+                    "at org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor.processEvent(DefaultConnectingIOReactor.java:174)"));
+            map.put("renderedStackTrace", new String[]{ "java.net.ConnectException", "Connection refused" });
+            data = new Event("decanter/collect/log/org/apache/karaf/decanter/appender/elasticsearch", map);
+        }
+    }
+
+    @Benchmark
+    public String streamingString() {
+        return jsonMarshaller.marshal(data);
+    }
+
+    @Benchmark
+    public int streamingOutputStream() {
+        out.reset();
+        jsonMarshaller.marshal(data, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public String objectBuilderString() {
+        return objectBuilderJsonMarshaller.marshal(data);
+    }
+
+    @Benchmark
+    public int objectBuilderOutputStream() {
+        out.reset();
+        objectBuilderJsonMarshaller.marshal(data, out);
+        return out.size();
+    }
+
+}
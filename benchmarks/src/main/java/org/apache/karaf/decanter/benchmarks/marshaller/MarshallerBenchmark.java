@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks.marshaller;
+
+import org.apache.karaf.decanter.api.marshaller.MarshalledEventCache;
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.apache.karaf.decanter.api.marshaller.Unmarshaller;
+import org.apache.karaf.decanter.benchmarks.Events;
+import org.apache.karaf.decanter.marshaller.csv.CsvMarshaller;
+import org.apache.karaf.decanter.marshaller.csv.CsvUnmarshaller;
+import org.apache.karaf.decanter.marshaller.json.JsonMarshaller;
+import org.apache.karaf.decanter.marshaller.json.JsonUnmarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.service.event.Event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marshal and unmarshal throughput of the marshallers, on log, JMX and metric events. The marshalled event cache is
+ * disabled, each invocation actually marshals the event.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MarshallerBenchmark {
+
+    @Param({ "json", "csv" })
+    public String format;
+
+    @Param({ Events.LOG, Events.JMX, Events.METRIC })
+    public String event;
+
+    private Marshaller marshaller;
+    private Unmarshaller unmarshaller;
+    private Event data;
+    private byte[] marshalled;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(MarshalledEventCache.SIZE_CONFIG, "0");
+        if ("csv".equals(format)) {
+            CsvMarshaller csvMarshaller = new CsvMarshaller();
+            csvMarshaller.activate(config);
+            CsvUnmarshaller csvUnmarshaller = new CsvUnmarshaller();
+            csvUnmarshaller.activate(config);
+            marshaller = csvMarshaller;
+            unmarshaller = csvUnmarshaller;
+        } else {
+            JsonMarshaller jsonMarshaller = new JsonMarshaller();
+            jsonMarshaller.activate(config);
+            marshaller = jsonMarshaller;
+            unmarshaller = new JsonUnmarshaller();
+        }
+        data = Events.event(event);
+        marshalled = marshaller.marshal(data).getBytes(StandardCharsets.UTF_8);
+        out = new ByteArrayOutputStream(4096);
+    }
+
+    @Benchmark
+    public String marshal() {
+        return marshaller.marshal(data);
+    }
+
+    @Benchmark
+    public int marshalOutputStream() {
+        out.reset();
+        marshaller.marshal(data, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public Map<String, Object> unmarshal() {
+        return unmarshaller.unmarshal(new ByteArrayInputStream(marshalled));
+    }
+
+}
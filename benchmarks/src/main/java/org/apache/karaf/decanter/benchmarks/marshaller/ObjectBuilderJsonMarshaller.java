@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks.marshaller;
+
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * The JSON marshalling building a {@link JsonObject} tree (the previous JSON marshaller implementation), used as
+ * baseline for the streaming JSON marshaller.
+ */
+public class ObjectBuilderJsonMarshaller {
+
+    private final SimpleDateFormat tsFormat;
+
+    public ObjectBuilderJsonMarshaller() {
+        tsFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss,SSSX");
+        tsFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    public void marshal(Event event, OutputStream out) {
+        JsonWriter writer = Json.createWriter(out);
+        writer.writeObject(build(event));
+        writer.close();
+    }
+
+    public String marshal(Event event) {
+        return build(event).toString();
+    }
+
+    private JsonObject build(Event event) {
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        Long ts = (Long) event.getProperty(EventConstants.TIMESTAMP);
+        json.add("@timestamp", tsFormat.format(ts != null ? new Date(ts) : new Date()));
+        for (String key : event.getPropertyNames()) {
+            Object value = event.getProperty(key);
+            key = key.replace('.', '_');
+            if (value instanceof Map) {
+                json.add(key, build((Map<?, ?>) value));
+            } else if (value instanceof List) {
+                JsonArrayBuilder array = Json.createArrayBuilder();
+                for (Object item : (List<?>) value) {
+                    if (item instanceof Map) {
+                        array.add(build((Map<?, ?>) item));
+                    } else if (item instanceof String) {
+                        array.add((String) item);
+                    } else if (item instanceof Long || item instanceof Integer) {
+                        array.add(((Number) item).longValue());
+                    } else if (item instanceof Double || item instanceof Float) {
+                        array.add(((Number) item).doubleValue());
+                    } else if (item instanceof Boolean) {
+                        array.add((Boolean) item);
+                    }
+                }
+                json.add(key, array.build());
+            } else if (value instanceof long[]) {
+                JsonArrayBuilder array = Json.createArrayBuilder();
+                for (long l : (long[]) value) {
+                    array.add(l);
+                }
+                json.add(key, array.build());
+            } else if (value instanceof String[]) {
+                JsonArrayBuilder array = Json.createArrayBuilder();
+                for (String s : (String[]) value) {
+                    array.add(s);
+                }
+                json.add(key, array.build());
+            } else {
+                add(json, key, value);
+            }
+        }
+        return json.build();
+    }
+
+    private JsonObject build(Map<?, ?> map) {
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            add(json, entry.getKey().toString().replace('.', '_'), entry.getValue());
+        }
+        return json.build();
+    }
+
+    private void add(JsonObjectBuilder json, String key, Object value) {
+        if (value instanceof BigDecimal) {
+            json.add(key, (BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            json.add(key, (BigInteger) value);
+        } else if (value instanceof String) {
+            json.add(key, (String) value);
+        } else if (value instanceof Long) {
+            json.add(key, (Long) value);
+        } else if (value instanceof Integer) {
+            json.add(key, (Integer) value);
+        } else if (value instanceof Float) {
+            json.add(key, (Float) value);
+        } else if (value instanceof Double) {
+            json.add(key, (Double) value);
+        } else if (value instanceof Boolean) {
+            json.add(key, (Boolean) value);
+        }
+    }
+
+}
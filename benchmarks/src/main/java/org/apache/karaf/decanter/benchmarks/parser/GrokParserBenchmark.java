@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks.parser;
+
+import org.apache.karaf.decanter.api.parser.TypeInference;
+import org.apache.karaf.decanter.parser.grok.GrokParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compare the {@link GrokParser} (bundled patterns library) with an equivalent hand-written regex.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GrokParserBenchmark {
+
+    /**
+     * The log format: Apache combined access log, or syslog.
+     */
+    @Param({ "apache", "syslog" })
+    public String format;
+
+    private GrokParser grokParser;
+    private Pattern pattern;
+    private String[] names;
+    private String line;
+
+    @Setup
+    public void setup() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        if ("apache".equals(format)) {
+            config.put("pattern", "%{COMBINEDAPACHELOG}");
+            pattern = Pattern.compile("^(?<clientip>\\S+) (?<ident>\\S+) (?<auth>\\S+) \\[(?<timestamp>[^\\]]+)\\] "
+                    + "\"(?:(?<verb>\\w+) (?<request>\\S+)(?: HTTP/(?<httpversion>[0-9.]+))?|(?<rawrequest>.*?))\" "
+                    + "(?<response>\\d+) (?:(?<bytes>\\d+)|-) (?<referrer>\"[^\"]*\") (?<agent>\"[^\"]*\")");
+            names = new String[]{ "clientip", "ident", "auth", "timestamp", "verb", "request", "httpversion", "rawrequest", "response", "bytes", "referrer", "agent" };
+            line = "192.168.1.12 - frank [10/Oct/2020:13:55:36 +0200] \"GET /cxf/api/orders?id=1234 HTTP/1.1\" 200 2326 "
+                    + "\"http://localhost/start.html\" \"Mozilla/5.0 (X11; Linux x86_64; rv:81.0) Gecko/20100101 Firefox/81.0\"";
+        } else {
+            config.put("pattern", "%{SYSLOGLINE}");
+            pattern = Pattern.compile("^(?<timestamp>\\w{3} +\\d{1,2} \\d{2}:\\d{2}:\\d{2}) (?<logsource>\\S+) "
+                    + "(?<program>[^\\[:\\s]+)(?:\\[(?<pid>\\d+)\\])?: (?<message>.*)");
+            names = new String[]{ "timestamp", "logsource", "program", "pid", "message" };
+            line = "Oct 11 22:14:15 mymachine sshd[1234]: Accepted publickey for decanter from 192.168.1.12 port 53122 ssh2";
+        }
+        grokParser = new GrokParser();
+        grokParser.activate(config);
+    }
+
+    @Benchmark
+    public Map<String, Object> grok() {
+        return grokParser.parse("line", line);
+    }
+
+    @Benchmark
+    public Map<String, Object> regex() {
+        Map<String, Object> data = new HashMap<>();
+        Matcher matcher = pattern.matcher(line);
+        if (matcher.find()) {
+            for (String name : names) {
+                String value = matcher.group(name);
+                if (value != null) {
+                    data.put(name, TypeInference.infer(value));
+                }
+            }
+        }
+        return data;
+    }
+
+}
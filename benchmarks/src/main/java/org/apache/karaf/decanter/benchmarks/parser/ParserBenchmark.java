@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks.parser;
+
+import org.apache.karaf.decanter.api.parser.Parser;
+import org.apache.karaf.decanter.parser.chain.ChainParser;
+import org.apache.karaf.decanter.parser.grok.GrokParser;
+import org.apache.karaf.decanter.parser.json.JsonLineParser;
+import org.apache.karaf.decanter.parser.kv.KeyValueParser;
+import org.apache.karaf.decanter.parser.regex.RegexParser;
+import org.apache.karaf.decanter.parser.split.SplitParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput of the parsers, each on a line of its format. The chain parsers try an access log regex, a syslog
+ * grok expression, then the key value parser, on a key value line: with the literal prefilter, the regex and the grok
+ * expression are skipped.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    private static final String ACCESS_REGEX = "(\\S+) \\S+ (\\S+) \\[([^\\]]+)\\] \"(\\S+) (\\S+) HTTP/(\\S+)\" (\\d+) (\\d+)";
+    private static final String SYSLOG_PATTERN = "%{SYSLOGTIMESTAMP:timestamp} %{SYSLOGHOST:host} %{SYSLOGPROG}: pam_unix\\(%{DATA:service}\\): %{GREEDYDATA:message}";
+
+    @Param({ "split", "regex", "grok", "kv", "json", "chain", "chain-noprefilter" })
+    public String parser;
+
+    private Parser instance;
+    private String line;
+
+    @Setup
+    public void setup() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        switch (parser) {
+            case "split":
+                config.put("separator", " ");
+                config.put("keys", "host,karaf,timestamp,committed,init,max,used,pending,load,verbose");
+                SplitParser splitParser = new SplitParser();
+                splitParser.activate(config);
+                instance = splitParser;
+                line = "localhost root 1454428780634 514850816 536870912 7635730432 105404096 0 1.53 false";
+                break;
+            case "regex":
+                instance = regexParser();
+                line = "192.168.1.12 - frank [10/Oct/2020:13:55:36 +0200] \"GET /cxf/api/orders/1234 HTTP/1.1\" 200 2326";
+                break;
+            case "grok":
+                instance = grokParser();
+                line = "Oct 11 22:14:15 mymachine su[2412]: pam_unix(su:session): session opened for user root by frank(uid=1000)";
+                break;
+            case "kv":
+                instance = new KeyValueParser();
+                ((KeyValueParser) instance).activate(config);
+                line = "time=2020-10-10T13:55:36Z level=info msg=\"order created\" order=1234 amount=42.5 duration=0.042 cached=true";
+                break;
+            case "json":
+                instance = new JsonLineParser();
+                ((JsonLineParser) instance).activate(config);
+                line = "{\"time\":\"2020-10-10T13:55:36Z\",\"level\":\"info\",\"msg\":\"order created\",\"order\":1234,\"amount\":42.5,\"cached\":true}";
+                break;
+            default:
+                KeyValueParser kvParser = new KeyValueParser();
+                kvParser.activate(new Hashtable<>());
+                ChainParser chainParser = new ChainParser();
+                chainParser.bindParser(regexParser(), properties("access", "regex", ACCESS_REGEX));
+                chainParser.bindParser(grokParser(), properties("syslog", "pattern", SYSLOG_PATTERN));
+                chainParser.bindParser(kvParser, properties("kv", "quote", "\""));
+                config.put(ChainParser.PARSERS_CONFIG, "access,syslog,kv");
+                config.put(ChainParser.PREFILTER_CONFIG, Boolean.toString("chain".equals(parser)));
+                config.put("service.pid", "org.apache.karaf.decanter.parser.chain.benchmark");
+                chainParser.activate(config);
+                instance = chainParser;
+                line = "time=2020-10-10T13:55:36Z level=info msg=\"order created\" order=1234 amount=42.5 duration=0.042 cached=true";
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (instance instanceof ChainParser) {
+            ((ChainParser) instance).deactivate();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> parse() {
+        return instance.parse("line", line);
+    }
+
+    private static RegexParser regexParser() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("regex", ACCESS_REGEX);
+        config.put("keys", "client,user,timestamp,method,path,version,status,bytes");
+        RegexParser regexParser = new RegexParser();
+        regexParser.activate(config);
+        return regexParser;
+    }
+
+    private static GrokParser grokParser() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("pattern", SYSLOG_PATTERN);
+        GrokParser grokParser = new GrokParser();
+        grokParser.activate(config);
+        return grokParser;
+    }
+
+    private static Map<String, Object> properties(String parserId, String key, String value) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Parser.SERVICE_KEY_ID, parserId);
+        properties.put(key, value);
+        return properties;
+    }
+
+}
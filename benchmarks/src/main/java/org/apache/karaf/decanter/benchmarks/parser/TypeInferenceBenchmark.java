@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.benchmarks.parser;
+
+import org.apache.karaf.decanter.api.parser.TypeInference;
+import org.apache.karaf.decanter.parser.split.SplitParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the type inference with {@link Integer#parseInt(String)}/{@link Long#parseLong(String)} in try/catch
+ * (the previous {@code IdentityParser} and {@code SplitParser} implementation) with {@link TypeInference}, on the
+ * fields of realistic log lines.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeInferenceBenchmark {
+
+    /**
+     * The log line: Karaf log (mostly text), HTTP access log (mixed), or metrics (mostly numbers).
+     */
+    @Param({ "karaf", "access", "metrics" })
+    public String line;
+
+    private String data;
+    private String[] fields;
+    private SplitParser splitParser;
+
+    @Setup
+    public void setup() {
+        if ("karaf".equals(line)) {
+            data = "2018-09-07T08:40:41,768 INFO FelixStartLevel core 14 org.apache.aries.jmx.core 1.1.8 Unregistering MBean with ObjectName "
+                    + "[osgi.compendium:service=cm,version=1.3,framework=org.apache.felix.framework] for service with service.id [16]";
+        } else if ("access".equals(line)) {
+            data = "192.168.1.12 - frank [10/Oct/2020:13:55:36 +0200] \"GET /cxf/api/orders/1234 HTTP/1.1\" 200 2326 0.042 true";
+        } else {
+            data = "localhost root 1454428780634 514850816 536870912 7635730432 105404096 77594624 73926856 0 1.53 false";
+        }
+        fields = data.split(" ");
+        splitParser = new SplitParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("separator", " ");
+        splitParser.activate(config);
+    }
+
+    @Benchmark
+    public void exceptions(Blackhole blackhole) {
+        for (String field : fields) {
+            blackhole.consume(parseWithExceptions(field));
+        }
+    }
+
+    @Benchmark
+    public void inference(Blackhole blackhole) {
+        for (String field : fields) {
+            blackhole.consume(TypeInference.infer(field));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> splitParser() {
+        return splitParser.parse("line", data);
+    }
+
+    private static Object parseWithExceptions(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (Exception e) {
+            // nothing to do
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (Exception e) {
+            // nothing to do
+        }
+        return value;
+    }
+
+}
@@ -61,6 +61,7 @@ public class DecanterTailerListener extends TailerListenerAdapter {
     private Pattern compiledRegex;
 
     private String topic;
+    private MultiLineAssembler multiLineAssembler;
     
     /**
      * additional properties provided by the user
@@ -87,28 +88,48 @@ public class DecanterTailerListener extends TailerListenerAdapter {
         this.type = type;
         this.path = path;
         this.regex = (String) properties.get("regex");
-        thread.start();
         if (regex != null) {
             compiledRegex  = Pattern.compile(regex);
         }
         topic = (properties.get(EventConstants.EVENT_TOPIC) != null) ? (String) properties.get(EventConstants.EVENT_TOPIC) : "decanter/collect/file/";
+        if (MultiLineAssembler.enabled(properties)) {
+            multiLineAssembler = new MultiLineAssembler(properties, this::dispatch);
+        }
+        // start tailing once the listener is fully configured
+        thread.start();
     }
     
     @Deactivate
     public void deactivate() {
         tailer.stop();
+        if (multiLineAssembler != null) {
+            multiLineAssembler.close();
+        }
     }
 
     @Override
     public void handle(String line) {
         LOGGER.debug("Handle new line in {}", path);
+        if (multiLineAssembler != null) {
+            multiLineAssembler.append(line);
+        } else {
+            dispatch(line);
+        }
+    }
+
+    /**
+     * Parse and send the line (or multi-line event) to the dispatcher.
+     */
+    private void dispatch(String line) {
         Map<String, Object> data = new HashMap<>();
         data.put("type", type);
         data.put("path", path);
         data.put("regex", regex);
 
         if (compiledRegex != null) {
-            Matcher matcher = compiledRegex.matcher(line);
+            // a multi-line event is filtered on its first line
+            int index = line.indexOf('\n');
+            Matcher matcher = compiledRegex.matcher((index < 0) ? line : line.substring(0, index));
             if (matcher.matches()) {
                 data.putAll(this.parser.parse("line_" + type, line));
             } else {
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.collector.file;
+
+import java.io.Closeable;
+import java.util.Dictionary;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Assemble the physical lines of a file into multi-line events (stack traces, wrapped lines).
+ * <p>
+ * A line is a continuation of the current event if it matches {@code multiline.continuation}, if it is indented
+ * ({@code multiline.indentation}), or if it doesn't match {@code multiline.start}. The current event is emitted when
+ * a new event starts, when it reaches {@code multiline.max.lines} or {@code multiline.max.bytes}, or when no line has
+ * been appended for {@code multiline.timeout} ms.
+ */
+public class MultiLineAssembler implements Closeable {
+
+    public static final String START_CONFIG = "multiline.start";
+    public static final String CONTINUATION_CONFIG = "multiline.continuation";
+    public static final String INDENTATION_CONFIG = "multiline.indentation";
+    public static final String MAX_LINES_CONFIG = "multiline.max.lines";
+    public static final String MAX_BYTES_CONFIG = "multiline.max.bytes";
+    public static final String TIMEOUT_CONFIG = "multiline.timeout";
+
+    private final Pattern start;
+    private final Pattern continuation;
+    private final boolean indentation;
+    private final int maxLines;
+    private final int maxBytes;
+    private final long timeout;
+    private final Consumer<String> emitter;
+    private final ScheduledExecutorService scheduler;
+
+    private final StringBuilder buffer = new StringBuilder();
+    private int lines;
+    private long lastAppend;
+
+    public MultiLineAssembler(Dictionary<String, Object> config, Consumer<String> emitter) {
+        this.start = (config.get(START_CONFIG) != null) ? Pattern.compile((String) config.get(START_CONFIG)) : null;
+        this.continuation = (config.get(CONTINUATION_CONFIG) != null) ? Pattern.compile((String) config.get(CONTINUATION_CONFIG)) : null;
+        this.indentation = (config.get(INDENTATION_CONFIG) != null) ? Boolean.parseBoolean(config.get(INDENTATION_CONFIG).toString()) : false;
+        this.maxLines = (config.get(MAX_LINES_CONFIG) != null) ? Integer.parseInt(config.get(MAX_LINES_CONFIG).toString()) : 500;
+        this.maxBytes = (config.get(MAX_BYTES_CONFIG) != null) ? Integer.parseInt(config.get(MAX_BYTES_CONFIG).toString()) : 65536;
+        this.timeout = (config.get(TIMEOUT_CONFIG) != null) ? Long.parseLong(config.get(TIMEOUT_CONFIG).toString()) : 1000L;
+        this.emitter = emitter;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Decanter file collector multi-line flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(10L, timeout / 2);
+        scheduler.scheduleAtFixedRate(this::expire, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return {@code true} if the configuration defines a multi-line mode.
+     */
+    public static boolean enabled(Dictionary<String, Object> config) {
+        return config.get(START_CONFIG) != null || config.get(CONTINUATION_CONFIG) != null
+                || (config.get(INDENTATION_CONFIG) != null && Boolean.parseBoolean(config.get(INDENTATION_CONFIG).toString()));
+    }
+
+    public synchronized void append(String line) {
+        if (lines > 0 && (!isContinuation(line) || lines >= maxLines || buffer.length() + 1 + line.length() > maxBytes)) {
+            flush();
+        }
+        if (lines > 0) {
+            buffer.append('\n');
+        }
+        buffer.append(line);
+        lines++;
+        lastAppend = System.currentTimeMillis();
+    }
+
+    /**
+     * Emit the current event (if any).
+     */
+    public synchronized void flush() {
+        if (lines == 0) {
+            return;
+        }
+        String event = buffer.toString();
+        buffer.setLength(0);
+        lines = 0;
+        emitter.accept(event);
+    }
+
+    private boolean isContinuation(String line) {
+        if (continuation != null && continuation.matcher(line).find()) {
+            return true;
+        }
+        if (indentation && !line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t')) {
+            return true;
+        }
+        return start != null && !start.matcher(line).find();
+    }
+
+    private synchronized void expire() {
+        if (lines > 0 && System.currentTimeMillis() - lastAppend >= timeout) {
+            flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+}
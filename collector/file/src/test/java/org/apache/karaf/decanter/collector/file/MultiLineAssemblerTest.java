@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.collector.file;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class MultiLineAssemblerTest {
+
+    private final static List<String> LOG = Arrays.asList(
+            "2020-10-10T13:55:36,123 | INFO  | main | Starting",
+            "2020-10-10T13:55:37,456 | ERROR | main | Can't append",
+            "java.net.ConnectException: Connection refused",
+            "\tat sun.nio.ch.SocketChannelImpl.checkConnect(Native Method)",
+            "\tat org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor.processEvent(DefaultConnectingIOReactor.java:174)",
+            "2020-10-10T13:55:38,789 | INFO  | main | Started");
+
+    @Test
+    public void start() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(MultiLineAssembler.START_CONFIG, "^\\d{4}-\\d{2}-\\d{2}T");
+        List<String> events = new CopyOnWriteArrayList<>();
+        MultiLineAssembler assembler = new MultiLineAssembler(config, events::add);
+        LOG.forEach(assembler::append);
+        Assert.assertEquals(2, events.size());
+        assembler.close();
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals(LOG.get(0), events.get(0));
+        Assert.assertEquals(String.join("\n", LOG.subList(1, 5)), events.get(1));
+        Assert.assertEquals(LOG.get(5), events.get(2));
+    }
+
+    @Test
+    public void continuationAndIndentation() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(MultiLineAssembler.CONTINUATION_CONFIG, "^(Caused by:|java\\.)");
+        config.put(MultiLineAssembler.INDENTATION_CONFIG, "true");
+        List<String> events = new CopyOnWriteArrayList<>();
+        MultiLineAssembler assembler = new MultiLineAssembler(config, events::add);
+        LOG.forEach(assembler::append);
+        assembler.close();
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals(String.join("\n", LOG.subList(1, 5)), events.get(1));
+    }
+
+    @Test
+    public void maxLines() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(MultiLineAssembler.INDENTATION_CONFIG, "true");
+        config.put(MultiLineAssembler.MAX_LINES_CONFIG, "2");
+        List<String> events = new CopyOnWriteArrayList<>();
+        MultiLineAssembler assembler = new MultiLineAssembler(config, events::add);
+        LOG.forEach(assembler::append);
+        assembler.close();
+        Assert.assertEquals(Arrays.asList(LOG.get(0), LOG.get(1), LOG.get(2) + "\n" + LOG.get(3), LOG.get(4), LOG.get(5)), events);
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put(MultiLineAssembler.INDENTATION_CONFIG, "true");
+        config.put(MultiLineAssembler.TIMEOUT_CONFIG, "100");
+        List<String> events = new CopyOnWriteArrayList<>();
+        MultiLineAssembler assembler = new MultiLineAssembler(config, events::add);
+        assembler.append(LOG.get(2));
+        assembler.append(LOG.get(3));
+        Assert.assertTrue(events.isEmpty());
+        long deadline = System.currentTimeMillis() + 10000;
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(Arrays.asList(LOG.get(2) + "\n" + LOG.get(3)), events);
+        assembler.close();
+        Assert.assertEquals(1, events.size());
+    }
+
+}
@@ -131,8 +131,8 @@ public class JmsCollector {
 
         @Override
         public void onMessage(Message message) {
-            if (!(message instanceof MapMessage) && !(message instanceof TextMessage)) {
-                LOGGER.warn("JMS is not a MapMessage or a TextMessage.");
+            if (!(message instanceof MapMessage) && !(message instanceof TextMessage) && !(message instanceof BytesMessage)) {
+                LOGGER.warn("JMS is not a MapMessage, a TextMessage or a BytesMessage.");
                 return;
             }
 
@@ -169,6 +169,26 @@ public class JmsCollector {
 
                     PropertiesPreparator.prepare(data, properties);
 
+                    Event event = new Event(dispatcherTopic, data);
+                    dispatcher.postEvent(event);
+                } catch (Exception e) {
+                    LOGGER.warn("Can't process JMS message", e);
+                }
+            }
+            if (message instanceof BytesMessage) {
+                // binary data formats
+                BytesMessage bytesMessage = (BytesMessage) message;
+
+                try {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("type", "jms");
+
+                    byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+                    bytesMessage.readBytes(bytes);
+                    data.putAll(unmarshaller.unmarshal(new ByteArrayInputStream(bytes)));
+
+                    PropertiesPreparator.prepare(data, properties);
+
                     Event event = new Event(dispatcherTopic, data);
                     dispatcher.postEvent(event);
                 } catch (Exception e) {
@@ -51,7 +51,7 @@ public class KafkaCollector implements Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(KafkaCollector.class);
 
     private Dictionary<String, Object> properties;
-    private KafkaConsumer<String, String> consumer;
+    private KafkaConsumer<String, Object> consumer;
     private String topic;
     private String eventAdminTopic;
     private boolean consuming = false;
@@ -92,7 +92,7 @@ public class KafkaCollector implements Runnable {
         String keyDeserializer = getValue(properties, "key.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
         config.put("key.deserializer", keyDeserializer);
 
-        String valueDeserializer = getValue(properties, "value.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
+        String valueDeserializer = getValue(properties, "value.deserializer", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
         config.put("value.deserializer", valueDeserializer);
 
         String securityProtocol = getValue(properties, "security.protocol", null);
@@ -142,7 +142,7 @@ public class KafkaCollector implements Runnable {
         ClassLoader originClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(null);
-            consumer = new KafkaConsumer<String, String>(config);
+            consumer = new KafkaConsumer<String, Object>(config);
             consumer.subscribe(Arrays.asList(topic));
         } finally {
             Thread.currentThread().setContextClassLoader(originClassLoader);
@@ -169,20 +169,21 @@ public class KafkaCollector implements Runnable {
     }
 
     private void consume() throws UnsupportedEncodingException {
-        ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(1));
+        ConsumerRecords<String, Object> records = consumer.poll(Duration.ofSeconds(1));
         if (records.isEmpty()) {
             return;
         }
         Map<String, Object> data = new HashMap<>();
         data.put("type", "kafka");
         
-        for (ConsumerRecord<String, String> record : records) {
-            String value = record.value();
+        for (ConsumerRecord<String, Object> record : records) {
+            // bytes with the byte array deserializer (binary data formats), or a string
+            byte[] value = (record.value() instanceof byte[]) ? (byte[]) record.value() : record.value().toString().getBytes("utf-8");
             if (messageType.equalsIgnoreCase("text")) {
-                ByteArrayInputStream is = new ByteArrayInputStream(value.getBytes("utf-8"));
+                ByteArrayInputStream is = new ByteArrayInputStream(value);
                 data.putAll(unmarshaller.unmarshal(is));
             } else {
-                data.put("payload", value);
+                data.put("payload", new String(value, "utf-8"));
             }
         }
 
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.util.Dictionary;
+import java.util.Iterator;
 import java.util.Map;
 
 import javax.servlet.Servlet;
@@ -65,6 +66,7 @@ public class RestServletCollector extends HttpServlet {
     private String topic;
     private Dictionary<String, Object> properties;
     private long maxRequestSize = 100000;
+    private boolean bulk;
 
     @SuppressWarnings("unchecked")
     @Activate
@@ -75,6 +77,7 @@ public class RestServletCollector extends HttpServlet {
         if (this.properties.get("max.request.size") != null) {
             maxRequestSize = Long.parseLong((String)this.properties.get("max.request.size"));
         }
+        this.bulk = Boolean.parseBoolean(getProperty(props, "bulk", "false"));
     }
 
     private String getProperty(Dictionary<String, Object> properties, String key, String defaultValue) {
@@ -85,6 +88,10 @@ public class RestServletCollector extends HttpServlet {
     protected void doPost(HttpServletRequest req, HttpServletResponse resp)
         throws ServletException, IOException {
         LOGGER.debug("Karaf Decanter REST Servlet Collector request received from {}", req.getRequestURI());
+        if (bulk) {
+            doPostBulk(req, resp);
+            return;
+        }
         try {
             StringBuilder builder = new StringBuilder();
             try (BoundedInputStream boundedInputStream = new BoundedInputStream(req.getInputStream(), maxRequestSize);
@@ -113,4 +120,26 @@ public class RestServletCollector extends HttpServlet {
         
     }
 
+    /**
+     * Post an event per document of the request, unmarshalled as the request is read.
+     */
+    private void doPostBulk(HttpServletRequest req, HttpServletResponse resp) {
+        int count = 0;
+        try (BoundedInputStream boundedInputStream = new BoundedInputStream(req.getInputStream(), maxRequestSize)) {
+            Iterator<Map<String, Object>> documents = unmarshaller.unmarshalAll(boundedInputStream);
+            while (documents.hasNext()) {
+                Map<String, Object> data = documents.next();
+                data.put("type", "restservlet");
+                PropertiesPreparator.prepare(data, properties);
+                dispatcher.postEvent(new Event(topic, data));
+                count++;
+            }
+            resp.setStatus(HttpServletResponse.SC_CREATED);
+            LOGGER.debug("Karaf Decanter REST Servlet Collector harvesting done ({} events)", count);
+        } catch (Exception e) {
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            LOGGER.warn("Error processing events from servlet ({} events posted)", count, e);
+        }
+    }
+
 }
@@ -20,6 +20,7 @@ import java.io.*;
 import java.net.*;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -101,8 +102,9 @@ public class SocketCollector implements Closeable, Runnable {
 
         // adding 1 for serverSocket handling
         this.executor = Executors.newFixedThreadPool(workers + 1);
-        this.executor.execute(this);
+        // open before starting the accept loop, otherwise the loop can exit immediately
         this.open = true;
+        this.executor.execute(this);
     }
 
     private String getProperty(Dictionary<String, Object> properties, String key, String defaultValue) {
@@ -172,13 +174,13 @@ public class SocketCollector implements Closeable, Runnable {
 
         public void run() {
             try {
-                try (BoundedInputStream boundedInputStream = new BoundedInputStream(clientSocket.getInputStream(), maxRequestSize);
-                     BufferedReader reader = new BufferedReader(new InputStreamReader(boundedInputStream))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
+                try (BoundedInputStream boundedInputStream = new BoundedInputStream(clientSocket.getInputStream(), maxRequestSize)) {
+                    // the documents are unmarshalled as they are received
+                    Iterator<Map<String, Object>> documents = unmarshaller.unmarshalAll(boundedInputStream);
+                    while (documents.hasNext()) {
                         Map<String, Object> data = new HashMap<>();
                         data.put("type", "socket");
-                        data.putAll(unmarshaller.unmarshal(new ByteArrayInputStream(line.getBytes())));
+                        data.putAll(documents.next());
                         PropertiesPreparator.prepare(data, properties);
                         Event event = new Event(topic, data);
                         dispatcher.postEvent(event);
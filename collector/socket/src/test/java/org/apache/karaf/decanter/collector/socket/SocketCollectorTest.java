@@ -116,6 +116,36 @@ public class SocketCollectorTest {
         collector.close();
     }
 
+    @Test(timeout = 60000)
+    public void testBulk() throws Exception {
+        DispatcherMock dispatcher = new DispatcherMock();
+
+        SocketCollector collector = new SocketCollector();
+        collector.dispatcher = dispatcher;
+        collector.unmarshaller = new JsonUnmarshaller();
+        collector.activate(new Hashtable<>());
+
+        Socket socket = new Socket("localhost", 34343);
+
+        PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+        writer.println("[{\"id\":1},{\"id\":2}]");
+        writer.println("{");
+        writer.println("  \"id\": 3");
+        writer.println("}");
+        writer.flush();
+
+        while (dispatcher.postedEvents.size() < 3) {
+            Thread.sleep(200);
+        }
+
+        Assert.assertEquals(3, dispatcher.postedEvents.size());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals((long) i + 1, dispatcher.postedEvents.get(i).getProperty("id"));
+        }
+
+        collector.close();
+    }
+
     class DispatcherMock implements EventAdmin {
 
         public List<Event> postedEvents = new ArrayList<>();
@@ -16,12 +16,13 @@
  */
 package org.apache.karaf.decanter.collector.utils;
 
+import org.apache.karaf.decanter.api.time.TimestampFormatter;
+
 import java.net.InetAddress;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Map;
+import java.util.TimeZone;
 import java.util.UUID;
 
 public class PropertiesPreparator {
@@ -30,7 +31,7 @@ public class PropertiesPreparator {
     private final static String FIELDS_RENAME = "fields.rename.";
     private final static String FIELDS_REMOVE = "fields.remove.";
 
-    private static SimpleDateFormat tsFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX");
+    private final static TimestampFormatter tsFormat = new TimestampFormatter("yyyy-MM-dd'T'HH:mm:ss.SSSX", TimeZone.getDefault());
 
     /**
      * Prepare the data sent to the dispatcher using default properties and provided custom fields.
@@ -69,8 +70,7 @@ public class PropertiesPreparator {
                     String uuid = UUID.randomUUID().toString();
                     data.put(key.substring(FIELDS_ADD.length()), uuid);
                 } else if ("TIMESTAMP".equals(properties.get(key).toString().trim())) {
-                    Date date = new Date();
-                    data.put(key.substring(FIELDS_ADD.length()), tsFormat.format(date));
+                    data.put(key.substring(FIELDS_ADD.length()), tsFormat.format(System.currentTimeMillis()));
                 } else {
                     data.put(key.substring(FIELDS_ADD.length()), properties.get(key));
                 }
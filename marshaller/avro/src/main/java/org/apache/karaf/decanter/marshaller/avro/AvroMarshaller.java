@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.event.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.Dictionary;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Avro marshaller, using the single object encoding: a two bytes marker ({@code C3 01}), the eight bytes (little
+ * endian) fingerprint of the schema, then the Avro binary encoded record.
+ * <p>
+ * The schema is inferred from the event properties, per event {@code type}. The appenders with binary payloads use
+ * {@link #marshalBytes(Object)}. As {@link #marshal(Object)} has to return a {@link String}, the payload is encoded in
+ * Base64 there (the unmarshaller reads both).
+ */
+@Component(
+    name = "org.apache.karaf.decanter.marshaller.avro",
+    immediate = true,
+    property = Marshaller.SERVICE_KEY_DATAFORMAT + "=avro"
+)
+public class AvroMarshaller implements Marshaller {
+
+    public static final String SCHEMAS_DIRECTORY = "schemas.directory";
+
+    static final byte[] MARKER = { (byte) 0xC3, 0x01 };
+    static final String TYPE_PROPERTY = "type";
+    static final String DEFAULT_TYPE = "decanter";
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(AvroMarshaller.class);
+
+    private final ThreadLocal<BinaryEncoder> encoder = new ThreadLocal<>();
+
+    SchemaRegistry registry = SchemaRegistry.SHARED;
+
+    @Activate
+    public void activate(ComponentContext componentContext) {
+        activate(componentContext.getProperties());
+    }
+
+    public void activate(Dictionary<String, Object> config) {
+        registry.setDirectory((config.get(SCHEMAS_DIRECTORY) != null) ? new File(config.get(SCHEMAS_DIRECTORY).toString()) : null);
+    }
+
+    @Override
+    public void marshal(Object obj, OutputStream out) {
+        try {
+            write(properties(obj), out);
+        } catch (IOException e) {
+            LOGGER.warn("Can't marshal", e);
+        }
+    }
+
+    @Override
+    public String marshal(Object obj) {
+        return Base64.getEncoder().encodeToString(marshalBytes(obj));
+    }
+
+    @Override
+    public byte[] marshalBytes(Object obj) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        marshal(obj, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public boolean isBinary() {
+        return true;
+    }
+
+    private void write(Map<?, ?> data, OutputStream out) throws IOException {
+        Object type = data.get(TYPE_PROPERTY);
+        SchemaRegistry.Version version = registry.version((type != null) ? type.toString() : DEFAULT_TYPE, data);
+        out.write(MARKER);
+        long fingerprint = version.fingerprint;
+        for (int i = 0; i < 8; i++) {
+            out.write((int) (fingerprint >>> (i * 8)));
+        }
+        BinaryEncoder binaryEncoder = EncoderFactory.get().binaryEncoder(out, encoder.get());
+        encoder.set(binaryEncoder);
+        writeValue(binaryEncoder, version.schema, data);
+        binaryEncoder.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<?, ?> properties(Object obj) {
+        if (obj instanceof Map) {
+            return (Map<String, Object>) obj;
+        }
+        Event event = (Event) obj;
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (String name : event.getPropertyNames()) {
+            data.put(name, event.getProperty(name));
+        }
+        return data;
+    }
+
+    private void writeValue(BinaryEncoder encoder, Schema schema, Object value) throws IOException {
+        switch (schema.getType()) {
+            case UNION:
+                int branch = SchemaInference.branch(value, schema);
+                encoder.writeIndex(branch);
+                writeValue(encoder, schema.getTypes().get(branch), value);
+                break;
+            case NULL:
+                encoder.writeNull();
+                break;
+            case BOOLEAN:
+                encoder.writeBoolean((Boolean) value);
+                break;
+            case INT:
+                encoder.writeInt(((Number) value).intValue());
+                break;
+            case LONG:
+                encoder.writeLong((Long) value);
+                break;
+            case FLOAT:
+                encoder.writeFloat((Float) value);
+                break;
+            case DOUBLE:
+                encoder.writeDouble((Double) value);
+                break;
+            case BYTES:
+                encoder.writeBytes((byte[]) value);
+                break;
+            case STRING:
+                encoder.writeString(value.toString());
+                break;
+            case RECORD:
+                Map<?, ?> map = (Map<?, ?>) value;
+                for (Schema.Field field : schema.getFields()) {
+                    writeValue(encoder, field.schema(), map.get(SchemaInference.name(field)));
+                }
+                break;
+            case ARRAY:
+                List<?> items = SchemaInference.asList(value);
+                encoder.writeArrayStart();
+                encoder.setItemCount(items.size());
+                for (Object item : items) {
+                    encoder.startItem();
+                    writeValue(encoder, schema.getElementType(), item);
+                }
+                encoder.writeArrayEnd();
+                break;
+            default:
+                throw new IOException("Unsupported schema type " + schema.getType());
+        }
+    }
+
+}
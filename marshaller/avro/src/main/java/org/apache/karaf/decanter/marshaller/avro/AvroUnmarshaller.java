@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.apache.karaf.decanter.api.marshaller.Unmarshaller;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Avro unmarshaller, reading the single object encoding (or its Base64 encoding) produced by the
+ * {@link AvroMarshaller}. The schema is found by fingerprint, in the schemas inferred by the marshaller or in the
+ * schemas directory.
+ */
+@Component(
+    name = "org.apache.karaf.decanter.unmarshaller.avro",
+    configurationPid = "org.apache.karaf.decanter.marshaller.avro",
+    immediate = true,
+    property = Marshaller.SERVICE_KEY_DATAFORMAT + "=avro"
+)
+public class AvroUnmarshaller implements Unmarshaller {
+
+    private final ThreadLocal<BinaryDecoder> decoder = new ThreadLocal<>();
+
+    SchemaRegistry registry = SchemaRegistry.SHARED;
+
+    @Activate
+    public void activate(ComponentContext componentContext) {
+        activate(componentContext.getProperties());
+    }
+
+    public void activate(Dictionary<String, Object> config) {
+        registry.setDirectory((config.get(AvroMarshaller.SCHEMAS_DIRECTORY) != null) ? new File(config.get(AvroMarshaller.SCHEMAS_DIRECTORY).toString()) : null);
+    }
+
+    @Override
+    public Map<String, Object> unmarshal(InputStream in) {
+        try {
+            InputStream input = in.markSupported() ? in : new BufferedInputStream(in);
+            input.mark(1);
+            int first = input.read();
+            input.reset();
+            if (first != (AvroMarshaller.MARKER[0] & 0xFF)) {
+                input = Base64.getMimeDecoder().wrap(input);
+            }
+            return read(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't unmarshal", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[10];
+        data.readFully(header);
+        if (header[0] != AvroMarshaller.MARKER[0] || header[1] != AvroMarshaller.MARKER[1]) {
+            throw new IllegalArgumentException("Not an Avro single object encoded message");
+        }
+        long fingerprint = 0;
+        for (int i = 0; i < 8; i++) {
+            fingerprint |= (header[i + 2] & 0xFFL) << (i * 8);
+        }
+        Schema schema = registry.schema(fingerprint);
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown schema fingerprint " + String.format("%016x", fingerprint));
+        }
+        BinaryDecoder binaryDecoder = DecoderFactory.get().binaryDecoder(in, decoder.get());
+        decoder.set(binaryDecoder);
+        return (Map<String, Object>) readValue(binaryDecoder, schema);
+    }
+
+    private Object readValue(BinaryDecoder decoder, Schema schema) throws IOException {
+        switch (schema.getType()) {
+            case UNION:
+                return readValue(decoder, schema.getTypes().get(decoder.readIndex()));
+            case NULL:
+                decoder.readNull();
+                return null;
+            case BOOLEAN:
+                return decoder.readBoolean();
+            case INT:
+                return decoder.readInt();
+            case LONG:
+                return decoder.readLong();
+            case FLOAT:
+                return decoder.readFloat();
+            case DOUBLE:
+                return decoder.readDouble();
+            case BYTES:
+                ByteBuffer buffer = decoder.readBytes(null);
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return bytes;
+            case STRING:
+                String value = decoder.readString();
+                String type = schema.getProp(SchemaInference.TYPE_PROP);
+                if (SchemaInference.DECIMAL_TYPE.equals(type)) {
+                    return new BigDecimal(value);
+                } else if (SchemaInference.BIG_INTEGER_TYPE.equals(type)) {
+                    return new BigInteger(value);
+                }
+                return value;
+            case RECORD:
+                Map<String, Object> map = new HashMap<>();
+                for (Schema.Field field : schema.getFields()) {
+                    Object fieldValue = readValue(decoder, field.schema());
+                    if (fieldValue != null) {
+                        map.put(SchemaInference.name(field), fieldValue);
+                    }
+                }
+                return map;
+            case ARRAY:
+                List<Object> list = new ArrayList<>();
+                for (long count = decoder.readArrayStart(); count > 0; count = decoder.arrayNext()) {
+                    for (long i = 0; i < count; i++) {
+                        list.add(readValue(decoder, schema.getElementType()));
+                    }
+                }
+                return list;
+            default:
+                throw new IOException("Unsupported schema type " + schema.getType());
+        }
+    }
+
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.avro;
+
+import org.apache.avro.Schema;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Infer Avro schemas from the event properties, and check if data fits an existing schema.
+ * <p>
+ * The maps are records (with nullable fields), the collections and arrays are Avro arrays. The field and record
+ * names are sanitized to be valid Avro names, the original name is kept in the {@code decanter.name} property.
+ * The values without Avro type ({@link BigDecimal}, {@link BigInteger}, other objects) are written as strings, with
+ * a {@code decanter.type} property.
+ */
+final class SchemaInference {
+
+    static final String NAMESPACE = "org.apache.karaf.decanter";
+    static final String NAME_PROP = "decanter.name";
+    static final String TYPE_PROP = "decanter.type";
+    static final String DECIMAL_TYPE = "decimal";
+    static final String BIG_INTEGER_TYPE = "biginteger";
+    static final String ANY_TYPE = "any";
+
+    private static final int NAME_CACHE_SIZE = 10000;
+    private static final Map<String, String> NAMES = new ConcurrentHashMap<>();
+
+    private SchemaInference() {
+    }
+
+    /**
+     * Infer the record schema of the data.
+     */
+    static Schema infer(String name, Map<?, ?> data) {
+        return record(sanitize(name), data, new HashSet<>());
+    }
+
+    private static Schema record(String name, Map<?, ?> map, Set<String> recordNames) {
+        String recordName = name;
+        for (int i = 1; !recordNames.add(recordName); i++) {
+            recordName = name + "_" + i;
+        }
+        Schema record = Schema.createRecord(recordName, null, NAMESPACE, false);
+        List<Schema.Field> fields = new ArrayList<>(map.size());
+        Set<String> fieldNames = new HashSet<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            String fieldName = sanitize(key);
+            for (int i = 1; !fieldNames.add(fieldName); i++) {
+                fieldName = sanitize(key) + "_" + i;
+            }
+            Schema.Field field = new Schema.Field(fieldName, nullable(infer(recordName + "_" + fieldName, entry.getValue(), recordNames)), null, null);
+            if (!fieldName.equals(key)) {
+                field.addProp(NAME_PROP, key);
+            }
+            fields.add(field);
+        }
+        record.setFields(fields);
+        return record;
+    }
+
+    private static Schema infer(String name, Object value, Set<String> recordNames) {
+        if (value == null) {
+            return Schema.create(Schema.Type.NULL);
+        } else if (value instanceof String) {
+            return Schema.create(Schema.Type.STRING);
+        } else if (value instanceof Boolean) {
+            return Schema.create(Schema.Type.BOOLEAN);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return Schema.create(Schema.Type.INT);
+        } else if (value instanceof Long) {
+            return Schema.create(Schema.Type.LONG);
+        } else if (value instanceof Float) {
+            return Schema.create(Schema.Type.FLOAT);
+        } else if (value instanceof Double) {
+            return Schema.create(Schema.Type.DOUBLE);
+        } else if (value instanceof byte[]) {
+            return Schema.create(Schema.Type.BYTES);
+        } else if (value instanceof BigDecimal) {
+            return string(DECIMAL_TYPE);
+        } else if (value instanceof BigInteger) {
+            return string(BIG_INTEGER_TYPE);
+        } else if (value instanceof Map) {
+            return record(name, (Map<?, ?>) value, recordNames);
+        }
+        List<?> items = asList(value);
+        if (items == null) {
+            return string(ANY_TYPE);
+        }
+        Schema item = null;
+        boolean nullItem = false;
+        for (Object o : items) {
+            if (o == null) {
+                nullItem = true;
+            } else if (item == null) {
+                item = infer(name, o, recordNames);
+            } else if (!fits(o, item)) {
+                // mixed types, the items are written as strings
+                item = string(ANY_TYPE);
+            }
+        }
+        if (item == null) {
+            item = Schema.create(Schema.Type.NULL);
+        }
+        return Schema.createArray(nullItem ? nullable(item) : item);
+    }
+
+    private static Schema string(String type) {
+        Schema schema = Schema.create(Schema.Type.STRING);
+        schema.addProp(TYPE_PROP, type);
+        return schema;
+    }
+
+    private static Schema nullable(Schema schema) {
+        if (schema.getType() == Schema.Type.NULL) {
+            return schema;
+        }
+        return Schema.createUnion(Arrays.asList(Schema.create(Schema.Type.NULL), schema));
+    }
+
+    /**
+     * Check if the value can be written with the schema.
+     */
+    static boolean fits(Object value, Schema schema) {
+        switch (schema.getType()) {
+            case UNION:
+                return branch(value, schema) >= 0;
+            case NULL:
+                return value == null;
+            case BOOLEAN:
+                return value instanceof Boolean;
+            case INT:
+                return value instanceof Integer || value instanceof Short || value instanceof Byte;
+            case LONG:
+                return value instanceof Long;
+            case FLOAT:
+                return value instanceof Float;
+            case DOUBLE:
+                return value instanceof Double;
+            case BYTES:
+                return value instanceof byte[];
+            case STRING:
+                String type = schema.getProp(TYPE_PROP);
+                if (type == null) {
+                    return value instanceof String;
+                } else if (DECIMAL_TYPE.equals(type)) {
+                    return value instanceof BigDecimal;
+                } else if (BIG_INTEGER_TYPE.equals(type)) {
+                    return value instanceof BigInteger;
+                }
+                return value != null;
+            case RECORD:
+                if (!(value instanceof Map)) {
+                    return false;
+                }
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    Schema.Field field = field(schema, String.valueOf(entry.getKey()));
+                    if (field == null || !fits(entry.getValue(), field.schema())) {
+                        return false;
+                    }
+                }
+                return true;
+            case ARRAY:
+                List<?> items = asList(value);
+                if (items == null) {
+                    return false;
+                }
+                for (Object item : items) {
+                    if (!fits(item, schema.getElementType())) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the index of the union branch to use for the value, -1 if no branch fits.
+     */
+    static int branch(Object value, Schema union) {
+        List<Schema> types = union.getTypes();
+        for (int i = 0; i < types.size(); i++) {
+            if (fits(value, types.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the record field for the given (original) name.
+     */
+    static Schema.Field field(Schema record, String name) {
+        Schema.Field field = record.getField(sanitize(name));
+        if (field != null && name.equals(name(field))) {
+            return field;
+        }
+        // renamed because of a name collision
+        for (Schema.Field f : record.getFields()) {
+            if (name.equals(f.getProp(NAME_PROP))) {
+                return f;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the original name of the field.
+     */
+    static String name(Schema.Field field) {
+        String name = field.getProp(NAME_PROP);
+        return (name != null) ? name : field.name();
+    }
+
+    /**
+     * @return the collection or array as a list, {@code null} if the value is not a collection or an array.
+     */
+    static List<?> asList(Object value) {
+        if (value instanceof List) {
+            return (List<?>) value;
+        } else if (value instanceof Collection) {
+            return new ArrayList<>((Collection<?>) value);
+        } else if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value);
+        } else if (value instanceof long[]) {
+            List<Long> list = new ArrayList<>();
+            for (long l : (long[]) value) {
+                list.add(l);
+            }
+            return list;
+        } else if (value instanceof int[]) {
+            List<Integer> list = new ArrayList<>();
+            for (int i : (int[]) value) {
+                list.add(i);
+            }
+            return list;
+        } else if (value instanceof double[]) {
+            List<Double> list = new ArrayList<>();
+            for (double d : (double[]) value) {
+                list.add(d);
+            }
+            return list;
+        }
+        return null;
+    }
+
+    /**
+     * @return a valid Avro name: letters, digits and underscores, not starting with a digit.
+     */
+    static String sanitize(String name) {
+        String sanitized = NAMES.get(name);
+        if (sanitized == null) {
+            StringBuilder builder = new StringBuilder(name.length() + 1);
+            if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+                builder.append('_');
+            }
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                builder.append((c < 128 && (Character.isLetterOrDigit(c) || c == '_')) ? c : '_');
+            }
+            sanitized = builder.toString();
+            if (NAMES.size() < NAME_CACHE_SIZE) {
+                NAMES.put(name, sanitized);
+            }
+        }
+        return sanitized;
+    }
+
+}
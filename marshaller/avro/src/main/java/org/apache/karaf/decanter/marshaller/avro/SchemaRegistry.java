@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.avro;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cache of the Avro schemas, by fingerprint (CRC-64-AVRO of the parsing canonical form) and by event type (the
+ * versions of the schema inferred for the type).
+ * <p>
+ * If a directory is defined, the new schemas are stored as {@code <fingerprint>.avsc} files, and the unknown
+ * fingerprints are looked up in the directory.
+ */
+class SchemaRegistry {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(SchemaRegistry.class);
+
+    /**
+     * Registry shared by the marshaller and the unmarshaller.
+     */
+    static final SchemaRegistry SHARED = new SchemaRegistry();
+
+    /**
+     * Number of versions (the latest ones) checked before inferring a new schema for a type.
+     */
+    static final int MAX_VERSIONS = 32;
+
+    /**
+     * A schema with its fingerprint.
+     */
+    static class Version {
+
+        final Schema schema;
+        final long fingerprint;
+
+        Version(Schema schema, long fingerprint) {
+            this.schema = schema;
+            this.fingerprint = fingerprint;
+        }
+
+    }
+
+    private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+    private final Map<String, List<Version>> versions = new ConcurrentHashMap<>();
+    private volatile File directory;
+
+    void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the schema used to write the data of the given type, inferred and registered if the data doesn't fit
+     * the latest versions.
+     */
+    Version version(String type, Map<?, ?> data) {
+        List<Version> typeVersions = versions.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>());
+        Version version = find(typeVersions, data);
+        if (version == null) {
+            synchronized (typeVersions) {
+                version = find(typeVersions, data);
+                if (version == null) {
+                    version = infer(type, data);
+                    typeVersions.add(version);
+                    if (typeVersions.size() > MAX_VERSIONS) {
+                        typeVersions.remove(0);
+                    }
+                    LOGGER.debug("New schema version for type {}: {}", type, version.schema);
+                }
+            }
+        }
+        return version;
+    }
+
+    private Version find(List<Version> typeVersions, Map<?, ?> data) {
+        for (int i = typeVersions.size() - 1; i >= 0; i--) {
+            Version version = typeVersions.get(i);
+            if (SchemaInference.fits(data, version.schema)) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Infer and register a new schema.
+     * <p>
+     * The fingerprint doesn't cover the properties (original names and string types), so if a different schema with
+     * the same fingerprint is already registered, the record is renamed.
+     */
+    private Version infer(String type, Map<?, ?> data) {
+        String name = type;
+        for (int i = 1; ; i++) {
+            Schema schema = SchemaInference.infer(name, data);
+            long fingerprint = fingerprint(schema);
+            Schema existing = schema(fingerprint);
+            if (existing == null) {
+                register(fingerprint, schema);
+                return new Version(schema, fingerprint);
+            }
+            if (existing.toString().equals(schema.toString())) {
+                return new Version(existing, fingerprint);
+            }
+            name = type + "_" + i;
+        }
+    }
+
+    /**
+     * @return the schema with the given fingerprint, {@code null} if not found.
+     */
+    Schema schema(long fingerprint) {
+        Schema schema = schemas.get(fingerprint);
+        File file = file(fingerprint);
+        if (schema == null && file != null && file.isFile()) {
+            try {
+                schema = new Schema.Parser().parse(file);
+                if (fingerprint(schema) == fingerprint) {
+                    schemas.put(fingerprint, schema);
+                } else {
+                    LOGGER.warn("Schema {} doesn't match its fingerprint", file);
+                    schema = null;
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Can't read schema {}", file, e);
+                schema = null;
+            }
+        }
+        return schema;
+    }
+
+    private void register(long fingerprint, Schema schema) {
+        schemas.put(fingerprint, schema);
+        File file = file(fingerprint);
+        if (file != null && !file.exists()) {
+            try {
+                file.getParentFile().mkdirs();
+                File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+                Files.write(tmp.toPath(), schema.toString(true).getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                LOGGER.warn("Can't store schema {}", file, e);
+            }
+        }
+    }
+
+    private File file(long fingerprint) {
+        File dir = directory;
+        return (dir != null) ? new File(dir, String.format("%016x.avsc", fingerprint)) : null;
+    }
+
+    static long fingerprint(Schema schema) {
+        return SchemaNormalization.parsingFingerprint64(schema);
+    }
+
+}
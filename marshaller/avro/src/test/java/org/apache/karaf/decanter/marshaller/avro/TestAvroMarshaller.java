@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.avro;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+
+public class TestAvroMarshaller {
+
+    private static final long EXPECTED_TIMESTAMP = 1454428780634L;
+
+    @Test
+    public void testRoundTrip() {
+        SchemaRegistry registry = new SchemaRegistry();
+        AvroMarshaller marshaller = new AvroMarshaller();
+        marshaller.registry = registry;
+        AvroUnmarshaller unmarshaller = new AvroUnmarshaller();
+        unmarshaller.registry = registry;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshal(prepareTestEvent(), out);
+        byte[] bytes = out.toByteArray();
+        Assert.assertEquals((byte) 0xC3, bytes[0]);
+        Assert.assertEquals((byte) 0x01, bytes[1]);
+        Assert.assertTrue(marshaller.isBinary());
+        Assert.assertArrayEquals(bytes, marshaller.marshalBytes(prepareTestEvent()));
+
+        Map<String, Object> result = unmarshaller.unmarshal(new ByteArrayInputStream(bytes));
+        Assert.assertEquals("decanter/collect/test", result.get(EventConstants.EVENT_TOPIC));
+        Assert.assertEquals(EXPECTED_TIMESTAMP, result.get(EventConstants.TIMESTAMP));
+        Assert.assertEquals("test", result.get("type"));
+        Assert.assertEquals(42, result.get("heap.used"));
+        Assert.assertEquals(0.25d, result.get("@load"));
+        Assert.assertEquals(new BigDecimal("3.14159265358979323846"), result.get("decimal"));
+        Assert.assertEquals(new BigInteger("123456789012345678901234567890"), result.get("integer"));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), result.get("longs"));
+        Assert.assertArrayEquals(new byte[]{ 1, 2, 3 }, (byte[]) result.get("bytes"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> nested = (Map<String, Object>) result.get("nested");
+        Assert.assertEquals("value", nested.get("key"));
+        Assert.assertEquals(Arrays.asList("a", "1", null), nested.get("mixed"));
+
+        // Base64 encoded
+        Map<String, Object> decoded = unmarshaller.unmarshal(new ByteArrayInputStream((marshaller.marshal(prepareTestEvent()) + "\n").getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertArrayEquals((byte[]) result.remove("bytes"), (byte[]) decoded.remove("bytes"));
+        Assert.assertEquals(result, decoded);
+    }
+
+    @Test
+    public void testVersions() {
+        SchemaRegistry registry = new SchemaRegistry();
+        AvroMarshaller marshaller = new AvroMarshaller();
+        marshaller.registry = registry;
+        AvroUnmarshaller unmarshaller = new AvroUnmarshaller();
+        unmarshaller.registry = registry;
+
+        Map<String, Object> first = new HashMap<>();
+        first.put("type", "test");
+        first.put("value", 1L);
+        Map<String, Object> second = new HashMap<>(first);
+        second.put("other", "text");
+        Map<String, Object> third = new HashMap<>();
+        third.put("type", "test");
+        third.put("value", new BigDecimal("1.5"));
+        Map<String, Object> fourth = new HashMap<>();
+        fourth.put("type", "test");
+        fourth.put("value", "1.5");
+
+        byte[] firstBytes = marshal(marshaller, first);
+        // the first version fits (all fields are nullable)
+        Assert.assertArrayEquals(Arrays.copyOf(firstBytes, 10), Arrays.copyOf(marshal(marshaller, Collections.singletonMap("type", "test")), 10));
+        byte[] secondBytes = marshal(marshaller, second);
+        // the latest version fitting the data is used
+        Assert.assertArrayEquals(Arrays.copyOf(secondBytes, 10), Arrays.copyOf(marshal(marshaller, first), 10));
+        Assert.assertFalse(Arrays.equals(Arrays.copyOf(firstBytes, 10), Arrays.copyOf(secondBytes, 10)));
+        // same canonical form, but different string types
+        byte[] thirdBytes = marshal(marshaller, third);
+        byte[] fourthBytes = marshal(marshaller, fourth);
+        Assert.assertFalse(Arrays.equals(Arrays.copyOf(thirdBytes, 10), Arrays.copyOf(fourthBytes, 10)));
+
+        Assert.assertEquals(first, unmarshaller.unmarshal(new ByteArrayInputStream(firstBytes)));
+        Assert.assertEquals(second, unmarshaller.unmarshal(new ByteArrayInputStream(secondBytes)));
+        Assert.assertEquals(third, unmarshaller.unmarshal(new ByteArrayInputStream(thirdBytes)));
+        Assert.assertEquals(fourth, unmarshaller.unmarshal(new ByteArrayInputStream(fourthBytes)));
+    }
+
+    @Test
+    public void testSchemasDirectory() throws Exception {
+        File directory = Files.createTempDirectory("decanter-avro").toFile();
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(AvroMarshaller.SCHEMAS_DIRECTORY, directory.getAbsolutePath());
+
+        AvroMarshaller marshaller = new AvroMarshaller();
+        marshaller.registry = new SchemaRegistry();
+        marshaller.activate(config);
+        byte[] bytes = marshal(marshaller, prepareTestEvent());
+        File[] files = directory.listFiles();
+        Assert.assertEquals(1, files.length);
+        Assert.assertTrue(files[0].getName().endsWith(".avsc"));
+
+        // another Decanter instance
+        AvroUnmarshaller unmarshaller = new AvroUnmarshaller();
+        unmarshaller.registry = new SchemaRegistry();
+        unmarshaller.activate(config);
+        Map<String, Object> result = unmarshaller.unmarshal(new ByteArrayInputStream(bytes));
+        Assert.assertEquals(42, result.get("heap.used"));
+
+        files[0].delete();
+        directory.delete();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownSchema() {
+        AvroMarshaller marshaller = new AvroMarshaller();
+        marshaller.registry = new SchemaRegistry();
+        AvroUnmarshaller unmarshaller = new AvroUnmarshaller();
+        unmarshaller.registry = new SchemaRegistry();
+        unmarshaller.unmarshal(new ByteArrayInputStream(marshal(marshaller, prepareTestEvent())));
+    }
+
+    private byte[] marshal(AvroMarshaller marshaller, Object data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshal(data, out);
+        return out.toByteArray();
+    }
+
+    private Event prepareTestEvent() {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("key", "value");
+        List<Object> mixed = Arrays.asList("a", 1, null);
+        nested.put("mixed", mixed);
+        Map<String, Object> props = new HashMap<>();
+        props.put(EventConstants.TIMESTAMP, EXPECTED_TIMESTAMP);
+        props.put("type", "test");
+        props.put("heap.used", 42);
+        props.put("@load", 0.25d);
+        props.put("decimal", new BigDecimal("3.14159265358979323846"));
+        props.put("integer", new BigInteger("123456789012345678901234567890"));
+        props.put("longs", new long[]{ 1, 2, 3 });
+        props.put("bytes", new byte[]{ 1, 2, 3 });
+        props.put("nested", nested);
+        return new Event("decanter/collect/test", props);
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.binary;
+
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.osgi.service.event.Event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base of the binary marshallers.
+ * <p>
+ * {@link #marshal(Object, OutputStream)} and {@link #marshalBytes(Object)} write the binary document, used by the
+ * appenders with binary payloads (Kafka, JMS, MQTT). As {@link #marshal(Object)} has to return a {@link String} (used
+ * by the text based appenders, as the socket lines), the binary document is encoded in Base64 there. The binary
+ * unmarshallers accept both.
+ */
+abstract class BinaryMarshaller implements Marshaller {
+
+    /**
+     * Extension type used by the formats without decimal number support.
+     */
+    static final byte BIG_DECIMAL_TYPE = 1;
+
+    /**
+     * Extension type used by the formats without big integer support.
+     */
+    static final byte BIG_INTEGER_TYPE = 2;
+
+    @Override
+    public void marshal(Object obj, OutputStream out) {
+        try {
+            write(properties(obj), out);
+        } catch (IOException e) {
+            // the appender handles the failure (retry, dead letter)
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String marshal(Object obj) {
+        return Base64.getEncoder().encodeToString(marshalBytes(obj));
+    }
+
+    @Override
+    public byte[] marshalBytes(Object obj) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        marshal(obj, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public boolean isBinary() {
+        return true;
+    }
+
+    /**
+     * Write the data as a binary document. The output stream is flushed but not closed.
+     */
+    abstract void write(Map<?, ?> data, OutputStream out) throws IOException;
+
+    @SuppressWarnings("unchecked")
+    private Map<?, ?> properties(Object obj) {
+        if (obj instanceof Map) {
+            return (Map<String, Object>) obj;
+        }
+        Event event = (Event) obj;
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (String name : event.getPropertyNames()) {
+            data.put(name, event.getProperty(name));
+        }
+        return data;
+    }
+
+}
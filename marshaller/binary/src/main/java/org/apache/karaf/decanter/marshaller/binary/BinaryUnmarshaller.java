@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.binary;
+
+import org.apache.karaf.decanter.api.marshaller.Unmarshaller;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Base of the binary unmarshallers, reading a binary document or its Base64 encoding (as produced by
+ * {@link BinaryMarshaller#marshal(Object)}).
+ * <p>
+ * A binary document starts with a map marker (which is not a Base64 character, as the Smile header), so the
+ * encoding is detected with the first byte.
+ */
+abstract class BinaryUnmarshaller implements Unmarshaller {
+
+    @Override
+    public Map<String, Object> unmarshal(InputStream in) {
+        try {
+            InputStream input = in.markSupported() ? in : new BufferedInputStream(in);
+            input.mark(1);
+            int first = input.read();
+            input.reset();
+            if (isBase64(first)) {
+                input = Base64.getMimeDecoder().wrap(input);
+            }
+            return read(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't unmarshal", e);
+        }
+    }
+
+    /**
+     * Read a binary document, the root value has to be a map.
+     */
+    abstract Map<String, Object> read(InputStream in) throws IOException;
+
+    private static boolean isBase64(int b) {
+        return (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '+' || b == '/';
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.binary;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary unmarshaller using a Jackson streaming data format (CBOR, Smile).
+ * <p>
+ * As with the JSON unmarshaller, the integer numbers are read as {@link Long} (or {@link java.math.BigInteger} when
+ * they don't fit), the floating numbers keep their encoding ({@link Float}, {@link Double} or
+ * {@link java.math.BigDecimal}).
+ */
+abstract class JacksonUnmarshaller extends BinaryUnmarshaller {
+
+    private final JsonFactory factory;
+
+    JacksonUnmarshaller(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    Map<String, Object> read(InputStream in) throws IOException {
+        try (JsonParser parser = factory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a map, got " + parser.currentToken());
+            }
+            return readMap(parser);
+        }
+    }
+
+    private Map<String, Object> readMap(JsonParser parser) throws IOException {
+        Map<String, Object> map = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            map.put(name, readValue(parser));
+        }
+        return map;
+    }
+
+    private Object readValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            throw new IOException("Unexpected end of document");
+        }
+        switch (token) {
+            case START_OBJECT:
+                return readMap(parser);
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) ? parser.getBigIntegerValue() : parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                switch (parser.getNumberType()) {
+                    case FLOAT:
+                        return parser.getFloatValue();
+                    case BIG_DECIMAL:
+                        return parser.getDecimalValue();
+                    default:
+                        return parser.getDoubleValue();
+                }
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Unexpected token " + token);
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.binary;
+
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePacker;
+import org.osgi.service.component.annotations.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * MessagePack marshaller. The {@link BigDecimal} values (and the {@link BigInteger} values larger than 64 bits) are
+ * written as extension types containing the decimal representation.
+ */
+@Component(immediate = true, property = Marshaller.SERVICE_KEY_DATAFORMAT + "=msgpack")
+public class MsgPackMarshaller extends BinaryMarshaller {
+
+    @Override
+    void write(Map<?, ?> data, OutputStream out) throws IOException {
+        MessagePacker packer = MessagePack.newDefaultPacker(out);
+        writeValue(packer, data);
+        packer.flush();
+    }
+
+    private void writeValue(MessagePacker packer, Object value) throws IOException {
+        if (value == null) {
+            packer.packNil();
+        } else if (value instanceof String) {
+            packer.packString((String) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            packer.packLong(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            packer.packDouble((Double) value);
+        } else if (value instanceof Float) {
+            packer.packFloat((Float) value);
+        } else if (value instanceof BigInteger) {
+            BigInteger bigInteger = (BigInteger) value;
+            // MessagePack integers are signed 64 bits or unsigned 64 bits
+            if (bigInteger.bitLength() < 64 || (bigInteger.signum() > 0 && bigInteger.bitLength() == 64)) {
+                packer.packBigInteger(bigInteger);
+            } else {
+                writeExtension(packer, BIG_INTEGER_TYPE, bigInteger.toString());
+            }
+        } else if (value instanceof BigDecimal) {
+            writeExtension(packer, BIG_DECIMAL_TYPE, value.toString());
+        } else if (value instanceof Boolean) {
+            packer.packBoolean((Boolean) value);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            packer.packMapHeader(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                packer.packString(String.valueOf(entry.getKey()));
+                writeValue(packer, entry.getValue());
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            packer.packArrayHeader(collection.size());
+            for (Object item : collection) {
+                writeValue(packer, item);
+            }
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            packer.packArrayHeader(array.length);
+            for (Object item : array) {
+                writeValue(packer, item);
+            }
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            packer.packBinaryHeader(bytes.length);
+            packer.writePayload(bytes);
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            packer.packArrayHeader(array.length);
+            for (long item : array) {
+                packer.packLong(item);
+            }
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            packer.packArrayHeader(array.length);
+            for (int item : array) {
+                packer.packInt(item);
+            }
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            packer.packArrayHeader(array.length);
+            for (double item : array) {
+                packer.packDouble(item);
+            }
+        } else {
+            packer.packString(value.toString());
+        }
+    }
+
+    private void writeExtension(MessagePacker packer, byte type, String value) throws IOException {
+        byte[] payload = value.getBytes(StandardCharsets.US_ASCII);
+        packer.packExtensionTypeHeader(type, payload.length);
+        packer.writePayload(payload);
+    }
+
+}
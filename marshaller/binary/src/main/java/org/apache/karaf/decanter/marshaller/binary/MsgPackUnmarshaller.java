@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.binary;
+
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.msgpack.core.ExtensionTypeHeader;
+import org.msgpack.core.MessageFormat;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+import org.msgpack.value.ValueType;
+import org.osgi.service.component.annotations.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MessagePack unmarshaller. As with the JSON unmarshaller, the integer numbers are read as {@link Long} (or
+ * {@link BigInteger} when they don't fit), the floating numbers keep their encoding ({@link Float} or {@link Double}).
+ */
+@Component(immediate = true, property = Marshaller.SERVICE_KEY_DATAFORMAT + "=msgpack")
+public class MsgPackUnmarshaller extends BinaryUnmarshaller {
+
+    @Override
+    Map<String, Object> read(InputStream in) throws IOException {
+        try (MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(in)) {
+            if (!unpacker.hasNext() || unpacker.getNextFormat().getValueType() != ValueType.MAP) {
+                throw new IllegalArgumentException("Expected a map");
+            }
+            return readMap(unpacker);
+        }
+    }
+
+    private Map<String, Object> readMap(MessageUnpacker unpacker) throws IOException {
+        int size = unpacker.unpackMapHeader();
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(String.valueOf(readValue(unpacker)), readValue(unpacker));
+        }
+        return map;
+    }
+
+    private Object readValue(MessageUnpacker unpacker) throws IOException {
+        MessageFormat format = unpacker.getNextFormat();
+        switch (format.getValueType()) {
+            case NIL:
+                unpacker.unpackNil();
+                return null;
+            case BOOLEAN:
+                return unpacker.unpackBoolean();
+            case INTEGER:
+                if (format == MessageFormat.UINT64) {
+                    BigInteger value = unpacker.unpackBigInteger();
+                    return (value.bitLength() < 64) ? (Object) value.longValue() : value;
+                }
+                return unpacker.unpackLong();
+            case FLOAT:
+                return (format == MessageFormat.FLOAT32) ? (Object) unpacker.unpackFloat() : (Object) unpacker.unpackDouble();
+            case STRING:
+                return unpacker.unpackString();
+            case BINARY:
+                return unpacker.readPayload(unpacker.unpackBinaryHeader());
+            case ARRAY:
+                int size = unpacker.unpackArrayHeader();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(unpacker));
+                }
+                return list;
+            case MAP:
+                return readMap(unpacker);
+            case EXTENSION:
+                ExtensionTypeHeader header = unpacker.unpackExtensionTypeHeader();
+                byte[] payload = unpacker.readPayload(header.getLength());
+                if (header.getType() == BinaryMarshaller.BIG_DECIMAL_TYPE) {
+                    return new BigDecimal(new String(payload, StandardCharsets.US_ASCII));
+                } else if (header.getType() == BinaryMarshaller.BIG_INTEGER_TYPE) {
+                    return new BigInteger(new String(payload, StandardCharsets.US_ASCII));
+                }
+                return payload;
+            default:
+                throw new IOException("Unexpected format " + format);
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.apache.karaf.decanter.api.marshaller.Unmarshaller;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+
+public class TestBinaryMarshaller {
+
+    private static final long EXPECTED_TIMESTAMP = 1454428780634L;
+
+    @Test
+    public void testCbor() {
+        testRoundTrip(new CborMarshaller(), new CborUnmarshaller());
+    }
+
+    @Test
+    public void testSmile() {
+        testRoundTrip(new SmileMarshaller(), new SmileUnmarshaller());
+    }
+
+    @Test
+    public void testMsgPack() {
+        testRoundTrip(new MsgPackMarshaller(), new MsgPackUnmarshaller());
+    }
+
+    @Test
+    public void testBigNumbers() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("decimal", new BigDecimal("3.14159265358979323846264338327950288"));
+        data.put("integer", new BigInteger("123456789012345678901234567890"));
+        data.put("unsigned", BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE));
+        data.put("float", 1.5f);
+        for (Marshaller marshaller : Arrays.asList(new CborMarshaller(), new SmileMarshaller(), new MsgPackMarshaller())) {
+            Map<String, Object> result = unmarshaller(marshaller).unmarshal(new ByteArrayInputStream(marshaller.marshal(data).getBytes(StandardCharsets.US_ASCII)));
+            Assert.assertEquals(data, result);
+        }
+    }
+
+    @Test
+    public void testBase64() {
+        Marshaller marshaller = new CborMarshaller();
+        Event event = prepareTestEvent();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshal(event, out);
+        String encoded = marshaller.marshal(event);
+        Assert.assertEquals(Base64.getEncoder().encodeToString(out.toByteArray()), encoded);
+        // the appenders with binary payloads send the binary document
+        Assert.assertTrue(marshaller.isBinary());
+        Assert.assertArrayEquals(out.toByteArray(), marshaller.marshalBytes(event));
+        // line oriented transports add a line separator
+        Map<String, Object> result = new CborUnmarshaller().unmarshal(new ByteArrayInputStream((encoded + "\r\n").getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertEquals("decanter/collect/test", result.get(EventConstants.EVENT_TOPIC));
+    }
+
+    @Test
+    public void testWriteFailure() {
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Connection reset");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        for (Marshaller marshaller : Arrays.asList(new CborMarshaller(), new SmileMarshaller(), new MsgPackMarshaller())) {
+            try {
+                marshaller.marshal(prepareTestEvent(), failing);
+                Assert.fail("UncheckedIOException expected");
+            } catch (UncheckedIOException e) {
+                Assert.assertEquals("Connection reset", e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAMap() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new MsgPackMarshaller().marshal(new HashMap<>(), out);
+        byte[] bytes = out.toByteArray();
+        // fixmap marker replaced by a fixarray marker
+        bytes[0] = (byte) 0x90;
+        new MsgPackUnmarshaller().unmarshal(new ByteArrayInputStream(bytes));
+    }
+
+    private void testRoundTrip(Marshaller marshaller, Unmarshaller unmarshaller) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshal(prepareTestEvent(), out);
+        Map<String, Object> result = unmarshaller.unmarshal(new ByteArrayInputStream(out.toByteArray()));
+
+        Assert.assertEquals("decanter/collect/test", result.get(EventConstants.EVENT_TOPIC));
+        Assert.assertEquals(EXPECTED_TIMESTAMP, result.get(EventConstants.TIMESTAMP));
+        Assert.assertEquals("Hello", result.get("string"));
+        Assert.assertEquals(42L, result.get("int"));
+        Assert.assertEquals(0.25d, result.get("double"));
+        Assert.assertEquals(Boolean.TRUE, result.get("boolean"));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L), result.get("longs"));
+        Assert.assertArrayEquals(new byte[]{ 1, 2, 3 }, (byte[]) result.get("bytes"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> nested = (Map<String, Object>) result.get("nested");
+        Assert.assertEquals("value", nested.get("key"));
+        @SuppressWarnings("unchecked")
+        List<Object> list = (List<Object>) nested.get("list");
+        Assert.assertEquals(Arrays.asList("a", 1L, null), list);
+
+        // the binary document is smaller than the Base64 encoded one
+        Assert.assertTrue(out.size() < marshaller.marshal(prepareTestEvent()).length());
+    }
+
+    private Unmarshaller unmarshaller(Marshaller marshaller) {
+        if (marshaller instanceof CborMarshaller) {
+            return new CborUnmarshaller();
+        } else if (marshaller instanceof SmileMarshaller) {
+            return new SmileUnmarshaller();
+        }
+        return new MsgPackUnmarshaller();
+    }
+
+    private Event prepareTestEvent() {
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("key", "value");
+        nested.put("list", Arrays.asList("a", 1, null));
+        Map<String, Object> props = new HashMap<>();
+        props.put(EventConstants.TIMESTAMP, EXPECTED_TIMESTAMP);
+        props.put("string", "Hello");
+        props.put("int", 42);
+        props.put("double", 0.25d);
+        props.put("boolean", true);
+        props.put("longs", new long[]{ 1, 2, 3 });
+        props.put("bytes", new byte[]{ 1, 2, 3 });
+        props.put("nested", nested);
+        return new Event("decanter/collect/test", props);
+    }
+
+}
@@ -16,18 +16,38 @@
  */
 package org.apache.karaf.decanter.marshaller.csv;
 
+import org.apache.karaf.decanter.api.marshaller.MarshalledEventCache;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.event.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Dictionary;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
+/**
+ * CSV marshaller.
+ * <p>
+ * By default, an event is marshalled as {@code name=value} pairs. When {@code columns} is defined, an event is
+ * marshalled as a CSV record: the values of the columns, in the columns order, quoted as defined by RFC 4180. The
+ * header (the columns) is provided by {@link #header()}, unless {@code header=false}: the appenders write it once, at
+ * the beginning of their output (a batch starts with its own header).
+ */
 @Component(
         name = "org.apache.karaf.decanter.marshaller.csv",
         immediate = true,
@@ -38,40 +58,202 @@ public class CsvMarshaller implements Marshaller {
     private final static Logger LOGGER = LoggerFactory.getLogger(CsvMarshaller.class);
 
     private String separator = ",";
+    private List<String> columns;
+    private boolean header = true;
+    private MarshalledEventCache cache = new MarshalledEventCache(MarshalledEventCache.DEFAULT_SIZE);
 
     @Activate
     public void activate(ComponentContext componentContext) {
-        Dictionary<String, Object> config = componentContext.getProperties();
+        activate(componentContext.getProperties());
+        cache.register("csv");
+    }
+
+    public void activate(Dictionary<String, Object> config) {
         separator = (config.get("separator") != null) ? (String) config.get("separator") : ",";
+        columns = (config.get("columns") != null) ? CsvReader.columns((String) config.get("columns")) : null;
+        header = (config.get("header") != null) ? Boolean.parseBoolean((String) config.get("header")) : true;
+        cache.unregister();
+        cache = new MarshalledEventCache((config.get(MarshalledEventCache.SIZE_CONFIG) != null) ?
+                Integer.parseInt((String) config.get(MarshalledEventCache.SIZE_CONFIG)) : MarshalledEventCache.DEFAULT_SIZE);
+    }
+
+    @Deactivate
+    public void deactivate() {
+        cache.unregister();
     }
 
     @Override
     public void marshal(Object obj, OutputStream out) {
-        String result = marshal(obj);
-        OutputStreamWriter writer = new OutputStreamWriter(out);
         try {
-            writer.write(result);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (columns != null) {
+                write((Event) obj, writer);
+                writer.write('\n');
+            } else {
+                write((Event) obj, writer);
+            }
+            writer.flush();
         } catch (Exception e) {
             LOGGER.warn("Can't marshal on the output stream", e);
         }
     }
 
+    /**
+     * @return the columns line (without line break), or {@code null} without columns or with {@code header=false}.
+     */
+    @Override
+    public String header() {
+        if (columns == null || !header) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeLine(columns, builder);
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return builder.substring(0, builder.length() - 1);
+    }
+
+    /**
+     * Marshal the event, using the marshalled event from the cache if another appender already marshalled it.
+     */
     @Override
     public String marshal(Object obj) {
-        return marshal((Event) obj);
+        return cache.get((Event) obj, this::marshal);
     }
 
     private String marshal(Event event) {
         StringBuilder builder = new StringBuilder();
+        try {
+            write(event, builder);
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    private void write(Event event, Appendable out) throws IOException {
+        boolean first = true;
+        if (columns != null) {
+            for (String column : columns) {
+                if (!first) {
+                    out.append(separator);
+                }
+                first = false;
+                Object propertyValue = event.getProperty(column);
+                if (propertyValue != null) {
+                    writeValue(propertyValue.toString(), out);
+                }
+            }
+            return;
+        }
         for (String propertyName : event.getPropertyNames()) {
             Object propertyValue = event.getProperty(propertyName);
             if (propertyValue != null) {
-                builder.append(propertyName).append("=").append(propertyValue.toString()).append(separator);
+                if (!first) {
+                    out.append(separator);
+                }
+                first = false;
+                out.append(propertyName).append('=').append(propertyValue.toString());
+            }
+        }
+    }
+
+    /**
+     * Marshal the events as a CSV block: a header line with the names of the properties (or the columns), then a
+     * line per event.
+     */
+    @Override
+    public void marshalBatch(Collection<?> objs, OutputStream out) {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writeBatch(objs, writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String marshalBatch(Collection<?> objs) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeBatch(objs, builder);
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    private void writeBatch(Collection<?> objs, Appendable out) throws IOException {
+        if (columns != null) {
+            if (header) {
+                writeLine(columns, out);
+            }
+            for (Object obj : objs) {
+                write((Event) obj, out);
+                out.append('\n');
+            }
+            return;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (Object obj : objs) {
+            Collections.addAll(names, ((Event) obj).getPropertyNames());
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+        writeLine(names, out);
+        for (Object obj : objs) {
+            Event event = (Event) obj;
+            boolean first = true;
+            for (String propertyName : names) {
+                if (!first) {
+                    out.append(separator);
+                }
+                first = false;
+                Object propertyValue = event.getProperty(propertyName);
+                if (propertyValue != null) {
+                    writeValue(propertyValue.toString(), out);
+                }
+            }
+            out.append('\n');
+        }
+    }
+
+    private void writeLine(Collection<String> values, Appendable out) throws IOException {
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                out.append(separator);
+            }
+            first = false;
+            writeValue(value, out);
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Write a value, quoted when it contains the separator, a quote or a line break (RFC 4180).
+     */
+    private void writeValue(String value, Appendable out) throws IOException {
+        if (value.contains(separator) || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
             }
+            out.append('"');
+        } else {
+            out.append(value);
         }
-        String result = builder.toString();
-        result = result.substring(0, result.length() - 1);
-        return result;
     }
 
 }
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reader of CSV records (RFC 4180): the quoted values can contain the separator, line breaks and (doubled) quotes.
+ */
+final class CsvReader {
+
+    private final Reader in;
+    private final char separator;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private final StringBuilder value = new StringBuilder();
+
+    CsvReader(Reader in, char separator) {
+        this.in = in;
+        this.separator = separator;
+        this.buffer = new char[8192];
+    }
+
+    /**
+     * Reader of the records of a string.
+     */
+    CsvReader(String text, char separator) {
+        this.in = null;
+        this.separator = separator;
+        this.buffer = text.toCharArray();
+        this.limit = buffer.length;
+    }
+
+    /**
+     * @return the values of the next record, or {@code null} at the end of the stream.
+     */
+    List<String> next() {
+        // skip the empty lines
+        int c;
+        while ((c = peek()) == '\n' || c == '\r') {
+            position++;
+        }
+        if (c < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        while (true) {
+            values.add(readValue());
+            c = peek();
+            if (c == separator) {
+                position++;
+            } else {
+                // end of line (or stream)
+                if (c == '\r') {
+                    position++;
+                    if (peek() == '\n') {
+                        position++;
+                    }
+                } else if (c == '\n') {
+                    position++;
+                }
+                return values;
+            }
+        }
+    }
+
+    private String readValue() {
+        value.setLength(0);
+        int c = peek();
+        if (c != '"') {
+            int start = position;
+            // fast path: the value is in the buffer
+            while (position < limit) {
+                char ch = buffer[position];
+                if (ch == separator || ch == '\n' || ch == '\r') {
+                    return new String(buffer, start, position - start);
+                }
+                position++;
+            }
+            value.append(buffer, start, position - start);
+            while ((c = peek()) >= 0 && c != separator && c != '\n' && c != '\r') {
+                value.append((char) c);
+                position++;
+            }
+            return value.toString();
+        }
+        position++;
+        while ((c = peek()) >= 0) {
+            position++;
+            if (c == '"') {
+                if (peek() != '"') {
+                    break;
+                }
+                position++;
+            }
+            value.append((char) c);
+        }
+        // characters between the closing quote and the separator are kept
+        while ((c = peek()) >= 0 && c != separator && c != '\n' && c != '\r') {
+            value.append((char) c);
+            position++;
+        }
+        return value.toString();
+    }
+
+    private int peek() {
+        if (position >= limit) {
+            if (in == null) {
+                return -1;
+            }
+            try {
+                limit = in.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    /**
+     * Parse the {@code columns} configuration (comma separated names).
+     */
+    static List<String> columns(String columns) {
+        List<String> list = new ArrayList<>();
+        for (String column : columns.split(",")) {
+            if (!column.trim().isEmpty()) {
+                list.add(column.trim());
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.csv;
+
+import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.apache.karaf.decanter.api.marshaller.Unmarshaller;
+import org.apache.karaf.decanter.api.parser.Parser;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * CSV unmarshaller, using the CSV marshaller configuration.
+ * <p>
+ * When {@code columns} is defined, a record contains the values of the columns. The first record of a stream is the
+ * header, skipped when {@code header=true} (default). Without {@code columns}, a record contains {@code name=value}
+ * pairs. The unmarshaller is also a parser ({@code parserId=csv}), parsing a line as a record (for instance for the
+ * file collector).
+ */
+@Component(
+        name = "org.apache.karaf.decanter.unmarshaller.csv",
+        configurationPid = "org.apache.karaf.decanter.marshaller.csv",
+        service = { Unmarshaller.class, Parser.class },
+        immediate = true,
+        property = { Marshaller.SERVICE_KEY_DATAFORMAT + "=csv", Parser.SERVICE_KEY_ID + "=csv" }
+)
+public class CsvUnmarshaller implements Unmarshaller, Parser {
+
+    private char separator = ',';
+    private List<String> columns;
+    private boolean header = true;
+
+    @Activate
+    public void activate(ComponentContext componentContext) {
+        activate(componentContext.getProperties());
+    }
+
+    public void activate(Dictionary<String, Object> config) {
+        String separator = (config.get("separator") != null) ? (String) config.get("separator") : ",";
+        if (separator.length() != 1) {
+            throw new IllegalArgumentException("The CSV separator must be a single character");
+        }
+        this.separator = separator.charAt(0);
+        columns = (config.get("columns") != null) ? CsvReader.columns((String) config.get("columns")) : null;
+        header = (config.get("header") != null) ? Boolean.parseBoolean((String) config.get("header")) : true;
+    }
+
+    /**
+     * Unmarshal the first record of the stream.
+     */
+    @Override
+    public Map<String, Object> unmarshal(InputStream in) {
+        List<String> values = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8), separator).next();
+        return (values != null) ? toMap(values) : new HashMap<>();
+    }
+
+    /**
+     * Unmarshal the records of the stream, one at a time (skipping the header).
+     */
+    @Override
+    public Iterator<Map<String, Object>> unmarshalAll(InputStream in) {
+        CsvReader reader = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8), separator);
+        return new Iterator<Map<String, Object>>() {
+            private boolean first = true;
+            private List<String> next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = reader.next();
+                    if (first && next != null && columns != null && header) {
+                        next = reader.next();
+                    }
+                    first = false;
+                }
+                return next != null;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map<String, Object> map = toMap(next);
+                next = null;
+                return map;
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Object> parse(String key, String line) {
+        if (line == null) {
+            return null;
+        }
+        List<String> values = new CsvReader(line, separator).next();
+        return (values != null) ? toMap(values) : new HashMap<>();
+    }
+
+    private Map<String, Object> toMap(List<String> values) {
+        Map<String, Object> map = new HashMap<>();
+        if (columns != null) {
+            for (int i = 0; i < values.size() && i < columns.size(); i++) {
+                if (!values.get(i).isEmpty()) {
+                    map.put(columns.get(i), values.get(i));
+                }
+            }
+        } else {
+            for (String value : values) {
+                int index = value.indexOf('=');
+                if (index > 0) {
+                    map.put(value.substring(0, index), value.substring(index + 1));
+                }
+            }
+        }
+        return map;
+    }
+
+}
@@ -22,8 +22,15 @@ import org.junit.Test;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventConstants;
 
+import java.io.ByteArrayOutputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class TestCsvMarshaller {
@@ -60,4 +67,50 @@ public class TestCsvMarshaller {
         Assert.assertEquals("test=test,inner={other=other},timestamp=1454428780634,event.topics=testTopic", marshalled);
     }
 
+    @Test
+    public void testMarshalBatch() throws Exception {
+        Marshaller marshaller = new CsvMarshaller();
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", "b");
+        first.put("c", "d,e");
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("a", "say \"hello\"");
+        second.put("f", 1);
+        List<Event> events = Arrays.asList(new Event(EXPECTED_TOPIC, first), new Event(EXPECTED_TOPIC, second));
+
+        String expected = "a,c,event.topics,f\n"
+                + "b,\"d,e\",testTopic,\n"
+                + "\"say \"\"hello\"\"\",,testTopic,1\n";
+        Assert.assertEquals(expected, marshaller.marshalBatch(events));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshalBatch(events, out);
+        Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testColumns() throws Exception {
+        CsvMarshaller marshaller = new CsvMarshaller();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("columns", "id, message, missing");
+        marshaller.activate(config);
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", 1);
+        map.put("message", "a \"quoted\", multi\nline message");
+        map.put("other", "ignored");
+        Event event = new Event(EXPECTED_TOPIC, map);
+        Assert.assertEquals("1,\"a \"\"quoted\"\", multi\nline message\",", marshaller.marshal(event));
+
+        // the header is written by the appenders, a batch starts with the header
+        Assert.assertEquals("id,message,missing", marshaller.header());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshal(event, out);
+        marshaller.marshal(event, out);
+        String records = "1,\"a \"\"quoted\"\", multi\nline message\",\n"
+                + "1,\"a \"\"quoted\"\", multi\nline message\",\n";
+        Assert.assertEquals(records, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals("id,message,missing\n" + records, marshaller.marshalBatch(Arrays.asList(event, event)));
+    }
+
 }
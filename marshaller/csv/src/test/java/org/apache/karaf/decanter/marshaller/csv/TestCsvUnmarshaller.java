@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.marshaller.csv;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+public class TestCsvUnmarshaller {
+
+    @Test
+    public void testPairs() {
+        CsvUnmarshaller unmarshaller = new CsvUnmarshaller();
+        unmarshaller.activate(new Hashtable<>());
+        Map<String, Object> map = unmarshaller.unmarshal(new ByteArrayInputStream("a=b,c=d=e,f=".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(3, map.size());
+        Assert.assertEquals("b", map.get("a"));
+        Assert.assertEquals("d=e", map.get("c"));
+        Assert.assertEquals("", map.get("f"));
+    }
+
+    @Test
+    public void testColumns() {
+        CsvUnmarshaller unmarshaller = new CsvUnmarshaller();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("columns", "id,message,level");
+        config.put("separator", ";");
+        unmarshaller.activate(config);
+
+        String csv = "id;message;level\r\n"
+                + "1;\"a \"\"quoted\"\"; multi\r\nline message\";INFO\r\n"
+                + "\r\n"
+                + "2;;WARN";
+        List<Map<String, Object>> maps = new ArrayList<>();
+        unmarshaller.unmarshalAll(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))).forEachRemaining(maps::add);
+        Assert.assertEquals(2, maps.size());
+        Assert.assertEquals("1", maps.get(0).get("id"));
+        Assert.assertEquals("a \"quoted\"; multi\r\nline message", maps.get(0).get("message"));
+        Assert.assertEquals("INFO", maps.get(0).get("level"));
+        Assert.assertEquals("2", maps.get(1).get("id"));
+        Assert.assertFalse(maps.get(1).containsKey("message"));
+        Assert.assertEquals("WARN", maps.get(1).get("level"));
+
+        Map<String, Object> parsed = unmarshaller.parse("line", "3;\"x;y\";ERROR");
+        Assert.assertEquals("x;y", parsed.get("message"));
+        Assert.assertEquals("ERROR", parsed.get("level"));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("columns", "id,message");
+        CsvMarshaller marshaller = new CsvMarshaller();
+        marshaller.activate(config);
+        CsvUnmarshaller unmarshaller = new CsvUnmarshaller();
+        unmarshaller.activate(config);
+
+        List<Event> events = new ArrayList<>();
+        for (String message : Arrays.asList("simple", "with, comma", "with \"quotes\"", "multi\nline")) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("id", events.size());
+            map.put("message", message);
+            events.add(new Event("decanter/collect/test", map));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshalBatch(events, out);
+        List<Map<String, Object>> maps = new ArrayList<>();
+        unmarshaller.unmarshalAll(new ByteArrayInputStream(out.toByteArray())).forEachRemaining(maps::add);
+        Assert.assertEquals(events.size(), maps.size());
+        for (int i = 0; i < events.size(); i++) {
+            Assert.assertEquals(String.valueOf(i), maps.get(i).get("id"));
+            Assert.assertEquals(events.get(i).getProperty("message"), maps.get(i).get("message"));
+        }
+    }
+
+}
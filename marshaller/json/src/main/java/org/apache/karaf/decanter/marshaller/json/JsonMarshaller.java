@@ -16,28 +16,40 @@
  */
 package org.apache.karaf.decanter.marshaller.json;
 
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Dictionary;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import javax.json.Json;
-import javax.json.JsonArray;
-import javax.json.JsonArrayBuilder;
-import javax.json.JsonObject;
-import javax.json.JsonObjectBuilder;
-import javax.json.JsonWriter;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
 
+import org.apache.karaf.decanter.api.marshaller.MarshalledEventCache;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.apache.karaf.decanter.api.time.TimestampFormatter;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventConstants;
 
@@ -48,161 +60,325 @@ import org.osgi.service.event.EventConstants;
 )
 public class JsonMarshaller implements Marshaller {
 
-    private SimpleDateFormat tsFormat;
+    public static final String BATCH_FORMAT_CONFIG = "batch.format";
+    public static final String BATCH_FORMAT_NDJSON = "ndjson";
+    public static final String BATCH_FORMAT_ARRAY = "array";
+
+    private static final String TIMESTAMP_KEY = "@timestamp";
+    private static final int KEY_CACHE_SIZE = 10000;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    private final TimestampFormatter tsFormat = new TimestampFormatter("yyyy-MM-dd'T'HH:mm:ss,SSSX", TimeZone.getTimeZone("UTC"));
     
     boolean replaceDotsByUnderscores = true;
-    
-    public JsonMarshaller() {
-        tsFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss,SSSX");
-        tsFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-    }
+    boolean batchArray = false;
 
+    private final JsonGeneratorFactory generatorFactory = Json.createGeneratorFactory(null);
+    private final Map<String, String> keys = new ConcurrentHashMap<>();
+    private final ThreadLocal<StringWriter> buffer = ThreadLocal.withInitial(StringWriter::new);
+    private volatile MarshalledEventCache cache = new MarshalledEventCache(MarshalledEventCache.DEFAULT_SIZE);
+    
     @Activate
     public void activate(ComponentContext componentContext) {
 	activate(componentContext.getProperties());
+        cache.register("json");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        cache.unregister();
     }
 
     public void activate(Dictionary<String, Object> config) {
         replaceDotsByUnderscores = (config.get("replaceDotsByUnderscores") != null) ? 
             Boolean.valueOf((String) config.get("replaceDotsByUnderscores")) : true;
+        batchArray = (config.get(BATCH_FORMAT_CONFIG) != null) ? BATCH_FORMAT_ARRAY.equalsIgnoreCase((String) config.get(BATCH_FORMAT_CONFIG)) : false;
+        keys.clear();
+        cache.unregister();
+        cache = new MarshalledEventCache((config.get(MarshalledEventCache.SIZE_CONFIG) != null) ?
+            Integer.parseInt((String) config.get(MarshalledEventCache.SIZE_CONFIG)) : MarshalledEventCache.DEFAULT_SIZE);
     }
 
     @Override
     public void marshal(Object obj, OutputStream out) {
-        JsonObject jsonObj = marshal((Event)obj);
-        JsonWriter writer = Json.createWriter(out);
-        writer.writeObject(jsonObj);
-        writer.close();
+        try (JsonGenerator generator = generatorFactory.createGenerator(out)) {
+            write(generator, (Event) obj);
+        }
     }
     
+    /**
+     * Marshal the event, using the marshalled event from the cache if another appender already marshalled it.
+     */
     @Override
     public String marshal(Object obj) {
-        return marshal((Event)obj).toString();
+        return cache.get((Event) obj, this::marshalEvent);
+    }
+
+    private String marshalEvent(Event event) {
+        StringWriter writer = buffer.get();
+        writer.getBuffer().setLength(0);
+        try (JsonGenerator generator = generatorFactory.createGenerator(writer)) {
+            write(generator, event);
+        }
+        String json = writer.toString();
+        if (writer.getBuffer().capacity() > MAX_BUFFER_SIZE) {
+            buffer.remove();
+        }
+        return json;
+    }
+
+    /**
+     * Marshal the events as NDJSON (one JSON document per line), or as a JSON array when {@code batch.format=array}.
+     */
+    @Override
+    public void marshalBatch(Collection<?> objs, OutputStream out) {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writeBatch(writer, objs);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    private JsonObject marshal(Event event) {
-        JsonObjectBuilder json = Json.createObjectBuilder();
-        addTimestamp(event, json);
-        for (String key : event.getPropertyNames()) {
-            Object value = event.getProperty(key);
-            key = replaceDotsByUnderscores ? key.replace('.','_') : key;
-            marshalAttribute(json, key, value);
+    @Override
+    public String marshalBatch(Collection<?> objs) {
+        StringWriter writer = buffer.get();
+        writer.getBuffer().setLength(0);
+        try {
+            writeBatch(writer, objs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String json = writer.toString();
+        if (writer.getBuffer().capacity() > MAX_BUFFER_SIZE) {
+            buffer.remove();
+        }
+        return json;
+    }
+
+    private void writeBatch(Writer writer, Collection<?> objs) throws IOException {
+        // the generators must not close the writer
+        Writer target = new FilterWriter(writer) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        if (batchArray) {
+            try (JsonGenerator generator = generatorFactory.createGenerator(target)) {
+                generator.writeStartArray();
+                for (Object obj : objs) {
+                    write(generator, (Event) obj);
+                }
+                generator.writeEnd();
+            }
+        } else {
+            for (Object obj : objs) {
+                try (JsonGenerator generator = generatorFactory.createGenerator(target)) {
+                    write(generator, (Event) obj);
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    private void write(JsonGenerator generator, Event event) {
+        generator.writeStartObject();
+        String timestamp = timestamp(event);
+        String[] names = event.getPropertyNames();
+        if (event.containsProperty(TIMESTAMP_KEY) || hasCollision(Arrays.asList(names), event::containsProperty)) {
+            // same result as a JSON object builder: the first position of the key is used with the last value
+            Map<String, Object> merged = new LinkedHashMap<>();
+            merged.put(TIMESTAMP_KEY, timestamp);
+            for (String name : names) {
+                Object value = event.getProperty(name);
+                if (isSupported(value)) {
+                    merged.put(key(name), value);
+                }
+            }
+            for (Entry<String, Object> entry : merged.entrySet()) {
+                writeAttribute(generator, entry.getKey(), entry.getValue());
+            }
+        } else {
+            generator.write(TIMESTAMP_KEY, timestamp);
+            for (String name : names) {
+                writeAttribute(generator, key(name), event.getProperty(name));
+            }
         }
-        return json.build();
+        generator.writeEnd();
     }
 
-    private void addTimestamp(Event event, JsonObjectBuilder json) {
+    private String timestamp(Event event) {
         Long ts = (Long)event.getProperty(EventConstants.TIMESTAMP);
-        Date date = ts != null ? new Date(ts) : new Date();
-        json.add("@timestamp", tsFormat.format(date));
+        return tsFormat.format(ts != null ? ts : System.currentTimeMillis());
+    }
+
+    /**
+     * Return the key used in the JSON document, with the dots replaced (if enabled).
+     */
+    private String key(String name) {
+        if (!replaceDotsByUnderscores) {
+            return name;
+        }
+        String key = keys.get(name);
+        if (key == null) {
+            key = name.replace('.', '_');
+            if (keys.size() < KEY_CACHE_SIZE) {
+                keys.put(name, key);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Check if different names give the same key once the dots are replaced.
+     */
+    private boolean hasCollision(Collection<String> names, Predicate<String> contains) {
+        if (!replaceDotsByUnderscores) {
+            return false;
+        }
+        List<String> dottedKeys = null;
+        for (String name : names) {
+            if (name.indexOf('.') >= 0) {
+                String key = key(name);
+                if (contains.test(key)) {
+                    return true;
+                }
+                if (dottedKeys == null) {
+                    dottedKeys = new ArrayList<>();
+                } else if (dottedKeys.contains(key)) {
+                    return true;
+                }
+                dottedKeys.add(key);
+            }
+        }
+        return false;
+    }
+
+    private boolean isSupported(Object value) {
+        return value instanceof Map || value instanceof List || value instanceof long[] || value instanceof int[]
+                || value instanceof Object[] || isScalar(value);
+    }
+
+    private boolean isScalar(Object value) {
+        return value instanceof String || value instanceof Long || value instanceof Integer || value instanceof Double
+                || value instanceof Float || value instanceof BigDecimal || value instanceof BigInteger || value instanceof Boolean;
     }
 
     @SuppressWarnings("unchecked")
-    private void marshalAttribute(JsonObjectBuilder jsonObjectBuilder, String key, Object value) {
-        key = replaceDotsByUnderscores ? key.replace('.', '_') : key;
+    private void writeAttribute(JsonGenerator generator, String key, Object value) {
         if (value instanceof Map) {
-            jsonObjectBuilder.add(key, build((Map<String, Object>)value));
+            generator.writeStartObject(key);
+            writeMap(generator, (Map<String, Object>) value);
+            generator.writeEnd();
         } else if (value instanceof List) {
-            jsonObjectBuilder.add(key, build((List<?>)value));
-        } else if (value instanceof long[] || value instanceof Long[]) {
-            JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-            long[] array = (long[])value;
-            for (long l : array) {
-                arrayBuilder.add(l);
-            }
-            jsonObjectBuilder.add(key, arrayBuilder.build());
-        } else if (value instanceof int[] || value instanceof Integer[]) {
-            JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-            int[] array = (int[])value;
-            for (int i : array) {
-                arrayBuilder.add(i);
-            }
-            jsonObjectBuilder.add(key, arrayBuilder.build());
-        } else if (value instanceof String[]) {
-            JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-            String[] array = (String[])value;
-            for (String s : array) {
-                arrayBuilder.add(s);
-            }
-            jsonObjectBuilder.add(key, arrayBuilder.build());
+            generator.writeStartArray(key);
+            for (Object item : (List<?>) value) {
+                writeValue(generator, item);
+            }
+            generator.writeEnd();
+        } else if (value instanceof long[]) {
+            generator.writeStartArray(key);
+            for (long l : (long[]) value) {
+                generator.write(l);
+            }
+            generator.writeEnd();
+        } else if (value instanceof int[]) {
+            generator.writeStartArray(key);
+            for (int i : (int[]) value) {
+                generator.write(i);
+            }
+            generator.writeEnd();
+        } else if (value instanceof Long[] || value instanceof Integer[]) {
+            generator.writeStartArray(key);
+            for (Number n : (Number[]) value) {
+                if (n != null) {
+                    generator.write(n.longValue());
+                }
+            }
+            generator.writeEnd();
         } else if (value instanceof Object[]) {
-            JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-            Object[] array = (Object[])value;
-            for (Object o : array) {
+            generator.writeStartArray(key);
+            for (Object o : (Object[]) value) {
                 if (o != null) {
-                    arrayBuilder.add(o.toString());
+                    generator.write(o.toString());
                 }
             }
-            jsonObjectBuilder.add(key, arrayBuilder.build());
+            generator.writeEnd();
         } else {
-            addProperty(jsonObjectBuilder, key, value);
+            writeProperty(generator, key, value);
         }
     }
 
-    private JsonObject build(Map<String, Object> value) {
-        JsonObjectBuilder json = Json.createObjectBuilder();
-        for (Entry<String, Object> entries : value.entrySet()) {
-            addProperty(json, replaceDotsByUnderscores? entries.getKey().replace('.','_') : 
-                entries.getKey(), entries.getValue());
+    private void writeMap(JsonGenerator generator, Map<String, Object> map) {
+        if (hasCollision(map.keySet(), map::containsKey)) {
+            Map<String, Object> merged = new LinkedHashMap<>();
+            for (Entry<String, Object> entry : map.entrySet()) {
+                if (isScalar(entry.getValue())) {
+                    merged.put(key(entry.getKey()), entry.getValue());
+                }
+            }
+            map = merged;
         }
-        return json.build();
-    }
-
-    private JsonArray build(List<?> values) {
-        JsonArrayBuilder json = Json.createArrayBuilder();
-        for (Object value : values) {
-            addValue(json, value);
+        for (Entry<String, Object> entry : map.entrySet()) {
+            writeProperty(generator, key(entry.getKey()), entry.getValue());
         }
-        return json.build();
     }
 
     @SuppressWarnings("unchecked")
-    private void addValue(JsonArrayBuilder json, Object value) {
+    private void writeValue(JsonGenerator generator, Object value) {
         if (value instanceof Map) {
-            json.add(build((Map<String, Object>)value));
+            generator.writeStartObject();
+            writeMap(generator, (Map<String, Object>) value);
+            generator.writeEnd();
         } else if (value instanceof BigDecimal) {
-            json.add((BigDecimal)value);
+            generator.write((BigDecimal) value);
         } else if (value instanceof BigInteger) {
-            json.add((BigInteger)value);
+            generator.write((BigInteger) value);
         } else if (value instanceof String) {
-            json.add((String)value);
+            generator.write((String) value);
         } else if (value instanceof Long) {
-            json.add((Long)value);
+            generator.write((Long) value);
         } else if (value instanceof Integer) {
-            json.add((Integer)value);
-        } else if (value instanceof Float) {
-            json.add((Float)value);
-        } else if (value instanceof Double) {
-            json.add((Double)value);
+            generator.write((Integer) value);
+        } else if (value instanceof Float || value instanceof Double) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isInfinite(d)) {
+                generator.write("Infinity");
+            } else if (Double.isNaN(d)) {
+                generator.write("NaN");
+            } else {
+                generator.write(BigDecimal.valueOf(d));
+            }
         } else if (value instanceof Boolean) {
-            json.add((Boolean)value);
+            generator.write((Boolean) value);
         }
     }
 
-    private void addProperty(JsonObjectBuilder json, String key, Object value) {
-        key = replaceDotsByUnderscores ? key.replace('.','_') : key;
+    private void writeProperty(JsonGenerator generator, String key, Object value) {
         if (value instanceof BigDecimal) {
-            json.add(key, (BigDecimal)value);
+            generator.write(key, (BigDecimal) value);
         } else if (value instanceof BigInteger) {
-            json.add(key, (BigInteger)value);
+            generator.write(key, (BigInteger) value);
         } else if (value instanceof String) {
-            json.add(key, (String)value);
+            generator.write(key, (String) value);
         } else if (value instanceof Long) {
-            json.add(key, (Long)value);
+            generator.write(key, (Long) value);
         } else if (value instanceof Integer) {
-            json.add(key, (Integer)value);
-        } else if (value instanceof Float) {
-            json.add(key, (Float)value);
-        } else if (value instanceof Double) {
-            if (Double.isInfinite((Double)value)) {
-                json.add(key, "Infinity");
-            } else if (Double.isNaN((Double)value)) {
-                json.add(key, "NaN");
+            generator.write(key, (Integer) value);
+        } else if (value instanceof Float || value instanceof Double) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isInfinite(d)) {
+                generator.write(key, "Infinity");
+            } else if (Double.isNaN(d)) {
+                generator.write(key, "NaN");
             } else {
-                json.add(key, (Double)value);
+                // same representation as a JSON object builder
+                generator.write(key, BigDecimal.valueOf(d));
             }
         } else if (value instanceof Boolean) {
-            json.add(key, (Boolean)value);
+            generator.write(key, (Boolean) value);
         }
     }
 
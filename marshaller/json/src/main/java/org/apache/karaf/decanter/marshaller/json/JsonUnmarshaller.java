@@ -16,20 +16,23 @@
  */
 package org.apache.karaf.decanter.marshaller.json;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.json.Json;
-import javax.json.JsonArray;
-import javax.json.JsonNumber;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonString;
-import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+import javax.json.stream.JsonParsingException;
 
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
 import org.apache.karaf.decanter.api.marshaller.Unmarshaller;
@@ -38,50 +41,225 @@ import org.osgi.service.component.annotations.Component;
 @Component(immediate = true, property = Marshaller.SERVICE_KEY_DATAFORMAT + "=json")
 public class JsonUnmarshaller implements Unmarshaller {
 
+    private final JsonParserFactory parserFactory = Json.createParserFactory(null);
+
     @Override
     public Map<String, Object> unmarshal(InputStream in) {
-        JsonReader reader = Json.createReader(in);
-        JsonObject jsonO = reader.readObject();
-        HashMap<String, Object> map = new HashMap<>();
-        for (String key : jsonO.keySet()) {
-            map.put(key, unmarshalAttribute(jsonO.get(key)));
+        try (JsonParser parser = parserFactory.createParser(in)) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_OBJECT) {
+                throw new JsonParsingException("Expected a JSON object", parser.getLocation());
+            }
+            return readObject(parser);
         }
-        reader.close();
-        return map;
     }
 
-    private Object unmarshalAttribute(JsonValue value) {
-        if (value instanceof JsonNumber) {
-            JsonNumber num = (JsonNumber)value;
-            return num.isIntegral() ? num.longValue() : num.bigDecimalValue();
-        } else if (value instanceof JsonString) {
-            return ((JsonString)value).getString();
-        } else if (value instanceof JsonObject) {
-            return build((JsonObject)value);
-        } else if (value instanceof JsonArray) {
-            return build((JsonArray)value);
-        } else {
-            return null;
-        }
+    /**
+     * Unmarshal the JSON objects of the input stream, one at a time: NDJSON (or any sequence of JSON objects), or
+     * JSON arrays of objects.
+     */
+    @Override
+    public Iterator<Map<String, Object>> unmarshalAll(InputStream in) {
+        DocumentReader documents = new DocumentReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return new Iterator<Map<String, Object>>() {
+            private JsonParser array;
+            private Map<String, Object> next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = read();
+                }
+                return next != null;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map<String, Object> map = next;
+                next = null;
+                return map;
+            }
+
+            private Map<String, Object> read() {
+                while (true) {
+                    if (array != null) {
+                        JsonParser.Event event = array.next();
+                        if (event == JsonParser.Event.START_OBJECT) {
+                            return readObject(array);
+                        } else if (event != JsonParser.Event.END_ARRAY) {
+                            throw new JsonParsingException("Expected a JSON object", array.getLocation());
+                        }
+                        array.close();
+                        array = null;
+                    }
+                    int first = documents.nextDocument();
+                    if (first < 0) {
+                        return null;
+                    }
+                    if (first != '{' && first != '[') {
+                        // the end of a top level scalar is not delimited, it would be read to the end of the stream
+                        throw new JsonParsingException("Expected a JSON object or array of objects", null);
+                    }
+                    JsonParser parser = parserFactory.createParser(documents);
+                    if (first == '[') {
+                        parser.next();
+                        array = parser;
+                        continue;
+                    }
+                    try {
+                        if (parser.next() != JsonParser.Event.START_OBJECT) {
+                            throw new JsonParsingException("Expected a JSON object", parser.getLocation());
+                        }
+                        return readObject(parser);
+                    } finally {
+                        parser.close();
+                    }
+                }
+            }
+        };
     }
 
-    private Map<String, Object> build(JsonObject value) {
+    private Map<String, Object> readObject(JsonParser parser) {
         Map<String, Object> map = new HashMap<>();
-        Iterator<Map.Entry<String, JsonValue>> entrySet = value.entrySet().iterator();
-        while (entrySet.hasNext()) {
-            Map.Entry<String, JsonValue> entry = entrySet.next();
-            map.put(entry.getKey(), unmarshalAttribute(entry.getValue()));
+        String key = null;
+        while (parser.hasNext()) {
+            JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_OBJECT) {
+                return map;
+            } else if (event == JsonParser.Event.KEY_NAME) {
+                key = parser.getString();
+            } else {
+                map.put(key, readValue(parser, event));
+            }
         }
-        return map;
+        throw new JsonParsingException("Unexpected end of JSON object", parser.getLocation());
     }
 
-    private List<Object> build(JsonArray value) {
+    private List<Object> readArray(JsonParser parser) {
         List<Object> list = new ArrayList<>();
-        Iterator<JsonValue> jsonValues = value.iterator();
-        while (jsonValues.hasNext()) {
-            JsonValue jsonValue = jsonValues.next();
-            list.add(unmarshalAttribute(jsonValue));
+        while (parser.hasNext()) {
+            JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_ARRAY) {
+                return list;
+            }
+            list.add(readValue(parser, event));
+        }
+        throw new JsonParsingException("Unexpected end of JSON array", parser.getLocation());
+    }
+
+    private Object readValue(JsonParser parser, JsonParser.Event event) {
+        switch (event) {
+            case START_OBJECT:
+                return readObject(parser);
+            case START_ARRAY:
+                return readArray(parser);
+            case VALUE_STRING:
+                return parser.getString();
+            case VALUE_NUMBER:
+                return parser.isIntegralNumber() ? parser.getLong() : parser.getBigDecimal();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reader of a sequence of JSON documents: the end of a document (the end of the top level object or array) is
+     * the end of the stream, until {@link #nextDocument()} is called.
+     */
+    private static class DocumentReader extends Reader {
+
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private int depth;
+        private boolean string;
+        private boolean escaped;
+        private boolean end = true;
+
+        DocumentReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Skip the whitespaces to the next document.
+         *
+         * @return the first character of the document, or -1 at the end of the stream.
+         */
+        int nextDocument() {
+            while (fill()) {
+                char c = buffer[position];
+                if (!Character.isWhitespace(c)) {
+                    depth = 0;
+                    string = false;
+                    escaped = false;
+                    end = false;
+                    return c;
+                }
+                position++;
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) {
+            if (end || length == 0) {
+                return end ? -1 : 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = 0;
+            while (count < length && position < limit && !end) {
+                char c = buffer[position++];
+                chars[offset + count++] = c;
+                if (string) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        string = false;
+                    }
+                } else if (c == '"') {
+                    string = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    end = --depth <= 0;
+                }
+            }
+            return count;
         }
-        return list;
+
+        private boolean fill() {
+            if (position < limit) {
+                return true;
+            }
+            try {
+                limit = in.read(buffer, 0, buffer.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // the input stream is closed by the caller
+        }
+
     }
+
 }
@@ -16,13 +16,24 @@
  */
 package org.apache.karaf.decanter.marshaller.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.json.Json;
+import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
 
@@ -132,4 +143,142 @@ public class TestJsonMarshaller {
        Assert.assertEquals("other", innerObject.getString("other"));
    }
 
+   @Test
+   public void testAllTypes() throws Exception {
+       Marshaller marshaller = new JsonMarshaller();
+       Event event = prepareAllTypesEvent();
+
+       // same output as the previous JsonObjectBuilder based marshaller
+       String expected = "{\"@timestamp\":\"2016-02-02T15:59:40,634Z\""
+           + ",\"string\":\"a \\\"quoted\\\" \\\\ value\\twith\\ncontrol \\u0001 and unicode \u00e9\u20ac\""
+           + ",\"bool\":true,\"negZero\":0.0,\"infinite\":\"Infinity\",\"hundredFloat\":100.0"
+           + ",\"objects\":[\"o\",\"1\",\"true\"],\"float\":1.100000023841858,\"long\":1234567890123"
+           + ",\"longs\":[1,2,3],\"smallDouble\":1.0E-7,\"strings\":[\"x\",\"y\"],\"ints\":[4,5]"
+           + ",\"nan\":\"NaN\",\"bigDecimal\":12345.678900,\"map\":{\"inner_key\":\"v\",\"n\":1"
+           + ",\"d\":0.5,\"inf\":\"Infinity\"},\"nullList\":[\"a\",\"b\"],\"timestamp\":1454428780634"
+           + ",\"twoDouble\":2.0,\"dotted_key_name\":\"dotted\",\"double\":3.14159"
+           + ",\"bigInteger\":1234567890123456789"
+           + ",\"list\":[\"a\",1,2,1.5,2.5,true,1.10,{\"in_list\":\"v\"}],\"int\":42"
+           + ",\"bigDouble\":1.0E+20,\"event_topics\":\"decanter/collect/test\"}";
+       Assert.assertEquals(expected, marshaller.marshal(event));
+
+       ByteArrayOutputStream out = new ByteArrayOutputStream();
+       marshaller.marshal(event, out);
+       Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+       // the reused buffer doesn't leak the previous event
+       Assert.assertEquals(expected, marshaller.marshal(event));
+   }
+
+   @Test
+   public void testKeyCollision() throws Exception {
+       Marshaller marshaller = new JsonMarshaller();
+
+       Map<String, Object> map = new HashMap<>();
+       map.put(EventConstants.TIMESTAMP, EXPECTED_TIMESTAMP);
+       map.put("a.b", "dotted");
+       map.put("a_b", "underscored");
+       map.put("@timestamp", "custom");
+
+       Assert.assertEquals("{\"@timestamp\":\"custom\",\"a_b\":\"underscored\",\"timestamp\":1454428780634,\"event_topics\":\"decanter/collect/test\"}",
+               marshaller.marshal(new Event("decanter/collect/test", map)));
+   }
+
+   @Test
+   public void testBoxedArrays() throws Exception {
+       Marshaller marshaller = new JsonMarshaller();
+
+       Map<String, Object> map = new HashMap<>();
+       map.put(EventConstants.TIMESTAMP, EXPECTED_TIMESTAMP);
+       map.put("longs", new Long[]{ 1L, null, 3L });
+       map.put("ints", new Integer[]{ 4, 5 });
+
+       JsonObject jsonObject = Json.createReader(new StringReader(marshaller.marshal(new Event(EXPECTED_TOPIC, map)))).readObject();
+       Assert.assertEquals(2, jsonObject.getJsonArray("longs").size());
+       Assert.assertEquals(3L, jsonObject.getJsonArray("longs").getJsonNumber(1).longValue());
+       Assert.assertEquals(5, jsonObject.getJsonArray("ints").getInt(1));
+   }
+
+   private Event prepareAllTypesEvent() {
+       Map<String, Object> map = new HashMap<>();
+       map.put(EventConstants.TIMESTAMP, EXPECTED_TIMESTAMP);
+       map.put("string", "a \"quoted\" \\ value\twith\ncontrol \u0001 and unicode \u00e9\u20ac");
+       map.put("int", 42);
+       map.put("long", 1234567890123L);
+       map.put("float", 1.1f);
+       map.put("double", 3.14159d);
+       map.put("bigDouble", 1.0E20d);
+       map.put("smallDouble", 1.0E-7d);
+       map.put("infinite", Double.POSITIVE_INFINITY);
+       map.put("nan", Double.NaN);
+       map.put("bool", true);
+       map.put("twoDouble", 2.0d);
+       map.put("hundredFloat", 100.0f);
+       map.put("negZero", -0.0d);
+       map.put("bigDecimal", new BigDecimal("12345.678900"));
+       map.put("bigInteger", new BigInteger("1234567890123456789"));
+       map.put("dotted.key.name", "dotted");
+       map.put("longs", new long[]{ 1L, 2L, 3L });
+       map.put("ints", new int[]{ 4, 5 });
+       map.put("strings", new String[]{ "x", "y" });
+       map.put("objects", new Object[]{ "o", 1, null, true });
+       map.put("list", Arrays.asList("a", 1, 2L, 1.5d, 2.5f, true, new BigDecimal("1.10"), Collections.singletonMap("in.list", "v")));
+       Map<String, Object> inner = new LinkedHashMap<>();
+       inner.put("inner.key", "v");
+       inner.put("n", 1);
+       inner.put("d", 0.5d);
+       inner.put("inf", Double.NEGATIVE_INFINITY);
+       inner.put("nested", Collections.singletonMap("x", "y"));
+       inner.put("list", Arrays.asList(1, 2));
+       map.put("map", inner);
+       map.put("unsupported", new Date(0));
+       map.put("nullList", Arrays.asList("a", null, "b"));
+       return new Event("decanter/collect/test", map);
+   }
+
+   @Test
+   public void testMarshalBatch() throws Exception {
+       JsonMarshaller marshaller = new JsonMarshaller();
+       List<Event> events = new ArrayList<>();
+       for (int i = 0; i < 3; i++) {
+           Map<String, Object> map = new HashMap<>();
+           map.put(EventConstants.TIMESTAMP, EXPECTED_TIMESTAMP);
+           map.put("id", i);
+           events.add(new Event(EXPECTED_TOPIC, map));
+       }
+
+       String ndjson = marshaller.marshalBatch(events);
+       String[] lines = ndjson.split("\n");
+       Assert.assertEquals(3, lines.length);
+       for (int i = 0; i < 3; i++) {
+           Assert.assertEquals(marshaller.marshal(events.get(i)), lines[i]);
+       }
+       ByteArrayOutputStream out = new ByteArrayOutputStream();
+       marshaller.marshalBatch(events, out);
+       Assert.assertEquals(ndjson, new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+       Dictionary<String, Object> config = new Hashtable<>();
+       config.put(JsonMarshaller.BATCH_FORMAT_CONFIG, JsonMarshaller.BATCH_FORMAT_ARRAY);
+       marshaller.activate(config);
+       JsonArray array = Json.createReader(new StringReader(marshaller.marshalBatch(events))).readArray();
+       Assert.assertEquals(3, array.size());
+       Assert.assertEquals(2, array.getJsonObject(2).getInt("id"));
+       Assert.assertEquals("2016-02-02T15:59:40,634Z", array.getJsonObject(0).getString("@timestamp"));
+   }
+
+   @Test
+   public void testMarshalCache() throws Exception {
+       JsonMarshaller marshaller = new JsonMarshaller();
+       Event event = new Event(EXPECTED_TOPIC, Collections.singletonMap("c", "d"));
+       String first = marshaller.marshal(event);
+       Assert.assertSame(first, marshaller.marshal(event));
+       Assert.assertNotSame(first, marshaller.marshal(new Event(EXPECTED_TOPIC, Collections.singletonMap("c", "d"))));
+
+       // the configuration change invalidates the cache
+       Dictionary<String, Object> config = new Hashtable<>();
+       config.put("replaceDotsByUnderscores", "false");
+       marshaller.activate(config);
+       Assert.assertTrue(marshaller.marshal(event).contains("\"event.topics\""));
+   }
+
 }
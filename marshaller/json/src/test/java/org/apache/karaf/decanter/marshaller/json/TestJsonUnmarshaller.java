@@ -17,15 +17,22 @@
 
 package org.apache.karaf.decanter.marshaller.json;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import javax.json.stream.JsonParsingException;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -54,4 +61,55 @@ public class TestJsonUnmarshaller {
         Assert.assertEquals("Hello", list.get(1));
         System.out.println(map);
     }
+
+    @Test
+    public void testReadAll() {
+        String payload = "{\"id\":1,\"message\":\"a } in a \\\"string\\\"\"}\n"
+                + "\n"
+                + "{\"id\":2,\"nested\":{\"list\":[1,{\"a\":true}]},\"flag\":false}\n"
+                + "[{\"id\":3}, {\"id\":4,\n  \"value\":1.5}]\n"
+                + "{\"id\":5}";
+        JsonUnmarshaller unmarshaller = new JsonUnmarshaller();
+        Iterator<Map<String, Object>> iterator = unmarshaller.unmarshalAll(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+        List<Map<String, Object>> maps = new ArrayList<>();
+        iterator.forEachRemaining(maps::add);
+        Assert.assertEquals(5, maps.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals((long) i + 1, maps.get(i).get("id"));
+        }
+        Assert.assertEquals("a } in a \"string\"", maps.get(0).get("message"));
+        Assert.assertEquals(false, maps.get(1).get("flag"));
+        Assert.assertEquals("{list=[1, {a=true}]}", maps.get(1).get("nested").toString());
+        Assert.assertEquals(new BigDecimal("1.5"), maps.get(3).get("value"));
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = JsonParsingException.class)
+    public void testReadAllInvalid() {
+        JsonUnmarshaller unmarshaller = new JsonUnmarshaller();
+        Iterator<Map<String, Object>> iterator = unmarshaller.unmarshalAll(new ByteArrayInputStream("{\"id\":1}\n[1]".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(1L, iterator.next().get("id"));
+        iterator.next();
+    }
+
+    @Test
+    public void testReadAllNotAnObject() {
+        JsonUnmarshaller unmarshaller = new JsonUnmarshaller();
+        for (String document : new String[]{ "42", "true", "\"message\"", "[1, 2", "[[{\"id\":1}" }) {
+            // a connection still open after the document
+            InputStream in = new SequenceInputStream(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), new InputStream() {
+                @Override
+                public int read() {
+                    throw new IllegalStateException("Read after the first document " + document);
+                }
+            });
+            try {
+                unmarshaller.unmarshalAll(in).next();
+                Assert.fail("Not a JSON object " + document);
+            } catch (JsonParsingException e) {
+                // expected, at the first token
+            }
+        }
+    }
+
 }
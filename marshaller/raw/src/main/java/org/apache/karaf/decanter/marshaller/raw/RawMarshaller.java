@@ -16,45 +16,116 @@
  */
 package org.apache.karaf.decanter.marshaller.raw;
 
+import org.apache.karaf.decanter.api.marshaller.MarshalledEventCache;
 import org.apache.karaf.decanter.api.marshaller.Marshaller;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.event.Event;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Dictionary;
 
 @Component(immediate = true, property = Marshaller.SERVICE_KEY_DATAFORMAT + "=raw")
 public class RawMarshaller implements Marshaller {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RawMarshaller.class);
 
+    private MarshalledEventCache cache = new MarshalledEventCache(MarshalledEventCache.DEFAULT_SIZE);
+
+    @Activate
+    public void activate(ComponentContext componentContext) {
+        Dictionary<String, Object> config = componentContext.getProperties();
+        cache = new MarshalledEventCache((config.get(MarshalledEventCache.SIZE_CONFIG) != null) ?
+                Integer.parseInt((String) config.get(MarshalledEventCache.SIZE_CONFIG)) : MarshalledEventCache.DEFAULT_SIZE);
+        cache.register("raw");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        cache.unregister();
+    }
+
     @Override
     public void marshal(Object obj, OutputStream out) {
         String result = marshal(obj);
         OutputStreamWriter writer = new OutputStreamWriter(out);
         try {
             writer.write(result);
+            writer.flush();
         } catch (Exception e) {
             LOGGER.warn("Can't marshal", e);
         }
     }
 
+    /**
+     * Marshal the event, using the marshalled event from the cache if another appender already marshalled it.
+     */
     @Override
     public String marshal(Object obj) {
-        return marshal((Event) obj);
+        return cache.get((Event) obj, this::marshal);
     }
 
     private String marshal(Event event) {
         StringBuilder builder = new StringBuilder();
+        try {
+            write(event, builder);
+        } catch (IOException e) {
+            // not thrown by a StringBuilder
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Marshal the events, separated by an empty line.
+     */
+    @Override
+    public void marshalBatch(Collection<?> objs, OutputStream out) {
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writeBatch(objs, writer);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String marshalBatch(Collection<?> objs) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeBatch(objs, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    private void writeBatch(Collection<?> objs, Appendable out) throws IOException {
+        for (Object obj : objs) {
+            write((Event) obj, out);
+            out.append('\n');
+        }
+    }
+
+    private void write(Event event, Appendable out) throws IOException {
         for (String propertyName : event.getPropertyNames()) {
             Object propertyValue = event.getProperty(propertyName);
             if (propertyName != null && propertyValue != null) {
-                builder.append(propertyName).append("=").append(propertyValue.toString()).append("\n");
+                out.append(propertyName).append("=").append(propertyValue.toString()).append("\n");
             }
         }
-        return builder.toString();
     }
 
 }
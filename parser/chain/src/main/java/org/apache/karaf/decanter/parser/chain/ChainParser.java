@@ -0,0 +1,511 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.chain;
+
+import org.apache.karaf.decanter.api.parser.Parser;
+import org.apache.karaf.decanter.api.parser.TypeInference;
+import org.osgi.framework.Constants;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import javax.management.ObjectName;
+
+/**
+ * Parse a line with the first parser of an ordered list ({@code parsers} property, the {@code parserId} of the parser
+ * services) returning data. The lines not matched by any parser are passed through (as the identity parser).
+ * <p>
+ * The data of a catch-all parser (a single field with the whole line, as with the {@code (.*)} regex or the
+ * {@code %{GREEDYDATA:message}} grok expression) are used only if no next parser of the chain returns data, so a
+ * catch-all parser doesn't hide the next parsers.
+ * <p>
+ * Before trying a parser, a literal prefilter checks that the line contains the literals required by the parser: the
+ * {@code literals.PARSERID} property, or the literals extracted from the {@code regex} or {@code pattern} property of
+ * the parser service (regex and grok parsers). All the literals are found in a single pass on the line (Aho-Corasick),
+ * so the parsers which can't match the line are skipped without running their regex.
+ * The hits per parser are exposed with the {@code org.apache.karaf.decanter:type=parser,name=<pid>} MBean.
+ */
+@Component(
+        name = "org.apache.karaf.decanter.parser.chain",
+        immediate = true,
+        service = Parser.class,
+        property = Parser.SERVICE_KEY_ID + "=chain"
+)
+public class ChainParser implements Parser, ChainParserMBean {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ChainParser.class);
+
+    public static final String PARSERS_CONFIG = "parsers";
+    public static final String PREFILTER_CONFIG = "prefilter";
+    public static final String LITERALS_CONFIG_PREFIX = "literals.";
+
+    private static final int MIN_LITERAL_LENGTH = 2;
+    private static final Pattern CASE_INSENSITIVE_FLAGS = Pattern.compile("\\(\\?[a-zA-Z-]*[ix]");
+
+    private final Map<String, Parser> parsers = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> derivedLiterals = new ConcurrentHashMap<>();
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final LongAdder unmatched = new LongAdder();
+
+    private String[] ids = new String[0];
+    private Map<String, List<String>> configuredLiterals = new HashMap<>();
+    private boolean prefilter = true;
+    private volatile Chain chain = new Chain(new ArrayList<>(), null);
+    private ObjectName objectName;
+
+    @Activate
+    public void activate(ComponentContext componentContext) {
+        activate(componentContext.getProperties());
+    }
+
+    public void activate(Dictionary<String, Object> config) {
+        List<String> ids = split((String) config.get(PARSERS_CONFIG));
+        Map<String, List<String>> configuredLiterals = new HashMap<>();
+        Enumeration<String> keys = config.keys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            if (key.startsWith(LITERALS_CONFIG_PREFIX)) {
+                configuredLiterals.put(key.substring(LITERALS_CONFIG_PREFIX.length()), split(config.get(key).toString()));
+            }
+        }
+        synchronized (this) {
+            this.ids = ids.toArray(new String[0]);
+            this.configuredLiterals = configuredLiterals;
+            this.prefilter = (config.get(PREFILTER_CONFIG) != null) ? Boolean.parseBoolean(config.get(PREFILTER_CONFIG).toString()) : true;
+            update();
+        }
+        register((config.get(Constants.SERVICE_PID) != null) ? config.get(Constants.SERVICE_PID).toString() : "org.apache.karaf.decanter.parser.chain");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        unregister();
+    }
+
+    @Reference(
+            cardinality = ReferenceCardinality.MULTIPLE,
+            policy = ReferencePolicy.DYNAMIC,
+            policyOption = ReferencePolicyOption.GREEDY,
+            unbind = "unbindParser"
+    )
+    public void bindParser(Parser parser, Map<String, Object> properties) {
+        Object id = properties.get(Parser.SERVICE_KEY_ID);
+        if (parser == this || id == null) {
+            return;
+        }
+        Object expression = (properties.get("regex") != null) ? properties.get("regex") : properties.get("pattern");
+        synchronized (this) {
+            parsers.put(id.toString(), parser);
+            derivedLiterals.put(id.toString(), requiredLiterals((expression != null) ? expression.toString() : null));
+            update();
+        }
+    }
+
+    public void unbindParser(Parser parser, Map<String, Object> properties) {
+        Object id = properties.get(Parser.SERVICE_KEY_ID);
+        if (id == null) {
+            return;
+        }
+        synchronized (this) {
+            if (parsers.remove(id.toString(), parser)) {
+                derivedLiterals.remove(id.toString());
+                update();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> parse(String key, String line) {
+        Link fallbackLink = null;
+        Map<String, Object> fallback = null;
+        if (line != null) {
+            Chain chain = this.chain;
+            BitSet found = null;
+            for (Link link : chain.links) {
+                if (link.literals.length > 0) {
+                    // the literals are searched once, when a parser requires literals
+                    if (found == null) {
+                        found = chain.matcher.search(line);
+                    }
+                    if (!containsAll(found, link.literals)) {
+                        link.counters.skipped.increment();
+                        continue;
+                    }
+                }
+                Map<String, Object> data = parse(link, key, line);
+                if (data == null || data.isEmpty()) {
+                    link.counters.misses.increment();
+                } else if (!isWholeLine(data, line)) {
+                    link.counters.hits.increment();
+                    if (fallbackLink != null) {
+                        fallbackLink.counters.misses.increment();
+                    }
+                    return data;
+                } else if (fallbackLink == null) {
+                    fallbackLink = link;
+                    fallback = data;
+                } else {
+                    link.counters.misses.increment();
+                }
+            }
+        }
+        if (fallbackLink != null) {
+            fallbackLink.counters.hits.increment();
+            return fallback;
+        }
+        unmatched.increment();
+        Map<String, Object> data = new HashMap<>();
+        data.put((key != null) ? key.trim() : "line", TypeInference.infer(line));
+        return data;
+    }
+
+    private Map<String, Object> parse(Link link, String key, String line) {
+        try {
+            return link.parser.parse(key, line);
+        } catch (Exception e) {
+            LOGGER.debug("Parser {} can't parse line {}", link.id, line, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code true} if the data are a single field with the whole line (catch-all parser).
+     */
+    private static boolean isWholeLine(Map<String, Object> data, String line) {
+        if (data.size() != 1) {
+            return false;
+        }
+        Object value = data.values().iterator().next();
+        return value != null && (value.toString().equals(line) || value.toString().equals(line.trim()));
+    }
+
+    private static boolean containsAll(BitSet found, int[] literals) {
+        for (int literal : literals) {
+            if (!found.get(literal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuild the chain with the parsers currently available, in the configured order.
+     */
+    private synchronized void update() {
+        Map<String, Integer> indexes = new LinkedHashMap<>();
+        List<Link> links = new ArrayList<>();
+        for (String id : ids) {
+            Parser parser = parsers.get(id);
+            if (parser == null) {
+                LOGGER.debug("Parser {} is not available, it's not in the chain", id);
+                continue;
+            }
+            List<String> literals = configuredLiterals.containsKey(id) ? configuredLiterals.get(id) : derivedLiterals.get(id);
+            int[] required = new int[(prefilter && literals != null) ? literals.size() : 0];
+            for (int i = 0; i < required.length; i++) {
+                required[i] = indexes.computeIfAbsent(literals.get(i), literal -> indexes.size());
+            }
+            links.add(new Link(id, parser, required, counters.computeIfAbsent(id, k -> new Counters())));
+        }
+        this.chain = new Chain(links, indexes.isEmpty() ? null : new LiteralMatcher(new ArrayList<>(indexes.keySet())));
+    }
+
+    /**
+     * Extract the literals required by a regex or a grok expression: the literal runs outside of the groups, the
+     * character classes, the grok patterns and the optional characters. An expression with a top level alternation,
+     * or with the case insensitive or comments flag, doesn't have required literals.
+     */
+    static List<String> requiredLiterals(String expression) {
+        List<String> literals = new ArrayList<>();
+        if (expression == null || CASE_INSENSITIVE_FLAGS.matcher(expression).find()) {
+            return literals;
+        }
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (c == '\\' && i + 1 < expression.length()) {
+                char next = expression.charAt(i + 1);
+                if (next == 'Q') {
+                    int end = expression.indexOf("\\E", i + 2);
+                    if (depth == 0) {
+                        run.append(expression, i + 2, (end < 0) ? expression.length() : end);
+                    }
+                    i = (end < 0) ? expression.length() : end + 2;
+                } else if (Character.isLetterOrDigit(next)) {
+                    // character class, anchor, back reference or character code
+                    flush(run, literals);
+                    i = skipEscape(expression, i + 1);
+                } else {
+                    if (depth == 0) {
+                        run.append(next);
+                    }
+                    i += 2;
+                }
+                continue;
+            }
+            if (c == '[') {
+                flush(run, literals);
+                i = skipClass(expression, i);
+                continue;
+            }
+            if (depth > 0) {
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                }
+                i++;
+                continue;
+            }
+            switch (c) {
+                case '|':
+                    literals.clear();
+                    return literals;
+                case '(':
+                    depth++;
+                    flush(run, literals);
+                    break;
+                case '?':
+                case '*':
+                    // the previous character is optional
+                    run.setLength(Math.max(0, run.length() - 1));
+                    flush(run, literals);
+                    break;
+                case '{':
+                    run.setLength(Math.max(0, run.length() - 1));
+                    flush(run, literals);
+                    i = skipTo(expression, i, '}');
+                    break;
+                case '%':
+                    if (i + 1 < expression.length() && expression.charAt(i + 1) == '{') {
+                        // grok pattern
+                        flush(run, literals);
+                        i = skipTo(expression, i, '}');
+                    } else {
+                        run.append(c);
+                    }
+                    break;
+                case '+':
+                case '.':
+                case '^':
+                case '$':
+                case ')':
+                    flush(run, literals);
+                    break;
+                default:
+                    run.append(c);
+            }
+            i++;
+        }
+        flush(run, literals);
+        return literals;
+    }
+
+    private static void flush(StringBuilder run, List<String> literals) {
+        if (run.length() >= MIN_LITERAL_LENGTH && !literals.contains(run.toString())) {
+            literals.add(run.toString());
+        }
+        run.setLength(0);
+    }
+
+    /**
+     * @return the index after the escape sequence starting with the character at the given index.
+     */
+    private static int skipEscape(String expression, int i) {
+        char c = expression.charAt(i);
+        i++;
+        switch (c) {
+            case 'x':
+                return (i < expression.length() && expression.charAt(i) == '{') ? skipTo(expression, i, '}') + 1 : i + 2;
+            case 'u':
+                return i + 4;
+            case 'c':
+                return i + 1;
+            case 'p':
+            case 'P':
+                return (i < expression.length() && expression.charAt(i) == '{') ? skipTo(expression, i, '}') + 1 : i + 1;
+            case 'k':
+                return skipTo(expression, i, '>') + 1;
+            default:
+                // octal code or back reference
+                while (Character.isDigit(c) && i < expression.length() && Character.isDigit(expression.charAt(i))) {
+                    i++;
+                }
+                return i;
+        }
+    }
+
+    /**
+     * @return the index after the character class starting at the given index (nested classes included).
+     */
+    private static int skipClass(String expression, int i) {
+        i++;
+        if (i < expression.length() && expression.charAt(i) == '^') {
+            i++;
+        }
+        if (i < expression.length() && expression.charAt(i) == ']') {
+            i++;
+        }
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '[') {
+                i = skipClass(expression, i);
+            } else if (c == ']') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @return the index of the given character after the given index, or the end of the expression.
+     */
+    private static int skipTo(String expression, int i, char c) {
+        int index = expression.indexOf(c, i);
+        return (index < 0) ? expression.length() : index;
+    }
+
+    private static List<String> split(String value) {
+        List<String> values = new ArrayList<>();
+        if (value != null) {
+            for (String item : value.split(",")) {
+                if (!item.trim().isEmpty()) {
+                    values.add(item.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getHits() {
+        Map<String, Long> hits = new LinkedHashMap<>();
+        for (Link link : chain.links) {
+            hits.put(link.id, link.counters.hits.sum());
+        }
+        return hits;
+    }
+
+    @Override
+    public Map<String, Long> getMisses() {
+        Map<String, Long> misses = new LinkedHashMap<>();
+        for (Link link : chain.links) {
+            misses.put(link.id, link.counters.misses.sum());
+        }
+        return misses;
+    }
+
+    @Override
+    public Map<String, Long> getSkipped() {
+        Map<String, Long> skipped = new LinkedHashMap<>();
+        for (Link link : chain.links) {
+            skipped.put(link.id, link.counters.skipped.sum());
+        }
+        return skipped;
+    }
+
+    @Override
+    public long getUnmatched() {
+        return unmatched.sum();
+    }
+
+    private synchronized void register(String name) {
+        unregister();
+        try {
+            ObjectName objectName = new ObjectName("org.apache.karaf.decanter:type=parser,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (Exception e) {
+            LOGGER.debug("Can't register parser chain MBean for {}", name, e);
+        }
+    }
+
+    private synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            LOGGER.debug("Can't unregister parser chain MBean {}", objectName, e);
+        }
+        objectName = null;
+    }
+
+    static class Counters {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+
+    }
+
+    static class Link {
+
+        private final String id;
+        private final Parser parser;
+        private final int[] literals;
+        private final Counters counters;
+
+        Link(String id, Parser parser, int[] literals, Counters counters) {
+            this.id = id;
+            this.parser = parser;
+            this.literals = literals;
+            this.counters = counters;
+        }
+
+    }
+
+    static class Chain {
+
+        private final List<Link> links;
+        private final LiteralMatcher matcher;
+
+        Chain(List<Link> links, LiteralMatcher matcher) {
+            this.links = links;
+            this.matcher = matcher;
+        }
+
+    }
+
+}
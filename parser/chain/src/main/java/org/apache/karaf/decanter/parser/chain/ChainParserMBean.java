@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.chain;
+
+import java.util.Map;
+
+/**
+ * Metrics of a {@link ChainParser}, exposed as a MBean.
+ */
+public interface ChainParserMBean {
+
+    /**
+     * @return the number of lines parsed by each parser of the chain.
+     */
+    Map<String, Long> getHits();
+
+    /**
+     * @return the number of lines tried and not matched by each parser of the chain.
+     */
+    Map<String, Long> getMisses();
+
+    /**
+     * @return the number of lines not tried by each parser of the chain, because the prefilter excluded the parser.
+     */
+    Map<String, Long> getSkipped();
+
+    /**
+     * @return the number of lines matched by no parser of the chain.
+     */
+    long getUnmatched();
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.chain;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton finding, in a single pass on the text, all the literals present in the text.
+ * The automaton is immutable and can be shared by threads.
+ */
+public final class LiteralMatcher {
+
+    private final Node root = new Node();
+    private final int size;
+
+    /**
+     * @param literals the literals to find, the index of a literal in the list is its bit in the search result.
+     */
+    public LiteralMatcher(List<String> literals) {
+        this.size = literals.size();
+        for (int i = 0; i < literals.size(); i++) {
+            Node node = root;
+            for (char c : literals.get(i).toCharArray()) {
+                node = node.add(c);
+            }
+            node.outputs = append(node.outputs, i);
+        }
+        // breadth first, the fail node is always processed before the node
+        Queue<Node> queue = new ArrayDeque<>();
+        for (Node child : root.children) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (int i = 0; i < node.chars.length; i++) {
+                Node child = node.children[i];
+                Node fail = node.fail;
+                Node next;
+                while ((next = fail.child(node.chars[i])) == null && fail != root) {
+                    fail = fail.fail;
+                }
+                child.fail = (next != null) ? next : root;
+                for (int output : child.fail.outputs) {
+                    child.outputs = append(child.outputs, output);
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @return the indexes of the literals found in the text.
+     */
+    public BitSet search(CharSequence text) {
+        BitSet found = new BitSet(size);
+        Node node = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Node next;
+            while ((next = node.child(c)) == null && node != root) {
+                node = node.fail;
+            }
+            if (next != null) {
+                node = next;
+                for (int output : node.outputs) {
+                    found.set(output);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static final class Node {
+
+        private char[] chars = new char[0];
+        private Node[] children = new Node[0];
+        private int[] outputs = new int[0];
+        private Node fail;
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(chars, c);
+            return (index >= 0) ? children[index] : null;
+        }
+
+        private Node add(char c) {
+            int index = Arrays.binarySearch(chars, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            // keep the transitions sorted for the binary search
+            int insert = -index - 1;
+            Node child = new Node();
+            char[] newChars = new char[chars.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(chars, 0, newChars, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            newChars[insert] = c;
+            newChildren[insert] = child;
+            System.arraycopy(chars, insert, newChars, insert + 1, chars.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+            chars = newChars;
+            children = newChildren;
+            return child;
+        }
+
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.chain;
+
+import org.apache.karaf.decanter.api.parser.Parser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.ObjectName;
+
+public class ChainParserTest {
+
+    @Test
+    public void requiredLiterals() {
+        Assert.assertEquals(Arrays.asList("GET ", " HTTP/"), ChainParser.requiredLiterals("^GET (\\S+) HTTP/\\d\\.\\d$"));
+        Assert.assertEquals(Arrays.asList("] [", "] "), ChainParser.requiredLiterals("\\[(\\d+)\\] \\[([A-Z]+)\\] (.*)"));
+        Assert.assertEquals(Collections.singletonList(" - - "), ChainParser.requiredLiterals("%{IPORHOST:client} - - %{GREEDYDATA:message}"));
+        Assert.assertEquals(Arrays.asList("abc", "level="), ChainParser.requiredLiterals("abcd?level=\\w+"));
+        Assert.assertEquals(Collections.singletonList("a.b"), ChainParser.requiredLiterals("\\Qa.b\\E(x|y)"));
+        Assert.assertEquals(Collections.singletonList("ab"), ChainParser.requiredLiterals("\\x41ab[(]c{2}"));
+        Assert.assertTrue(ChainParser.requiredLiterals("GET (.*)|POST (.*)").isEmpty());
+        Assert.assertTrue(ChainParser.requiredLiterals("(?i)GET (.*)").isEmpty());
+        Assert.assertTrue(ChainParser.requiredLiterals("(.*)").isEmpty());
+    }
+
+    @Test
+    public void literalMatcher() {
+        LiteralMatcher matcher = new LiteralMatcher(Arrays.asList("he", "she", "his", "hers", "xyz"));
+        BitSet found = matcher.search("ushers");
+        Assert.assertTrue(found.get(0));
+        Assert.assertTrue(found.get(1));
+        Assert.assertFalse(found.get(2));
+        Assert.assertTrue(found.get(3));
+        Assert.assertFalse(found.get(4));
+        Assert.assertTrue(matcher.search("").isEmpty());
+        Assert.assertTrue(matcher.search("ahishers").get(2));
+    }
+
+    @Test
+    public void chain() throws Exception {
+        AtomicInteger accessCalls = new AtomicInteger();
+        Pattern access = Pattern.compile("(\\S+) - - \"GET (\\S+) HTTP/1\\.1\" (\\d+)");
+        Parser accessParser = (key, line) -> {
+            accessCalls.incrementAndGet();
+            Map<String, Object> data = new HashMap<>();
+            Matcher matcher = access.matcher(line);
+            if (matcher.find()) {
+                data.put("client", matcher.group(1));
+                data.put("path", matcher.group(2));
+                data.put("status", Integer.parseInt(matcher.group(3)));
+            }
+            return data;
+        };
+        Parser kvParser = (key, line) -> {
+            Map<String, Object> data = new HashMap<>();
+            for (String pair : line.split(" ")) {
+                String[] keyValue = pair.split("=", 2);
+                if (keyValue.length == 2) {
+                    data.put(keyValue[0], keyValue[1]);
+                }
+            }
+            return data;
+        };
+
+        ChainParser parser = new ChainParser();
+        parser.bindParser(accessParser, properties("access", "regex", access.pattern()));
+        parser.bindParser(kvParser, properties("kv", "quote", "\""));
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(ChainParser.PARSERS_CONFIG, "access,missing,kv");
+        config.put(ChainParser.LITERALS_CONFIG_PREFIX + "kv", "=");
+        config.put("service.pid", "org.apache.karaf.decanter.parser.chain.test");
+        parser.activate(config);
+        ObjectName objectName = new ObjectName("org.apache.karaf.decanter:type=parser,name=org.apache.karaf.decanter.parser.chain.test");
+        Assert.assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+
+        Map<String, Object> data = parser.parse("line", "127.0.0.1 - - \"GET /index.html HTTP/1.1\" 200");
+        Assert.assertEquals("/index.html", data.get("path"));
+        Assert.assertEquals(200, data.get("status"));
+
+        data = parser.parse("line", "level=info msg=started");
+        Assert.assertEquals("info", data.get("level"));
+        Assert.assertEquals(1, accessCalls.get());
+
+        // the line contains the literals, but doesn't match the regex
+        data = parser.parse("line", "127.0.0.1 - - \"GET /index.html HTTP/1.1\" ok");
+        Assert.assertEquals(Collections.singletonMap("line", "127.0.0.1 - - \"GET /index.html HTTP/1.1\" ok"), data);
+        Assert.assertEquals(2, accessCalls.get());
+
+        data = parser.parse("line", "a plain line");
+        Assert.assertEquals(Collections.singletonMap("line", "a plain line"), data);
+        Assert.assertEquals(2, accessCalls.get());
+
+        Assert.assertEquals(Long.valueOf(1), parser.getHits().get("access"));
+        Assert.assertEquals(Long.valueOf(1), parser.getMisses().get("access"));
+        Assert.assertEquals(Long.valueOf(2), parser.getSkipped().get("access"));
+        Assert.assertEquals(Long.valueOf(1), parser.getHits().get("kv"));
+        Assert.assertEquals(Long.valueOf(2), parser.getSkipped().get("kv"));
+        Assert.assertFalse(parser.getHits().containsKey("missing"));
+        Assert.assertEquals(2, parser.getUnmatched());
+
+        // without the access parser, the line is passed to the next parsers
+        parser.unbindParser(accessParser, properties("access", "regex", access.pattern()));
+        data = parser.parse("line", "127.0.0.1 - - \"GET /index.html HTTP/1.1\" 200");
+        Assert.assertEquals(Collections.singletonMap("line", "127.0.0.1 - - \"GET /index.html HTTP/1.1\" 200"), data);
+        Assert.assertEquals(2, accessCalls.get());
+
+        parser.deactivate();
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+    }
+
+    @Test
+    public void catchAll() {
+        // as the default regex (.*) and grok %{GREEDYDATA:message} parsers
+        Parser regexParser = (key, line) -> Collections.singletonMap("key-0", line);
+        Parser grokParser = (key, line) -> Collections.singletonMap("message", line);
+        Parser jsonParser = (key, line) -> {
+            Map<String, Object> data = new HashMap<>();
+            if (line.startsWith("{\"level\":")) {
+                data.put("level", line.substring(10, line.length() - 2));
+            }
+            return data;
+        };
+        ChainParser parser = new ChainParser();
+        parser.bindParser(regexParser, properties("regex", "regex", "(.*)"));
+        parser.bindParser(grokParser, properties("grok", "pattern", "%{GREEDYDATA:message}"));
+        parser.bindParser(jsonParser, properties("json", "quote", "\""));
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(ChainParser.PARSERS_CONFIG, "regex,grok,json");
+        parser.activate(config);
+
+        // the catch-all parsers don't hide the next parsers
+        Assert.assertEquals(Collections.singletonMap("level", "info"), parser.parse("line", "{\"level\":\"info\"}"));
+        // the first catch-all parser is used when no next parser returns data
+        Assert.assertEquals(Collections.singletonMap("key-0", "a plain line"), parser.parse("line", "a plain line"));
+
+        Assert.assertEquals(Long.valueOf(1), parser.getHits().get("regex"));
+        Assert.assertEquals(Long.valueOf(1), parser.getMisses().get("regex"));
+        Assert.assertEquals(Long.valueOf(0), parser.getHits().get("grok"));
+        Assert.assertEquals(Long.valueOf(2), parser.getMisses().get("grok"));
+        Assert.assertEquals(Long.valueOf(1), parser.getHits().get("json"));
+        Assert.assertEquals(Long.valueOf(1), parser.getMisses().get("json"));
+        Assert.assertEquals(0, parser.getUnmatched());
+        parser.deactivate();
+    }
+
+    @Test
+    public void withoutPrefilter() {
+        AtomicInteger calls = new AtomicInteger();
+        ChainParser parser = new ChainParser();
+        parser.bindParser((key, line) -> {
+            calls.incrementAndGet();
+            return Collections.emptyMap();
+        }, properties("regex", "regex", "ERROR (.*)"));
+        Hashtable<String, Object> config = new Hashtable<>();
+        config.put(ChainParser.PARSERS_CONFIG, "regex");
+        config.put(ChainParser.PREFILTER_CONFIG, "false");
+        parser.activate(config);
+        Assert.assertEquals(Collections.singletonMap("line", 42), parser.parse(null, "42"));
+        Assert.assertEquals(1, calls.get());
+        parser.deactivate();
+    }
+
+    private Map<String, Object> properties(String parserId, String key, String value) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(Parser.SERVICE_KEY_ID, parserId);
+        properties.put(key, value);
+        return properties;
+    }
+
+}
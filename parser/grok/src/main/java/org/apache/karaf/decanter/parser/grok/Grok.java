@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.grok;
+
+import org.apache.karaf.decanter.api.parser.TypeInference;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A grok expression, expanded and compiled once.
+ * <p>
+ * The {@code %{NAME}}, {@code %{NAME:field}} and {@code %{NAME:field:type}} references are recursively replaced by
+ * the patterns of the library. Each field (and each {@code (?<field>...)} regex named group) is compiled as a
+ * generated regex named group, so the field names are not limited to the regex group names syntax.
+ */
+public final class Grok {
+
+    enum Type {
+        AUTO, INT, LONG, DOUBLE, BOOLEAN, STRING
+    }
+
+    private static final String GROUP_PREFIX = "grok";
+    private static final String QUANTIFIERS = "?*+{";
+
+    private static final Map<String, String> LIBRARY = load();
+
+    private final Pattern pattern;
+    private final ThreadLocal<Matcher> matcher;
+    private final int[] groups;
+    private final String[] fields;
+    private final Type[] types;
+
+    private Grok(Pattern pattern, List<String> fields, List<Type> types) {
+        this.pattern = pattern;
+        this.matcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        this.fields = fields.toArray(new String[0]);
+        this.types = types.toArray(new Type[0]);
+        this.groups = indexes(pattern.pattern(), this.fields.length);
+    }
+
+    /**
+     * Compile a grok expression.
+     *
+     * @param expression the grok expression.
+     * @param patterns the custom patterns, added to (or overriding) the bundled library.
+     * @return the compiled grok expression.
+     * @throws IllegalArgumentException if the expression references an unknown or recursive pattern, or is not a valid regex.
+     */
+    public static Grok compile(String expression, Map<String, String> patterns) {
+        Map<String, String> library = LIBRARY;
+        if (patterns != null && !patterns.isEmpty()) {
+            library = new HashMap<>(LIBRARY);
+            library.putAll(patterns);
+        }
+        List<String> fields = new ArrayList<>();
+        List<Type> types = new ArrayList<>();
+        String regex = expand(expression, library, new ArrayDeque<>(), fields, types);
+        return new Grok(Pattern.compile(regex), fields, types);
+    }
+
+    /**
+     * @return the bundled patterns library.
+     */
+    public static Map<String, String> library() {
+        return LIBRARY;
+    }
+
+    /**
+     * Match the line, and put the (converted) fields in the data map.
+     *
+     * @return {@code true} if the line matches the expression, {@code false} else.
+     */
+    public boolean match(String line, Map<String, Object> data) {
+        Matcher matcher = this.matcher.get().reset(line);
+        if (!matcher.find()) {
+            return false;
+        }
+        for (int i = 0; i < groups.length; i++) {
+            String value = matcher.group(groups[i]);
+            // a field can be defined in several alternatives, the first matching one is used
+            if (value != null && !data.containsKey(fields[i])) {
+                data.put(fields[i], convert(value, types[i]));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the expanded regex.
+     */
+    public String regex() {
+        return pattern.pattern();
+    }
+
+    private static String expand(String expression, Map<String, String> library, Deque<String> stack, List<String> fields, List<Type> types) {
+        StringBuilder builder = new StringBuilder(expression.length() * 2);
+        int length = expression.length();
+        int i = 0;
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                builder.append(c).append(expression.charAt(i + 1));
+                i += 2;
+            } else if (c == '%' && i + 1 < length && expression.charAt(i + 1) == '{') {
+                int end = expression.indexOf('}', i + 2);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated pattern reference in " + expression);
+                }
+                String[] reference = expression.substring(i + 2, end).split(":", 3);
+                String name = reference[0];
+                String definition = library.get(name);
+                if (definition == null) {
+                    throw new IllegalArgumentException("Unknown grok pattern " + name);
+                }
+                if (stack.contains(name)) {
+                    throw new IllegalArgumentException("Recursive grok pattern " + name);
+                }
+                String group = null;
+                if (reference.length > 1) {
+                    group = group(fields, types, reference[1], (reference.length > 2) ? reference[2] : null);
+                }
+                stack.push(name);
+                String expanded = expand(definition, library, stack, fields, types);
+                stack.pop();
+                if (group != null) {
+                    builder.append("(?<").append(group).append('>').append(expanded).append(')');
+                } else if (alternation(expanded) || (end + 1 < length && QUANTIFIERS.indexOf(expression.charAt(end + 1)) >= 0)) {
+                    // the (anonymous) group is only needed to isolate an alternation or to apply a quantifier
+                    builder.append("(?:").append(expanded).append(')');
+                } else {
+                    builder.append(expanded);
+                }
+                i = end + 1;
+            } else if (c == '(' && expression.startsWith("(?<", i) && i + 3 < length && Character.isLetter(expression.charAt(i + 3))) {
+                // regex named group, the name is used as field
+                int end = expression.indexOf('>', i + 3);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated named group in " + expression);
+                }
+                builder.append("(?<").append(group(fields, types, expression.substring(i + 3, end), null)).append('>');
+                i = end + 1;
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Check if the regex contains an alternation outside of any group.
+     */
+    private static boolean alternation(String regex) {
+        int depth = 0;
+        int length = regex.length();
+        for (int i = 0; i < length; i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = endOfClass(regex, i);
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the capturing group index of the generated named groups, to get the groups by index when matching.
+     */
+    private static int[] indexes(String regex, int count) {
+        int[] indexes = new int[count];
+        int group = 0;
+        int length = regex.length();
+        for (int i = 0; i < length; i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < length && regex.charAt(i + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    i = (end < 0) ? length : end + 1;
+                } else {
+                    i++;
+                }
+            } else if (c == '[') {
+                i = endOfClass(regex, i);
+            } else if (c == '(') {
+                if (i + 1 >= length || regex.charAt(i + 1) != '?') {
+                    group++;
+                } else if (regex.startsWith("(?<", i) && i + 3 < length && Character.isLetter(regex.charAt(i + 3))) {
+                    group++;
+                    if (regex.startsWith(GROUP_PREFIX, i + 3)) {
+                        int end = regex.indexOf('>', i + 3);
+                        indexes[Integer.parseInt(regex.substring(i + 3 + GROUP_PREFIX.length(), end))] = group;
+                    }
+                }
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the index of the end of the character class starting at the given index (handling nested classes).
+     */
+    private static int endOfClass(String regex, int start) {
+        int depth = 0;
+        int length = regex.length();
+        for (int i = start; i < length; i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+                // a ] just after [ or [^ is a literal
+                if (i + 1 < length && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+                if (i + 1 < length && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (c == ']' && --depth == 0) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static String group(List<String> fields, List<Type> types, String field, String type) {
+        String group = GROUP_PREFIX + fields.size();
+        fields.add(field);
+        types.add(type(type));
+        return group;
+    }
+
+    private static Type type(String type) {
+        if (type == null) {
+            return Type.AUTO;
+        }
+        switch (type.trim().toLowerCase()) {
+            case "int":
+            case "integer":
+                return Type.INT;
+            case "long":
+                return Type.LONG;
+            case "float":
+            case "double":
+                return Type.DOUBLE;
+            case "boolean":
+                return Type.BOOLEAN;
+            case "string":
+                return Type.STRING;
+            default:
+                throw new IllegalArgumentException("Unknown grok type " + type);
+        }
+    }
+
+    static Object convert(String value, Type type) {
+        Object converted;
+        switch (type) {
+            case INT:
+                converted = TypeInference.parseInteger(value);
+                return (converted instanceof Integer) ? converted : value;
+            case LONG:
+                converted = TypeInference.parseInteger(value);
+                return (converted != null) ? ((Number) converted).longValue() : value;
+            case DOUBLE:
+                converted = TypeInference.parseDouble(value);
+                return (converted != null) ? converted : value;
+            case BOOLEAN:
+                converted = TypeInference.parseBoolean(value);
+                return (converted != null) ? converted : value;
+            case STRING:
+                return value;
+            default:
+                return TypeInference.infer(value);
+        }
+    }
+
+    private static Map<String, String> load() {
+        Map<String, String> library = new HashMap<>();
+        try (InputStream inputStream = Grok.class.getResourceAsStream("patterns")) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int index = line.indexOf(' ');
+                library.put(line.substring(0, index), line.substring(index + 1).trim());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't load the grok patterns library", e);
+        }
+        return Collections.unmodifiableMap(library);
+    }
+
+}
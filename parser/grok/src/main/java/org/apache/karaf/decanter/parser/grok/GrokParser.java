@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.grok;
+
+import org.apache.karaf.decanter.api.parser.Parser;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parse a line using a grok expression ({@code pattern} property), with the bundled patterns library and the custom
+ * patterns defined with {@code patterns.NAME} properties. The expression is expanded and compiled once at activation.
+ */
+@Component(
+        name = "org.apache.karaf.decanter.parser.grok",
+        immediate = true,
+        property = Parser.SERVICE_KEY_ID + "=grok"
+)
+public class GrokParser implements Parser {
+
+    public static final String PATTERN_CONFIG = "pattern";
+    public static final String PATTERNS_CONFIG_PREFIX = "patterns.";
+
+    private Grok grok;
+
+    @Activate
+    public void activate(ComponentContext componentContext) {
+        activate(componentContext.getProperties());
+    }
+
+    public void activate(Dictionary<String, Object> config) {
+        String pattern = (config.get(PATTERN_CONFIG) != null) ? (String) config.get(PATTERN_CONFIG) : "%{GREEDYDATA:message}";
+        Map<String, String> patterns = new HashMap<>();
+        Enumeration<String> keys = config.keys();
+        while (keys.hasMoreElements()) {
+            String key = keys.nextElement();
+            if (key.startsWith(PATTERNS_CONFIG_PREFIX)) {
+                patterns.put(key.substring(PATTERNS_CONFIG_PREFIX.length()), config.get(key).toString());
+            }
+        }
+        this.grok = Grok.compile(pattern, patterns);
+    }
+
+    @Override
+    public Map<String, Object> parse(String key, String line) {
+        Map<String, Object> data = new HashMap<>();
+        if (line != null) {
+            grok.match(line, data);
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.grok;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+
+public class GrokParserTest {
+
+    @Test
+    public void combinedApacheLog() {
+        GrokParser parser = parser("%{COMBINEDAPACHELOG}");
+        Map<String, Object> data = parser.parse("line", "192.168.1.12 - frank [10/Oct/2020:13:55:36 +0200] \"GET /cxf/api/orders?id=1234 HTTP/1.1\" 200 2326 \"http://localhost/start.html\" \"Mozilla/5.0 (X11; Linux x86_64)\"");
+        Assert.assertEquals("192.168.1.12", data.get("clientip"));
+        Assert.assertEquals("-", data.get("ident"));
+        Assert.assertEquals("frank", data.get("auth"));
+        Assert.assertEquals("10/Oct/2020:13:55:36 +0200", data.get("timestamp"));
+        Assert.assertEquals("GET", data.get("verb"));
+        Assert.assertEquals("/cxf/api/orders?id=1234", data.get("request"));
+        Assert.assertEquals("1.1", data.get("httpversion"));
+        Assert.assertEquals(200, data.get("response"));
+        Assert.assertEquals(2326L, data.get("bytes"));
+        Assert.assertEquals("\"http://localhost/start.html\"", data.get("referrer"));
+        Assert.assertEquals("\"Mozilla/5.0 (X11; Linux x86_64)\"", data.get("agent"));
+        Assert.assertFalse(data.containsKey("rawrequest"));
+
+        data = parser.parse("line", "::1 - - [10/Oct/2020:13:55:36 +0200] \"-\" 408 - \"-\" \"-\"");
+        Assert.assertEquals("::1", data.get("clientip"));
+        Assert.assertEquals("-", data.get("rawrequest"));
+        Assert.assertEquals(408, data.get("response"));
+        Assert.assertFalse(data.containsKey("bytes"));
+    }
+
+    @Test
+    public void syslog() {
+        GrokParser parser = parser("%{SYSLOGLINE}");
+        Map<String, Object> data = parser.parse("line", "Oct 11 22:14:15 mymachine su[1234]: 'su root' failed for lonvick on /dev/pts/8");
+        Assert.assertEquals("Oct 11 22:14:15", data.get("timestamp"));
+        Assert.assertEquals("mymachine", data.get("logsource"));
+        Assert.assertEquals("su", data.get("program"));
+        Assert.assertEquals(1234, data.get("pid"));
+        Assert.assertEquals("'su root' failed for lonvick on /dev/pts/8", data.get("message"));
+    }
+
+    @Test
+    public void nginxError() {
+        GrokParser parser = parser("%{NGINXERROR}");
+        Map<String, Object> data = parser.parse("line", "2020/10/10 13:55:36 [error] 1234#0: *56 open() \"/usr/share/nginx/html/favicon.ico\" failed (2: No such file or directory)");
+        Assert.assertEquals("2020/10/10 13:55:36", data.get("timestamp"));
+        Assert.assertEquals("error", data.get("level"));
+        Assert.assertEquals(1234, data.get("pid"));
+        Assert.assertEquals(56, data.get("connection"));
+    }
+
+    @Test
+    public void java() {
+        GrokParser parser = parser("%{JAVAEXCEPTION}");
+        Map<String, Object> data = parser.parse("line", "Caused by: java.net.ConnectException: Connection refused");
+        Assert.assertEquals("java.net.ConnectException", data.get("exception"));
+        Assert.assertEquals("Connection refused", data.get("message"));
+        Assert.assertTrue(parser.parse("line", "INFO the exception java.lang.Exception").isEmpty());
+
+        parser = parser("%{JAVASTACKTRACEPART}");
+        data = parser.parse("line", "\tat org.apache.karaf.decanter.appender.elasticsearch.ElasticsearchAppender.send(ElasticsearchAppender.java:174)");
+        Assert.assertEquals("org.apache.karaf.decanter.appender.elasticsearch.ElasticsearchAppender", data.get("class"));
+        Assert.assertEquals("send", data.get("method"));
+        Assert.assertEquals("ElasticsearchAppender.java", data.get("file"));
+        Assert.assertEquals(174, data.get("line"));
+    }
+
+    @Test
+    public void karafLog() {
+        GrokParser parser = parser("%{KARAFLOG}");
+        Map<String, Object> data = parser.parse("line", "2018-09-07T08:40:41,768 | INFO  | FelixStartLevel  | core             | 14 - org.apache.aries.jmx.core - 1.1.8 | Unregistering MBean");
+        Assert.assertEquals("2018-09-07T08:40:41,768", data.get("timestamp"));
+        Assert.assertEquals("INFO", data.get("level"));
+        Assert.assertEquals("FelixStartLevel", data.get("thread"));
+        Assert.assertEquals("core", data.get("logger"));
+        Assert.assertEquals(14, data.get("bundle.id"));
+        Assert.assertEquals("org.apache.aries.jmx.core", data.get("bundle.name"));
+        Assert.assertEquals("1.1.8", data.get("bundle.version"));
+        Assert.assertEquals("Unregistering MBean", data.get("message"));
+    }
+
+    @Test
+    public void customPatternsAndTypes() {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("pattern", "^%{ORDERID:order.id} %{NUMBER:amount:double} %{WORD:paid:boolean} %{NUMBER:count} (?<comment>.*)$");
+        config.put("patterns.ORDERID", "[A-Z]{3}-%{INT}");
+        GrokParser parser = new GrokParser();
+        parser.activate(config);
+
+        Map<String, Object> data = parser.parse("line", "ABC-1234 12 true 3 fast delivery");
+        Assert.assertEquals("ABC-1234", data.get("order.id"));
+        Assert.assertEquals(12.0, data.get("amount"));
+        Assert.assertEquals(Boolean.TRUE, data.get("paid"));
+        Assert.assertEquals(3, data.get("count"));
+        Assert.assertEquals("fast delivery", data.get("comment"));
+
+        Assert.assertTrue(parser.parse("line", "no match").isEmpty());
+    }
+
+    @Test
+    public void invalidPatterns() {
+        try {
+            parser("%{UNKNOWN:field}");
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Unknown grok pattern UNKNOWN", e.getMessage());
+        }
+        try {
+            Dictionary<String, Object> config = new Hashtable<>();
+            config.put("pattern", "%{LOOP}");
+            config.put("patterns.LOOP", "a%{LOOP}");
+            new GrokParser().activate(config);
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Recursive grok pattern LOOP", e.getMessage());
+        }
+    }
+
+    @Test
+    public void library() {
+        // all the bundled patterns are valid
+        for (String name : Grok.library().keySet()) {
+            Grok.compile("%{" + name + "}", null);
+        }
+    }
+
+    private GrokParser parser(String pattern) {
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("pattern", pattern);
+        GrokParser parser = new GrokParser();
+        parser.activate(config);
+        return parser;
+    }
+
+}
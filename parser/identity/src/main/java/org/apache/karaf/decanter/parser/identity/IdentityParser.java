@@ -17,6 +17,7 @@
 package org.apache.karaf.decanter.parser.identity;
 
 import org.apache.karaf.decanter.api.parser.Parser;
+import org.apache.karaf.decanter.api.parser.TypeInference;
 import org.osgi.service.component.annotations.Component;
 
 import java.util.HashMap;
@@ -37,21 +38,7 @@ public class IdentityParser implements Parser {
             datakey = key.trim();
         }
 
-        try {
-            data.put(datakey, Integer.parseInt(line));
-            return data;
-        } catch (Exception e) {
-            // nothing to do
-        }
-
-        try {
-            data.put(datakey, Long.parseLong(line));
-            return data;
-        } catch (Exception e) {
-            // nothing to do
-        }
-
-        data.put(datakey, line);
+        data.put(datakey, TypeInference.infer(line));
         return data;
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.json;
+
+import org.apache.karaf.decanter.api.parser.Parser;
+import org.apache.karaf.decanter.api.parser.TypeInference;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParser.Event;
+import javax.json.stream.JsonParserFactory;
+import javax.json.stream.JsonParsingException;
+
+/**
+ * Parse JSON lines (structured logs) with a streaming parser.
+ * <p>
+ * The nested objects are flattened up to {@code flatten.depth} levels ({@code parent.child} keys), the deeper objects
+ * are nested maps. The event contains {@code max.fields} fields at most. A line which is not a JSON object is
+ * passed through, as the identity parser.
+ */
+@Component(
+        name = "org.apache.karaf.decanter.parser.json",
+        immediate = true,
+        property = Parser.SERVICE_KEY_ID + "=json"
+)
+public class JsonLineParser implements Parser {
+
+    public static final String FLATTEN_DEPTH_CONFIG = "flatten.depth";
+    public static final String FLATTEN_SEPARATOR_CONFIG = "flatten.separator";
+    public static final String MAX_FIELDS_CONFIG = "max.fields";
+
+    private final JsonParserFactory parserFactory = Json.createParserFactory(null);
+
+    private int flattenDepth;
+    private String separator;
+    private int maxFields;
+
+    @Activate
+    public void activate(ComponentContext componentContext) {
+        activate(componentContext.getProperties());
+    }
+
+    public void activate(Dictionary<String, Object> config) {
+        this.flattenDepth = (config.get(FLATTEN_DEPTH_CONFIG) != null) ? Integer.parseInt(config.get(FLATTEN_DEPTH_CONFIG).toString()) : 0;
+        this.separator = (config.get(FLATTEN_SEPARATOR_CONFIG) != null) ? (String) config.get(FLATTEN_SEPARATOR_CONFIG) : ".";
+        this.maxFields = (config.get(MAX_FIELDS_CONFIG) != null) ? Integer.parseInt(config.get(MAX_FIELDS_CONFIG).toString()) : 1000;
+    }
+
+    @Override
+    public Map<String, Object> parse(String key, String line) {
+        Map<String, Object> data = new HashMap<>();
+        if (line == null) {
+            return data;
+        }
+        try (JsonParser parser = parserFactory.createParser(new StringReader(line))) {
+            if (parser.hasNext() && parser.next() == Event.START_OBJECT) {
+                readObject(parser, data, null, 0);
+                return data;
+            }
+        } catch (JsonException e) {
+            // not a JSON line
+            data.clear();
+        }
+        data.put((key != null) ? key.trim() : "line", TypeInference.infer(line));
+        return data;
+    }
+
+    private void readObject(JsonParser parser, Map<String, Object> data, String prefix, int depth) {
+        String name = null;
+        while (parser.hasNext()) {
+            Event event = parser.next();
+            if (event == Event.END_OBJECT) {
+                return;
+            } else if (event == Event.KEY_NAME) {
+                name = (prefix == null) ? parser.getString() : prefix + separator + parser.getString();
+            } else if (event == Event.START_OBJECT && depth < flattenDepth) {
+                readObject(parser, data, name, depth + 1);
+            } else if (data.size() >= maxFields && !data.containsKey(name)) {
+                skip(parser, event);
+            } else {
+                data.put(name, readValue(parser, event));
+            }
+        }
+        throw new JsonParsingException("Unexpected end of JSON object", parser.getLocation());
+    }
+
+    private Map<String, Object> readMap(JsonParser parser) {
+        Map<String, Object> map = new HashMap<>();
+        String name = null;
+        while (parser.hasNext()) {
+            Event event = parser.next();
+            if (event == Event.END_OBJECT) {
+                return map;
+            } else if (event == Event.KEY_NAME) {
+                name = parser.getString();
+            } else {
+                map.put(name, readValue(parser, event));
+            }
+        }
+        throw new JsonParsingException("Unexpected end of JSON object", parser.getLocation());
+    }
+
+    private List<Object> readArray(JsonParser parser) {
+        List<Object> list = new ArrayList<>();
+        while (parser.hasNext()) {
+            Event event = parser.next();
+            if (event == Event.END_ARRAY) {
+                return list;
+            }
+            list.add(readValue(parser, event));
+        }
+        throw new JsonParsingException("Unexpected end of JSON array", parser.getLocation());
+    }
+
+    private Object readValue(JsonParser parser, Event event) {
+        switch (event) {
+            case START_OBJECT:
+                return readMap(parser);
+            case START_ARRAY:
+                return readArray(parser);
+            case VALUE_STRING:
+                return parser.getString();
+            case VALUE_NUMBER:
+                // the same types as the other parsers (integer, long or double)
+                return TypeInference.infer(parser.getString());
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    private static void skip(JsonParser parser, Event event) {
+        if (event != Event.START_OBJECT && event != Event.START_ARRAY) {
+            return;
+        }
+        int depth = 1;
+        while (depth > 0 && parser.hasNext()) {
+            Event next = parser.next();
+            if (next == Event.START_OBJECT || next == Event.START_ARRAY) {
+                depth++;
+            } else if (next == Event.END_OBJECT || next == Event.END_ARRAY) {
+                depth--;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.json;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+
+public class JsonLineParserTest {
+
+    private final static String TEST_LINE = "{\"timestamp\":\"2020-10-10T13:55:36.123Z\",\"level\":\"INFO\",\"message\":\"order created\","
+            + "\"duration\":42,\"ratio\":0.5,\"bytes\":12345678901,\"cached\":false,\"tags\":[\"a\",\"b\"],\"parent\":null,"
+            + "\"http\":{\"method\":\"POST\",\"status\":201,\"request\":{\"path\":\"/api/orders\",\"size\":512}}}";
+
+    @Test
+    public void nested() {
+        JsonLineParser parser = new JsonLineParser();
+        parser.activate(new Hashtable<>());
+
+        Map<String, Object> data = parser.parse("line", TEST_LINE);
+        Assert.assertEquals(10, data.size());
+        Assert.assertEquals("INFO", data.get("level"));
+        Assert.assertEquals(42, data.get("duration"));
+        Assert.assertEquals(0.5, data.get("ratio"));
+        Assert.assertEquals(12345678901L, data.get("bytes"));
+        Assert.assertEquals(Boolean.FALSE, data.get("cached"));
+        Assert.assertEquals(Arrays.asList("a", "b"), data.get("tags"));
+        Assert.assertTrue(data.containsKey("parent"));
+        Assert.assertNull(data.get("parent"));
+        Map<?, ?> http = (Map<?, ?>) data.get("http");
+        Assert.assertEquals(201, http.get("status"));
+        Assert.assertEquals("/api/orders", ((Map<?, ?>) http.get("request")).get("path"));
+    }
+
+    @Test
+    public void flatten() {
+        JsonLineParser parser = new JsonLineParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("flatten.depth", "1");
+        config.put("flatten.separator", "_");
+        parser.activate(config);
+
+        Map<String, Object> data = parser.parse("line", TEST_LINE);
+        Assert.assertEquals(12, data.size());
+        Assert.assertEquals("POST", data.get("http_method"));
+        Assert.assertEquals(201, data.get("http_status"));
+        Assert.assertEquals(512, ((Map<?, ?>) data.get("http_request")).get("size"));
+        Assert.assertFalse(data.containsKey("http"));
+
+        config.put("flatten.depth", "10");
+        parser.activate(config);
+        data = parser.parse("line", TEST_LINE);
+        Assert.assertEquals("/api/orders", data.get("http_request_path"));
+        Assert.assertEquals(512, data.get("http_request_size"));
+    }
+
+    @Test
+    public void maxFields() {
+        JsonLineParser parser = new JsonLineParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("max.fields", "3");
+        parser.activate(config);
+
+        Map<String, Object> data = parser.parse("line", TEST_LINE);
+        Assert.assertEquals(3, data.size());
+        Assert.assertEquals("2020-10-10T13:55:36.123Z", data.get("timestamp"));
+        Assert.assertEquals("INFO", data.get("level"));
+        Assert.assertEquals("order created", data.get("message"));
+    }
+
+    @Test
+    public void notJson() {
+        JsonLineParser parser = new JsonLineParser();
+        parser.activate(new Hashtable<>());
+
+        Assert.assertEquals("not a json line", parser.parse("line", "not a json line").get("line"));
+        Assert.assertEquals("{\"truncated\":", parser.parse("line", "{\"truncated\":").get("line"));
+        Assert.assertEquals(1, parser.parse("line", "[1,2]").size());
+        Assert.assertEquals(42, parser.parse(null, "42").get("line"));
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.kv;
+
+import org.apache.karaf.decanter.api.parser.Parser;
+import org.apache.karaf.decanter.api.parser.TypeInference;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parse {@code key=value key2="quoted value"} (logfmt) lines.
+ * <p>
+ * The line is scanned once: the keys and values are taken as substrings of the line (an unescaped copy is only
+ * built for the quoted values containing escaped characters). The type of the unquoted values is inferred, the
+ * quoted values are strings, and a key without value is {@code true}.
+ */
+@Component(
+        name = "org.apache.karaf.decanter.parser.kv",
+        immediate = true,
+        property = Parser.SERVICE_KEY_ID + "=kv"
+)
+public class KeyValueParser implements Parser {
+
+    public static final String PAIR_SEPARATOR_CONFIG = "pair.separator";
+    public static final String VALUE_SEPARATOR_CONFIG = "value.separator";
+    public static final String QUOTE_CONFIG = "quote";
+
+    private String pairSeparator;
+    private String valueSeparator;
+    private String quotes;
+
+    @Activate
+    public void activate(ComponentContext componentContext) {
+        activate(componentContext.getProperties());
+    }
+
+    public void activate(Dictionary<String, Object> config) {
+        this.pairSeparator = (config.get(PAIR_SEPARATOR_CONFIG) != null) ? (String) config.get(PAIR_SEPARATOR_CONFIG) : null;
+        this.valueSeparator = (config.get(VALUE_SEPARATOR_CONFIG) != null) ? (String) config.get(VALUE_SEPARATOR_CONFIG) : "=";
+        this.quotes = (config.get(QUOTE_CONFIG) != null) ? (String) config.get(QUOTE_CONFIG) : "\"";
+        if (valueSeparator.isEmpty() || (pairSeparator != null && pairSeparator.isEmpty())) {
+            throw new IllegalArgumentException("The separators can't be empty");
+        }
+    }
+
+    @Override
+    public Map<String, Object> parse(String key, String line) {
+        Map<String, Object> data = new HashMap<>();
+        if (line == null) {
+            return data;
+        }
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            // skip the pair separators
+            int separator = pairSeparator(line, i);
+            if (separator > 0) {
+                i += separator;
+                continue;
+            }
+            // key, up to the value separator or the pair separator
+            int keyStart = i;
+            while (i < length && !line.startsWith(valueSeparator, i) && pairSeparator(line, i) == 0) {
+                i++;
+            }
+            String name = line.substring(keyStart, i);
+            if (i >= length || !line.startsWith(valueSeparator, i)) {
+                data.put(name, Boolean.TRUE);
+                continue;
+            }
+            i += valueSeparator.length();
+            // value, quoted or up to the pair separator
+            if (i < length && quotes.indexOf(line.charAt(i)) >= 0) {
+                char quote = line.charAt(i);
+                int valueStart = ++i;
+                StringBuilder unescaped = null;
+                while (i < length && line.charAt(i) != quote) {
+                    if (line.charAt(i) == '\\' && i + 1 < length) {
+                        if (unescaped == null) {
+                            unescaped = new StringBuilder(line.length() - valueStart);
+                        }
+                        unescaped.append(line, valueStart, i).append(unescape(line.charAt(i + 1)));
+                        i += 2;
+                        valueStart = i;
+                    } else {
+                        i++;
+                    }
+                }
+                if (unescaped != null) {
+                    data.put(name, unescaped.append(line, valueStart, i).toString());
+                } else {
+                    data.put(name, line.substring(valueStart, i));
+                }
+                // skip the closing quote
+                i++;
+            } else {
+                int valueStart = i;
+                while (i < length && pairSeparator(line, i) == 0) {
+                    i++;
+                }
+                data.put(name, TypeInference.infer(line.substring(valueStart, i)));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * @return the length of the pair separator at the given index, or 0 if there's no pair separator.
+     */
+    private int pairSeparator(String line, int index) {
+        if (pairSeparator == null) {
+            char c = line.charAt(index);
+            return (c == ' ' || c == '\t') ? 1 : 0;
+        }
+        return line.startsWith(pairSeparator, index) ? pairSeparator.length() : 0;
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default:
+                return c;
+        }
+    }
+
+}
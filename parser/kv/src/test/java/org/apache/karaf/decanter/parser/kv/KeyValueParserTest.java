@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.parser.kv;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+
+public class KeyValueParserTest {
+
+    @Test
+    public void logfmt() {
+        KeyValueParser parser = new KeyValueParser();
+        parser.activate(new Hashtable<>());
+
+        Map<String, Object> data = parser.parse("line", "ts=2020-10-10T13:55:36.123Z level=info  msg=\"request done, status=\\\"ok\\\"\"\tpath=/api/orders "
+                + "status=200 duration=0.042 bytes=12345678901 cached=false id=\"1234\" retry empty= service=order-service");
+        Assert.assertEquals(12, data.size());
+        Assert.assertEquals("2020-10-10T13:55:36.123Z", data.get("ts"));
+        Assert.assertEquals("info", data.get("level"));
+        Assert.assertEquals("request done, status=\"ok\"", data.get("msg"));
+        Assert.assertEquals("/api/orders", data.get("path"));
+        Assert.assertEquals(200, data.get("status"));
+        Assert.assertEquals(0.042, data.get("duration"));
+        Assert.assertEquals(12345678901L, data.get("bytes"));
+        Assert.assertEquals(Boolean.FALSE, data.get("cached"));
+        // quoted values are strings
+        Assert.assertEquals("1234", data.get("id"));
+        Assert.assertEquals(Boolean.TRUE, data.get("retry"));
+        Assert.assertEquals("", data.get("empty"));
+        Assert.assertEquals("order-service", data.get("service"));
+    }
+
+    @Test
+    public void separators() {
+        KeyValueParser parser = new KeyValueParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("pair.separator", ", ");
+        config.put("value.separator", ":");
+        config.put("quote", "'\"");
+        parser.activate(config);
+
+        Map<String, Object> data = parser.parse("line", "user:'frank, the admin', action:login, remote:192.168.1.12, message:\"unterminated");
+        Assert.assertEquals(4, data.size());
+        Assert.assertEquals("frank, the admin", data.get("user"));
+        Assert.assertEquals("login", data.get("action"));
+        Assert.assertEquals("192.168.1.12", data.get("remote"));
+        Assert.assertEquals("unterminated", data.get("message"));
+    }
+
+    @Test
+    public void empty() {
+        KeyValueParser parser = new KeyValueParser();
+        parser.activate(new Hashtable<>());
+        Assert.assertTrue(parser.parse("line", null).isEmpty());
+        Assert.assertTrue(parser.parse("line", "").isEmpty());
+        Assert.assertTrue(parser.parse("line", "   ").isEmpty());
+    }
+
+}
@@ -17,18 +17,29 @@
 package org.apache.karaf.decanter.parser.regex;
 
 import org.apache.karaf.decanter.api.parser.Parser;
+import org.apache.karaf.decanter.api.parser.TypeInference;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Parse a line using the regex groups.
+ * <p>
+ * The key of each group is resolved once at activation: the {@code keys} property (if it matches the groups count),
+ * else the name of the named groups ({@code (?<name>...)}), else {@code key-N}. The value of each group is converted
+ * to the type declared in the {@code types} property ({@code key:type} list, with {@code int}, {@code long},
+ * {@code double}, {@code boolean} or {@code string} type), or to the type inferred by {@link TypeInference}.
+ */
 @Component(
         name = "org.apache.karaf.decanter.parser.regex",
         immediate = true,
@@ -38,8 +49,13 @@ public class RegexParser implements Parser {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(RegexParser.class);
 
+    enum Type {
+        AUTO, INT, LONG, DOUBLE, BOOLEAN, STRING
+    }
+
     private Pattern pattern;
-    private String keys = null;
+    private String[] keys;
+    private Type[] types;
 
     @Activate
     public void activate(ComponentContext componentContext) {
@@ -49,7 +65,39 @@ public class RegexParser implements Parser {
     public void activate(Dictionary<String, Object> config) {
         String regex = (config.get("regex") != null) ? (String) config.get("regex") : "(.*)";
         this.pattern = Pattern.compile(regex);
-        this.keys = (config.get("keys") != null) ? (String) config.get("keys") : null;
+        int groupCount = pattern.matcher("").groupCount();
+
+        String[] names = groupNames(regex, groupCount);
+        String[] keys = null;
+        if (config.get("keys") != null) {
+            keys = ((String) config.get("keys")).split(",");
+            if (keys.length != groupCount) {
+                LOGGER.warn("keys count and regex groups count don't match, using default keys ID");
+                keys = null;
+            }
+        }
+        if (keys == null) {
+            keys = new String[groupCount];
+            for (int i = 0; i < groupCount; i++) {
+                keys[i] = (names[i] != null) ? names[i] : "key-" + i;
+            }
+        }
+        this.keys = keys;
+
+        Map<String, Type> declared = new HashMap<>();
+        if (config.get("types") != null) {
+            for (String type : ((String) config.get("types")).split(",")) {
+                int index = type.lastIndexOf(':');
+                if (index <= 0) {
+                    throw new IllegalArgumentException("Invalid type " + type + ", key:type is expected");
+                }
+                declared.put(type.substring(0, index).trim(), Type.valueOf(type.substring(index + 1).trim().toUpperCase()));
+            }
+        }
+        this.types = new Type[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            types[i] = declared.getOrDefault(keys[i].trim(), Type.AUTO);
+        }
     }
 
     @Override
@@ -57,41 +105,81 @@ public class RegexParser implements Parser {
         Map<String, Object> data = new HashMap<>();
         if (line != null) {
             Matcher matcher = pattern.matcher(line);
-            String[] keysArray;
-            if (keys != null) {
-                keysArray = keys.split(",");
-                if (keysArray.length != matcher.groupCount()) {
-                    LOGGER.warn("keys count and regex groups count don't match, using default keys ID");
-                    keysArray = new String[matcher.groupCount()];
-                    for (int i = 0; i < keysArray.length; i++) {
-                        keysArray[i] = "key-" + i;
+            if (matcher.find()) {
+                for (int i = 0; i < keys.length; i++) {
+                    String value = matcher.group(i + 1);
+                    if (value != null) {
+                        data.put(keys[i], convert(value, types[i]));
                     }
                 }
-            } else {
-                keysArray = new String[matcher.groupCount()];
-                for (int i = 0; i < keysArray.length; i++) {
-                    keysArray[i] = "key-" + i;
-                }
             }
-            if (matcher.find()) {
-                for (int i = 0; i < matcher.groupCount(); i++) {
-                    try {
-                        data.put(keysArray[i], Integer.parseInt(matcher.group(i + 1)));
-                        continue;
-                    } catch (Exception e) {
-                        // nothing to do
-                    }
+        }
+        return data;
+    }
 
-                    try {
-                        data.put(keysArray[i], Long.parseLong(matcher.group(i + 1)));
-                        continue;
-                    } catch (Exception e) {
-                        // nothing to do
+    /**
+     * Convert the value to the given type, keeping the string value if the conversion is not possible.
+     */
+    static Object convert(String value, Type type) {
+        Object converted;
+        switch (type) {
+            case INT:
+                converted = TypeInference.parseInteger(value);
+                return (converted instanceof Integer) ? converted : value;
+            case LONG:
+                converted = TypeInference.parseInteger(value);
+                return (converted != null) ? ((Number) converted).longValue() : value;
+            case DOUBLE:
+                converted = TypeInference.parseDouble(value);
+                return (converted != null) ? converted : value;
+            case BOOLEAN:
+                converted = TypeInference.parseBoolean(value);
+                return (converted != null) ? converted : value;
+            case STRING:
+                return value;
+            default:
+                return TypeInference.infer(value);
+        }
+    }
+
+    /**
+     * Find the named groups in the regex, by capturing group index.
+     */
+    static String[] groupNames(String regex, int groupCount) {
+        List<String> names = new ArrayList<>();
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    // quoted sequence, up to \E
+                    int end = regex.indexOf("\\E", i + 2);
+                    i = (end < 0) ? regex.length() : end + 1;
+                } else {
+                    i++;
+                }
+            } else if (inClass) {
+                inClass = (c != ']');
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+                    // named group, but not look behind (?<= or (?<!
+                    if (i + 3 < regex.length() && regex.charAt(i + 2) == '<'
+                            && regex.charAt(i + 3) != '=' && regex.charAt(i + 3) != '!') {
+                        int end = regex.indexOf('>', i + 3);
+                        names.add(regex.substring(i + 3, end));
                     }
-                    data.put(keysArray[i], matcher.group(i + 1));
+                } else {
+                    names.add(null);
                 }
             }
         }
-        return data;
+        String[] result = new String[groupCount];
+        for (int i = 0; i < groupCount && i < names.size(); i++) {
+            result[i] = names.get(i);
+        }
+        return result;
     }
+
 }
@@ -74,4 +74,43 @@ public class RegexParserTest {
         Assert.assertEquals("test", result.get("key-3"));
     }
 
+    @Test
+    public void namedGroups() throws Exception {
+        RegexParser regexParser = new RegexParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("regex", "(?<level>[A-Z]+) \\[(\\w+)\\] (?:took )?(?<duration>\\d+)ms(?<=ms)");
+        regexParser.activate(config);
+
+        Map<String, Object> result = regexParser.parse("line", "INFO [main] took 42ms");
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals("INFO", result.get("level"));
+        Assert.assertEquals("main", result.get("key-1"));
+        Assert.assertEquals(42, result.get("duration"));
+    }
+
+    @Test
+    public void types() throws Exception {
+        RegexParser regexParser = new RegexParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("regex", "(\\S+) (\\S+) (\\S+) (\\S+) (\\S+) (\\S+)");
+        config.put("keys", "id,size,ratio,enabled,code,other");
+        config.put("types", "size:long, ratio:double, enabled:boolean, code:string, other:int");
+        regexParser.activate(config);
+
+        Map<String, Object> result = regexParser.parse("line", "12 34 0.5 true 007 12345678901");
+        Assert.assertEquals(12, result.get("id"));
+        Assert.assertEquals(34L, result.get("size"));
+        Assert.assertEquals(0.5, result.get("ratio"));
+        Assert.assertEquals(Boolean.TRUE, result.get("enabled"));
+        Assert.assertEquals("007", result.get("code"));
+        // doesn't fit in an integer
+        Assert.assertEquals("12345678901", result.get("other"));
+
+        result = regexParser.parse("line", "a b c d e f");
+        Assert.assertEquals("a", result.get("id"));
+        Assert.assertEquals("b", result.get("size"));
+        Assert.assertEquals("c", result.get("ratio"));
+        Assert.assertEquals("d", result.get("enabled"));
+    }
+
 }
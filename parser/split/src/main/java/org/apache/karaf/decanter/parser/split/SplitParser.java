@@ -18,16 +18,27 @@ package org.apache.karaf.decanter.parser.split;
 
 
 import org.apache.karaf.decanter.api.parser.Parser;
+import org.apache.karaf.decanter.api.parser.TypeInference;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
+/**
+ * Split the line using a separator.
+ * <p>
+ * A literal separator (without regex metacharacter, or a single escaped metacharacter like {@code \|}) is handled
+ * with an index based splitter, supporting quoted fields ({@code quote} and {@code escape} properties). Other separators
+ * are regex. The {@code limit} property limits the number of fields: the last field contains the rest of the line.
+ */
 @Component(
         name = "org.apache.karaf.decanter.parser.split",
         immediate = true,
@@ -36,8 +47,14 @@ public class SplitParser implements Parser {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(SplitParser.class);
 
-    private String separator;
-    private String keys = null;
+    private static final String REGEX_METACHARACTERS = ".$|()[]{}^?*+\\";
+
+    private String literal;
+    private Pattern pattern;
+    private char quote;
+    private char escape;
+    private int limit;
+    private String[] keys;
 
     @Activate
     public void activate(ComponentContext componentContext) {
@@ -45,51 +62,107 @@ public class SplitParser implements Parser {
     }
 
     public void activate(Dictionary<String, Object> config) {
-        this.separator = (config.get("separator") != null) ? (String) config.get("separator") : ",";
-        this.keys = (config.get("keys") != null) ? (String) config.get("keys") : null;
+        String separator = (config.get("separator") != null) ? (String) config.get("separator") : ",";
+        this.literal = literal(separator);
+        this.pattern = (literal == null) ? Pattern.compile(separator) : null;
+        this.quote = (config.get("quote") != null) ? ((String) config.get("quote")).charAt(0) : 0;
+        this.escape = (config.get("escape") != null) ? ((String) config.get("escape")).charAt(0) : 0;
+        this.limit = (config.get("limit") != null) ? Integer.parseInt(config.get("limit").toString()) : 0;
+        this.keys = (config.get("keys") != null) ? ((String) config.get("keys")).split(",") : null;
+        if (literal == null && quote != 0) {
+            LOGGER.warn("Quoted fields are not supported with the {} regex separator, quote is ignored", separator);
+        }
     }
 
     @Override
     public Map<String, Object> parse(String key, String line) {
         Map<String, Object> map = new HashMap<>();
         if (line != null) {
-            String[] valuesArray = line.split(separator);
-            String[] keysArray;
+            List<Object> values = (literal != null) ? split(line) : split(pattern, line);
+            String[] keysArray = this.keys;
+            if (keysArray != null && keysArray.length != values.size()) {
+                LOGGER.warn("keys count and values count don't match, using default keys ID");
+                keysArray = null;
+            }
+            for (int i = 0; i < values.size(); i++) {
+                map.put((keysArray != null) ? keysArray[i] : "key-" + i, values.get(i));
+            }
+        }
+        return map;
+    }
 
-            if (this.keys != null) {
-                keysArray = this.keys.split(",");
-                if (keysArray.length != valuesArray.length) {
-                    LOGGER.warn("keys count and values count don't match, using default keys ID");
-                    keysArray = new String[valuesArray.length];
-                    for (int i = 0; i < valuesArray.length; i++) {
-                        keysArray[i] = "key-" + i;
+    /**
+     * Split the line on the literal separator. The quoted values are kept as string, the type of the other values is inferred.
+     */
+    private List<Object> split(String line) {
+        List<Object> values = new ArrayList<>();
+        int length = line.length();
+        int start = 0;
+        while (true) {
+            if (limit > 0 && values.size() == limit - 1) {
+                values.add(TypeInference.infer(line.substring(start)));
+                return values;
+            }
+            int end;
+            if (quote != 0 && start < length && line.charAt(start) == quote) {
+                StringBuilder value = new StringBuilder();
+                int i = start + 1;
+                while (i < length) {
+                    char c = line.charAt(i);
+                    if (escape != 0 && c == escape && i + 1 < length) {
+                        value.append(line.charAt(i + 1));
+                        i += 2;
+                    } else if (c == quote && i + 1 < length && line.charAt(i + 1) == quote) {
+                        // doubled quote
+                        value.append(quote);
+                        i += 2;
+                    } else if (c == quote) {
+                        i++;
+                        break;
+                    } else {
+                        value.append(c);
+                        i++;
                     }
                 }
+                values.add(value.toString());
+                // ignore the characters between the closing quote and the separator
+                end = line.indexOf(literal, i);
             } else {
-                keysArray = new String[valuesArray.length];
-                for (int i = 0; i < valuesArray.length; i++) {
-                    keysArray[i] = "key-" + i;
-                }
+                end = line.indexOf(literal, start);
+                values.add(TypeInference.infer((end < 0) ? line.substring(start) : line.substring(start, end)));
             }
-            for (int i = 0; i < valuesArray.length; i++) {
-                try {
-                    map.put(keysArray[i], Integer.parseInt(valuesArray[i]));
-                    continue;
-                } catch (Exception e) {
-                    // nothing to do
-                }
+            if (end < 0) {
+                return values;
+            }
+            start = end + literal.length();
+        }
+    }
 
-                try {
-                    map.put(keysArray[i], Long.parseLong(valuesArray[i]));
-                    continue;
-                } catch (Exception e) {
-                    // nothing to do
-                }
-                // if not integer and long value
-                map.put(keysArray[i], valuesArray[i]);
+    private List<Object> split(Pattern pattern, String line) {
+        String[] split = (limit > 0) ? pattern.split(line, limit) : pattern.split(line);
+        List<Object> values = new ArrayList<>(split.length);
+        for (String value : split) {
+            values.add(TypeInference.infer(value));
+        }
+        return values;
+    }
+
+    /**
+     * @return the literal separator, or {@code null} if the separator is a regex.
+     */
+    static String literal(String separator) {
+        if (separator.isEmpty()) {
+            return null;
+        }
+        if (separator.length() == 2 && separator.charAt(0) == '\\' && REGEX_METACHARACTERS.indexOf(separator.charAt(1)) >= 0) {
+            return separator.substring(1);
+        }
+        for (int i = 0; i < separator.length(); i++) {
+            if (REGEX_METACHARACTERS.indexOf(separator.charAt(i)) >= 0) {
+                return null;
             }
         }
-        return map;
+        return separator;
     }
 
 }
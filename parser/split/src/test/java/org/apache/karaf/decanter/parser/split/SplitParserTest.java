@@ -74,4 +74,67 @@ public class SplitParserTest {
         Assert.assertEquals("test", result.get("key-3"));
     }
 
+    @Test
+    public void literal() throws Exception {
+        Assert.assertEquals(",", SplitParser.literal(","));
+        Assert.assertEquals("; ", SplitParser.literal("; "));
+        Assert.assertEquals("|", SplitParser.literal("\\|"));
+        Assert.assertEquals("::", SplitParser.literal("::"));
+        Assert.assertNull(SplitParser.literal("\\s+"));
+        Assert.assertNull(SplitParser.literal("|"));
+
+        SplitParser splitParser = new SplitParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("separator", "\\|");
+        config.put("keys", "level,code,message,empty");
+        splitParser.activate(config);
+
+        Map<String, Object> result = splitParser.parse("line", "INFO|200|done|");
+        Assert.assertEquals(4, result.size());
+        Assert.assertEquals("INFO", result.get("level"));
+        Assert.assertEquals(200, result.get("code"));
+        Assert.assertEquals("done", result.get("message"));
+        // trailing empty fields are kept
+        Assert.assertEquals("", result.get("empty"));
+    }
+
+    @Test
+    public void quote() throws Exception {
+        SplitParser splitParser = new SplitParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("quote", "\"");
+        config.put("escape", "\\");
+        config.put("keys", "id,message,quoted,number");
+        splitParser.activate(config);
+
+        Map<String, Object> result = splitParser.parse("line", "1,\"a, \"\"quoted\"\" message\",\"with \\\" escape\",\"42\"");
+        Assert.assertEquals(4, result.size());
+        Assert.assertEquals(1, result.get("id"));
+        Assert.assertEquals("a, \"quoted\" message", result.get("message"));
+        Assert.assertEquals("with \" escape", result.get("quoted"));
+        // quoted values are strings
+        Assert.assertEquals("42", result.get("number"));
+    }
+
+    @Test
+    public void limit() throws Exception {
+        SplitParser splitParser = new SplitParser();
+        Dictionary<String, Object> config = new Hashtable<>();
+        config.put("separator", " ");
+        config.put("limit", "3");
+        splitParser.activate(config);
+
+        Map<String, Object> result = splitParser.parse("line", "2020-10-10 INFO the rest of the message");
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals("2020-10-10", result.get("key-0"));
+        Assert.assertEquals("INFO", result.get("key-1"));
+        Assert.assertEquals("the rest of the message", result.get("key-2"));
+
+        config.put("separator", "\\s+");
+        splitParser.activate(config);
+        result = splitParser.parse("line", "2020-10-10   INFO  the rest");
+        Assert.assertEquals("INFO", result.get("key-1"));
+        Assert.assertEquals("the rest", result.get("key-2"));
+    }
+
 }
@@ -27,11 +27,23 @@ import org.osgi.service.event.EventConstants;
 import org.osgi.service.event.EventHandler;
 
 import java.util.Dictionary;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Aggregate the events received during a period, and send the aggregated events periodically.
+ * <p>
+ * In {@code merge} mode (default), all the properties of the events are merged in a single event (prefixed with the
+ * event index, unless {@code overwrite} is enabled). In {@code window} mode, the statistics of the numeric properties
+ * are computed per key, on tumbling or sliding windows, and one event is sent per key per window
+ * (see {@link WindowAggregator}).
+ */
 @Component(
         name = "org.apache.karaf.decanter.processor.aggregate",
         immediate = true,
@@ -39,14 +51,21 @@ import java.util.concurrent.TimeUnit;
 )
 public class AggregateProcessor implements EventHandler {
 
+    public static final String MODE_CONFIG = "mode";
+    public static final String MERGE_MODE = "merge";
+    public static final String WINDOW_MODE = "window";
+
     @Reference
     private EventAdmin dispatcher;
 
     private String targetTopics;
     private boolean overwrite = false;
 
-    private int index = 0;
+    // the events are merged under the read lock, the merged data is handed off under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger index = new AtomicInteger();
     private ConcurrentHashMap<String, Object> mergedData = new ConcurrentHashMap<>();
+    private WindowAggregator windowAggregator;
     private ScheduledExecutorService scheduledExecutorService;
 
     @Activate
@@ -58,8 +77,18 @@ public class AggregateProcessor implements EventHandler {
         targetTopics = (configuration.get("target.topics") != null) ? configuration.get("target.topics").toString() : "decanter/process/aggregate";
         long period = (configuration.get("period") != null) ? Long.parseLong(configuration.get("period").toString()) : 60L;
         overwrite = (configuration.get("overwrite") != null) ? Boolean.parseBoolean(configuration.get("overwrite").toString()) : false;
+        String mode = (configuration.get(MODE_CONFIG) != null) ? configuration.get(MODE_CONFIG).toString() : MERGE_MODE;
         scheduledExecutorService = Executors.newScheduledThreadPool(1);
-        scheduledExecutorService.scheduleAtFixedRate(new AggregateTask(), 0, period, TimeUnit.SECONDS);
+        if (WINDOW_MODE.equalsIgnoreCase(mode)) {
+            // the windows are aligned on the period (for instance on the minute)
+            long now = System.currentTimeMillis();
+            long periodMillis = TimeUnit.SECONDS.toMillis(period);
+            windowAggregator = new WindowAggregator(configuration, period, now);
+            scheduledExecutorService.scheduleAtFixedRate(new WindowTask(), periodMillis - now % periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        } else {
+            windowAggregator = null;
+            scheduledExecutorService.scheduleAtFixedRate(new AggregateTask(), period, period, TimeUnit.SECONDS);
+        }
     }
 
     @Deactivate
@@ -69,31 +98,63 @@ public class AggregateProcessor implements EventHandler {
 
     @Override
     public void handleEvent(Event event) {
+        if (windowAggregator != null) {
+            windowAggregator.add(event);
+            return;
+        }
         // merge data
-        for (String propertyName : event.getPropertyNames()) {
-            if (overwrite) {
-                mergedData.put(propertyName, event.getProperty(propertyName));
-            } else {
-                mergedData.put(index + "." + propertyName, event.getProperty(propertyName));
+        lock.readLock().lock();
+        try {
+            int eventIndex = overwrite ? 0 : index.getAndIncrement();
+            for (String propertyName : event.getPropertyNames()) {
+                if (overwrite) {
+                    mergedData.put(propertyName, event.getProperty(propertyName));
+                } else {
+                    mergedData.put(eventIndex + "." + propertyName, event.getProperty(propertyName));
+                }
             }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void send(Map<String, Object> data) {
+        data.put("processor", "aggregate");
+        String[] topics = targetTopics.split(",");
+        for (String topic : topics) {
+            dispatcher.postEvent(new Event(topic, data));
         }
-        index++;
     }
 
     class AggregateTask implements Runnable {
 
         @Override
         public void run() {
-            // create event and send
-            if (mergedData.size() > 0) {
-                mergedData.put("processor", "aggregate");
-                String[] topics = targetTopics.split(",");
-                for (String topic : topics) {
-                    dispatcher.postEvent(new Event(topic, mergedData));
+            // reset the merged data, the events handled from now are merged in the new map
+            ConcurrentHashMap<String, Object> data;
+            lock.writeLock().lock();
+            try {
+                if (mergedData.isEmpty()) {
+                    return;
                 }
-                // reset the merged data
-                mergedData.clear();
-                index = 0;
+                data = mergedData;
+                mergedData = new ConcurrentHashMap<>();
+                index.set(0);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            // create event and send
+            send(data);
+        }
+
+    }
+
+    class WindowTask implements Runnable {
+
+        @Override
+        public void run() {
+            for (Map<String, Object> data : windowAggregator.roll(System.currentTimeMillis())) {
+                send(data);
             }
         }
 
@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.karaf.decanter.processor.aggregate;
+
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Statistics (count, sum, min, max, mean, last) of the numeric fields of the events, per key (the event topic and the
+ * {@code groupBy} properties values), on tumbling or sliding windows.
+ * <p>
+ * The events are accumulated in the current pane (lasting {@code period}). When the pane is closed, the statistics of
+ * the last panes covering {@code window.size} are computed: a window is tumbling when its size is the period, sliding
+ * when its size is a multiple of the period.
+ */
+class WindowAggregator {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(WindowAggregator.class);
+
+    public static final String WINDOW_SIZE_CONFIG = "window.size";
+    public static final String GROUP_BY_CONFIG = "groupBy";
+    public static final String FIELDS_CONFIG = "fields";
+    public static final String STATISTICS_CONFIG = "statistics";
+    public static final String MAX_KEYS_CONFIG = "max.keys";
+
+    public static final String SOURCE_TOPIC_PROPERTY = "sourceTopic";
+    public static final String COUNT_PROPERTY = "count";
+    public static final String WINDOW_START_PROPERTY = "window.start";
+    public static final String WINDOW_END_PROPERTY = "window.end";
+
+    private static final List<String> ALL_STATISTICS = Arrays.asList("count", "sum", "min", "max", "mean", "last");
+
+    private final String[] groupBy;
+    private final Set<String> fields;
+    private final Set<String> statistics;
+    private final int panes;
+    private final int maxKeys;
+
+    // the events are added under the read lock, the current pane is closed under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Pane current;
+    private final Deque<Pane> closed = new ArrayDeque<>();
+
+    /**
+     * @param period the pane duration, in seconds.
+     */
+    WindowAggregator(Dictionary<String, Object> configuration, long period, long now) {
+        long size = (configuration.get(WINDOW_SIZE_CONFIG) != null) ? Long.parseLong(configuration.get(WINDOW_SIZE_CONFIG).toString()) : period;
+        this.panes = (int) Math.max(1, (size + period - 1) / period);
+        this.groupBy = split(configuration.get(GROUP_BY_CONFIG)).toArray(new String[0]);
+        List<String> fields = split(configuration.get(FIELDS_CONFIG));
+        this.fields = fields.isEmpty() ? null : new HashSet<>(fields);
+        List<String> statistics = split(configuration.get(STATISTICS_CONFIG));
+        this.statistics = new HashSet<>(statistics.isEmpty() ? ALL_STATISTICS : statistics);
+        this.maxKeys = (configuration.get(MAX_KEYS_CONFIG) != null) ? Integer.parseInt(configuration.get(MAX_KEYS_CONFIG).toString()) : 10000;
+        this.current = new Pane(now);
+    }
+
+    void add(Event event) {
+        Object[] key = new Object[groupBy.length + 1];
+        key[0] = event.getTopic();
+        for (int i = 0; i < groupBy.length; i++) {
+            key[i + 1] = event.getProperty(groupBy[i]);
+        }
+        List<Object> groupKey = Arrays.asList(key);
+        lock.readLock().lock();
+        try {
+            Pane pane = current;
+            Group group = pane.groups.get(groupKey);
+            if (group == null) {
+                if (pane.groups.size() >= maxKeys) {
+                    pane.ignored.increment();
+                    return;
+                }
+                group = pane.groups.computeIfAbsent(groupKey, k -> new Group());
+            }
+            group.count.increment();
+            for (String name : event.getPropertyNames()) {
+                Object value = event.getProperty(name);
+                if (value instanceof Number && accept(name)) {
+                    FieldStatistics field = group.fields.get(name);
+                    if (field == null) {
+                        field = group.fields.computeIfAbsent(name, k -> new FieldStatistics());
+                    }
+                    field.add((Number) value);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean accept(String name) {
+        if (fields != null) {
+            return fields.contains(name);
+        }
+        if (EventConstants.TIMESTAMP.equals(name)) {
+            return false;
+        }
+        for (String property : groupBy) {
+            if (property.equals(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Close the current pane and compute the statistics of the window ending with this pane.
+     *
+     * @return the data of the events to send, one per key.
+     */
+    synchronized List<Map<String, Object>> roll(long now) {
+        Pane pane;
+        lock.writeLock().lock();
+        try {
+            pane = current;
+            current = new Pane(now);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // the closed pane is complete, no event is added to it anymore
+        closed.addLast(pane);
+        while (closed.size() > panes) {
+            closed.removeFirst();
+        }
+        if (pane.ignored.sum() > 0) {
+            LOGGER.warn("{} events ignored, the maximum number of keys ({}) is reached", pane.ignored.sum(), maxKeys);
+        }
+
+        Map<List<Object>, Merged> window = new LinkedHashMap<>();
+        for (Pane closedPane : closed) {
+            for (Map.Entry<List<Object>, Group> entry : closedPane.groups.entrySet()) {
+                window.computeIfAbsent(entry.getKey(), k -> new Merged()).merge(entry.getValue());
+            }
+        }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<List<Object>, Merged> entry : window.entrySet()) {
+            result.add(data(entry.getKey(), entry.getValue(), closed.getFirst().start, now));
+        }
+        return result;
+    }
+
+    private Map<String, Object> data(List<Object> key, Merged merged, long start, long end) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(SOURCE_TOPIC_PROPERTY, key.get(0));
+        for (int i = 0; i < groupBy.length; i++) {
+            if (key.get(i + 1) != null) {
+                data.put(groupBy[i], key.get(i + 1));
+            }
+        }
+        data.put(COUNT_PROPERTY, merged.count);
+        data.put(WINDOW_START_PROPERTY, start);
+        data.put(WINDOW_END_PROPERTY, end);
+        for (Map.Entry<String, MergedField> entry : merged.fields.entrySet()) {
+            String name = entry.getKey();
+            MergedField field = entry.getValue();
+            if (statistics.contains("count")) {
+                data.put(name + ".count", field.count);
+            }
+            if (statistics.contains("sum")) {
+                data.put(name + ".sum", field.sum);
+            }
+            if (statistics.contains("min")) {
+                data.put(name + ".min", field.min);
+            }
+            if (statistics.contains("max")) {
+                data.put(name + ".max", field.max);
+            }
+            if (statistics.contains("mean")) {
+                data.put(name + ".mean", field.sum / field.count);
+            }
+            if (statistics.contains("last") && field.last != null) {
+                data.put(name + ".last", field.last);
+            }
+        }
+        return data;
+    }
+
+    private static List<String> split(Object value) {
+        List<String> values = new ArrayList<>();
+        if (value != null) {
+            for (String item : value.toString().split(",")) {
+                if (!item.trim().isEmpty()) {
+                    values.add(item.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    static class Pane {
+
+        private final long start;
+        private final ConcurrentHashMap<List<Object>, Group> groups = new ConcurrentHashMap<>();
+        private final LongAdder ignored = new LongAdder();
+
+        Pane(long start) {
+            this.start = start;
+        }
+
+    }
+
+    static class Group {
+
+        private final LongAdder count = new LongAdder();
+        private final ConcurrentHashMap<String, FieldStatistics> fields = new ConcurrentHashMap<>();
+
+    }
+
+    /**
+     * Statistics of a key on the panes of the window, the panes are merged from the oldest to the newest.
+     */
+    static class Merged {
+
+        private long count;
+        private final Map<String, MergedField> fields = new LinkedHashMap<>();
+
+        void merge(Group group) {
+            count += group.count.sum();
+            for (Map.Entry<String, FieldStatistics> entry : group.fields.entrySet()) {
+                FieldStatistics statistics = entry.getValue();
+                if (statistics.count() == 0) {
+                    continue;
+                }
+                MergedField field = fields.computeIfAbsent(entry.getKey(), k -> new MergedField());
+                field.count += statistics.count();
+                field.sum += statistics.sum();
+                field.min = Math.min(field.min, statistics.min());
+                field.max = Math.max(field.max, statistics.max());
+                if (statistics.last() != null) {
+                    field.last = statistics.last();
+                }
+            }
+        }
+
+    }
+
+    static class MergedField {
+
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private Number last;
+
+    }
+
+}
@@ -25,6 +25,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class AggregateProcessorTest {
 
@@ -102,9 +104,131 @@ public class AggregateProcessorTest {
         aggregateProcessor.deactivate();
     }
 
+    @Test
+    public void testTumblingWindow() {
+        Hashtable<String, Object> configuration = new Hashtable<>();
+        configuration.put(WindowAggregator.GROUP_BY_CONFIG, "hostName");
+        WindowAggregator aggregator = new WindowAggregator(configuration, 60, 0L);
+
+        aggregator.add(metric("host1", 10L, 0.5));
+        aggregator.add(metric("host1", 30L, 1.5));
+        aggregator.add(metric("host2", 5L, 2.0));
+        List<Map<String, Object>> window = aggregator.roll(60000L);
+
+        Assert.assertEquals(2, window.size());
+        Map<String, Object> host1 = byHost(window, "host1");
+        Assert.assertEquals("decanter/collect/jmx", host1.get(WindowAggregator.SOURCE_TOPIC_PROPERTY));
+        Assert.assertEquals(2L, host1.get(WindowAggregator.COUNT_PROPERTY));
+        Assert.assertEquals(0L, host1.get(WindowAggregator.WINDOW_START_PROPERTY));
+        Assert.assertEquals(60000L, host1.get(WindowAggregator.WINDOW_END_PROPERTY));
+        Assert.assertEquals(2L, host1.get("used.count"));
+        Assert.assertEquals(40.0, (Double) host1.get("used.sum"), 0.0);
+        Assert.assertEquals(10.0, (Double) host1.get("used.min"), 0.0);
+        Assert.assertEquals(30.0, (Double) host1.get("used.max"), 0.0);
+        Assert.assertEquals(20.0, (Double) host1.get("used.mean"), 0.0);
+        Assert.assertEquals(30L, host1.get("used.last"));
+        Assert.assertEquals(1.0, (Double) host1.get("load.mean"), 0.0);
+        // the timestamp and the group by properties are not aggregated
+        Assert.assertFalse(host1.containsKey("timestamp.count"));
+        Assert.assertFalse(host1.containsKey("name"));
+        Assert.assertEquals(1L, byHost(window, "host2").get(WindowAggregator.COUNT_PROPERTY));
+
+        // tumbling window: the next window doesn't contain the previous events
+        aggregator.add(metric("host1", 50L, 0.1));
+        window = aggregator.roll(120000L);
+        Assert.assertEquals(1, window.size());
+        Assert.assertEquals(50.0, (Double) byHost(window, "host1").get("used.min"), 0.0);
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        Hashtable<String, Object> configuration = new Hashtable<>();
+        configuration.put(WindowAggregator.WINDOW_SIZE_CONFIG, "180");
+        configuration.put(WindowAggregator.FIELDS_CONFIG, "used");
+        configuration.put(WindowAggregator.STATISTICS_CONFIG, "max,mean");
+        WindowAggregator aggregator = new WindowAggregator(configuration, 60, 0L);
+
+        long[] values = { 10L, 20L, 30L, 40L };
+        List<Map<String, Object>> window = null;
+        for (int i = 0; i < values.length; i++) {
+            aggregator.add(metric("host1", values[i], 0.5));
+            window = aggregator.roll((i + 1) * 60000L);
+        }
+        // the window contains the last three panes
+        Assert.assertEquals(1, window.size());
+        Map<String, Object> data = window.get(0);
+        Assert.assertEquals(3L, data.get(WindowAggregator.COUNT_PROPERTY));
+        Assert.assertEquals(60000L, data.get(WindowAggregator.WINDOW_START_PROPERTY));
+        Assert.assertEquals(40.0, (Double) data.get("used.max"), 0.0);
+        Assert.assertEquals(30.0, (Double) data.get("used.mean"), 0.0);
+        Assert.assertFalse(data.containsKey("used.sum"));
+        Assert.assertFalse(data.containsKey("load.max"));
+    }
+
+    @Test
+    public void testMaxKeys() {
+        Hashtable<String, Object> configuration = new Hashtable<>();
+        configuration.put(WindowAggregator.GROUP_BY_CONFIG, "hostName");
+        configuration.put(WindowAggregator.MAX_KEYS_CONFIG, "1");
+        WindowAggregator aggregator = new WindowAggregator(configuration, 60, 0L);
+        aggregator.add(metric("host1", 10L, 0.5));
+        aggregator.add(metric("host2", 10L, 0.5));
+        aggregator.add(metric("host1", 10L, 0.5));
+        List<Map<String, Object>> window = aggregator.roll(60000L);
+        Assert.assertEquals(1, window.size());
+        Assert.assertEquals(2L, byHost(window, "host1").get(WindowAggregator.COUNT_PROPERTY));
+    }
+
+    @Test
+    public void testWindowMode() throws Exception {
+        MockDispatcher dispatcher = new MockDispatcher();
+        AggregateProcessor aggregateProcessor = new AggregateProcessor();
+        aggregateProcessor.setDispatcher(dispatcher);
+        Hashtable<String, Object> configuration = new Hashtable<>();
+        configuration.put("period", "1");
+        configuration.put(AggregateProcessor.MODE_CONFIG, AggregateProcessor.WINDOW_MODE);
+        configuration.put(WindowAggregator.GROUP_BY_CONFIG, "hostName");
+        aggregateProcessor.activate(configuration);
+
+        Thread.sleep(1100);
+        dispatcher.postedEvents.clear();
+        for (int i = 0; i < 10; i++) {
+            aggregateProcessor.handleEvent(metric("host1", i, 0.5));
+        }
+        Thread.sleep(1000);
+        aggregateProcessor.deactivate();
+
+        Assert.assertEquals(1, dispatcher.postedEvents.size());
+        Event event = dispatcher.postedEvents.get(0);
+        Assert.assertEquals("decanter/process/aggregate", event.getTopic());
+        Assert.assertEquals("aggregate", event.getProperty("processor"));
+        Assert.assertEquals("host1", event.getProperty("hostName"));
+        Assert.assertEquals(10L, event.getProperty(WindowAggregator.COUNT_PROPERTY));
+        Assert.assertEquals(4.5, (Double) event.getProperty("used.mean"), 0.0);
+    }
+
+    private Event metric(String hostName, long used, double load) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("timestamp", System.currentTimeMillis());
+        data.put("hostName", hostName);
+        data.put("name", "memory");
+        data.put("used", used);
+        data.put("load", load);
+        return new Event("decanter/collect/jmx", data);
+    }
+
+    private Map<String, Object> byHost(List<Map<String, Object>> window, String hostName) {
+        for (Map<String, Object> data : window) {
+            if (hostName.equals(data.get("hostName"))) {
+                return data;
+            }
+        }
+        return null;
+    }
+
     class MockDispatcher implements EventAdmin {
 
-        public List<Event> postedEvents = new ArrayList<>();
+        public List<Event> postedEvents = new CopyOnWriteArrayList<>();
         public List<Event> sentEvents = new ArrayList<>();
 
         @Override